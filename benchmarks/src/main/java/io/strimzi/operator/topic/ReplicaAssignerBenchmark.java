@@ -0,0 +1,87 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.operator.topic;
+
+import org.apache.kafka.common.Node;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link ReplicaAssigner} assigning and reassigning {@code partitions} partitions
+ * over {@code brokers} brokers in {@code racks} racks, in a cluster which already has
+ * an uneven distribution of replicas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ReplicaAssignerBenchmark {
+
+    @Param({"1000"})
+    public int brokers;
+
+    @Param({"100000"})
+    public int partitions;
+
+    @Param({"0", "10"})
+    public int racks;
+
+    @Param({"3"})
+    public int replicationFactor;
+
+    private List<Node> nodes;
+    private Map<Integer, Integer> replicaCounts;
+    private Map<Integer, List<Integer>> currentAssignment;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        nodes = new ArrayList<>(brokers);
+        replicaCounts = new HashMap<>();
+        for (int id = 0; id < brokers; id++) {
+            nodes.add(new Node(id, "broker-" + id, 9092, racks == 0 ? null : "rack-" + (id % racks)));
+            replicaCounts.put(id, random.nextInt(1000));
+        }
+        currentAssignment = new HashMap<>(partitions);
+        for (int partition = 0; partition < partitions; partition++) {
+            List<Integer> replicas = new ArrayList<>(replicationFactor);
+            while (replicas.size() < replicationFactor) {
+                int broker = random.nextInt(brokers);
+                if (!replicas.contains(broker)) {
+                    replicas.add(broker);
+                }
+            }
+            currentAssignment.put(partition, replicas);
+        }
+    }
+
+    @Benchmark
+    public Map<Integer, List<Integer>> assignNewPartitions() {
+        return new ReplicaAssigner(nodes, replicaCounts).assignNewPartitions(0, partitions, replicationFactor);
+    }
+
+    @Benchmark
+    public Map<Integer, List<Integer>> increaseReplicationFactor() {
+        return new ReplicaAssigner(nodes, replicaCounts).changeReplicationFactor(currentAssignment, replicationFactor + 1);
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.operator.topic;
+
+import io.fabric8.kubernetes.api.model.ConfigMap;
+import org.apache.kafka.clients.admin.Config;
+import org.apache.kafka.clients.admin.ConfigEntry;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.TopicPartitionInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Collections.singletonList;
+
+/**
+ * Benchmarks the conversions of {@link TopicSerialization} for a topic with
+ * {@code configEntries} config entries.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class TopicSerializationBenchmark {
+
+    @Param({"10", "1000"})
+    public int configEntries;
+
+    private final LabelPredicate cmPredicate = new LabelPredicate("kind", "topic", "app", "strimzi");
+
+    private Topic topic;
+    private byte[] json;
+    private ConfigMap configMap;
+    private TopicMetadata metadata;
+
+    @Setup
+    public void setup() {
+        Topic.Builder builder = new Topic.Builder("my-topic", 12, (short) 3, null);
+        List<ConfigEntry> entries = new ArrayList<>(configEntries + 1);
+        for (int i = 0; i < configEntries; i++) {
+            builder.withConfigEntry("config.key." + i, "value-" + i);
+            entries.add(new ConfigEntry("config.key." + i, "value-" + i));
+        }
+        // Defaults are omitted by fromTopicMetadata
+        entries.add(new ConfigEntry("default.key", "default", true, false, false));
+        topic = builder.build();
+        json = TopicSerialization.toJson(topic);
+        configMap = TopicSerialization.toConfigMap(topic, cmPredicate);
+
+        Node node = new Node(0, "localhost", 9092);
+        List<TopicPartitionInfo> partitions = new ArrayList<>(topic.getNumPartitions());
+        for (int partition = 0; partition < topic.getNumPartitions(); partition++) {
+            partitions.add(new TopicPartitionInfo(partition, node, singletonList(node), singletonList(node)));
+        }
+        metadata = new TopicMetadata(new TopicDescription("my-topic", false, partitions), new Config(entries));
+    }
+
+    @Benchmark
+    public byte[] toJson() {
+        return TopicSerialization.toJson(topic);
+    }
+
+    @Benchmark
+    public Topic fromJson() {
+        return TopicSerialization.fromJson(json);
+    }
+
+    @Benchmark
+    public ConfigMap toConfigMap() {
+        return TopicSerialization.toConfigMap(topic, cmPredicate);
+    }
+
+    @Benchmark
+    public Topic fromConfigMap() {
+        return TopicSerialization.fromConfigMap(configMap);
+    }
+
+    @Benchmark
+    public Topic fromTopicMetadata() {
+        return TopicSerialization.fromTopicMetadata(metadata);
+    }
+}
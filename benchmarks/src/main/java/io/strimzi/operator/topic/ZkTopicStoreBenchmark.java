@@ -0,0 +1,129 @@
+/*
+ * Copyright 2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.operator.topic;
+
+import io.strimzi.operator.topic.zk.ZkImpl;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import org.apache.zookeeper.server.NIOServerCnxnFactory;
+import org.apache.zookeeper.server.ZooKeeperServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Benchmarks {@code topics} concurrent creates followed by {@code topics} concurrent deletes
+ * with a {@link ZkTopicStore} which executes each write individually, and with one which
+ * batches them into {@code multi()} transactions. ZooKeeper runs in-process.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ZkTopicStoreBenchmark {
+
+    @Param({"false", "true"})
+    public boolean batched;
+
+    @Param({"100", "1000"})
+    public int topics;
+
+    private File dir;
+    private ZooKeeperServer server;
+    private NIOServerCnxnFactory factory;
+    private Vertx vertx;
+    private ZkImpl zk;
+    private ZkTopicStore store;
+    private Topic[] toCreate;
+
+    @Setup
+    public void setup() throws Exception {
+        dir = Files.createTempDirectory("strimzi-benchmark").toFile();
+        server = new ZooKeeperServer(dir, dir, 1000);
+        factory = new NIOServerCnxnFactory();
+        factory.configure(new InetSocketAddress("localhost", 0), 10);
+        factory.startup(server);
+        vertx = Vertx.vertx();
+        zk = new ZkImpl(vertx, "localhost:" + factory.getLocalPort(), 60000, false, "benchmark");
+        store = batched ? new ZkTopicStore(zk, vertx) : new ZkTopicStore(zk);
+        toCreate = new Topic[topics];
+        for (int i = 0; i < topics; i++) {
+            toCreate[i] = new Topic.Builder("topic-" + i, 12, (short) 3, Collections.singletonMap("foo", "bar")).build();
+        }
+    }
+
+    @TearDown
+    public void teardown() throws Exception {
+        zk.disconnect();
+        vertx.close();
+        factory.shutdown();
+        server.shutdown(true);
+        delete(dir);
+    }
+
+    private static void delete(File dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir.toPath())) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public void createAndDelete() throws Throwable {
+        CountDownLatch created = new CountDownLatch(topics);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        for (Topic topic : toCreate) {
+            store.create(topic, countDown(created, failure));
+        }
+        await(created, failure);
+        CountDownLatch deleted = new CountDownLatch(topics);
+        for (Topic topic : toCreate) {
+            store.delete(topic.getTopicName(), countDown(deleted, failure));
+        }
+        await(deleted, failure);
+    }
+
+    private static Handler<AsyncResult<Void>> countDown(CountDownLatch latch, AtomicReference<Throwable> failure) {
+        return ar -> {
+            if (ar.failed()) {
+                failure.compareAndSet(null, ar.cause());
+            }
+            latch.countDown();
+        };
+    }
+
+    private static void await(CountDownLatch latch, AtomicReference<Throwable> failure) throws Throwable {
+        latch.await();
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+}
@@ -91,18 +91,20 @@ public class Main {
         OpenSslCertManager certManager = new OpenSslCertManager();
 
         // Kafka Assembly Operator
+        ResourceOperatorSupplier supplier = new ResourceOperatorSupplier(vertx, client, config.getOperationTimeoutMs());
         KafkaAssemblyOperator kafkaClusterOperations = new KafkaAssemblyOperator(
             vertx,
             isOpenShift,
             config.getOperationTimeoutMs(),
             certManager,
-            new ResourceOperatorSupplier(vertx, client, config.getOperationTimeoutMs())
+            supplier
         );
 
-        SecretOperator secretOperations = new SecretOperator(vertx, client);
-        ServiceOperator serviceOperations = new ServiceOperator(vertx, client);
-        DeploymentOperator deploymentOperations = new DeploymentOperator(vertx, client);
-        ConfigMapOperator configMapOperations = new ConfigMapOperator(vertx, client);
+        // The other assembly operators share the supplier's resource operators, and so their caches
+        SecretOperator secretOperations = supplier.secretOperations;
+        ServiceOperator serviceOperations = supplier.serviceOperations;
+        DeploymentOperator deploymentOperations = supplier.deploymentOperations;
+        ConfigMapOperator configMapOperations = supplier.configMapOperations;
         CrdOperator<KubernetesClient, KafkaConnectAssembly, KafkaConnectAssemblyList, DoneableKafkaConnectAssembly> kco = new CrdOperator<>(
             vertx,
             client,
@@ -150,7 +152,7 @@ public class Main {
                     kafkaClusterOperations,
                     kafkaConnectClusterOperations,
                     kafkaConnectS2IClusterOperations);
-            vertx.deployVerticle(operator,
+            supplier.informCaches(namespace).setHandler(informed -> vertx.deployVerticle(operator,
                 res -> {
                     if (res.succeeded()) {
                         log.info("Cluster Operator verticle started in namespace {}", namespace);
@@ -159,7 +161,7 @@ public class Main {
                         System.exit(1);
                     }
                     fut.completer().handle(res);
-                });
+                }));
         }
         return CompositeFuture.join(futures);
     }
@@ -56,7 +56,7 @@ public class KafkaCluster extends AbstractModel {
     private static final String ENV_VAR_KAFKA_INIT_RACK_TOPOLOGY_KEY = "RACK_TOPOLOGY_KEY";
     private static final String ENV_VAR_KAFKA_INIT_NODE_NAME = "NODE_NAME";
 
-    protected static final int CLIENT_PORT = 9092;
+    public static final int CLIENT_PORT = 9092;
     protected static final String CLIENT_PORT_NAME = "clients";
 
     protected static final int REPLICATION_PORT = 9091;
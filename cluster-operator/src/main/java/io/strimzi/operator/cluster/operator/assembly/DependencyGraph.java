@@ -0,0 +1,164 @@
+/*
+ * Copyright 2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.operator.cluster.operator.assembly;
+
+import io.strimzi.operator.cluster.Reconciliation;
+import io.vertx.core.Future;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static java.util.Collections.emptyList;
+
+/**
+ * A graph of asynchronous steps, for example the reconciliation of the resources of a cluster.
+ * Each step starts once all the steps it depends on have succeeded,
+ * so steps which don't depend on one another run concurrently.
+ * If a step fails, the steps which depend on it (directly or indirectly) are not started,
+ * and the graph fails once all the steps which were started have completed.
+ *
+ * Because a step can only depend on steps which were added to the graph before it, the graph is acyclic.
+ */
+class DependencyGraph {
+
+    private static final Logger log = LogManager.getLogger(DependencyGraph.class.getName());
+
+    /**
+     * A step of the graph.
+     */
+    static final class Step {
+        private final String name;
+        private final Supplier<Future<?>> action;
+        private final List<Step> dependents = new ArrayList<>();
+        // Guarded by the graph
+        private int remainingDependencies;
+
+        private Step(String name, Supplier<Future<?>> action, int dependencies) {
+            this.name = name;
+            this.action = action;
+            this.remainingDependencies = dependencies;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private final Reconciliation reconciliation;
+    private final List<Step> steps = new ArrayList<>();
+    private final Future<Void> result = Future.future();
+    // All the following are guarded by this
+    private boolean executed = false;
+    private int running = 0;
+    private Throwable failure;
+
+    DependencyGraph(Reconciliation reconciliation) {
+        this.reconciliation = reconciliation;
+    }
+
+    /**
+     * Add a step which doesn't depend on any other step to the graph.
+     * @param name The name of the step, for logging.
+     * @param action Starts the step, returning a future which completes when the step has completed.
+     * @return The step.
+     */
+    Step add(String name, Supplier<Future<?>> action) {
+        return add(name, emptyList(), action);
+    }
+
+    /**
+     * Add a step to the graph.
+     * @param name The name of the step, for logging.
+     * @param dependencies The steps which must succeed before this step is started.
+     * @param action Starts the step, returning a future which completes when the step has completed.
+     * @return The step.
+     */
+    synchronized Step add(String name, List<Step> dependencies, Supplier<Future<?>> action) {
+        if (executed) {
+            throw new IllegalStateException("Graph already executed");
+        }
+        for (Step dependency : dependencies) {
+            if (!steps.contains(dependency)) {
+                throw new IllegalArgumentException("Step " + dependency + " is not in this graph");
+            }
+        }
+        Step step = new Step(name, action, dependencies.size());
+        for (Step dependency : dependencies) {
+            dependency.dependents.add(step);
+        }
+        steps.add(step);
+        return step;
+    }
+
+    /**
+     * Start each step as soon as its dependencies have succeeded.
+     * @return A future which completes when all the steps have succeeded,
+     * or fails when any step has failed and all the steps which were started have completed.
+     */
+    synchronized Future<Void> execute() {
+        if (executed) {
+            throw new IllegalStateException("Graph already executed");
+        }
+        executed = true;
+        // Counted as running until all the initial steps have been started, in case they complete immediately
+        running++;
+        List<Step> initial = new ArrayList<>();
+        for (Step step : steps) {
+            if (step.remainingDependencies == 0) {
+                initial.add(step);
+            }
+        }
+        for (Step step : initial) {
+            start(step);
+        }
+        finished();
+        return result;
+    }
+
+    /** Must be called holding the lock. */
+    private void start(Step step) {
+        log.debug("{}: starting {}", reconciliation, step);
+        running++;
+        Future<?> stepResult;
+        try {
+            stepResult = step.action.get();
+        } catch (RuntimeException e) {
+            stepResult = Future.failedFuture(e);
+        }
+        stepResult.setHandler(ar -> completed(step, ar.cause()));
+    }
+
+    private synchronized void completed(Step step, Throwable cause) {
+        if (cause == null) {
+            for (Step dependent : step.dependents) {
+                if (--dependent.remainingDependencies == 0) {
+                    start(dependent);
+                }
+            }
+        } else {
+            log.debug("{}: {} failed", reconciliation, step, cause);
+            if (failure == null) {
+                failure = cause;
+            }
+        }
+        finished();
+    }
+
+    /** Must be called holding the lock. */
+    private void finished() {
+        // Once no step is running, no more steps can start
+        if (--running == 0) {
+            if (failure == null) {
+                result.complete();
+            } else {
+                result.fail(failure);
+            }
+        }
+    }
+}
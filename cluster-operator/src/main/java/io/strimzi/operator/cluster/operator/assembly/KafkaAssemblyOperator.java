@@ -44,6 +44,11 @@ import org.apache.logging.log4j.Logger;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Supplier;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
 
 /**
  * <p>Assembly operator for a "Kafka" assembly, which manages:</p>
@@ -158,10 +163,6 @@ public class KafkaAssemblyOperator extends AbstractAssemblyOperator<KubernetesCl
                 return this;
             });
         }
-
-        Future<ZookeeperClusterDescription> withVoid(Future<?> r) {
-            return r.map(this);
-        }
     }
 
     /**
@@ -244,10 +245,6 @@ public class KafkaAssemblyOperator extends AbstractAssemblyOperator<KubernetesCl
                 return this;
             });
         }
-
-        Future<KafkaClusterDescription> withVoid(Future<?> r) {
-            return r.map(this);
-        }
     }
 
     /**
@@ -289,10 +286,6 @@ public class KafkaAssemblyOperator extends AbstractAssemblyOperator<KubernetesCl
         ConfigMap metricsAndLogsConfigMap() {
             return this.metricsAndLogsConfigMap;
         }
-
-        Future<TopicOperatorDescription> withVoid(Future<?> r) {
-            return r.map(this);
-        }
     }
 
     private final Future<KafkaClusterDescription> getKafkaClusterDescription(KafkaAssembly kafkaAssembly, List<Secret> assemblySecrets) {
@@ -348,142 +341,121 @@ public class KafkaAssemblyOperator extends AbstractAssemblyOperator<KubernetesCl
         Future<Void> chainFuture = Future.future();
 
         getKafkaClusterDescription(kafkaAssembly, assemblySecrets)
-                .compose(desc ->
-                    desc.withVoid(
+                .compose(desc -> {
+                    DependencyGraph graph = new DependencyGraph(reconciliation);
+                    DependencyGraph.Step serviceAccount = graph.add("init container ServiceAccount", () ->
                         serviceAccountOperator.reconcile(
                             namespace,
                             KafkaCluster.initContainerServiceAccountName(desc.kafka().getCluster()),
                             desc.kafka.generateInitContainerServiceAccount()
                         )
-                    )
-                )
-                .compose(desc ->
-                    desc.withVoid(
+                    );
+                    DependencyGraph.Step clusterRoleBinding = graph.add("init container ClusterRoleBinding", () ->
                         clusterRoleBindingOperator.reconcile(
                             KafkaCluster.initContainerClusterRoleBindingName(desc.kafka().getCluster()),
                             desc.kafka.generateClusterRoleBinding(namespace)
                         )
-                    )
-                )
-                .compose(desc ->
-                    desc.withVoid(
+                    );
+                    DependencyGraph.Step scaleDown = graph.add("scale down", () ->
                         kafkaSetOperations.scaleDown(
                             namespace,
                             desc.kafka().getName(),
                             desc.kafka().getReplicas()
                         )
-                    )
-                )
-                .compose(desc ->
-                    desc.withVoid(
+                    );
+                    DependencyGraph.Step service = graph.add("Service", () ->
                         serviceOperations.reconcile(
                             namespace,
                             desc.kafka().getServiceName(),
                             desc.service()
                         )
-                    )
-                )
-                .compose(desc ->
-                    desc.withVoid(
+                    );
+                    DependencyGraph.Step headlessService = graph.add("headless Service", () ->
                         serviceOperations.reconcile(
                             namespace,
                             desc.kafka().getHeadlessServiceName(),
                             desc.headlessService()
                         )
-                    )
-                )
-                .compose(desc ->
-                    desc.withVoid(
+                    );
+                    DependencyGraph.Step configMap = graph.add("metrics and logging ConfigMap", () ->
                         configMapOperations.reconcile(
                             namespace,
                             desc.kafka().getAncillaryConfigName(),
                             desc.metricsAndLogsConfigMap()
                         )
-                    )
-                )
-                .compose(desc ->
-                    desc.withVoid(
+                    );
+                    DependencyGraph.Step clientsCASecret = graph.add("clients CA Secret", () ->
                         secretOperations.reconcile(
                             namespace,
                             KafkaCluster.clientsCASecretName(name),
                             desc.clientsCASecret()
                         )
-                    )
-                )
-                .compose(desc ->
-                    desc.withVoid(
+                    );
+                    DependencyGraph.Step clientsPublicKeySecret = graph.add("clients public key Secret", () ->
                         secretOperations.reconcile(
                             namespace,
                             KafkaCluster.clientsPublicKeyName(name),
                             desc.clientsPublicKeySecret()
                         )
-                    )
-                )
-                .compose(desc ->
-                    desc.withVoid(
+                    );
+                    DependencyGraph.Step clusterPublicKeySecret = graph.add("cluster public key Secret", () ->
                         secretOperations.reconcile(
                             namespace,
                             KafkaCluster.clusterPublicKeyName(name),
                             desc.clusterPublicKeySecret()
                         )
-                    )
-                )
-                .compose(desc ->
-                    desc.withVoid(
+                    );
+                    DependencyGraph.Step brokersSecret = graph.add("brokers Secret", () ->
                         secretOperations.reconcile(
                             namespace,
                             KafkaCluster.brokersSecretName(name),
                             desc.brokersInternalSecret()
                         )
-                    )
-                )
-                .compose(desc ->
-                    desc.withDiff(
-                        kafkaSetOperations.reconcile(
-                            namespace,
-                            desc.kafka().getName(),
-                            desc.statefulSet()
+                    );
+                    // The pods need everything else to be in place before they start
+                    DependencyGraph.Step statefulSet = graph.add("StatefulSet",
+                        asList(serviceAccount, clusterRoleBinding, scaleDown, service, headlessService, configMap,
+                                clientsCASecret, clientsPublicKeySecret, clusterPublicKeySecret, brokersSecret), () ->
+                        desc.withDiff(
+                            kafkaSetOperations.reconcile(
+                                namespace,
+                                desc.kafka().getName(),
+                                desc.statefulSet()
+                            )
                         )
-                    )
-                )
-                .compose(desc ->
-                    desc.withVoid(
+                    );
+                    DependencyGraph.Step rollingUpdate = graph.add("rolling update", singletonList(statefulSet), () ->
                         kafkaSetOperations.maybeRollingUpdate(
                             desc.diffs().resource()
                         )
-                    )
-                )
-                .compose(desc ->
-                    desc.withVoid(
+                    );
+                    DependencyGraph.Step scaleUp = graph.add("scale up", singletonList(rollingUpdate), () ->
                         kafkaSetOperations.scaleUp(
                             namespace,
                             desc.kafka().getName(),
                             desc.kafka().getReplicas()
                         )
-                    )
-                )
-                .compose(desc ->
-                    desc.withVoid(
+                    );
+                    graph.add("Service endpoints ready", singletonList(scaleUp), () ->
                         serviceOperations.endpointReadiness(
                             namespace,
                             desc.service(),
                             1_000,
                             operationTimeoutMs
                         )
-                    )
-                )
-                .compose(desc ->
-                    desc.withVoid(
+                    );
+                    graph.add("headless Service endpoints ready", singletonList(scaleUp), () ->
                         serviceOperations.endpointReadiness(
                             namespace,
                             desc.headlessService(),
                             1_000,
                             operationTimeoutMs
                         )
-                    )
-                )
+                    );
+                    return graph.execute();
+                })
                 .compose(
-                    desc -> chainFuture.complete(),
+                    v -> chainFuture.complete(),
                     chainFuture
                 );
 
@@ -636,98 +608,86 @@ public class KafkaAssemblyOperator extends AbstractAssemblyOperator<KubernetesCl
         log.debug("{}: create/update zookeeper {}", reconciliation, name);
         Future<Void> chainFuture = Future.future();
         getZookeeperClusterDescription(kafkaAssembly, assemblySecrets)
-                .compose(desc ->
-                    desc.withVoid(
+                .compose(desc -> {
+                    DependencyGraph graph = new DependencyGraph(reconciliation);
+                    DependencyGraph.Step scaleDown = graph.add("scale down", () ->
                         zkSetOperations.scaleDown(
                             namespace,
                             desc.zookeeper().getName(),
                             desc.zookeeper().getReplicas()
                         )
-                    )
-                )
-                .compose(desc ->
-                    desc.withVoid(
+                    );
+                    DependencyGraph.Step service = graph.add("Service", () ->
                         serviceOperations.reconcile(
                             namespace,
                             desc.zookeeper().getServiceName(),
                             desc.service()
                         )
-                    )
-                )
-                .compose(desc ->
-                    desc.withVoid(
+                    );
+                    DependencyGraph.Step headlessService = graph.add("headless Service", () ->
                         serviceOperations.reconcile(
                             namespace,
                             desc.zookeeper().getHeadlessServiceName(),
                             desc.headlessService()
                         )
-                    )
-                )
-                .compose(desc ->
-                    desc.withVoid(
+                    );
+                    DependencyGraph.Step configMap = graph.add("metrics and logging ConfigMap", () ->
                         configMapOperations.reconcile(
                             namespace,
                             desc.zookeeper().getAncillaryConfigName(),
                             desc.metricsAndLogsConfigMap()
                         )
-                    )
-                )
-                .compose(desc ->
-                    desc.withVoid(
+                    );
+                    DependencyGraph.Step nodesSecret = graph.add("nodes Secret", () ->
                         secretOperations.reconcile(
                             namespace,
                             ZookeeperCluster.nodesSecretName(name),
                             desc.nodesSecret()
                         )
-                    )
-                )
-                .compose(desc ->
-                    desc.withDiff(
-                        zkSetOperations.reconcile(
-                            namespace,
-                            desc.zookeeper().getName(),
-                            desc.statefulSet()
+                    );
+                    // The pods need everything else to be in place before they start
+                    DependencyGraph.Step statefulSet = graph.add("StatefulSet",
+                        asList(scaleDown, service, headlessService, configMap, nodesSecret), () ->
+                        desc.withDiff(
+                            zkSetOperations.reconcile(
+                                namespace,
+                                desc.zookeeper().getName(),
+                                desc.statefulSet()
+                            )
                         )
-                    )
-                )
-                .compose(desc ->
-                    desc.withVoid(
+                    );
+                    DependencyGraph.Step rollingUpdate = graph.add("rolling update", singletonList(statefulSet), () ->
                         zkSetOperations.maybeRollingUpdate(
                             desc.diffs().resource()
                         )
-                    )
-                )
-                .compose(desc ->
-                    desc.withVoid(
+                    );
+                    DependencyGraph.Step scaleUp = graph.add("scale up", singletonList(rollingUpdate), () ->
                         zkSetOperations.scaleUp(
                             namespace,
                             desc.zookeeper().getName(),
                             desc.zookeeper().getReplicas()
                         )
-                    )
-                )
-                .compose(desc ->
-                    desc.withVoid(
+                    );
+                    graph.add("Service endpoints ready", singletonList(scaleUp), () ->
                         serviceOperations.endpointReadiness(
                             namespace,
                             desc.service(),
                             1_000,
                             operationTimeoutMs
                         )
-                    )
-                )
-                .compose(desc ->
-                    desc.withVoid(
+                    );
+                    graph.add("headless Service endpoints ready", singletonList(scaleUp), () ->
                         serviceOperations.endpointReadiness(
                             namespace,
                             desc.headlessService(),
                             1_000,
                             operationTimeoutMs
                         )
-                    )
-                )
+                    );
+                    return graph.execute();
+                })
                 .compose(
-                    desc -> chainFuture.complete(),
+                    v -> chainFuture.complete(),
                     chainFuture
                 );
 
@@ -848,53 +808,55 @@ public class KafkaAssemblyOperator extends AbstractAssemblyOperator<KubernetesCl
 
         Future<Void> chainFuture = Future.future();
         getTopicOperatorDescription(kafkaAssembly, assemblySecrets)
-                .compose(desc ->
-                    desc.withVoid(
+                .compose(desc -> {
+                    DependencyGraph graph = new DependencyGraph(reconciliation);
+                    Supplier<Future<?>> deployment = () ->
+                        deploymentOperations.reconcile(
+                            namespace,
+                            TopicOperator.topicOperatorName(name),
+                            desc.deployment()
+                        );
+                    // When creating or updating, the Deployment waits for the resources it uses.
+                    // When deleting, they wait for the Deployment, so the topic operator never runs without them.
+                    List<DependencyGraph.Step> awaitDeployment = emptyList();
+                    if (desc == TopicOperatorDescription.EMPTY) {
+                        awaitDeployment = singletonList(graph.add("topic operator Deployment", deployment));
+                    }
+                    DependencyGraph.Step serviceAccount = graph.add("topic operator ServiceAccount", awaitDeployment, () ->
                         serviceAccountOperator.reconcile(
                             namespace,
                             TopicOperator.topicOperatorServiceAccountName(name),
                             desc != TopicOperatorDescription.EMPTY ? desc.topicOperator().generateServiceAccount() : null
                         )
-                    )
-                )
-                .compose(desc ->
-                    desc.withVoid(
+                    );
+                    DependencyGraph.Step roleBinding = graph.add("topic operator RoleBinding", awaitDeployment, () ->
                         roleBindingOperator.reconcile(
                             namespace,
                             TopicOperator.TO_ROLE_BINDING_NAME,
                             desc != TopicOperatorDescription.EMPTY ? desc.topicOperator().generateRoleBinding(namespace) : null
                         )
-                    )
-                )
-                .compose(desc ->
-                    desc.withVoid(
+                    );
+                    DependencyGraph.Step configMap = graph.add("topic operator metrics and logging ConfigMap", awaitDeployment, () ->
                         configMapOperations.reconcile(
                             namespace,
                             desc != TopicOperatorDescription.EMPTY ? desc.topicOperator().getAncillaryConfigName() : TopicOperator.metricAndLogConfigsName(name),
                             desc.metricsAndLogsConfigMap()
                         )
-                    )
-                )
-                .compose(desc ->
-                    desc.withVoid(
-                        deploymentOperations.reconcile(
-                            namespace,
-                            TopicOperator.topicOperatorName(name),
-                            desc.deployment()
-                        )
-                    )
-                )
-                .compose(desc ->
-                    desc.withVoid(
+                    );
+                    DependencyGraph.Step secret = graph.add("topic operator Secret", awaitDeployment, () ->
                         secretOperations.reconcile(
                             namespace,
                             TopicOperator.secretName(name),
                             desc.topicOperatorSecret()
                         )
-                    )
-                )
+                    );
+                    if (desc != TopicOperatorDescription.EMPTY) {
+                        graph.add("topic operator Deployment", asList(serviceAccount, roleBinding, configMap, secret), deployment);
+                    }
+                    return graph.execute();
+                })
                 .compose(
-                    desc -> chainFuture.complete(),
+                    v -> chainFuture.complete(),
                     chainFuture
                 );
 
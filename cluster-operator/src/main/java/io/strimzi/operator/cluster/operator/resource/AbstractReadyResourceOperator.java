@@ -8,15 +8,22 @@ import io.fabric8.kubernetes.api.model.Doneable;
 import io.fabric8.kubernetes.api.model.HasMetadata;
 import io.fabric8.kubernetes.api.model.KubernetesResourceList;
 import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
 import io.fabric8.kubernetes.client.dsl.Resource;
 import io.fabric8.kubernetes.client.internal.readiness.Readiness;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiPredicate;
+import java.util.function.Predicate;
 
 public abstract class AbstractReadyResourceOperator<C extends KubernetesClient,
             T extends HasMetadata,
@@ -32,6 +39,12 @@ public abstract class AbstractReadyResourceOperator<C extends KubernetesClient,
         super(vertx, client, resourceKind);
     }
 
+    /**
+     * How often the predicate of {@link #waitFor(String, String, long, long, BiPredicate, Predicate)} is polled
+     * while the resource is being watched, in case a watch event is missed.
+     */
+    static final long WATCHED_POLL_INTERVAL_MS = 10_000;
+
     /*
     endpointOperations.readiness(
         namespace,
@@ -41,51 +54,158 @@ public abstract class AbstractReadyResourceOperator<C extends KubernetesClient,
     );
     */
     public Future<Void> readiness(String namespace, String name, long pollIntervalMs, long timeoutMs) {
-        return waitFor(namespace, name, pollIntervalMs, timeoutMs, this::isReady);
+        return waitFor(namespace, name, pollIntervalMs, timeoutMs, this::isReady, this::isReady);
     }
 
     // waitFor(namespace, name, pollIntervalMs, timeoutMs, this::isReady);
     public Future<Void> waitFor(String namespace, String name, long pollIntervalMs, final long timeoutMs, BiPredicate<String, String> predicate) {
+        return waitFor(namespace, name, pollIntervalMs, timeoutMs, predicate, null);
+    }
+
+    /**
+     * Asynchronously wait for the given {@code predicate} to be true of the resource with the given
+     * {@code namespace} and {@code name}.
+     * The resource is watched, and each watch event for it is tested with the {@code eventPredicate}
+     * or, if that is null, causes the {@code predicate} to be tested straight away.
+     * The {@code predicate} is also polled, every {@code pollIntervalMs} if the resource can't be watched,
+     * but only every {@link #WATCHED_POLL_INTERVAL_MS} while it is being watched.
+     * The watch is opened on a worker thread, and the polling starts once it is open.
+     * @return A future which completes when the predicate is true, or fails with a {@link TimeoutException}
+     * after {@code timeoutMs}.
+     */
+    public Future<Void> waitFor(String namespace, String name, long pollIntervalMs, final long timeoutMs,
+                                BiPredicate<String, String> predicate, Predicate<T> eventPredicate) {
         Future<Void> fut = Future.future();
         log.debug("Waiting for {} resource {} in namespace {} to get ready", resourceKind, name, namespace);
+        Context context = vertx.getOrCreateContext();
         long deadline = System.currentTimeMillis() + timeoutMs;
+        AtomicReference<Watch> watch = new AtomicReference<>();
+        Handler<Void> ready = ignored -> {
+            if (!fut.isComplete()) {
+                log.debug("{} {} in namespace {} is ready", resourceKind, name, namespace);
+                closeWatch(watch);
+                fut.complete();
+            }
+        };
+        Watcher<T> watcher = new Watcher<T>() {
+            @Override
+            public void eventReceived(Action action, T resource) {
+                context.runOnContext(ignored -> {
+                    if (fut.isComplete()) {
+                        return;
+                    }
+                    if (eventPredicate == null) {
+                        test(namespace, name, predicate, ar -> {
+                            if (ar.succeeded()) {
+                                ready.handle(null);
+                            }
+                        });
+                    } else if (action != Action.DELETED && eventPredicate.test(resource)) {
+                        ready.handle(null);
+                    }
+                });
+            }
+
+            @Override
+            public void onClose(KubernetesClientException cause) {
+                if (cause != null) {
+                    log.debug("Watch of {} {} in namespace {} closed, polling instead", resourceKind, name, namespace, cause);
+                    watch.set(null);
+                }
+            }
+        };
         Handler<Long> handler = new Handler<Long>() {
             @Override
             public void handle(Long timerId) {
-                vertx.createSharedWorkerExecutor("kubernetes-ops-pool").executeBlocking(future -> {
-                    try {
-                        if (predicate.test(namespace, name))   {
-                            future.complete();
-                        } else {
-                            log.trace("{} {} in namespace {} is not ready", resourceKind, name, namespace);
-                            future.fail("Not ready yet");
-                        }
-                    } catch (Throwable e) {
-                        log.warn("Caught exception while waiting for {} {} in namespace {} to get ready", resourceKind, name, namespace, e);
-                        future.fail(e);
+                if (fut.isComplete()) {
+                    return;
+                }
+                test(namespace, name, predicate, res -> {
+                    if (fut.isComplete()) {
+                        return;
                     }
-                }, true, res -> {
                     if (res.succeeded()) {
-                        log.debug("{} {} in namespace {} is ready", resourceKind, name, namespace);
-                        fut.complete();
+                        ready.handle(null);
                     } else {
                         long timeLeft = deadline - System.currentTimeMillis();
                         if (timeLeft <= 0) {
                             String exceptionMessage = String.format("Exceeded timeout of %dms while waiting for %s %s in namespace %s to be ready", timeoutMs, resourceKind, name, namespace);
                             log.error(exceptionMessage);
+                            closeWatch(watch);
                             fut.fail(new TimeoutException(exceptionMessage));
                         } else {
                             // Schedule ourselves to run again
-                            vertx.setTimer(Math.min(pollIntervalMs, timeLeft), this);
+                            long interval = watch.get() != null ? Math.max(pollIntervalMs, WATCHED_POLL_INTERVAL_MS) : pollIntervalMs;
+                            vertx.setTimer(Math.min(interval, timeLeft), this);
                         }
                     }
                 });
             }
         };
-        handler.handle(null);
+        // Opening the watch blocks until the API server has accepted it, so it's opened on a worker,
+        // and the polling starts once we know whether the resource is being watched
+        vertx.createSharedWorkerExecutor("kubernetes-ops-pool").<Watch>executeBlocking(
+            future -> future.complete(openWatch(namespace, name, watcher)),
+            false,
+            ar -> {
+                watch.set(ar.result());
+                if (fut.isComplete()) {
+                    // A watch event made the resource ready while the watch was being opened
+                    closeWatch(watch);
+                } else {
+                    handler.handle(null);
+                }
+            });
         return fut;
     }
 
+    private void test(String namespace, String name, BiPredicate<String, String> predicate, Handler<AsyncResult<Void>> handler) {
+        vertx.createSharedWorkerExecutor("kubernetes-ops-pool").executeBlocking(future -> {
+            try {
+                if (predicate.test(namespace, name))   {
+                    future.complete();
+                } else {
+                    log.trace("{} {} in namespace {} is not ready", resourceKind, name, namespace);
+                    future.fail("Not ready yet");
+                }
+            } catch (Throwable e) {
+                log.warn("Caught exception while waiting for {} {} in namespace {} to get ready", resourceKind, name, namespace, e);
+                future.fail(e);
+            }
+        }, true, handler);
+    }
+
+    private Watch openWatch(String namespace, String name, Watcher<T> watcher) {
+        try {
+            return operation().inNamespace(namespace).withName(name).watch(watcher);
+        } catch (RuntimeException e) {
+            log.debug("Could not watch {} {} in namespace {}, polling instead", resourceKind, name, namespace, e);
+            return null;
+        }
+    }
+
+    private void closeWatch(AtomicReference<Watch> watch) {
+        Watch w = watch.getAndSet(null);
+        if (w != null) {
+            try {
+                w.close();
+            } catch (RuntimeException e) {
+                log.debug("Error closing watch of {}", resourceKind, e);
+            }
+        }
+    }
+
+    /**
+     * @return Whether the given resource is ready.
+     */
+    public boolean isReady(T resource) {
+        if (Readiness.isReadinessApplicable(resource.getClass())) {
+            return Readiness.isReady(resource);
+        } else {
+            return true;
+        }
+    }
+
     public boolean isReady(String namespace, String name) {
         R resourceOp = operation().inNamespace(namespace).withName(name);
         T resource = resourceOp.get();
@@ -4,20 +4,29 @@
  */
 package io.strimzi.operator.cluster.operator.resource;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import io.fabric8.kubernetes.api.model.HasMetadata;
 import io.fabric8.kubernetes.api.model.KubernetesResourceList;
 import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.dsl.MixedOperation;
 import io.fabric8.kubernetes.client.dsl.NonNamespaceOperation;
 import io.fabric8.kubernetes.client.dsl.Resource;
+import io.strimzi.operator.cluster.ClusterOperator;
 import io.strimzi.operator.cluster.model.Labels;
 import io.vertx.core.Future;
 import io.vertx.core.Vertx;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 /*
 AbstractResourceOperator<
@@ -30,10 +39,20 @@ AbstractResourceOperator<
 public abstract class AbstractResourceOperator<C extends KubernetesClient, T extends HasMetadata,
         L extends KubernetesResourceList/*<T>*/, D, R extends Resource<T, D>> {
 
+    /**
+     * The annotation holding the {@linkplain #fingerprint(HasMetadata) fingerprint} of the desired state
+     * a resource was last created or patched from.
+     */
+    public static final String ANNOTATION_DESIRED_STATE_HASH = ClusterOperator.STRIMZI_CLUSTER_OPERATOR_DOMAIN + "/desired-state-hash";
+
+    private static final ObjectMapper FINGERPRINT_MAPPER = new ObjectMapper()
+            .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+
     private final Logger log = LogManager.getLogger(getClass());
     protected final Vertx vertx;
     protected final C client;
     protected final String resourceKind;
+    private volatile ResourceCache<T> cache;
 
     // super(vertx, client, resourceKind);
     // super(vertx, client, "ServiceAccount");
@@ -45,6 +64,44 @@ public abstract class AbstractResourceOperator<C extends KubernetesClient, T ext
 
     protected abstract MixedOperation<T, L, D, R> operation();
 
+    /**
+     * Serve {@link #get(String, String)} and {@link #list(String, Labels)} from an in-memory cache,
+     * for the namespaces it has been {@linkplain #inform(String) informed} about,
+     * rather than by requests to the API server. The cache is created if this operator doesn't have one yet.
+     * @return The cache.
+     */
+    public synchronized ResourceCache<T> cache() {
+        if (cache == null) {
+            cache = new ResourceCache<>(vertx, resourceKind, operation());
+        }
+        return cache;
+    }
+
+    /**
+     * Use the given {@code cache}, so that operators of the same kind of resource share a single cache.
+     */
+    public synchronized void useCache(ResourceCache<T> cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Asynchronously list the resources in the given namespace into this operator's {@link #cache()}
+     * and keep them up to date.
+     */
+    public Future<Void> inform(String namespace) {
+        Future<Void> fut = Future.future();
+        vertx.createSharedWorkerExecutor("kubernetes-ops-pool").executeBlocking(future -> {
+            cache().inform(namespace);
+            future.complete();
+        }, false, fut.completer());
+        return fut;
+    }
+
+    private ResourceCache<T> informedCache(String namespace) {
+        ResourceCache<T> cache = this.cache;
+        return cache != null && cache.isInformed(namespace) ? cache : null;
+    }
+
     public Future<ReconcileResult<T>> createOrUpdate(T resource) {
         if (resource == null) {
             throw new NullPointerException();
@@ -64,14 +121,18 @@ public abstract class AbstractResourceOperator<C extends KubernetesClient, T ext
         }
         Future<ReconcileResult<T>> fut = Future.future();
         vertx.createSharedWorkerExecutor("kubernetes-ops-pool").executeBlocking(future -> {
-            T current = operation().inNamespace(namespace).withName(name).get();
+            T current = get(namespace, name);
             if (desired != null) {
+                String fingerprint = skipUnchangedPatches() ? fingerprint(desired) : null;
                 if (current == null) {
                     log.debug("{} {}/{} does not exist, creating it", resourceKind, namespace, name);
-                    internalCreate(namespace, name, desired).setHandler(future);
+                    internalCreate(namespace, name, withFingerprint(desired, fingerprint)).map(writeThrough(namespace, current)).setHandler(future);
+                } else if (fingerprint != null && fingerprint.equals(annotation(current, ANNOTATION_DESIRED_STATE_HASH))) {
+                    log.debug("{} {}/{} already exists in the desired state, noop", resourceKind, namespace, name);
+                    future.complete(ReconcileResult.noop());
                 } else {
                     log.debug("{} {}/{} already exists, patching it", resourceKind, namespace, name);
-                    internalPatch(namespace, name, current, desired).setHandler(future);
+                    internalPatch(namespace, name, current, withFingerprint(desired, fingerprint)).map(writeThrough(namespace, current)).setHandler(future);
                 }
             } else {
                 if (current != null) {
@@ -87,6 +148,80 @@ public abstract class AbstractResourceOperator<C extends KubernetesClient, T ext
         return fut;
     }
 
+    /**
+     * Whether {@link #reconcile(String, String, HasMetadata)} should skip patching a resource which was last
+     * created or patched from the same desired state, as recorded by the {@link #ANNOTATION_DESIRED_STATE_HASH}
+     * annotation. Changes made to the resource by anything other than this operator are therefore not
+     * reverted until the desired state changes.
+     * Operators whose {@link #internalPatch(String, String, HasMetadata, HasMetadata)} must always run,
+     * or whose callers need the patched resource, override this to return false.
+     */
+    protected boolean skipUnchangedPatches() {
+        return true;
+    }
+
+    /**
+     * @return A stable hash of the given desired state, or null if it could not be computed.
+     */
+    String fingerprint(T desired) {
+        try {
+            byte[] json = FINGERPRINT_MAPPER.writeValueAsBytes(desired);
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(json);
+            StringBuilder sb = new StringBuilder(2 * digest.length);
+            for (byte b : digest) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            log.warn("Could not compute the fingerprint of {} {}", resourceKind, desired.getMetadata().getName(), e);
+            return null;
+        }
+    }
+
+    private static String annotation(HasMetadata resource, String annotation) {
+        Map<String, String> annotations = resource.getMetadata().getAnnotations();
+        return annotations != null ? annotations.get(annotation) : null;
+    }
+
+    /**
+     * @return A copy of the given {@code desired} resource annotated with the given {@code fingerprint},
+     * leaving the caller's resource unchanged, or {@code desired} itself if there's no fingerprint.
+     */
+    @SuppressWarnings("unchecked")
+    private T withFingerprint(T desired, String fingerprint) {
+        if (fingerprint == null) {
+            return desired;
+        }
+        T copy;
+        try {
+            copy = (T) FINGERPRINT_MAPPER.readValue(FINGERPRINT_MAPPER.writeValueAsBytes(desired), desired.getClass());
+        } catch (IOException e) {
+            log.warn("Could not copy {} {} to annotate it with its fingerprint", resourceKind, desired.getMetadata().getName(), e);
+            return desired;
+        }
+        Map<String, String> annotations = copy.getMetadata().getAnnotations() != null ?
+                new HashMap<>(copy.getMetadata().getAnnotations()) : new HashMap<>();
+        annotations.put(ANNOTATION_DESIRED_STATE_HASH, fingerprint);
+        copy.getMetadata().setAnnotations(annotations);
+        return copy;
+    }
+
+    /**
+     * Update the cache with the result of a create or patch, so that reads straight after the write don't see the
+     * resource as it was {@code before}, even if the watch event for the write hasn't been received yet.
+     * Deletes are not written through: a deleted resource (a terminating pod, for example) can exist for a while
+     * after the delete request, so it's only removed from the cache by the watch event.
+     */
+    private Function<ReconcileResult<T>, ReconcileResult<T>> writeThrough(String namespace, T before) {
+        return result -> {
+            ResourceCache<T> cache = informedCache(namespace);
+            if (cache != null && result.resource() != null) {
+                cache.written(namespace, before, result.resource());
+            }
+            return result;
+        };
+    }
+
     // internalCreate(namespace, name, desired)
     protected Future<ReconcileResult<T>> internalCreate(String namespace, String name, T desired) {
         try {
@@ -128,11 +263,19 @@ public abstract class AbstractResourceOperator<C extends KubernetesClient, T ext
     }
 
     public T get(String namespace, String name) {
+        ResourceCache<T> cache = informedCache(namespace);
+        if (cache != null) {
+            return cache.get(namespace, name);
+        }
         return operation().inNamespace(namespace).withName(name).get();
     }
 
     @SuppressWarnings("unchecked")
     public List<T> list(String namespace, Labels selector) {
+        ResourceCache<T> cache = informedCache(namespace);
+        if (cache != null) {
+            return cache.list(namespace, selector != null ? selector.toMap() : null);
+        }
         NonNamespaceOperation<T, L, D, R> tldrNonNamespaceOperation = operation().inNamespace(namespace);
         if (selector != null) {
             Map<String, String> labels = selector.toMap();
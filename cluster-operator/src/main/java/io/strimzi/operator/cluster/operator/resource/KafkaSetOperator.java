@@ -6,17 +6,63 @@ package io.strimzi.operator.cluster.operator.resource;
 
 import io.fabric8.kubernetes.api.model.extensions.StatefulSet;
 import io.fabric8.kubernetes.client.KubernetesClient;
+import io.strimzi.operator.cluster.model.KafkaCluster;
+import io.strimzi.operator.cluster.model.Labels;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
 import io.vertx.core.Vertx;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.Config;
+import org.apache.kafka.clients.admin.ConfigEntry;
+import org.apache.kafka.clients.admin.ListTopicsOptions;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.common.KafkaFuture;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.TopicPartitionInfo;
+import org.apache.kafka.common.config.ConfigResource;
+import org.apache.kafka.common.errors.UnknownTopicOrPartitionException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
+import static java.util.Collections.singletonList;
+
+/**
+ * Operations for the Kafka brokers' {@code StatefulSet}.
+ *
+ * The {@linkplain #maybeRollingUpdate(StatefulSet) rolling update} restarts brokers in parallel,
+ * in batches which don't take any partition below its {@code min.insync.replicas},
+ * according to the partition metadata from the brokers. Partitions which can't stay available
+ * while their brokers restart still keep one of their in-sync replicas up. The controller is restarted last.
+ * If the brokers can't be asked for their metadata, the pods are restarted one at a time.
+ */
 public class KafkaSetOperator extends StatefulSetOperator {
 
     private static final Logger log = LogManager.getLogger(KafkaSetOperator.class);
 
+    /** How long to wait for the partitions' ISRs to recover before trying to plan the next batch again. */
+    static final long ISR_RETRY_MS = 5_000;
+    private static final long ADMIN_TIMEOUT_MS = 10_000;
+    private static final String MIN_INSYNC_REPLICAS = "min.insync.replicas";
+
+    private final long operationTimeoutMs;
+
     public KafkaSetOperator(Vertx vertx, KubernetesClient client, long operationTimeoutMs) {
         super(vertx, client, operationTimeoutMs);
+        this.operationTimeoutMs = operationTimeoutMs;
     }
 
     @Override
@@ -40,4 +86,222 @@ public class KafkaSetOperator extends StatefulSetOperator {
         }
         return false;
     }
+
+    /**
+     * The replicas and in-sync replicas of a partition.
+     */
+    static class PartitionState {
+        private final List<Integer> replicas;
+        private final Set<Integer> isr;
+        private final int minIsr;
+
+        PartitionState(List<Integer> replicas, Set<Integer> isr, int minIsr) {
+            this.replicas = replicas;
+            this.isr = isr;
+            this.minIsr = minIsr;
+        }
+
+        /**
+         * @return Whether the partition would still have at least min.insync.replicas in sync
+         * with the given brokers down. Partitions whose replication factor is no more than
+         * min.insync.replicas can't stay available while any of their brokers restarts,
+         * so for them it's enough that an in-sync replica stays up, if they have more than one.
+         */
+        boolean toleratesRestarting(Collection<Integer> brokers) {
+            int required = minIsr;
+            if (replicas.size() <= minIsr) {
+                required = isr.size() > 1 ? 1 : 0;
+            }
+            int remaining = 0;
+            boolean affected = false;
+            for (Integer broker : isr) {
+                if (brokers.contains(broker)) {
+                    affected = true;
+                } else {
+                    remaining++;
+                }
+            }
+            return !affected || remaining >= required;
+        }
+    }
+
+    /**
+     * The controller and partitions of a Kafka cluster.
+     */
+    static class ClusterState {
+        private final int controller;
+        private final List<PartitionState> partitions;
+
+        ClusterState(int controller, List<PartitionState> partitions) {
+            this.controller = controller;
+            this.partitions = partitions;
+        }
+    }
+
+    @Override
+    public Future<Void> maybeRollingUpdate(StatefulSet ss) {
+        String namespace = ss.getMetadata().getNamespace();
+        String name = ss.getMetadata().getName();
+        return brokersToRestart(ss).compose(brokers -> {
+            if (brokers.isEmpty()) {
+                log.debug("Rolling update of {}/{}: no pods need to be rolled", namespace, name);
+                return Future.succeededFuture();
+            }
+            log.debug("Rolling update of {}/{}: brokers {} need to be rolled", namespace, name, brokers);
+            return rollInBatches(ss, brokers, System.currentTimeMillis());
+        });
+    }
+
+    /**
+     * @return The ids of the brokers whose pods are not up to date with the given StatefulSet.
+     * The broker id of a pod is its ordinal in the StatefulSet.
+     */
+    private Future<SortedSet<Integer>> brokersToRestart(StatefulSet ss) {
+        Future<SortedSet<Integer>> result = Future.future();
+        vertx.createSharedWorkerExecutor("kubernetes-ops-pool").executeBlocking(future -> {
+            SortedSet<Integer> brokers = new TreeSet<>();
+            for (int i = 0; i < ss.getSpec().getReplicas(); i++) {
+                if (!isPodUpToDate(ss, podName(ss, i))) {
+                    brokers.add(i);
+                }
+            }
+            future.complete(brokers);
+        }, true, result.completer());
+        return result;
+    }
+
+    private static String podName(StatefulSet ss, int broker) {
+        return ss.getMetadata().getName() + "-" + broker;
+    }
+
+    private Future<Void> rollInBatches(StatefulSet ss, SortedSet<Integer> remaining, long waitingSince) {
+        if (remaining.isEmpty()) {
+            return Future.succeededFuture();
+        }
+        String namespace = ss.getMetadata().getNamespace();
+        String name = ss.getMetadata().getName();
+        Future<Void> result = Future.future();
+        clusterState(ss).setHandler(state -> {
+            if (state.failed()) {
+                log.warn("Rolling update of {}/{}: could not get the state of the brokers, rolling pods one at a time",
+                        namespace, name, state.cause());
+                super.maybeRollingUpdate(ss).setHandler(result);
+                return;
+            }
+            List<Integer> batch = nextBatch(remaining, state.result());
+            if (batch.isEmpty()) {
+                if (System.currentTimeMillis() - waitingSince < operationTimeoutMs) {
+                    log.debug("Rolling update of {}/{}: waiting for in-sync replicas to recover before rolling any of {}",
+                            namespace, name, remaining);
+                    vertx.setTimer(ISR_RETRY_MS, timerId -> rollInBatches(ss, remaining, waitingSince).setHandler(result));
+                    return;
+                }
+                batch = singletonList(remaining.first());
+                log.warn("Rolling update of {}/{}: in-sync replicas did not recover within {}ms, rolling broker {} anyway",
+                        namespace, name, operationTimeoutMs, batch.get(0));
+            }
+            log.info("Rolling update of {}/{}: rolling brokers {}", namespace, name, batch);
+            List<Future> restarts = new ArrayList<>(batch.size());
+            for (Integer broker : batch) {
+                restarts.add(maybeRestartPod(ss, podName(ss, broker)));
+            }
+            SortedSet<Integer> next = new TreeSet<>(remaining);
+            next.removeAll(batch);
+            CompositeFuture.join(restarts)
+                    .compose(ignored -> rollInBatches(ss, next, System.currentTimeMillis()))
+                    .setHandler(result);
+        });
+        return result;
+    }
+
+    /**
+     * Choose the next brokers to restart together: as many of the {@code remaining} brokers as can be
+     * restarted without taking any partition below its min.insync.replicas, in order of broker id.
+     * The controller is only restarted once all the other brokers have been.
+     * @return The brokers, which is empty if no broker can be restarted yet.
+     */
+    static List<Integer> nextBatch(SortedSet<Integer> remaining, ClusterState state) {
+        List<Integer> candidates = new ArrayList<>(remaining);
+        if (candidates.size() > 1) {
+            candidates.remove(Integer.valueOf(state.controller));
+        }
+        List<Integer> batch = new ArrayList<>();
+        for (Integer broker : candidates) {
+            batch.add(broker);
+            for (PartitionState partition : state.partitions) {
+                if (!partition.toleratesRestarting(batch)) {
+                    batch.remove(broker);
+                    break;
+                }
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Ask the brokers of the given StatefulSet for their controller, and for the replicas, in-sync replicas
+     * and min.insync.replicas of all partitions.
+     */
+    protected Future<ClusterState> clusterState(StatefulSet ss) {
+        String namespace = ss.getMetadata().getNamespace();
+        String bootstrap = KafkaCluster.serviceName(Labels.cluster(ss)) + "." + namespace + ".svc:" + KafkaCluster.CLIENT_PORT;
+        Future<ClusterState> result = Future.future();
+        vertx.createSharedWorkerExecutor("kubernetes-ops-pool").executeBlocking(future -> {
+            Properties props = new Properties();
+            props.setProperty(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrap);
+            props.setProperty(AdminClientConfig.REQUEST_TIMEOUT_MS_CONFIG, String.valueOf(ADMIN_TIMEOUT_MS));
+            try (AdminClient admin = AdminClient.create(props)) {
+                Node controller = admin.describeCluster().controller().get(ADMIN_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                Set<String> topics = admin.listTopics(new ListTopicsOptions().listInternal(true)).names()
+                        .get(ADMIN_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                // Topics deleted since they were listed are left out, rather than failing the whole description
+                Map<String, TopicDescription> descriptions = existing(admin.describeTopics(topics).values());
+                List<ConfigResource> resources = new ArrayList<>(descriptions.size());
+                for (String topic : descriptions.keySet()) {
+                    resources.add(new ConfigResource(ConfigResource.Type.TOPIC, topic));
+                }
+                Map<ConfigResource, Config> configs = existing(admin.describeConfigs(resources).values());
+                List<PartitionState> partitions = new ArrayList<>();
+                for (TopicDescription description : descriptions.values()) {
+                    Config config = configs.get(new ConfigResource(ConfigResource.Type.TOPIC, description.name()));
+                    ConfigEntry minIsr = config != null ? config.get(MIN_INSYNC_REPLICAS) : null;
+                    int min = minIsr != null && minIsr.value() != null ? Integer.parseInt(minIsr.value()) : 1;
+                    for (TopicPartitionInfo partition : description.partitions()) {
+                        partitions.add(new PartitionState(ids(partition.replicas()), new HashSet<>(ids(partition.isr())), min));
+                    }
+                }
+                future.complete(new ClusterState(controller.id(), partitions));
+            } catch (Exception e) {
+                future.fail(e);
+            }
+        }, false, result.completer());
+        return result;
+    }
+
+    /**
+     * The results of the given futures, omitting those which failed with {@link UnknownTopicOrPartitionException}.
+     */
+    private static <K, V> Map<K, V> existing(Map<K, KafkaFuture<V>> futures)
+            throws InterruptedException, ExecutionException, java.util.concurrent.TimeoutException {
+        Map<K, V> result = new HashMap<>(futures.size());
+        for (Map.Entry<K, KafkaFuture<V>> entry : futures.entrySet()) {
+            try {
+                result.put(entry.getKey(), entry.getValue().get(ADMIN_TIMEOUT_MS, TimeUnit.MILLISECONDS));
+            } catch (ExecutionException e) {
+                if (!(e.getCause() instanceof UnknownTopicOrPartitionException)) {
+                    throw e;
+                }
+                log.debug("{} was deleted before it could be described", entry.getKey());
+            }
+        }
+        return result;
+    }
+
+    private static List<Integer> ids(List<Node> nodes) {
+        List<Integer> ids = new ArrayList<>(nodes.size());
+        for (Node node : nodes) {
+            ids.add(node.id());
+        }
+        return ids;
+    }
 }
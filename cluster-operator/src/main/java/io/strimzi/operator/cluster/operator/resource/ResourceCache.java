@@ -0,0 +1,295 @@
+/*
+ * Copyright 2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.operator.cluster.operator.resource;
+
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.KubernetesResourceList;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+import io.fabric8.kubernetes.client.dsl.MixedOperation;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An in-memory cache of the resources of one kind, kept up to date in the manner of a Kubernetes informer.
+ *
+ * When a namespace is {@linkplain #inform(String) informed} the resources in it are listed into the cache,
+ * then watched from the {@code resourceVersion} of that list. The namespace only counts as
+ * {@linkplain #isInformed(String) informed} once the watch is open, so if the resources can't be watched
+ * they are read from the API server instead. When the watch is closed by the API server
+ * (for example because that resourceVersion has expired) the resources are listed and watched again.
+ * The resources are indexed by each of their labels, so that {@link #list(String, Map)} with a label selector
+ * doesn't need to look at every resource in the namespace.
+ *
+ * The resources returned by {@link #get(String, String)} and {@link #list(String, Map)} are shared with
+ * the cache and must not be modified.
+ *
+ * @param <T> The type of resource.
+ */
+public class ResourceCache<T extends HasMetadata> {
+
+    private static final Logger log = LogManager.getLogger(ResourceCache.class);
+
+    /** How long to wait before retrying a failed relist. */
+    static final long RELIST_RETRY_MS = 5_000;
+
+    private final Vertx vertx;
+    private final String resourceKind;
+    private final MixedOperation<T, ? extends KubernetesResourceList, ?, ?> operation;
+    private final ConcurrentHashMap<String, Namespace> namespaces = new ConcurrentHashMap<>();
+    private volatile boolean closed = false;
+
+    // new ResourceCache<>(vertx, resourceKind, operation())
+    public ResourceCache(Vertx vertx, String resourceKind, MixedOperation<T, ? extends KubernetesResourceList, ?, ?> operation) {
+        this.vertx = vertx;
+        this.resourceKind = resourceKind;
+        this.operation = operation;
+    }
+
+    /**
+     * The cached resources in one namespace.
+     */
+    private class Namespace implements Watcher<T> {
+        private final String namespace;
+        // All the following are guarded by this
+        private final Map<String, T> byName = new HashMap<>();
+        /** From each label, as "key=value", to the names of the resources which have it */
+        private final Map<String, Set<String>> byLabel = new HashMap<>();
+        private String resourceVersion;
+        private boolean synced = false;
+        private Watch watch;
+
+        Namespace(String namespace) {
+            this.namespace = namespace;
+        }
+
+        /** List the resources into the cache and start watching from the resourceVersion of the list. */
+        @SuppressWarnings("unchecked")
+        void sync() {
+            KubernetesResourceList list = operation.inNamespace(namespace).list();
+            String listedVersion = list.getMetadata() != null ? list.getMetadata().getResourceVersion() : null;
+            synchronized (this) {
+                byName.clear();
+                byLabel.clear();
+                for (T resource : (List<T>) list.getItems()) {
+                    put(resource);
+                }
+                resourceVersion = listedVersion;
+            }
+            // Only serve reads from the cache once it's being kept up to date
+            Watch watch = operation.inNamespace(namespace).watch(listedVersion, this);
+            synchronized (this) {
+                this.watch = watch;
+                synced = true;
+                log.debug("Synced {} {}s in namespace {} at resourceVersion {}", byName.size(), resourceKind, namespace, resourceVersion);
+            }
+        }
+
+        synchronized boolean isSynced() {
+            return synced;
+        }
+
+        synchronized T get(String name) {
+            return byName.get(name);
+        }
+
+        synchronized List<T> list(Map<String, String> labels) {
+            Set<String> candidates = null;
+            if (labels != null) {
+                // Start from the label with the fewest resources
+                for (Map.Entry<String, String> label : labels.entrySet()) {
+                    Set<String> names = byLabel.getOrDefault(label.getKey() + "=" + label.getValue(), Collections.emptySet());
+                    if (candidates == null || names.size() < candidates.size()) {
+                        candidates = names;
+                    }
+                }
+            }
+            List<T> result = new ArrayList<>();
+            if (candidates == null) {
+                result.addAll(byName.values());
+            } else {
+                for (String name : candidates) {
+                    T resource = byName.get(name);
+                    if (matches(resource, labels)) {
+                        result.add(resource);
+                    }
+                }
+            }
+            return result;
+        }
+
+        /** Must be called holding the lock. */
+        void put(T resource) {
+            String name = resource.getMetadata().getName();
+            remove(name);
+            byName.put(name, resource);
+            Map<String, String> labels = resource.getMetadata().getLabels();
+            if (labels != null) {
+                for (Map.Entry<String, String> label : labels.entrySet()) {
+                    byLabel.computeIfAbsent(label.getKey() + "=" + label.getValue(), k -> new HashSet<>()).add(name);
+                }
+            }
+        }
+
+        /** Must be called holding the lock. */
+        void remove(String name) {
+            T old = byName.remove(name);
+            Map<String, String> labels = old != null ? old.getMetadata().getLabels() : null;
+            if (labels != null) {
+                for (Map.Entry<String, String> label : labels.entrySet()) {
+                    String key = label.getKey() + "=" + label.getValue();
+                    Set<String> names = byLabel.get(key);
+                    if (names != null) {
+                        names.remove(name);
+                        if (names.isEmpty()) {
+                            byLabel.remove(key);
+                        }
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void eventReceived(Action action, T resource) {
+            synchronized (this) {
+                if (resource != null && resource.getMetadata() != null && resource.getMetadata().getResourceVersion() != null) {
+                    resourceVersion = resource.getMetadata().getResourceVersion();
+                }
+                switch (action) {
+                    case ADDED:
+                    case MODIFIED:
+                        put(resource);
+                        break;
+                    case DELETED:
+                        remove(resource.getMetadata().getName());
+                        break;
+                    default:
+                        log.warn("Unexpected {} event for {}s in namespace {}", action, resourceKind, namespace);
+                }
+            }
+        }
+
+        @Override
+        public void onClose(KubernetesClientException e) {
+            if (e != null && !closed) {
+                log.info("{} watch in namespace {} closed, relisting", resourceKind, namespace, e);
+                synchronized (this) {
+                    // Until the watch is reopened, reads go to the API server
+                    synced = false;
+                }
+                relist();
+            }
+        }
+
+        private void relist() {
+            if (closed) {
+                return;
+            }
+            Handler<AsyncResult<Void>> retryOnFailure = res -> {
+                if (res.failed()) {
+                    log.warn("Error relisting {}s in namespace {}, will retry in {}ms", resourceKind, namespace, RELIST_RETRY_MS, res.cause());
+                    vertx.setTimer(RELIST_RETRY_MS, ignored -> relist());
+                }
+            };
+            vertx.createSharedWorkerExecutor("kubernetes-ops-pool").executeBlocking(future -> {
+                sync();
+                future.complete();
+            }, false, retryOnFailure);
+        }
+
+        synchronized void close() {
+            synced = false;
+            if (watch != null) {
+                watch.close();
+            }
+        }
+    }
+
+    private static boolean matches(HasMetadata resource, Map<String, String> selector) {
+        if (selector == null || selector.isEmpty()) {
+            return true;
+        }
+        Map<String, String> labels = resource.getMetadata().getLabels();
+        return labels != null && labels.entrySet().containsAll(selector.entrySet());
+    }
+
+    /**
+     * List the resources in the given namespace into the cache and keep them up to date.
+     * This method blocks, so must not be called on an event loop thread.
+     */
+    public void inform(String namespace) {
+        Namespace ns = namespaces.computeIfAbsent(namespace, Namespace::new);
+        if (!ns.isSynced()) {
+            ns.sync();
+        }
+    }
+
+    /**
+     * @return Whether the resources in the given namespace are in the cache.
+     */
+    public boolean isInformed(String namespace) {
+        Namespace ns = namespaces.get(namespace);
+        return !closed && ns != null && ns.isSynced();
+    }
+
+    /**
+     * @return The cached resource with the given name, or null if there is none.
+     */
+    public T get(String namespace, String name) {
+        Namespace ns = namespaces.get(namespace);
+        return ns != null ? ns.get(name) : null;
+    }
+
+    /**
+     * @return The cached resources in the given namespace which have all of the given labels.
+     */
+    public List<T> list(String namespace, Map<String, String> labels) {
+        Namespace ns = namespaces.get(namespace);
+        return ns != null ? ns.list(labels) : new ArrayList<>();
+    }
+
+    /**
+     * Update the cache with a resource which has been created or patched, without waiting for the watch event,
+     * but only if the cached resource is still the {@code before} one the write was based on (null if there
+     * was none). Otherwise the watch has already delivered this write, or a later change, which the
+     * written resource would overwrite.
+     */
+    void written(String namespace, T before, T resource) {
+        Namespace ns = namespaces.get(namespace);
+        if (ns != null) {
+            synchronized (ns) {
+                if (ns.get(resource.getMetadata().getName()) == before) {
+                    ns.put(resource);
+                } else {
+                    log.debug("{} {} in namespace {} changed in the cache during the write, not writing it through",
+                            resourceKind, resource.getMetadata().getName(), namespace);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stop watching. Subsequent reads must go to the API server.
+     */
+    public void close() {
+        closed = true;
+        for (Namespace ns : namespaces.values()) {
+            ns.close();
+        }
+    }
+}
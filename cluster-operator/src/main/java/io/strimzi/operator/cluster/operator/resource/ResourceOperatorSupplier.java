@@ -8,9 +8,19 @@ import io.fabric8.kubernetes.client.KubernetesClient;
 import io.strimzi.api.kafka.DoneableKafkaAssembly;
 import io.strimzi.api.kafka.KafkaAssemblyList;
 import io.strimzi.api.kafka.model.KafkaAssembly;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
 import io.vertx.core.Vertx;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
 
 public class ResourceOperatorSupplier {
+    private static final Logger log = LogManager.getLogger(ResourceOperatorSupplier.class.getName());
+
     public final SecretOperator secretOperations;
     public final ServiceOperator serviceOperations;
     public final ZookeeperSetOperator zkSetOperations;
@@ -63,4 +73,49 @@ public class ResourceOperatorSupplier {
         this.clusterRoleBindingOperator = clusterRoleBindingOperator;
         this.kafkaOperator = kafkaOperator;
     }
+
+    /**
+     * Keep the StatefulSets, Services, ConfigMaps, Secrets, Deployments, Pods and PVCs in the given namespace
+     * in in-memory {@linkplain ResourceCache caches}, so that the resource operators read them from memory
+     * rather than from the API server. The Kafka and Zookeeper StatefulSet operators (and their pod operators)
+     * share the same caches.
+     * If a kind of resource can't be cached (for example because the operator may not watch it)
+     * its operator keeps reading from the API server, so the returned future always succeeds.
+     */
+    public Future<Void> informCaches(String namespace) {
+        List<Future> futures = new ArrayList<>();
+        futures.add(inform(namespace, "StatefulSet", () -> {
+            zkSetOperations.useCache(kafkaSetOperations.cache());
+            return kafkaSetOperations.inform(namespace);
+        }));
+        futures.add(inform(namespace, "Pod", () -> {
+            zkSetOperations.podOperations().useCache(kafkaSetOperations.podOperations().cache());
+            return kafkaSetOperations.podOperations().inform(namespace);
+        }));
+        futures.add(inform(namespace, "Service", () -> serviceOperations.inform(namespace)));
+        futures.add(inform(namespace, "ConfigMap", () -> configMapOperations.inform(namespace)));
+        futures.add(inform(namespace, "Secret", () -> secretOperations.inform(namespace)));
+        futures.add(inform(namespace, "Deployment", () -> deploymentOperations.inform(namespace)));
+        futures.add(inform(namespace, "PersistentVolumeClaim", () -> pvcOperations.inform(namespace)));
+        return CompositeFuture.join(futures).map((Void) null);
+    }
+
+    private static Future<Void> inform(String namespace, String kind, Supplier<Future<Void>> inform) {
+        Future<Void> result = Future.future();
+        Future<Void> informed;
+        try {
+            informed = inform.get();
+        } catch (RuntimeException e) {
+            informed = Future.failedFuture(e);
+        }
+        informed.setHandler(ar -> {
+            if (ar.failed()) {
+                log.warn("Unable to cache {}s in namespace {}, they will be read from the API server", kind, namespace, ar.cause());
+            } else {
+                log.debug("Caching {}s in namespace {}", kind, namespace);
+            }
+            result.complete();
+        });
+        return result;
+    }
 }
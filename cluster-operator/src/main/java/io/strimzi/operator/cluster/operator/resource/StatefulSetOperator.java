@@ -54,6 +54,11 @@ public abstract class StatefulSetOperator extends AbstractScalableResourceOperat
         this.operationTimeoutMs = operationTimeoutMs;
     }
 
+    /** The operator for the pods of the StatefulSet. */
+    PodOperator podOperations() {
+        return podOperations;
+    }
+
     @Override
     protected MixedOperation<StatefulSet, StatefulSetList, DoneableStatefulSet, RollableScalableResource<StatefulSet, DoneableStatefulSet>> operation() {
         return client.apps().statefulSets();
@@ -103,7 +108,7 @@ public abstract class StatefulSetOperator extends AbstractScalableResourceOperat
                 // null as desired parameter means pod will be deleted
                 return podOperations.reconcile(namespace, podName, null);
             }).compose(ignore -> {
-                Future del = podOperations.waitFor(namespace, name, pollingIntervalMs, timeoutMs, (ignore1, ignore2) -> {
+                Future del = podOperations.waitFor(namespace, podName, pollingIntervalMs, timeoutMs, (ignore1, ignore2) -> {
                     // predicate - changed generation means pod has been updated
                     int newGen = getPodGeneration(podOperations.get(namespace, podName));
                     return deleted.result() != newGen;
@@ -218,6 +223,15 @@ public abstract class StatefulSetOperator extends AbstractScalableResourceOperat
         return CompositeFuture.join(waitPodResult);
     }
 
+    /**
+     * Overridden because the generation annotation and the diff of the patched StatefulSet
+     * are needed even when the desired state hasn't changed.
+     */
+    @Override
+    protected boolean skipUnchangedPatches() {
+        return false;
+    }
+
     /**
      * Overridden to not cascade to dependent resources (e.g. pods).
      *
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.operator.cluster.operator.assembly;
+
+import io.strimzi.operator.cluster.Reconciliation;
+import io.strimzi.operator.cluster.model.AssemblyType;
+import io.vertx.core.Future;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+
+@RunWith(VertxUnitRunner.class)
+public class DependencyGraphTest {
+
+    private final Reconciliation reconciliation = new Reconciliation("test", AssemblyType.KAFKA, "ns", "cluster");
+
+    @Test
+    public void testIndependentStepsRunConcurrently(TestContext context) {
+        List<String> started = new ArrayList<>();
+        Future<Void> a = Future.future();
+        Future<Void> b = Future.future();
+        DependencyGraph graph = new DependencyGraph(reconciliation);
+        DependencyGraph.Step stepA = graph.add("a", () -> {
+            started.add("a");
+            return a;
+        });
+        DependencyGraph.Step stepB = graph.add("b", () -> {
+            started.add("b");
+            return b;
+        });
+        graph.add("c", asList(stepA, stepB), () -> {
+            started.add("c");
+            return Future.succeededFuture();
+        });
+
+        Future<Void> result = graph.execute();
+        // a and b are both started before either completes, but c waits for both
+        context.assertEquals(asList("a", "b"), started);
+        a.complete();
+        context.assertEquals(asList("a", "b"), started);
+        b.complete();
+        context.assertEquals(asList("a", "b", "c"), started);
+        context.assertTrue(result.succeeded());
+    }
+
+    @Test
+    public void testFailureSkipsDependentSteps(TestContext context) {
+        List<String> started = new ArrayList<>();
+        Future<Void> b = Future.future();
+        DependencyGraph graph = new DependencyGraph(reconciliation);
+        DependencyGraph.Step stepA = graph.add("a", () -> Future.failedFuture("a failed"));
+        graph.add("b", () -> {
+            started.add("b");
+            return b;
+        });
+        DependencyGraph.Step stepC = graph.add("c", singletonList(stepA), () -> {
+            started.add("c");
+            return Future.succeededFuture();
+        });
+        graph.add("d", singletonList(stepC), () -> {
+            started.add("d");
+            return Future.succeededFuture();
+        });
+
+        Async async = context.async();
+        graph.execute().setHandler(context.asyncAssertFailure(e -> {
+            context.assertEquals("a failed", e.getMessage());
+            // The graph only fails once the independent step b has completed
+            context.assertTrue(b.isComplete());
+            context.assertEquals(singletonList("b"), started);
+            async.complete();
+        }));
+        context.assertFalse(async.isCompleted());
+        b.complete();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDependencyMustBeInGraph() {
+        DependencyGraph other = new DependencyGraph(reconciliation);
+        DependencyGraph.Step step = other.add("a", () -> Future.succeededFuture());
+        new DependencyGraph(reconciliation).add("b", singletonList(step), () -> Future.succeededFuture());
+    }
+}
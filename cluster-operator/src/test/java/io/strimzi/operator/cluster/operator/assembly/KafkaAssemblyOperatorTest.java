@@ -54,6 +54,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -75,6 +76,7 @@ import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
@@ -657,12 +659,25 @@ public class KafkaAssemblyOperatorTest {
     }
 
 
+    @Test
+    public void testUpdateClusterRemoveTopicOperator(TestContext context) {
+        if (tcConfig != null) {
+            KafkaAssembly kafkaAssembly = getKafkaAssembly("bar");
+            kafkaAssembly.getSpec().setTopicOperator(null);
+            List<Secret> secrets = getClusterSecrets("bar",
+                    kafkaAssembly.getSpec().getKafka().getReplicas(),
+                    kafkaAssembly.getSpec().getZookeeper().getReplicas());
+            updateCluster(context, getKafkaAssembly("bar"), kafkaAssembly, secrets);
+        }
+    }
+
     private void updateCluster(TestContext context, KafkaAssembly originalAssembly, KafkaAssembly updatedAssembly, List<Secret> secrets) {
         KafkaCluster originalKafkaCluster = KafkaCluster.fromCrd(certManager, originalAssembly, secrets);
         KafkaCluster updatedKafkaCluster = KafkaCluster.fromCrd(certManager, updatedAssembly, secrets);
         ZookeeperCluster originalZookeeperCluster = ZookeeperCluster.fromCrd(certManager, originalAssembly, secrets);
         ZookeeperCluster updatedZookeeperCluster = ZookeeperCluster.fromCrd(certManager, updatedAssembly, secrets);
         TopicOperator originalTopicOperator = TopicOperator.fromCrd(certManager, originalAssembly, secrets);
+        TopicOperator updatedTopicOperator = TopicOperator.fromCrd(certManager, updatedAssembly, secrets);
 
         // create CM, Service, headless service, statefulset and so on
         ResourceOperatorSupplier supplier = supplierWithMocks();
@@ -847,6 +862,13 @@ public class KafkaAssemblyOperatorTest {
             verifyNoMoreInteractions(mockPvcOps);
             async.complete();
         });
+        if (originalTopicOperator != null && updatedTopicOperator == null) {
+            async.await();
+            // The topic operator is deleted before the resources it uses
+            InOrder inOrder = inOrder(mockDepOps, mockSao);
+            inOrder.verify(mockDepOps).reconcile(eq(clusterNamespace), eq(TopicOperator.topicOperatorName(clusterName)), isNull());
+            inOrder.verify(mockSao).reconcile(eq(clusterNamespace), eq(TopicOperator.topicOperatorServiceAccountName(clusterName)), isNull());
+        }
     }
 
     @Test
@@ -19,11 +19,15 @@ import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 
+import java.util.Map;
+
+import static java.util.Collections.singletonMap;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.matches;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -115,6 +119,41 @@ public abstract class AbstractResourceOperatorTest<C extends KubernetesClient, T
         });
     }
 
+    @Test
+    public void createWhenExistsUnchangedIsANoop(TestContext context) {
+        T resource = resource();
+        Resource mockResource = mock(resourceType());
+
+        NonNamespaceOperation mockNameable = mock(NonNamespaceOperation.class);
+        when(mockNameable.withName(matches(resource.getMetadata().getName()))).thenReturn(mockResource);
+
+        MixedOperation mockCms = mock(MixedOperation.class);
+        when(mockCms.inNamespace(matches(resource.getMetadata().getNamespace()))).thenReturn(mockNameable);
+
+        C mockClient = mock(clientType());
+        mocker(mockClient, mockCms);
+
+        AbstractResourceOperator<C, T, L, D, R> op = createResourceOperations(vertx, mockClient);
+        if (!op.skipUnchangedPatches()) {
+            return;
+        }
+        // The current resource was last patched from the same desired state
+        T current = resource();
+        current.getMetadata().setAnnotations(singletonMap(AbstractResourceOperator.ANNOTATION_DESIRED_STATE_HASH, op.fingerprint(resource())));
+        when(mockResource.get()).thenReturn(current);
+
+        Async async = context.async();
+        Future<ReconcileResult<T>> fut = op.createOrUpdate(resource);
+        fut.setHandler(ar -> {
+            assertTrue(ar.succeeded());
+            assertEquals(ReconcileResult.noop(), ar.result());
+            verify(mockResource).get();
+            verify(mockResource, never()).patch(any());
+            verify(mockResource, never()).create(any());
+            async.complete();
+        });
+    }
+
     @Test
     public void existenceCheckThrows(TestContext context) {
         T resource = resource();
@@ -164,11 +203,22 @@ public abstract class AbstractResourceOperatorTest<C extends KubernetesClient, T
             if (ar.failed()) ar.cause().printStackTrace();
             assertTrue(ar.succeeded());
             verify(mockResource).get();
-            verify(mockResource).create(eq(resource));
+            ArgumentCaptor<HasMetadata> created = ArgumentCaptor.forClass(HasMetadata.class);
+            verify(mockResource).create(created.capture());
+            if (op.skipUnchangedPatches()) {
+                assertEquals(op.fingerprint(resource()), annotation(created.getValue(), AbstractResourceOperator.ANNOTATION_DESIRED_STATE_HASH));
+            }
+            // The caller's desired resource is not annotated
+            assertNull(annotation(resource, AbstractResourceOperator.ANNOTATION_DESIRED_STATE_HASH));
             async.complete();
         });
     }
 
+    private static String annotation(HasMetadata resource, String annotation) {
+        Map<String, String> annotations = resource.getMetadata().getAnnotations();
+        return annotations != null ? annotations.get(annotation) : null;
+    }
+
     @Test
     public void creationThrows(TestContext context) {
         T resource = resource();
@@ -8,21 +8,27 @@ import io.fabric8.kubernetes.api.model.Doneable;
 import io.fabric8.kubernetes.api.model.HasMetadata;
 import io.fabric8.kubernetes.api.model.KubernetesResourceList;
 import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
 import io.fabric8.kubernetes.client.dsl.MixedOperation;
 import io.fabric8.kubernetes.client.dsl.NonNamespaceOperation;
 import io.fabric8.kubernetes.client.dsl.Resource;
 import io.fabric8.kubernetes.client.internal.readiness.Readiness;
+import io.vertx.core.Context;
 import io.vertx.core.Future;
 import io.vertx.core.Vertx;
 import io.vertx.ext.unit.Async;
 import io.vertx.ext.unit.TestContext;
 import org.junit.Test;
 
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.matches;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
@@ -213,4 +219,90 @@ public abstract class AbtractReadyResourceOperatorTest<C extends KubernetesClien
             async.complete();
         });
     }
+
+    @Test
+    public void waitForCompletesOnWatchEvent(TestContext context) {
+        waitForWatchEvent(context, true);
+    }
+
+    @Test
+    public void waitForTestsPredicateOnWatchEvent(TestContext context) {
+        waitForWatchEvent(context, false);
+    }
+
+    @SuppressWarnings("unchecked")
+    public void waitForWatchEvent(TestContext context, boolean withEventPredicate) {
+        T resource = resource();
+        Resource mockResource = mock(resourceType());
+        when(mockResource.get()).thenReturn(resource);
+        AtomicReference<Watcher<T>> watcher = new AtomicReference<>();
+        Watch mockWatch = mock(Watch.class);
+        when(mockResource.watch(any(Watcher.class))).thenAnswer(invocation -> {
+            watcher.set(invocation.getArgument(0));
+            return mockWatch;
+        });
+
+        NonNamespaceOperation mockNameable = mock(NonNamespaceOperation.class);
+        when(mockNameable.withName(matches(resource.getMetadata().getName()))).thenReturn(mockResource);
+
+        MixedOperation mockCms = mock(MixedOperation.class);
+        when(mockCms.inNamespace(matches(resource.getMetadata().getNamespace()))).thenReturn(mockNameable);
+
+        C mockClient = mock(clientType());
+        mocker(mockClient, mockCms);
+
+        AbstractReadyResourceOperator<C, T, L, D, R> op = createResourceOperations(vertx, mockClient);
+
+        // Not ready until the watch event has been received
+        AtomicBoolean ready = new AtomicBoolean(false);
+        AtomicInteger polls = new AtomicInteger();
+        Async async = context.async();
+        op.waitFor(NAMESPACE, RESOURCE_NAME, 20, 5_000, (namespace, name) -> {
+            polls.incrementAndGet();
+            return ready.get();
+        }, withEventPredicate ? r -> true : null).setHandler(ar -> {
+            assertTrue(ar.succeeded());
+            // While watching, the predicate isn't polled every 20ms
+            assertTrue(polls.get() <= 2);
+            verify(mockWatch).close();
+            async.complete();
+        });
+        vertx.setTimer(200, timerId -> {
+            ready.set(true);
+            watcher.get().eventReceived(Watcher.Action.MODIFIED, resource);
+        });
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void waitForOpensWatchOffEventLoop(TestContext context) {
+        T resource = resource();
+        Resource mockResource = mock(resourceType());
+        when(mockResource.get()).thenReturn(resource);
+        AtomicReference<Boolean> watchedOnEventLoop = new AtomicReference<>();
+        when(mockResource.watch(any(Watcher.class))).thenAnswer(invocation -> {
+            watchedOnEventLoop.set(Context.isOnEventLoopThread());
+            return mock(Watch.class);
+        });
+
+        NonNamespaceOperation mockNameable = mock(NonNamespaceOperation.class);
+        when(mockNameable.withName(matches(resource.getMetadata().getName()))).thenReturn(mockResource);
+
+        MixedOperation mockCms = mock(MixedOperation.class);
+        when(mockCms.inNamespace(matches(resource.getMetadata().getNamespace()))).thenReturn(mockNameable);
+
+        C mockClient = mock(clientType());
+        mocker(mockClient, mockCms);
+
+        AbstractReadyResourceOperator<C, T, L, D, R> op = createResourceOperations(vertx, mockClient);
+
+        // Ready once the watch has been opened
+        Async async = context.async();
+        vertx.runOnContext(ignored -> op.waitFor(NAMESPACE, RESOURCE_NAME, 20, 5_000,
+            (namespace, name) -> watchedOnEventLoop.get() != null).setHandler(ar -> {
+                context.assertTrue(ar.succeeded());
+                context.assertFalse(watchedOnEventLoop.get());
+                async.complete();
+            }));
+    }
 }
@@ -7,24 +7,38 @@ package io.strimzi.operator.cluster.operator.resource;
 import io.fabric8.kubernetes.api.model.EnvVar;
 import io.fabric8.kubernetes.api.model.Secret;
 import io.fabric8.kubernetes.api.model.extensions.StatefulSet;
+import io.fabric8.kubernetes.client.KubernetesClient;
 import io.strimzi.api.kafka.model.InlineLogging;
 import io.strimzi.api.kafka.model.KafkaAssembly;
 import io.strimzi.api.kafka.model.KafkaAssemblyBuilder;
 import io.strimzi.operator.cluster.ResourceUtils;
 import io.strimzi.operator.cluster.model.KafkaCluster;
 import io.strimzi.operator.cluster.operator.assembly.MockCertManager;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static io.strimzi.operator.cluster.model.AbstractModel.containerEnvVars;
 import static io.strimzi.operator.cluster.model.KafkaCluster.ENV_VAR_KAFKA_ZOOKEEPER_CONNECT;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
 import static java.util.Collections.singletonMap;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
 
 public class KafkaSetOperatorTest {
 
@@ -135,4 +149,83 @@ public class KafkaSetOperatorTest {
                 "foo", null));
         assertTrue(KafkaSetOperator.needsRollingUpdate(diff()));
     }
+
+    private static KafkaSetOperator.PartitionState partition(List<Integer> replicas, List<Integer> isr, int minIsr) {
+        return new KafkaSetOperator.PartitionState(replicas, new HashSet<>(isr), minIsr);
+    }
+
+    @Test
+    public void testNextBatchAvoidsBrokersSharingPartitions() {
+        KafkaSetOperator.ClusterState state = new KafkaSetOperator.ClusterState(0, asList(
+                partition(asList(0, 1, 2), asList(0, 1, 2), 2),
+                partition(asList(3, 4, 5), asList(3, 4, 5), 2)));
+        assertEquals(asList(1, 3), KafkaSetOperator.nextBatch(new TreeSet<>(asList(0, 1, 2, 3, 4, 5)), state));
+        assertEquals(asList(2, 4), KafkaSetOperator.nextBatch(new TreeSet<>(asList(0, 2, 4, 5)), state));
+    }
+
+    @Test
+    public void testNextBatchRestartsControllerLast() {
+        KafkaSetOperator.ClusterState state = new KafkaSetOperator.ClusterState(1, emptyList());
+        assertEquals(asList(0, 2), KafkaSetOperator.nextBatch(new TreeSet<>(asList(0, 1, 2)), state));
+        assertEquals(singletonList(1), KafkaSetOperator.nextBatch(new TreeSet<>(singletonList(1)), state));
+    }
+
+    @Test
+    public void testNextBatchWaitsForUnderReplicatedPartitions() {
+        // Broker 1 is out of sync, so restarting 2 or 3 would take the partition below min.insync.replicas
+        KafkaSetOperator.ClusterState state = new KafkaSetOperator.ClusterState(0, singletonList(
+                partition(asList(1, 2, 3), asList(2, 3), 2)));
+        assertEquals(emptyList(), KafkaSetOperator.nextBatch(new TreeSet<>(asList(2, 3)), state));
+        assertEquals(singletonList(1), KafkaSetOperator.nextBatch(new TreeSet<>(asList(1, 2, 3)), state));
+    }
+
+    @Test
+    public void testNextBatchKeepsAnInSyncReplicaOfPartitionsWhichCannotStayAvailable() {
+        KafkaSetOperator.ClusterState state = new KafkaSetOperator.ClusterState(0, asList(
+                partition(singletonList(1), singletonList(1), 1),
+                partition(asList(2, 3), asList(2, 3), 2)));
+        // Neither partition can stay available, but the one with two in-sync replicas keeps one of them up
+        assertEquals(asList(1, 2), KafkaSetOperator.nextBatch(new TreeSet<>(asList(1, 2, 3)), state));
+        assertEquals(singletonList(3), KafkaSetOperator.nextBatch(new TreeSet<>(singletonList(3)), state));
+    }
+
+    @Test
+    public void testRollingUpdateInBatches() throws Exception {
+        Vertx vertx = Vertx.vertx();
+        try {
+            List<String> restarted = Collections.synchronizedList(new ArrayList<>());
+            KafkaSetOperator op = new KafkaSetOperator(vertx, mock(KubernetesClient.class), 60_000) {
+                @Override
+                protected boolean isPodUpToDate(StatefulSet ss, String podName) {
+                    return false;
+                }
+
+                @Override
+                protected Future<ClusterState> clusterState(StatefulSet ss) {
+                    return Future.succeededFuture(new ClusterState(1, singletonList(
+                            partition(asList(0, 1, 2), asList(0, 1, 2), 1))));
+                }
+
+                @Override
+                public Future<Void> maybeRestartPod(StatefulSet ss, String podName) {
+                    restarted.add(podName);
+                    return Future.succeededFuture();
+                }
+            };
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            op.maybeRollingUpdate(a).setHandler(ar -> {
+                if (ar.succeeded()) {
+                    done.complete(null);
+                } else {
+                    done.completeExceptionally(ar.cause());
+                }
+            });
+            done.get(10, TimeUnit.SECONDS);
+            // Brokers 0 and 2 together, then the controller
+            String name = a.getMetadata().getName();
+            assertEquals(asList(name + "-0", name + "-2", name + "-1"), restarted);
+        } finally {
+            vertx.close();
+        }
+    }
 }
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.operator.cluster.operator.resource;
+
+import io.fabric8.kubernetes.api.model.ConfigMap;
+import io.fabric8.kubernetes.api.model.ConfigMapBuilder;
+import io.fabric8.kubernetes.api.model.ConfigMapList;
+import io.fabric8.kubernetes.api.model.ConfigMapListBuilder;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+import io.fabric8.kubernetes.client.dsl.MixedOperation;
+import io.fabric8.kubernetes.client.dsl.NonNamespaceOperation;
+import io.fabric8.kubernetes.client.dsl.Resource;
+import io.strimzi.operator.cluster.model.Labels;
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(VertxUnitRunner.class)
+public class ResourceCacheTest {
+
+    private static final String NAMESPACE = "test";
+
+    private Vertx vertx;
+    private MixedOperation mockCms;
+    private NonNamespaceOperation mockNamespaced;
+    private Resource mockResource;
+    private final AtomicReference<Watcher<ConfigMap>> watcher = new AtomicReference<>();
+
+    private static ConfigMap configMap(String name, String cluster, String resourceVersion) {
+        return new ConfigMapBuilder()
+                .withNewMetadata()
+                    .withName(name)
+                    .withNamespace(NAMESPACE)
+                    .withResourceVersion(resourceVersion)
+                    .withLabels(Labels.forCluster(cluster).toMap())
+                .endMetadata()
+                .build();
+    }
+
+    private static ConfigMapList configMapList(String resourceVersion, ConfigMap... items) {
+        return new ConfigMapListBuilder()
+                .withNewMetadata().withResourceVersion(resourceVersion).endMetadata()
+                .withItems(items)
+                .build();
+    }
+
+    private static List<String> names(List<ConfigMap> configMaps) {
+        return configMaps.stream().map(cm -> cm.getMetadata().getName()).sorted().collect(Collectors.toList());
+    }
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        vertx = Vertx.vertx();
+        mockResource = mock(Resource.class);
+        mockNamespaced = mock(NonNamespaceOperation.class);
+        when(mockNamespaced.withName(anyString())).thenReturn(mockResource);
+        when(mockNamespaced.list()).thenReturn(configMapList("10",
+                configMap("a-config", "a", "1"),
+                configMap("b-config", "b", "2"),
+                configMap("b-other", "b", "3")));
+        when(mockNamespaced.watch(anyString(), any(Watcher.class))).thenAnswer(invocation -> {
+            watcher.set(invocation.getArgument(1));
+            return mock(Watch.class);
+        });
+        mockCms = mock(MixedOperation.class);
+        when(mockCms.inNamespace(eq(NAMESPACE))).thenReturn(mockNamespaced);
+    }
+
+    @After
+    public void teardown() {
+        vertx.close();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testListAndWatch(TestContext context) {
+        ResourceCache<ConfigMap> cache = new ResourceCache<>(vertx, "ConfigMap", mockCms);
+        context.assertFalse(cache.isInformed(NAMESPACE));
+        cache.inform(NAMESPACE);
+        context.assertTrue(cache.isInformed(NAMESPACE));
+        verify(mockNamespaced).watch(eq("10"), any(Watcher.class));
+
+        context.assertEquals("a-config", cache.get(NAMESPACE, "a-config").getMetadata().getName());
+        context.assertNull(cache.get(NAMESPACE, "c-config"));
+        context.assertEquals(asList("b-config", "b-other"), names(cache.list(NAMESPACE, Labels.forCluster("b").toMap())));
+        context.assertEquals(asList("a-config", "b-config", "b-other"), names(cache.list(NAMESPACE, null)));
+        context.assertTrue(cache.list(NAMESPACE, singletonMap("no", "such-label")).isEmpty());
+
+        // Watch events update the cache and its label index
+        watcher.get().eventReceived(Watcher.Action.ADDED, configMap("c-config", "c", "11"));
+        watcher.get().eventReceived(Watcher.Action.MODIFIED, configMap("b-other", "c", "12"));
+        watcher.get().eventReceived(Watcher.Action.DELETED, configMap("a-config", "a", "13"));
+        context.assertNull(cache.get(NAMESPACE, "a-config"));
+        context.assertEquals(singletonList("b-config"), names(cache.list(NAMESPACE, Labels.forCluster("b").toMap())));
+        context.assertEquals(asList("b-other", "c-config"), names(cache.list(NAMESPACE, Labels.forCluster("c").toMap())));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRelistWhenWatchCloses(TestContext context) {
+        ResourceCache<ConfigMap> cache = new ResourceCache<>(vertx, "ConfigMap", mockCms);
+        cache.inform(NAMESPACE);
+        Watcher<ConfigMap> first = watcher.get();
+
+        when(mockNamespaced.list()).thenReturn(configMapList("20", configMap("d-config", "d", "15")));
+        first.onClose(new KubernetesClientException("too old resource version"));
+
+        Async relisted = context.async();
+        vertx.setPeriodic(10, timerId -> {
+            if (cache.get(NAMESPACE, "d-config") != null) {
+                vertx.cancelTimer(timerId);
+                relisted.complete();
+            }
+        });
+        relisted.await();
+        context.assertNull(cache.get(NAMESPACE, "a-config"));
+        verify(mockNamespaced).watch(eq("20"), any(Watcher.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testOperatorReadsFromCache(TestContext context) {
+        KubernetesClient mockClient = mock(KubernetesClient.class);
+        when(mockClient.configMaps()).thenReturn(mockCms);
+        ConfigMapOperator op = new ConfigMapOperator(vertx, mockClient);
+        ConfigMap patched = configMap("a-config", "a", "11");
+        when(mockResource.cascading(true)).thenReturn(mockResource);
+        when(mockResource.patch(any())).thenReturn(patched);
+
+        Async informed = context.async();
+        op.inform(NAMESPACE).setHandler(context.asyncAssertSuccess(v -> informed.complete()));
+        informed.await();
+
+        context.assertEquals(asList("b-config", "b-other"), names(op.list(NAMESPACE, Labels.forCluster("b"))));
+        verify(mockNamespaced, times(1)).list();
+
+        Async reconciled = context.async();
+        op.reconcile(NAMESPACE, "a-config", configMap("a-config", "a", null)).setHandler(context.asyncAssertSuccess(result -> {
+            context.assertTrue(result instanceof ReconcileResult.Patched);
+            reconciled.complete();
+        }));
+        reconciled.await();
+        // The existing ConfigMap was found in the cache, and the patched one written through to it
+        verify(mockResource, never()).get();
+        context.assertEquals("11", op.get(NAMESPACE, "a-config").getMetadata().getResourceVersion());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testNotInformedIfWatchCannotBeOpened(TestContext context) {
+        when(mockNamespaced.watch(anyString(), any(Watcher.class))).thenThrow(new KubernetesClientException("forbidden"));
+        ResourceCache<ConfigMap> cache = new ResourceCache<>(vertx, "ConfigMap", mockCms);
+        try {
+            cache.inform(NAMESPACE);
+            context.fail("Expected the inform to fail");
+        } catch (KubernetesClientException e) {
+            // expected
+        }
+        // So the operators read from the API server rather than from a snapshot which is never updated
+        context.assertFalse(cache.isInformed(NAMESPACE));
+    }
+
+    @Test
+    public void testWrittenDoesNotOverwriteNewerWatchEvent(TestContext context) {
+        ResourceCache<ConfigMap> cache = new ResourceCache<>(vertx, "ConfigMap", mockCms);
+        cache.inform(NAMESPACE);
+        ConfigMap before = cache.get(NAMESPACE, "a-config");
+
+        // The watch delivers the write, and a later change, before the write completes
+        watcher.get().eventReceived(Watcher.Action.MODIFIED, configMap("a-config", "a", "12"));
+        cache.written(NAMESPACE, before, configMap("a-config", "a", "11"));
+        context.assertEquals("12", cache.get(NAMESPACE, "a-config").getMetadata().getResourceVersion());
+
+        cache.written(NAMESPACE, cache.get(NAMESPACE, "a-config"), configMap("a-config", "a", "13"));
+        context.assertEquals("13", cache.get(NAMESPACE, "a-config").getMetadata().getResourceVersion());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testDeleteIsNotWrittenThrough(TestContext context) {
+        KubernetesClient mockClient = mock(KubernetesClient.class);
+        when(mockClient.configMaps()).thenReturn(mockCms);
+        ConfigMapOperator op = new ConfigMapOperator(vertx, mockClient);
+        when(mockResource.delete()).thenReturn(Boolean.TRUE);
+
+        Async informed = context.async();
+        op.inform(NAMESPACE).setHandler(context.asyncAssertSuccess(v -> informed.complete()));
+        informed.await();
+
+        Async deleted = context.async();
+        op.reconcile(NAMESPACE, "a-config", null).setHandler(context.asyncAssertSuccess(result -> deleted.complete()));
+        deleted.await();
+        verify(mockResource).delete();
+        // The resource may still exist (as a terminating pod might), so it's in the cache until the watch says otherwise
+        context.assertNotNull(op.get(NAMESPACE, "a-config"));
+        watcher.get().eventReceived(Watcher.Action.DELETED, configMap("a-config", "a", "11"));
+        context.assertNull(op.get(NAMESPACE, "a-config"));
+    }
+}
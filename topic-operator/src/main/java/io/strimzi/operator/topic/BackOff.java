@@ -48,7 +48,17 @@ public class BackOff {
      */
     public long delayMs() {
         int n = attempt++;
-        return delay(n);
+        long delay;
+        try {
+            delay = delay(n);
+        } catch (MaxAttemptsExceededException e) {
+            Metrics.BACKOFF_EXHAUSTED.inc();
+            throw e;
+        }
+        if (n > 0) {
+            Metrics.BACKOFF_RETRIES.inc();
+        }
+        return delay;
     }
 
     private long delay(int n) {
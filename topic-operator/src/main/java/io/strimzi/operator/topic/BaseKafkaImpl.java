@@ -5,6 +5,8 @@
 package io.strimzi.operator.topic;
 
 import io.vertx.core.AsyncResult;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Context;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
@@ -18,10 +20,18 @@ import org.apache.kafka.common.errors.UnknownTopicOrPartitionException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Arrays.asList;
 
 /**
  * Partial implementation of {@link Kafka} omitting those methods which imply a partition assignment.
@@ -33,35 +43,76 @@ public abstract class BaseKafkaImpl implements Kafka {
 
     private final static Logger LOGGER = LogManager.getLogger(BaseKafkaImpl.class);
 
+    /** The maximum number of topics described by a single request in {@link #topicsMetadata(Set, Handler)}. */
+    static final int METADATA_BATCH_SIZE = 1000;
+
     protected final AdminClient adminClient;
 
     protected final Vertx vertx;
 
+    /** The namespace of the operator using this Kafka, for metrics. */
+    private final String namespace;
+
     private volatile boolean stopped = false;
 
-    public BaseKafkaImpl(AdminClient adminClient, Vertx vertx) {
+    public BaseKafkaImpl(AdminClient adminClient, Vertx vertx, String namespace) {
         this.adminClient = adminClient;
         this.vertx = vertx;
+        this.namespace = namespace;
     }
 
     public void stop() {
         this.stopped = true;
     }
 
-    abstract class Work implements Runnable, Handler<Void> {
-        @Override
-        public void run() {
-            if (!stopped && !complete()) {
-                vertx.runOnContext(this);
+    /**
+     * Some work which is done on the Vert.x context once one or more {@link KafkaFuture}s are complete.
+     * The Vert.x context is captured when the work is created, and the AdminClient thread which completes
+     * the last of the futures hops back to that context exactly once, so no event loop time is spent waiting
+     * for a broker round trip.
+     */
+    abstract class Work {
+
+        private final Context context = vertx.getOrCreateContext();
+        private final long startNanos = System.nanoTime();
+
+        /**
+         * Arrange for {@link #complete()} to be run on the context when all the {@link #futures()} are done,
+         * whether successfully or not.
+         * (Unlike {@link KafkaFuture#allOf(KafkaFuture[])}, which is done as soon as any future fails.)
+         */
+        void queue() {
+            Collection<KafkaFuture<?>> futures = futures();
+            if (futures.isEmpty()) {
+                context.runOnContext(ignored -> complete());
+                return;
+            }
+            AtomicInteger remaining = new AtomicInteger(futures.size());
+            AtomicBoolean failed = new AtomicBoolean();
+            for (KafkaFuture<?> future : futures) {
+                future.whenComplete((result, error) -> {
+                    if (error != null) {
+                        failed.set(true);
+                    }
+                    if (remaining.decrementAndGet() == 0) {
+                        Metrics.KAFKA_REQUESTS.labels(namespace, operation(), failed.get() ? Metrics.FAILURE : Metrics.SUCCESS)
+                                .observe(Metrics.seconds(startNanos));
+                        if (!stopped) {
+                            context.runOnContext(ignored -> complete());
+                        }
+                    }
+                });
             }
         }
 
-        @Override
-        public void handle(Void v) {
-            run();
-        }
+        /** The name of the AdminClient operation, for metrics. */
+        protected abstract String operation();
+
+        /** The futures this work depends on. */
+        protected abstract Collection<KafkaFuture<?>> futures();
 
-        protected abstract boolean complete();
+        /** Handle the now-completed futures. Invoked on the context. */
+        protected abstract void complete();
     }
 
     /** Some work that depends on a single future */
@@ -83,33 +134,35 @@ public abstract class BaseKafkaImpl implements Kafka {
         }
 
         @Override
-        protected boolean complete() {
-            if (this.future.isDone()) {
-                LOGGER.trace("Future {} of work {} is done", future, this);
+        protected String operation() {
+            return name;
+        }
+
+        @Override
+        protected Collection<KafkaFuture<?>> futures() {
+            return Collections.singleton(future);
+        }
+
+        @Override
+        protected void complete() {
+            LOGGER.trace("Future {} of work {} is done", future, this);
+            try {
                 try {
-                    try {
-                        T result = this.future.get();
-                        LOGGER.debug("Future {} has result {}", future, result);
-                        this.handler.handle(Future.succeededFuture(result));
-                        LOGGER.debug("Handler for work {} executed ok", this);
-                    } catch (ExecutionException e) {
-                        LOGGER.debug("Future {} threw {}", future, e.toString());
-                        this.handler.handle(Future.failedFuture(e.getCause()));
-                    } catch (InterruptedException e) {
-                        LOGGER.debug("Future {} threw {}", future, e.toString());
-                        this.handler.handle(Future.failedFuture(e));
-                    }
-                } catch (OperatorException e) {
-                    // TODO handler threw, but I have no context for creating a k8s error event
-                    LOGGER.trace("Handler for work {} threw {}", this, e.toString());
-                    e.printStackTrace();
-                }
-                return true;
-            } else {
-                if (LOGGER.isTraceEnabled()) {
-                    LOGGER.trace("Future {} is not done", future);
+                    T result = this.future.get();
+                    LOGGER.debug("Future {} has result {}", future, result);
+                    this.handler.handle(Future.succeededFuture(result));
+                    LOGGER.debug("Handler for work {} executed ok", this);
+                } catch (ExecutionException e) {
+                    LOGGER.debug("Future {} threw {}", future, e.toString());
+                    this.handler.handle(Future.failedFuture(e.getCause()));
+                } catch (InterruptedException e) {
+                    LOGGER.debug("Future {} threw {}", future, e.toString());
+                    this.handler.handle(Future.failedFuture(e));
                 }
-                return false;
+            } catch (OperatorException e) {
+                // TODO handler threw, but I have no context for creating a k8s error event
+                LOGGER.trace("Handler for work {} threw {}", this, e.toString());
+                e.printStackTrace();
             }
         }
 
@@ -171,41 +224,172 @@ public abstract class BaseKafkaImpl implements Kafka {
         }
 
         @Override
-        protected boolean complete() {
-            if (this.descFuture.isDone()
-                    && this.configFuture.isDone()) {
-                final TopicDescription desc = result(this.descFuture);
-                final Config config = result(this.configFuture);
-                if (!handled) {
-                    TopicMetadata metadata;
-                    if (desc != null && config != null) {
-                        metadata = new TopicMetadata(desc, config);
-                    } else {
-                        metadata = null;
-                    }
-                    this.handler.handle(Future.succeededFuture(metadata));
-                    this.handled = true;
-                    LOGGER.trace("Handler for work {} executed ok", this);
+        protected String operation() {
+            return "topicMetadata";
+        }
+
+        @Override
+        protected Collection<KafkaFuture<?>> futures() {
+            return asList(descFuture, configFuture);
+        }
+
+        @Override
+        protected void complete() {
+            final TopicDescription desc = result(this.descFuture);
+            final Config config = result(this.configFuture);
+            if (!handled) {
+                TopicMetadata metadata;
+                if (desc != null && config != null) {
+                    metadata = new TopicMetadata(desc, config);
                 } else {
+                    metadata = null;
                 }
-                return handled;
-            } else {
-                if (!this.descFuture.isDone())
-                    LOGGER.trace("Description future {} is not done", descFuture);
-                if (!this.configFuture.isDone())
-                    LOGGER.trace("Config future {} is not done", configFuture);
-                return false;
+                this.handler.handle(Future.succeededFuture(metadata));
+                this.handled = true;
+                LOGGER.trace("Handler for work {} executed ok", this);
             }
         }
     }
 
+    /** Some work that depends on the description and config futures of a batch of topics */
+    class BatchMetadataWork extends Work {
+        private final Map<String, KafkaFuture<TopicDescription>> descFutures;
+        private final Map<ConfigResource, KafkaFuture<Config>> configFutures;
+        private final Handler<AsyncResult<Map<TopicName, TopicMetadata>>> handler;
+
+        public BatchMetadataWork(Map<String, KafkaFuture<TopicDescription>> descFutures,
+                                 Map<ConfigResource, KafkaFuture<Config>> configFutures,
+                                 Handler<AsyncResult<Map<TopicName, TopicMetadata>>> handler) {
+            if (descFutures == null) {
+                throw new NullPointerException();
+            }
+            if (configFutures == null) {
+                throw new NullPointerException();
+            }
+            if (handler == null) {
+                throw new NullPointerException();
+            }
+            this.descFutures = descFutures;
+            this.configFutures = configFutures;
+            this.handler = handler;
+        }
+
+        /**
+         * The result of the given (done) future, or null if it failed with
+         * {@link UnknownTopicOrPartitionException}.
+         */
+        private <T> T result(KafkaFuture<T> future) throws ExecutionException, InterruptedException {
+            try {
+                return future.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof UnknownTopicOrPartitionException) {
+                    return null;
+                }
+                throw e;
+            }
+        }
+
+        @Override
+        protected String operation() {
+            return "topicsMetadata";
+        }
+
+        @Override
+        protected Collection<KafkaFuture<?>> futures() {
+            List<KafkaFuture<?>> futures = new ArrayList<>(descFutures.size() + configFutures.size());
+            futures.addAll(descFutures.values());
+            futures.addAll(configFutures.values());
+            return futures;
+        }
+
+        @Override
+        protected void complete() {
+            Map<TopicName, TopicMetadata> metadata = new HashMap<>(descFutures.size());
+            try {
+                for (Map.Entry<String, KafkaFuture<TopicDescription>> entry : descFutures.entrySet()) {
+                    String topicName = entry.getKey();
+                    TopicDescription desc = result(entry.getValue());
+                    Config config = result(configFutures.get(new ConfigResource(ConfigResource.Type.TOPIC, topicName)));
+                    metadata.put(new TopicName(topicName), desc != null && config != null ? new TopicMetadata(desc, config) : null);
+                }
+            } catch (ExecutionException e) {
+                LOGGER.debug("Batch metadata work {} threw {}", this, e.getCause().toString());
+                this.handler.handle(Future.failedFuture(e.getCause()));
+                return;
+            } catch (InterruptedException e) {
+                LOGGER.debug("Batch metadata work {} threw {}", this, e.toString());
+                this.handler.handle(Future.failedFuture(e));
+                return;
+            }
+            this.handler.handle(Future.succeededFuture(metadata));
+            LOGGER.trace("Handler for work {} executed ok", this);
+        }
+    }
+
+    /**
+     * Work that depends on the descriptions of many topics,
+     * omitting the topics which were deleted after they were listed.
+     */
+    class DescriptionsWork extends Work {
+        private final Map<String, KafkaFuture<TopicDescription>> descFutures;
+        private final Handler<AsyncResult<Map<String, TopicDescription>>> handler;
+
+        public DescriptionsWork(Map<String, KafkaFuture<TopicDescription>> descFutures,
+                                Handler<AsyncResult<Map<String, TopicDescription>>> handler) {
+            if (descFutures == null) {
+                throw new NullPointerException();
+            }
+            if (handler == null) {
+                throw new NullPointerException();
+            }
+            this.descFutures = descFutures;
+            this.handler = handler;
+        }
+
+        @Override
+        protected String operation() {
+            return "describeTopics";
+        }
+
+        @Override
+        protected Collection<KafkaFuture<?>> futures() {
+            return new ArrayList<>(descFutures.values());
+        }
+
+        @Override
+        protected void complete() {
+            Map<String, TopicDescription> descriptions = new HashMap<>(descFutures.size());
+            try {
+                for (Map.Entry<String, KafkaFuture<TopicDescription>> entry : descFutures.entrySet()) {
+                    try {
+                        descriptions.put(entry.getKey(), entry.getValue().get());
+                    } catch (ExecutionException e) {
+                        if (!(e.getCause() instanceof UnknownTopicOrPartitionException)) {
+                            throw e;
+                        }
+                        LOGGER.debug("Topic {} was deleted before it could be described", entry.getKey());
+                    }
+                }
+            } catch (ExecutionException e) {
+                LOGGER.debug("Descriptions work {} threw {}", this, e.getCause().toString());
+                this.handler.handle(Future.failedFuture(e.getCause()));
+                return;
+            } catch (InterruptedException e) {
+                LOGGER.debug("Descriptions work {} threw {}", this, e.toString());
+                this.handler.handle(Future.failedFuture(e));
+                return;
+            }
+            this.handler.handle(Future.succeededFuture(descriptions));
+        }
+    }
+
     /**
-     * Queue a future and callback. The callback will be invoked (on a separate thread)
+     * Queue a future and callback. The callback will be invoked (on the context of the caller)
      * when the future is ready.
      */
     protected void queueWork(Work work) {
-        LOGGER.trace("Queuing work {} for immediate execution", work);
-        vertx.runOnContext(work);
+        LOGGER.trace("Queuing work {} for execution on completion", work);
+        work.queue();
     }
 
     /**
@@ -244,6 +428,50 @@ public abstract class BaseKafkaImpl implements Kafka {
             result -> handler.handle(result)));
     }
 
+    /**
+     * Get the metadata of the given topics via the Kafka AdminClient API, calling the given handler
+     * (on the caller's context) with the result.
+     * Rather than describing each topic individually the topics are described in batches of
+     * {@link #METADATA_BATCH_SIZE}, each batch needing a single describeTopics and a single describeConfigs request.
+     */
+    @Override
+    public void topicsMetadata(Set<TopicName> topicNames, Handler<AsyncResult<Map<TopicName, TopicMetadata>>> handler) {
+        LOGGER.debug("Getting metadata for {} topics", topicNames.size());
+        List<Future> batchFutures = new ArrayList<>();
+        List<String> batch = new ArrayList<>(Math.min(METADATA_BATCH_SIZE, topicNames.size()));
+        for (TopicName topicName : topicNames) {
+            batch.add(topicName.toString());
+            if (batch.size() == METADATA_BATCH_SIZE) {
+                batchFutures.add(topicsMetadataBatch(batch));
+                batch = new ArrayList<>(METADATA_BATCH_SIZE);
+            }
+        }
+        if (!batch.isEmpty()) {
+            batchFutures.add(topicsMetadataBatch(batch));
+        }
+        CompositeFuture.all(batchFutures).map(composite -> {
+            Map<TopicName, TopicMetadata> result = new HashMap<>(topicNames.size());
+            for (int i = 0; i < composite.size(); i++) {
+                Map<TopicName, TopicMetadata> batchResult = composite.resultAt(i);
+                result.putAll(batchResult);
+            }
+            return result;
+        }).setHandler(handler);
+    }
+
+    private Future<Map<TopicName, TopicMetadata>> topicsMetadataBatch(List<String> batch) {
+        LOGGER.trace("Getting metadata for batch of topics {}", batch);
+        List<ConfigResource> resources = new ArrayList<>(batch.size());
+        for (String topicName : batch) {
+            resources.add(new ConfigResource(ConfigResource.Type.TOPIC, topicName));
+        }
+        Map<String, KafkaFuture<TopicDescription>> descriptionFutures = adminClient.describeTopics(batch).values();
+        Map<ConfigResource, KafkaFuture<Config>> configFutures = adminClient.describeConfigs(resources).values();
+        Future<Map<TopicName, TopicMetadata>> result = Future.future();
+        queueWork(new BatchMetadataWork(descriptionFutures, configFutures, result.completer()));
+        return result;
+    }
+
     @Override
     public void listTopics(Handler<AsyncResult<Set<String>>> handler) {
         LOGGER.debug("Listing topics");
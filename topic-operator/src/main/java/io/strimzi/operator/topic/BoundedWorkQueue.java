@@ -0,0 +1,102 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.operator.topic;
+
+import io.vertx.core.Future;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.function.Supplier;
+
+/**
+ * Limits the number of concurrently outstanding asynchronous tasks.
+ * Tasks {@linkplain #submit(Supplier) submitted} while the limit is reached are queued,
+ * and started in submission order as earlier tasks complete.
+ */
+class BoundedWorkQueue {
+
+    private final int limit;
+    private final Queue<Runnable> queue = new ArrayDeque<>();
+    private int running = 0;
+    private boolean draining = false;
+
+    public BoundedWorkQueue(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("The limit must be positive: " + limit);
+        }
+        this.limit = limit;
+    }
+
+    /**
+     * Start the given {@code task} immediately if fewer than {@code limit} tasks are running,
+     * otherwise when enough of the running tasks have completed.
+     * @return A future which completes with the result of the task's future.
+     */
+    public <T> Future<T> submit(Supplier<Future<T>> task) {
+        Future<T> result = Future.future();
+        synchronized (this) {
+            queue.add(() -> {
+                Future<T> taskFuture;
+                try {
+                    taskFuture = task.get();
+                } catch (RuntimeException e) {
+                    taskFuture = Future.failedFuture(e);
+                }
+                taskFuture.setHandler(ar -> {
+                    synchronized (this) {
+                        running--;
+                    }
+                    drain();
+                    result.handle(ar);
+                });
+            });
+        }
+        drain();
+        return result;
+    }
+
+    /**
+     * Start queued tasks until the limit is reached.
+     * Tasks which complete synchronously don't recurse into this method,
+     * but are picked up by the caller already draining the queue.
+     */
+    private void drain() {
+        synchronized (this) {
+            if (draining) {
+                return;
+            }
+            draining = true;
+        }
+        try {
+            while (true) {
+                Runnable next;
+                synchronized (this) {
+                    if (running >= limit || queue.isEmpty()) {
+                        draining = false;
+                        return;
+                    }
+                    next = queue.poll();
+                    running++;
+                }
+                next.run();
+            }
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                draining = false;
+            }
+            throw e;
+        }
+    }
+
+    /** The number of tasks which have been started but not yet completed. */
+    synchronized int running() {
+        return running;
+    }
+
+    /** The number of tasks waiting to be started. */
+    synchronized int queued() {
+        return queue.size();
+    }
+}
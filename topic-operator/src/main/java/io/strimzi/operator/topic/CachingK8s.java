@@ -0,0 +1,293 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.operator.topic;
+
+import io.fabric8.kubernetes.api.model.ConfigMap;
+import io.fabric8.kubernetes.api.model.ConfigMapBuilder;
+import io.fabric8.kubernetes.api.model.ConfigMapList;
+import io.fabric8.kubernetes.api.model.Event;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link K8s} which answers {@link #listMaps(Handler)} and {@link #getFromName(MapName, Handler)}
+ * from an in-memory store of the ConfigMaps matching the {@code cmPredicate}, rather than
+ * by making a request to the API server.
+ *
+ * The store is populated by listing the ConfigMaps when {@link #start(Watcher)} is called and kept up to date
+ * by a watch from the {@code resourceVersion} of that list. Each watch event is applied to the store
+ * before it's passed on to the downstream watcher, so the downstream watcher always sees a store
+ * at least as recent as the event it is handling. When the watch is closed by the API server (for
+ * example because the resourceVersion it was started from has expired) the ConfigMaps are listed again
+ * and the watch restarted. Any differences between the store and the new list are
+ * passed to the downstream watcher as if they were watch events.
+ *
+ * Writes are delegated to the given {@link K8s}, and written through to the store on success,
+ * unless the watch has already updated the store entry in the meantime.
+ */
+public class CachingK8s implements K8s {
+
+    private final static Logger LOGGER = LogManager.getLogger(CachingK8s.class);
+
+    /** How long to wait before retrying a failed resync. */
+    static final long RESYNC_RETRY_MS = 5_000;
+
+    private final Vertx vertx;
+    private final KubernetesClient client;
+    private final K8s delegate;
+    private final LabelPredicate cmPredicate;
+    private final String namespace;
+
+    private final ConcurrentHashMap<MapName, ConfigMap> store = new ConcurrentHashMap<>();
+    /** The resourceVersion of the most recent list or watch event. */
+    private volatile String resourceVersion;
+    /** Whether the store has been populated. Until it has, reads are delegated. */
+    private volatile boolean synced = false;
+    private volatile boolean stopped = false;
+    private volatile Watch watch;
+    private volatile Watcher<ConfigMap> downstream;
+
+    public CachingK8s(Vertx vertx, KubernetesClient client, K8s delegate, LabelPredicate cmPredicate, String namespace) {
+        this.vertx = vertx;
+        this.client = client;
+        this.delegate = delegate;
+        this.cmPredicate = cmPredicate;
+        this.namespace = namespace;
+    }
+
+    /**
+     * List the ConfigMaps into the store and start watching them, passing the watch events to the given
+     * {@code downstream} watcher. This method blocks, so must not be called on an event loop thread.
+     */
+    public void start(Watcher<ConfigMap> downstream) {
+        this.downstream = downstream;
+        sync();
+    }
+
+    /**
+     * Stop watching the ConfigMaps. Subsequent reads are delegated.
+     */
+    public void stop() {
+        stopped = true;
+        synced = false;
+        Watch watch = this.watch;
+        if (watch != null) {
+            watch.close();
+        }
+    }
+
+    /**
+     * List the ConfigMaps, replace the contents of the store with them
+     * (informing the downstream watcher of the differences) and start watching from the
+     * resourceVersion of the list.
+     */
+    private void sync() {
+        ConfigMapList list = client.configMaps().inNamespace(namespace).withLabels(cmPredicate.labels()).list();
+        Map<MapName, ConfigMap> listed = new HashMap<>();
+        for (ConfigMap cm : list.getItems()) {
+            if (cmPredicate.test(cm)) {
+                listed.put(new MapName(cm), cm);
+            }
+        }
+        List<ConfigMap> deleted = new ArrayList<>();
+        for (Map.Entry<MapName, ConfigMap> entry : store.entrySet()) {
+            if (!listed.containsKey(entry.getKey())) {
+                deleted.add(entry.getValue());
+            }
+        }
+        boolean initial = !synced;
+        for (ConfigMap cm : listed.values()) {
+            ConfigMap old = store.put(new MapName(cm), cm);
+            if (!initial) {
+                if (old == null) {
+                    notifyDownstream(Watcher.Action.ADDED, cm);
+                } else if (!Objects.equals(resourceVersion(old), resourceVersion(cm))) {
+                    notifyDownstream(Watcher.Action.MODIFIED, cm);
+                }
+            }
+        }
+        for (ConfigMap cm : deleted) {
+            store.remove(new MapName(cm));
+            notifyDownstream(Watcher.Action.DELETED, cm);
+        }
+        resourceVersion = list.getMetadata() != null ? list.getMetadata().getResourceVersion() : null;
+        synced = true;
+        LOGGER.debug("Synced {} ConfigMaps at resourceVersion {}", listed.size(), resourceVersion);
+        watch = client.configMaps().inNamespace(namespace).watch(resourceVersion, new StoreWatcher());
+    }
+
+    private void resync() {
+        if (stopped) {
+            return;
+        }
+        Handler<AsyncResult<Void>> retryOnFailure = ar -> {
+            if (ar.failed()) {
+                LOGGER.error("Error resyncing ConfigMaps, will retry in {}ms", RESYNC_RETRY_MS, ar.cause());
+                vertx.setTimer(RESYNC_RETRY_MS, ignored -> resync());
+            }
+        };
+        vertx.executeBlocking(future -> {
+            try {
+                sync();
+                future.complete();
+            } catch (Exception e) {
+                future.fail(e);
+            }
+        }, retryOnFailure);
+    }
+
+    private static String resourceVersion(ConfigMap cm) {
+        return cm.getMetadata() != null ? cm.getMetadata().getResourceVersion() : null;
+    }
+
+    private void notifyDownstream(Watcher.Action action, ConfigMap cm) {
+        Watcher<ConfigMap> downstream = this.downstream;
+        if (downstream != null) {
+            downstream.eventReceived(action, cm);
+        }
+    }
+
+    /** Applies watch events to the store, then passes them downstream. */
+    class StoreWatcher implements Watcher<ConfigMap> {
+
+        @Override
+        public void eventReceived(Action action, ConfigMap cm) {
+            String rv = resourceVersion(cm);
+            if (rv != null) {
+                resourceVersion = rv;
+            }
+            MapName mapName = new MapName(cm);
+            switch (action) {
+                case ADDED:
+                case MODIFIED:
+                    if (cmPredicate.test(cm)) {
+                        store.put(mapName, cm);
+                    } else {
+                        // The labels no longer match
+                        store.remove(mapName);
+                    }
+                    break;
+                case DELETED:
+                    store.remove(mapName);
+                    break;
+                case ERROR:
+                    break;
+            }
+            notifyDownstream(action, cm);
+        }
+
+        @Override
+        public void onClose(KubernetesClientException e) {
+            if (e != null && !stopped) {
+                LOGGER.info("ConfigMap watch closed at resourceVersion {}, resyncing", resourceVersion, e);
+                resync();
+            } else {
+                LOGGER.debug("Closing {}", this);
+            }
+        }
+    }
+
+    @Override
+    public void createConfigMap(ConfigMap cm, Handler<AsyncResult<Void>> handler) {
+        MapName mapName = new MapName(cm);
+        ConfigMap before = store.get(mapName);
+        delegate.createConfigMap(cm, ar -> {
+            if (ar.succeeded() && synced) {
+                writeThrough(mapName, before, cm);
+            }
+            handler.handle(ar);
+        });
+    }
+
+    @Override
+    public void updateConfigMap(ConfigMap cm, Handler<AsyncResult<Void>> handler) {
+        MapName mapName = new MapName(cm);
+        ConfigMap before = store.get(mapName);
+        delegate.updateConfigMap(cm, ar -> {
+            if (ar.succeeded() && synced) {
+                writeThrough(mapName, before, cm);
+            }
+            handler.handle(ar);
+        });
+    }
+
+    @Override
+    public void patchConfigMap(MapName mapName, Map<String, String> data, Handler<AsyncResult<Void>> handler) {
+        ConfigMap before = store.get(mapName);
+        delegate.patchConfigMap(mapName, data, ar -> {
+            if (ar.succeeded() && synced && before != null) {
+                writeThrough(mapName, before, new ConfigMapBuilder(before).addToData(data).build());
+            }
+            handler.handle(ar);
+        });
+    }
+
+    /**
+     * Put the ConfigMap we wrote into the store, but only if the store entry is still the one
+     * from before the write. Otherwise the watch has already delivered this write, or a later
+     * change, and the locally built ConfigMap would overwrite that newer state.
+     */
+    private void writeThrough(MapName mapName, ConfigMap before, ConfigMap written) {
+        boolean replaced = before == null
+                ? store.putIfAbsent(mapName, written) == null
+                : store.replace(mapName, before, written);
+        if (!replaced) {
+            LOGGER.debug("ConfigMap {} changed in the store during the write, not writing it through", mapName);
+        }
+    }
+
+    @Override
+    public void deleteConfigMap(MapName mapName, Handler<AsyncResult<Void>> handler) {
+        delegate.deleteConfigMap(mapName, ar -> {
+            if (ar.succeeded()) {
+                store.remove(mapName);
+            }
+            handler.handle(ar);
+        });
+    }
+
+    @Override
+    public void listMaps(Handler<AsyncResult<List<ConfigMap>>> handler) {
+        if (synced) {
+            handler.handle(Future.succeededFuture(new ArrayList<>(store.values())));
+        } else {
+            delegate.listMaps(handler);
+        }
+    }
+
+    @Override
+    public void getFromName(MapName mapName, Handler<AsyncResult<ConfigMap>> handler) {
+        if (synced) {
+            handler.handle(Future.succeededFuture(store.get(mapName)));
+        } else {
+            delegate.getFromName(mapName, handler);
+        }
+    }
+
+    @Override
+    public void createEvent(Event event, Handler<AsyncResult<Void>> handler) {
+        delegate.createEvent(event, handler);
+    }
+
+    @Override
+    public void updateEvent(Event event, Handler<AsyncResult<Void>> handler) {
+        delegate.updateEvent(event, handler);
+    }
+}
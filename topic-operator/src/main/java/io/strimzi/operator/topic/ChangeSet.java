@@ -0,0 +1,89 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.operator.topic;
+
+import java.util.Map;
+
+/**
+ * The writes needed to bring the ConfigMap, the Kafka topic and the topic store each to
+ * the same {@code target} topic during reconciliation.
+ * Each is derived from the {@link TopicDiff} from that end's current state to the target,
+ * so ends which are already at the target are not written at all, and those which differ are only
+ * written with what has changed.
+ */
+class ChangeSet {
+
+    private final Topic target;
+    private final MapName mapName;
+    private final TopicDiff k8sDiff;
+    private final TopicDiff kafkaDiff;
+    /** Null if the topic is not yet in the store, and so has to be created there. */
+    private final TopicDiff storeDiff;
+
+    private ChangeSet(Topic target, MapName mapName, TopicDiff k8sDiff, TopicDiff kafkaDiff, TopicDiff storeDiff) {
+        this.target = target;
+        this.mapName = mapName;
+        this.k8sDiff = k8sDiff;
+        this.kafkaDiff = kafkaDiff;
+        this.storeDiff = storeDiff;
+    }
+
+    /**
+     * @param k8sTopic The topic according to its ConfigMap.
+     * @param kafkaTopic The topic according to Kafka.
+     * @param privateTopic The topic according to the topic store, or null if it's not in the store.
+     * @param target The topic all three should become.
+     */
+    static ChangeSet of(Topic k8sTopic, Topic kafkaTopic, Topic privateTopic, Topic target) {
+        return new ChangeSet(target, k8sTopic.getOrAsMapName(),
+                TopicDiff.diff(k8sTopic, target),
+                TopicDiff.diff(kafkaTopic, target),
+                privateTopic != null ? TopicDiff.diff(privateTopic, target) : null);
+    }
+
+    Topic target() {
+        return target;
+    }
+
+    MapName mapName() {
+        return mapName;
+    }
+
+    /**
+     * The entries of the ConfigMap's data which have to be patched. Empty if the ConfigMap is already at the target.
+     */
+    Map<String, String> configMapPatch() {
+        return TopicSerialization.toConfigMapDataPatch(target, k8sDiff);
+    }
+
+    boolean changesKafkaConfig() {
+        return kafkaDiff.changesConfig();
+    }
+
+    int kafkaPartitionsDelta() {
+        return kafkaDiff.numPartitionsDelta();
+    }
+
+    boolean changesKafkaReplicationFactor() {
+        return kafkaDiff.changesReplicationFactor();
+    }
+
+    boolean createsInStore() {
+        return storeDiff == null;
+    }
+
+    boolean changesStore() {
+        return storeDiff != null && !storeDiff.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeSet(topicName=" + target.getTopicName() +
+                ", k8s=" + k8sDiff +
+                ", kafka=" + kafkaDiff +
+                ", store=" + (storeDiff != null ? storeDiff : "create") +
+                ")";
+    }
+}
@@ -4,9 +4,13 @@
  */
 package io.strimzi.operator.topic;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
@@ -95,9 +99,15 @@ public class Config {
     public static final String TC_ZK_CONNECT = "STRIMZI_ZOOKEEPER_CONNECT";
     public static final String TC_ZK_SESSION_TIMEOUT_MS = "STRIMZI_ZOOKEEPER_SESSION_TIMEOUT_MS";
     public static final String TC_PERIODIC_INTERVAL_MS = "STRIMZI_FULL_RECONCILIATION_INTERVAL_MS";
+    public static final String TC_PERIODIC_CONCURRENCY = "STRIMZI_FULL_RECONCILIATION_CONCURRENCY";
     public static final String TC_REASSIGN_THROTTLE = "STRIMZI_REASSIGN_THROTTLE";
     public static final String TC_REASSIGN_VERIFY_INTERVAL_MS = "STRIMZI_REASSIGN_VERIFY_INTERVAL_MS";
+    public static final String TC_REASSIGN_STALL_TIMEOUT_MS = "STRIMZI_REASSIGN_STALL_TIMEOUT_MS";
     public static final String TC_TOPIC_METADATA_MAX_ATTEMPTS = "STRIMZI_TOPIC_METADATA_MAX_ATTEMPTS";
+    public static final String TC_RETRY_BUDGET = "STRIMZI_RETRY_BUDGET";
+    public static final String TC_SHARDS = "STRIMZI_SHARDS";
+
+    public static final String TC_CLUSTERS = "STRIMZI_CLUSTERS";
 
     public static final String TC_TLS_ENABLED = "STRIMZI_TLS_ENABLED";
     public static final String TC_TLS_TRUSTSTORE_LOCATION = "STRIMZI_TRUSTSTORE_LOCATION";
@@ -111,13 +121,22 @@ public class Config {
     public static final Value<LabelPredicate> LABELS = new Value<>(TC_CM_LABELS, LABEL_PREDICATE, "strimzi.io/kind=topic");
 
     /** A comma-separated list of kafka bootstrap servers. */
-    public static final Value<String> KAFKA_BOOTSTRAP_SERVERS = new Value<>(TC_KAFKA_BOOTSTRAP_SERVERS, STRING, true);
+    public static final Value<String> KAFKA_BOOTSTRAP_SERVERS = new Value<>(TC_KAFKA_BOOTSTRAP_SERVERS, STRING, false);
 
     /** The kubernetes namespace in which to operate. */
-    public static final Value<String> NAMESPACE = new Value<>(TC_NAMESPACE, STRING, true);
+    public static final Value<String> NAMESPACE = new Value<>(TC_NAMESPACE, STRING, false);
 
     /** The zookeeper connection string. */
-    public static final Value<String> ZOOKEEPER_CONNECT = new Value<>(TC_ZK_CONNECT, STRING, true);
+    public static final Value<String> ZOOKEEPER_CONNECT = new Value<>(TC_ZK_CONNECT, STRING, false);
+
+    /**
+     * The clusters to operate on, when there's more than one, as a whitespace-separated list of
+     * {@code namespace;bootstrap-servers;zookeeper-connect} entries.
+     * When this is given {@link #NAMESPACE}, {@link #KAFKA_BOOTSTRAP_SERVERS} and {@link #ZOOKEEPER_CONNECT}
+     * are ignored, otherwise they're mandatory. TLS is only supported for a single cluster.
+     * See {@link #clusterConfigs()}.
+     */
+    public static final Value<String> CLUSTERS = new Value<>(TC_CLUSTERS, STRING, false);
 
     /** The zookeeper session timeout. */
     public static final Value<Long> ZOOKEEPER_SESSION_TIMEOUT_MS = new Value<>(TC_ZK_SESSION_TIMEOUT_MS, DURATION, "20000");
@@ -125,18 +144,34 @@ public class Config {
     /** The period between full reconciliations. */
     public static final Value<Long> FULL_RECONCILIATION_INTERVAL_MS = new Value<>(TC_PERIODIC_INTERVAL_MS, DURATION, "900000");
 
+    /** The maximum number of topics reconciled concurrently during a full reconciliation. */
+    public static final Value<Integer> FULL_RECONCILIATION_CONCURRENCY = new Value<>(TC_PERIODIC_CONCURRENCY, POSITIVE_INTEGER, "10");
+
     /** The interbroker throttled rate to use when a topic change requires partition reassignment. */
     public static final Value<Long> REASSIGN_THROTTLE = new Value<>(TC_REASSIGN_THROTTLE, LONG, Long.toString(Long.MAX_VALUE));
 
     /**
-     * The interval between verification executions (as in {@code kafka-reassign-partitions.sh --verify ...})
-     * when a topic change requires partition reassignment.
+     * The interval between verifications (as in {@code kafka-reassign-partitions.sh --verify ...})
+     * when a topic change requires partition reassignment. Progress is normally observed with ZooKeeper watches,
+     * so this only bounds how long a missed watch event can delay noticing it.
      */
     public static final Value<Long> REASSIGN_VERIFY_INTERVAL_MS = new Value<>(TC_REASSIGN_VERIFY_INTERVAL_MS, DURATION, "120000");
 
+    /**
+     * How long a partition reassignment can go without a partition completing or a replica joining the ISR
+     * before it is reported as failed. It's still tracked, and its throttles are removed once it completes.
+     */
+    public static final Value<Long> REASSIGN_STALL_TIMEOUT_MS = new Value<>(TC_REASSIGN_STALL_TIMEOUT_MS, DURATION, "1800000");
+
     /** The maximum number of retries for getting topic metadata from the Kafka cluster */
     public static final Value<Integer> TOPIC_METADATA_MAX_ATTEMPTS = new Value<>(TC_TOPIC_METADATA_MAX_ATTEMPTS, POSITIVE_INTEGER, "6");
 
+    /** The maximum number of retries per second, across all topics */
+    public static final Value<Integer> RETRY_BUDGET = new Value<>(TC_RETRY_BUDGET, POSITIVE_INTEGER, "50");
+
+    /** The number of event loops across which the topics are sharded */
+    public static final Value<Integer> SHARDS = new Value<>(TC_SHARDS, POSITIVE_INTEGER, "1");
+
     /** If the connection with Kafka has to be encrypted by TLS protocol */
     public static final Value<String> TLS_ENABLED = new Value<>(TC_TLS_ENABLED, STRING, "false");
     /** The truststore with CA certificate for Kafka broker/server authentication */
@@ -156,9 +191,14 @@ public class Config {
         addConfigValue(configValues, ZOOKEEPER_CONNECT);
         addConfigValue(configValues, ZOOKEEPER_SESSION_TIMEOUT_MS);
         addConfigValue(configValues, FULL_RECONCILIATION_INTERVAL_MS);
+        addConfigValue(configValues, FULL_RECONCILIATION_CONCURRENCY);
         addConfigValue(configValues, REASSIGN_THROTTLE);
         addConfigValue(configValues, REASSIGN_VERIFY_INTERVAL_MS);
+        addConfigValue(configValues, REASSIGN_STALL_TIMEOUT_MS);
         addConfigValue(configValues, TOPIC_METADATA_MAX_ATTEMPTS);
+        addConfigValue(configValues, RETRY_BUDGET);
+        addConfigValue(configValues, SHARDS);
+        addConfigValue(configValues, CLUSTERS);
         addConfigValue(configValues, TLS_ENABLED);
         addConfigValue(configValues, TLS_TRUSTSTORE_LOCATION);
         addConfigValue(configValues, TLS_TRUSTSTORE_PASSWORD);
@@ -189,6 +229,58 @@ public class Config {
         for (Value<?> value : x.values()) {
             this.map.put(value.key, get(map, value));
         }
+        if (this.map.get(CLUSTERS.key) == null) {
+            for (Value<?> value : Arrays.asList(NAMESPACE, KAFKA_BOOTSTRAP_SERVERS, ZOOKEEPER_CONNECT)) {
+                if (this.map.get(value.key) == null) {
+                    throw new IllegalArgumentException("Config value: " + value.key + " is mandatory unless " + CLUSTERS.key + " is given");
+                }
+            }
+        }
+    }
+
+    /**
+     * A copy of the given config for a single cluster.
+     */
+    private Config(Config config, String namespace, String kafkaBootstrapServers, String zookeeperConnect) {
+        this.map = new HashMap<>(config.map);
+        this.map.put(CLUSTERS.key, null);
+        this.map.put(NAMESPACE.key, namespace);
+        this.map.put(KAFKA_BOOTSTRAP_SERVERS.key, kafkaBootstrapServers);
+        this.map.put(ZOOKEEPER_CONNECT.key, zookeeperConnect);
+    }
+
+    /**
+     * The configs of each of the clusters to operate on.
+     * If {@link #CLUSTERS} is not given this is just this config.
+     * Otherwise there's a config for each of its entries, which is this config with the namespace,
+     * bootstrap servers and zookeeper connection string of that entry.
+     * @throws IllegalArgumentException If an entry is malformed, a namespace is given more than once,
+     * or TLS is enabled for more than one cluster.
+     */
+    public List<Config> clusterConfigs() {
+        String clusters = get(CLUSTERS);
+        if (clusters == null) {
+            return Collections.singletonList(this);
+        }
+        List<Config> result = new ArrayList<>();
+        Set<String> namespaces = new HashSet<>();
+        for (String cluster : clusters.trim().split("\\s+")) {
+            String[] fields = cluster.split(";", -1);
+            if (fields.length != 3 || fields[0].isEmpty() || fields[1].isEmpty() || fields[2].isEmpty()) {
+                throw new IllegalArgumentException("Config value: " + CLUSTERS.key + " has malformed entry '" + cluster
+                        + "', expected namespace;bootstrap-servers;zookeeper-connect");
+            }
+            if (!namespaces.add(fields[0])) {
+                throw new IllegalArgumentException("Config value: " + CLUSTERS.key + " has namespace " + fields[0] + " more than once");
+            }
+            result.add(new Config(this, fields[0], fields[1], fields[2]));
+        }
+        // The truststore and keystore are shared by all the clusters, but each cluster has its own CA
+        if (result.size() > 1 && Boolean.valueOf(get(TLS_ENABLED))) {
+            throw new IllegalArgumentException("Config value: " + TLS_ENABLED.key + " is not supported when "
+                    + CLUSTERS.key + " gives more than one cluster");
+        }
+        return result;
     }
 
     public static Collection<Value<?>> keys() {
@@ -0,0 +1,300 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.operator.topic;
+
+import io.fabric8.kubernetes.api.model.Event;
+import io.fabric8.kubernetes.api.model.EventBuilder;
+import io.fabric8.kubernetes.api.model.ObjectReference;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Writes Kubernetes events for the {@link TopicOperator} without flooding the API server when the same
+ * problem is reported over and over, for example while a broker is unavailable.
+ * <ul>
+ *     <li>Events with the same involved object, type, reason and message within {@link #AGGREGATION_WINDOW_MS}
+ *     of each other are aggregated into one Event, with a count and lastTimestamp, as kubectl does.</li>
+ *     <li>Writes are rate limited by a token bucket holding up to {@code burst} tokens,
+ *     which gains a token every {@code refillIntervalMs}.
+ *     The first occurrence of an event is written straight away if there's a token for it.
+ *     Otherwise, and for repeat occurrences, the event is flushed later in a batch of at most as many events as
+ *     there are tokens. A batch is flushed every {@code flushIntervalMs} while there are events to flush,
+ *     so an event which keeps recurring is updated at most once per flush.</li>
+ * </ul>
+ * The handler passed to {@link #emit(Event, Handler)} is called once the event has been written,
+ * or once it has been queued if it can't be written straight away.
+ */
+class EventSink {
+
+    private static final Logger LOGGER = LogManager.getLogger(EventSink.class);
+
+    static final int DEFAULT_BURST = 25;
+    static final long DEFAULT_REFILL_INTERVAL_MS = 1_000L;
+    static final long DEFAULT_FLUSH_INTERVAL_MS = 5_000L;
+
+    /** Occurrences further apart than this are not aggregated. */
+    static final long AGGREGATION_WINDOW_MS = 10 * 60_000L;
+
+    /** The maximum number of distinct events remembered for aggregation. */
+    static final int MAX_AGGREGATES = 4096;
+
+    /** What identifies occurrences of the same event. */
+    private static class Key {
+        private final String kind;
+        private final String namespace;
+        private final String name;
+        private final String uid;
+        private final String type;
+        private final String reason;
+        private final String message;
+
+        Key(Event event) {
+            ObjectReference involvedObject = event.getInvolvedObject();
+            this.kind = involvedObject != null ? involvedObject.getKind() : null;
+            this.namespace = involvedObject != null ? involvedObject.getNamespace() : null;
+            this.name = involvedObject != null ? involvedObject.getName() : null;
+            this.uid = involvedObject != null ? involvedObject.getUid() : null;
+            this.type = event.getType();
+            this.reason = event.getReason();
+            this.message = event.getMessage();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return Objects.equals(kind, key.kind)
+                    && Objects.equals(namespace, key.namespace)
+                    && Objects.equals(name, key.name)
+                    && Objects.equals(uid, key.uid)
+                    && Objects.equals(type, key.type)
+                    && Objects.equals(reason, key.reason)
+                    && Objects.equals(message, key.message);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(kind, namespace, name, uid, type, reason, message);
+        }
+    }
+
+    /** The occurrences of an event, which are written as a single Event. */
+    private static class Aggregate {
+        private final Event event;
+        private final String name;
+        private final long firstMs;
+        private long lastMs;
+        private int count;
+        /** Whether the Event has been created, so later writes are updates. */
+        private boolean created;
+        /** Whether a write is outstanding, in which case the next one has to wait for it. */
+        private boolean writing;
+
+        Aggregate(Event event, String name, long nowMs) {
+            this.event = event;
+            this.name = name;
+            this.firstMs = nowMs;
+            this.lastMs = nowMs;
+            this.count = 1;
+        }
+    }
+
+    /** The most recently emitted events, in access order. */
+    private static class RecentAggregates extends LinkedHashMap<Key, Aggregate> {
+        private static final long serialVersionUID = 1L;
+
+        RecentAggregates() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Aggregate> eldest) {
+            return size() > MAX_AGGREGATES;
+        }
+    }
+
+    private final Vertx vertx;
+    private final K8s k8s;
+    private final Clock clock;
+    private final int burst;
+    private final long refillIntervalMs;
+    private final long flushIntervalMs;
+
+    // All the following are guarded by this
+    private final Map<Key, Aggregate> aggregates = new RecentAggregates();
+    private final Set<Aggregate> pending = new LinkedHashSet<>();
+    private double tokens;
+    private long refilledAtMs;
+    private boolean flushScheduled;
+    private int sequence;
+
+    EventSink(Vertx vertx, K8s k8s) {
+        this(vertx, k8s, Clock.systemUTC(), DEFAULT_BURST, DEFAULT_REFILL_INTERVAL_MS, DEFAULT_FLUSH_INTERVAL_MS);
+    }
+
+    EventSink(Vertx vertx, K8s k8s, Clock clock, int burst, long refillIntervalMs, long flushIntervalMs) {
+        if (burst < 1) {
+            throw new IllegalArgumentException("burst must be positive");
+        }
+        this.vertx = vertx;
+        this.k8s = k8s;
+        this.clock = clock;
+        this.burst = burst;
+        this.refillIntervalMs = refillIntervalMs;
+        this.flushIntervalMs = flushIntervalMs;
+        this.tokens = burst;
+        this.refilledAtMs = clock.millis();
+    }
+
+    /**
+     * Emit the given event, aggregating it with earlier occurrences of the same event.
+     */
+    void emit(Event event, Handler<AsyncResult<Void>> handler) {
+        long now = clock.millis();
+        Aggregate aggregate;
+        boolean writeNow = false;
+        synchronized (this) {
+            Key key = new Key(event);
+            aggregate = aggregates.get(key);
+            if (aggregate != null && now - aggregate.lastMs < AGGREGATION_WINDOW_MS) {
+                aggregate.count++;
+                aggregate.lastMs = now;
+                LOGGER.debug("Aggregating event {} (count {})", aggregate.name, aggregate.count);
+                pending.add(aggregate);
+            } else {
+                aggregate = new Aggregate(event, name(event, now), now);
+                aggregates.put(key, aggregate);
+                writeNow = takeToken(now);
+                if (!writeNow) {
+                    LOGGER.debug("Deferring event {}, because of the rate limit", aggregate.name);
+                    pending.add(aggregate);
+                }
+            }
+            scheduleFlush();
+        }
+        if (writeNow) {
+            write(aggregate, handler);
+        } else {
+            handler.handle(Future.succeededFuture());
+        }
+    }
+
+    /**
+     * Flush as many pending events as there are tokens for.
+     */
+    private void flush() {
+        List<Aggregate> batch = new ArrayList<>();
+        synchronized (this) {
+            flushScheduled = false;
+            long now = clock.millis();
+            Iterator<Aggregate> iterator = pending.iterator();
+            while (iterator.hasNext()) {
+                Aggregate aggregate = iterator.next();
+                if (aggregate.writing) {
+                    continue;
+                }
+                if (!takeToken(now)) {
+                    break;
+                }
+                iterator.remove();
+                batch.add(aggregate);
+            }
+            scheduleFlush();
+        }
+        if (!batch.isEmpty()) {
+            LOGGER.debug("Flushing {} events", batch.size());
+        }
+        for (Aggregate aggregate : batch) {
+            write(aggregate, ar -> { });
+        }
+    }
+
+    private void write(Aggregate aggregate, Handler<AsyncResult<Void>> handler) {
+        Event event;
+        boolean create;
+        synchronized (this) {
+            event = new EventBuilder(aggregate.event)
+                    .editOrNewMetadata()
+                        .withName(aggregate.name)
+                    .endMetadata()
+                    .withCount(aggregate.count)
+                    .withFirstTimestamp(timestamp(aggregate.firstMs))
+                    .withLastTimestamp(timestamp(aggregate.lastMs))
+                    .build();
+            create = !aggregate.created;
+            aggregate.created = true;
+            aggregate.writing = true;
+        }
+        Handler<AsyncResult<Void>> written = ar -> {
+            synchronized (this) {
+                aggregate.writing = false;
+            }
+            handler.handle(ar);
+        };
+        if (create) {
+            k8s.createEvent(event, written);
+        } else {
+            k8s.updateEvent(event, written);
+        }
+    }
+
+    /** Must be called holding the lock. */
+    private boolean takeToken(long now) {
+        if (now > refilledAtMs) {
+            tokens = Math.min(burst, tokens + (double) (now - refilledAtMs) / refillIntervalMs);
+            refilledAtMs = now;
+        }
+        if (tokens >= 1) {
+            tokens -= 1;
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /** Must be called holding the lock. */
+    private void scheduleFlush() {
+        if (!flushScheduled && !pending.isEmpty()) {
+            flushScheduled = true;
+            vertx.setTimer(flushIntervalMs, timerId -> flush());
+        }
+    }
+
+    /**
+     * A unique name for the Event, made from the name of the involved object and the time, as kubectl does.
+     * Must be called holding the lock.
+     */
+    private String name(Event event, long now) {
+        ObjectReference involvedObject = event.getInvolvedObject();
+        String prefix = involvedObject != null && involvedObject.getName() != null ? involvedObject.getName() : "topic-operator";
+        return String.format("%s.%x%03x", prefix, now, sequence++ & 0xfff);
+    }
+
+    private static String timestamp(long ms) {
+        return DateTimeFormatter.ISO_INSTANT.format(Instant.ofEpochMilli(ms).truncatedTo(ChronoUnit.SECONDS));
+    }
+}
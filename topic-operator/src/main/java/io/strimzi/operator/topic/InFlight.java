@@ -5,12 +5,15 @@
 package io.strimzi.operator.topic;
 
 import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -42,24 +45,37 @@ class InFlight<T> {
 
     private final Vertx vertx;
 
+    /** The context on which actions are run, or null to run them on the caller's context. */
+    private final Context context;
+
+    /** The namespace of the topics, for metrics. */
+    private final String namespace;
+
     private final ConcurrentHashMap<T, InflightHandler> map = new ConcurrentHashMap<>();
 
     class InflightHandler implements Handler<AsyncResult<Void>> {
 
-        private final Handler<AsyncResult<Void>> h1;
+        private final List<Handler<AsyncResult<Void>>> h1 = new ArrayList<>(1);
         private final Handler<AsyncResult<Void>> h2;
-        private final String fur;
+        private String fur;
         private Handler<AsyncResult<Void>> h3;
         private final Future<Void> fut;
-
-        public InflightHandler(T key, String fur, Handler<AsyncResult<Void>> h1) {
-            this.fur = fur;
-            this.h1 = h1;
+        private final boolean coalescing;
+        private Handler<Future<Void>> action;
+        private boolean started = false;
+        private final long enqueuedNanos = System.nanoTime();
+
+        public InflightHandler(T key, Handler<Future<Void>> action, Handler<AsyncResult<Void>> h1, boolean coalescing) {
+            this.fur = action.toString();
+            this.action = action;
+            this.coalescing = coalescing;
+            this.h1.add(h1);
             this.h2 = x -> {
                 // remove from map if fut is the current key
                 map.compute(key, (k2, v) -> {
                     if (v == this) {
                         LOGGER.debug("Removing finished action {}", this);
+                        Metrics.INFLIGHT_TOPICS.labels(namespace).dec();
                         return null;
                     } else {
                         return v;
@@ -73,7 +89,13 @@ class InFlight<T> {
 
         @Override
         public void handle(AsyncResult<Void> event) {
-            h1.handle(event);
+            List<Handler<AsyncResult<Void>>> h1;
+            synchronized (this) {
+                h1 = new ArrayList<>(this.h1);
+            }
+            for (Handler<AsyncResult<Void>> handler : h1) {
+                handler.handle(event);
+            }
             h2.handle(event);
             if (h3 != null) {
                 h3.handle(event);
@@ -84,13 +106,55 @@ class InFlight<T> {
             this.h3 = h3;
         }
 
-        public String toString() {
+        /** Run the action on the context. */
+        void start() {
+            Handler<Future<Void>> action;
+            synchronized (this) {
+                started = true;
+                action = this.action;
+            }
+            Metrics.INFLIGHT_WAIT.labels(namespace).observe(Metrics.seconds(enqueuedNanos));
+            if (context != null) {
+                context.runOnContext(ignored -> action.handle(fut));
+            } else {
+                vertx.runOnContext(ignored -> action.handle(fut));
+            }
+        }
+
+        /**
+         * If this action is a coalescing action of the same kind as the given {@code action},
+         * and has not been started, replace it with the given {@code action}, so that
+         * the given {@code resultHandler} is completed along with the existing result handlers.
+         * @return true if the given {@code action} was coalesced with this one.
+         */
+        synchronized boolean coalesce(Handler<Future<Void>> action, Handler<AsyncResult<Void>> resultHandler) {
+            if (!coalescing || started || this.action.getClass() != action.getClass()) {
+                return false;
+            }
+            LOGGER.debug("Coalescing {} with pending {}", action, this.fur);
+            this.action = action;
+            this.fur = action.toString();
+            this.h1.add(resultHandler);
+            return true;
+        }
+
+        public synchronized String toString() {
             return fur;
         }
     }
 
-    public InFlight(Vertx vertx) {
+    public InFlight(Vertx vertx, String namespace) {
+        this(vertx, null, namespace);
+    }
+
+    /**
+     * An InFlight which runs all its actions on the given {@code context},
+     * so that the actions of several InFlights can run in parallel on different event loops.
+     */
+    public InFlight(Vertx vertx, Context context, String namespace) {
         this.vertx = vertx;
+        this.context = context;
+        this.namespace = namespace;
     }
 
 
@@ -102,19 +166,42 @@ class InFlight<T> {
      * which will complete the given {@code resultHandler}.
      */
     public void enqueue(T key, Handler<Future<Void>> action, Handler<AsyncResult<Void>> resultHandler) {
-        InflightHandler fut = new InflightHandler(key, action.toString(), resultHandler);
-        LOGGER.debug("resultHandler:{}, action:{}, fut:{}", resultHandler, action, fut);
+        enqueue(key, action, resultHandler, false);
+    }
+
+    /**
+     * Like {@link #enqueue(Object, Handler, Handler)}, except that if the last action
+     * for the given {@code key} is still waiting for the actions before it to complete and was also
+     * enqueued by this method with an action of the same class, the given {@code action} replaces it.
+     * The pending action is then only run once (as the given {@code action}),
+     * and its completion completes the result handlers of all the actions it replaced.
+     *
+     * This is only appropriate for actions (such as reconciliations)
+     * where running the most recent action makes running the earlier ones redundant.
+     */
+    public void enqueueCoalescing(T key, Handler<Future<Void>> action, Handler<AsyncResult<Void>> resultHandler) {
+        enqueue(key, action, resultHandler, true);
+    }
+
+    private void enqueue(T key, Handler<Future<Void>> action, Handler<AsyncResult<Void>> resultHandler, boolean coalescing) {
+        LOGGER.debug("resultHandler:{}, action:{}", resultHandler, action);
         map.compute(key, (k, current) -> {
             if (current == null) {
+                InflightHandler fut = new InflightHandler(key, action, resultHandler, coalescing);
                 LOGGER.debug("Queueing {} for immediate execution", action);
-                vertx.runOnContext(ignored -> action.handle(fut.fut));
+                Metrics.INFLIGHT_TOPICS.labels(namespace).inc();
+                fut.start();
                 return fut;
+            } else if (coalescing && current.coalesce(action, resultHandler)) {
+                return current;
             } else {
+                InflightHandler fut = new InflightHandler(key, action, resultHandler, coalescing);
                 LOGGER.debug("Queueing {} for deferred execution after {}", action, current);
+                Metrics.INFLIGHT_WAITING.labels(namespace).inc();
                 current.setHandler(ar -> {
-                    LOGGER.debug("Queueing {} after deferred execution", action);
-                    vertx.runOnContext(ar2 ->
-                            action.handle(fut.fut));
+                    LOGGER.debug("Queueing {} after deferred execution", fut);
+                    Metrics.INFLIGHT_WAITING.labels(namespace).dec();
+                    fut.start();
                 });
                 return fut;
             }
@@ -10,6 +10,7 @@ import io.vertx.core.AsyncResult;
 import io.vertx.core.Handler;
 
 import java.util.List;
+import java.util.Map;
 
 public interface K8s {
 
@@ -17,6 +18,12 @@ public interface K8s {
 
     void updateConfigMap(ConfigMap cm, Handler<AsyncResult<Void>> handler);
 
+    /**
+     * Patch the 'data' section of the existing ConfigMap with the given name with the given entries,
+     * leaving the other entries and the rest of the ConfigMap as they are.
+     */
+    void patchConfigMap(MapName mapName, Map<String, String> data, Handler<AsyncResult<Void>> handler);
+
     void deleteConfigMap(MapName mapName, Handler<AsyncResult<Void>> handler);
 
     void listMaps(Handler<AsyncResult<List<ConfigMap>>> handler);
@@ -29,4 +36,10 @@ public interface K8s {
     void getFromName(MapName mapName, Handler<AsyncResult<ConfigMap>> handler);
 
     void createEvent(Event event, Handler<AsyncResult<Void>> handler);
+
+    /**
+     * Replace the event with the same name as the given event, for example to update its
+     * count and lastTimestamp. The event is created if it doesn't exist (any more).
+     */
+    void updateEvent(Event event, Handler<AsyncResult<Void>> handler);
 }
@@ -4,24 +4,40 @@
  */
 package io.strimzi.operator.topic;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.fabric8.kubernetes.api.model.ConfigMap;
 import io.fabric8.kubernetes.api.model.Event;
 import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.dsl.base.OperationSupport;
+import io.fabric8.kubernetes.client.utils.URLUtils;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class K8sImpl implements K8s {
 
     private final static Logger LOGGER = LogManager.getLogger(TopicOperator.class);
 
+    private static final MediaType MERGE_PATCH_JSON = MediaType.parse("application/merge-patch+json");
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
     private final LabelPredicate cmPredicate;
     private final String namespace;
+    private final AtomicBoolean updateEventFailed = new AtomicBoolean();
 
     private KubernetesClient client;
 
@@ -43,7 +59,7 @@ public class K8sImpl implements K8s {
             } catch (Exception e) {
                 future.fail(e);
             }
-        }, handler);
+        }, Metrics.timed(Metrics.K8S_REQUESTS, namespace, "createConfigMap", handler));
     }
 
     @Override
@@ -55,7 +71,52 @@ public class K8sImpl implements K8s {
             } catch (Exception e) {
                 future.fail(e);
             }
-        }, handler);
+        }, Metrics.timed(Metrics.K8S_REQUESTS, namespace, "updateConfigMap", handler));
+    }
+
+    /**
+     * Patch the data of the given ConfigMap with a single JSON merge patch of just the given keys.
+     * Unlike {@code edit()} (which gets the ConfigMap and then patches it) this is a single request,
+     * and doesn't overwrite concurrent changes to other keys.
+     */
+    @Override
+    public void patchConfigMap(MapName mapName, Map<String, String> data, Handler<AsyncResult<Void>> handler) {
+        vertx.executeBlocking(future -> {
+            try {
+                String url = URLUtils.join(client.getMasterUrl().toString(), "api", "v1", "namespaces", namespace,
+                        "configmaps", mapName.toString());
+                RequestBody body = RequestBody.create(MERGE_PATCH_JSON, dataMergePatch(data));
+                Request request = new Request.Builder().patch(body).url(url).build();
+                Response response = httpClient().newCall(request).execute();
+                try {
+                    if (!response.isSuccessful()) {
+                        throw new KubernetesClientException("Got unexpected PATCH status code " + response.code()
+                                + " for ConfigMap " + mapName + ": " + response.message(),
+                                response.code(), OperationSupport.createStatus(response));
+                    }
+                } finally {
+                    if (response.body() != null) {
+                        response.close();
+                    }
+                }
+                future.complete();
+            } catch (Exception e) {
+                future.fail(e);
+            }
+        }, Metrics.timed(Metrics.K8S_REQUESTS, namespace, "patchConfigMap", handler));
+    }
+
+    /** A JSON merge patch which sets the given keys of the data of a ConfigMap. */
+    static byte[] dataMergePatch(Map<String, String> data) throws JsonProcessingException {
+        return MAPPER.writeValueAsBytes(Collections.singletonMap("data", data));
+    }
+
+    private OkHttpClient httpClient() {
+        if (client.isAdaptable(OkHttpClient.class)) {
+            return client.adapt(OkHttpClient.class);
+        } else {
+            throw new OperatorException("Could not adapt the client to OkHttpClient");
+        }
     }
 
     @Override
@@ -68,7 +129,7 @@ public class K8sImpl implements K8s {
             } catch (Exception e) {
                 future.fail(e);
             }
-        }, handler);
+        }, Metrics.timed(Metrics.K8S_REQUESTS, namespace, "deleteConfigMap", handler));
     }
 
     @Override
@@ -79,7 +140,7 @@ public class K8sImpl implements K8s {
             } catch (Exception e) {
                 future.fail(e);
             }
-        }, handler);
+        }, Metrics.timed(Metrics.K8S_REQUESTS, namespace, "listMaps", handler));
     }
 
     @Override
@@ -90,7 +151,7 @@ public class K8sImpl implements K8s {
             } catch (Exception e) {
                 future.fail(e);
             }
-        }, handler);
+        }, Metrics.timed(Metrics.K8S_REQUESTS, namespace, "getFromName", handler));
 
     }
 
@@ -111,6 +172,31 @@ public class K8sImpl implements K8s {
             } catch (Exception e) {
                 future.fail(e);
             }
-        }, handler);
+        }, Metrics.timed(Metrics.K8S_REQUESTS, namespace, "createEvent", handler));
+    }
+
+    /**
+     * Update the given k8s event
+     */
+    @Override
+    public void updateEvent(Event event, Handler<AsyncResult<Void>> handler) {
+        vertx.executeBlocking(future -> {
+            try {
+                try {
+                    LOGGER.debug("Updating event {}", event);
+                    client.events().inNamespace(namespace).createOrReplace(event);
+                } catch (KubernetesClientException e) {
+                    // This fails on every flush of the aggregated event if the operator lacks the RBAC to update events
+                    if (updateEventFailed.compareAndSet(false, true)) {
+                        LOGGER.warn("Error updating event {}, further errors updating events will be logged at debug level", event, e);
+                    } else {
+                        LOGGER.debug("Error updating event {}", event, e);
+                    }
+                }
+                future.complete();
+            } catch (Exception e) {
+                future.fail(e);
+            }
+        }, Metrics.timed(Metrics.K8S_REQUESTS, namespace, "updateEvent", handler));
     }
 }
@@ -7,6 +7,7 @@ package io.strimzi.operator.topic;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Handler;
 
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -52,8 +53,9 @@ public interface Kafka {
      * handler with the result. If the operation fails the given handler
      * will be called with a failed AsyncResult whose {@code cause()} is the
      * KafkaException (not an ExecutionException).
+     * The given {@code progressHandler} is invoked whenever the progress of moving the replicas changes.
      */
-    void changeReplicationFactor(Topic topic, Handler<AsyncResult<Void>> handler);
+    void changeReplicationFactor(Topic topic, Handler<ReassignmentProgress> progressHandler, Handler<AsyncResult<Void>> handler);
 
     /**
      * Asynchronously fetch the topic metadata in Kafka. Invoke the given
@@ -64,6 +66,15 @@ public interface Kafka {
      */
     void topicMetadata(TopicName topicName, Handler<AsyncResult<TopicMetadata>> handler);
 
+    /**
+     * Asynchronously fetch the metadata of all the given topics in Kafka, using as few requests
+     * as possible. Invoke the given handler with the result. If the operation fails the given handler
+     * will be called with a failed AsyncResult whose {@code cause()} is the
+     * KafkaException (not an ExecutionException).
+     * The result maps each of the given topic names to its metadata, or to null if the topic does not exist.
+     */
+    void topicsMetadata(Set<TopicName> topicNames, Handler<AsyncResult<Map<TopicName, TopicMetadata>>> handler);
+
     /**
      * Asynchronously list the topics available in Kafka. Invoke the given
      * handler with the result. If the operation fails the given handler
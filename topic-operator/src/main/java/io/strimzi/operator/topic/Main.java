@@ -5,23 +5,32 @@
 package io.strimzi.operator.topic;
 
 import io.fabric8.kubernetes.client.DefaultKubernetesClient;
+import io.prometheus.client.exporter.common.TextFormat;
 import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServer;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
  * The entry-point to the topic operator.
- * Main responsibility is to deploy a {@link Session} with an appropriate Config and KubeClient,
+ * Main responsibility is to deploy a {@link Session} with an appropriate Config and KubeClient
+ * for each of the {@linkplain Config#clusterConfigs() clusters} to operate on,
  * redeploying if the config changes.
+ * The sessions share a single Vertx instance (and so its event loop and worker threads),
+ * KubeClient, and HTTP health server.
  */
 public class Main {
 
     private final static Logger LOGGER = LogManager.getLogger(Main.class);
 
+    private static final int HEALTH_SERVER_PORT = 8080;
+
     public static void main(String[] args) {
         Main main = new Main();
         main.run();
@@ -37,13 +46,41 @@ public class Main {
     private void deploy(Config config) {
         DefaultKubernetesClient kubeClient = new DefaultKubernetesClient();
         Vertx vertx = Vertx.vertx();
-        Session session = new Session(kubeClient, config);
-        vertx.deployVerticle(session, ar -> {
-            if (ar.succeeded()) {
-                LOGGER.info("Session deployed");
-            } else {
-                LOGGER.error("Error deploying Session", ar.cause());
-            }
-        });
+        List<Session> sessions = new ArrayList<>();
+        for (Config clusterConfig : config.clusterConfigs()) {
+            String namespace = clusterConfig.get(Config.NAMESPACE);
+            Session session = new Session(kubeClient, clusterConfig);
+            sessions.add(session);
+            vertx.deployVerticle(session, ar -> {
+                if (ar.succeeded()) {
+                    LOGGER.info("Session for namespace {} deployed", namespace);
+                } else {
+                    LOGGER.error("Error deploying Session for namespace {}", namespace, ar.cause());
+                }
+            });
+        }
+        startHealthServer(vertx, sessions);
+    }
+
+    /**
+     * Start an HTTP health server, which is ready once all the given sessions are,
+     * and which also serves the {@link Metrics} at {@code /metrics}.
+     */
+    private HttpServer startHealthServer(Vertx vertx, List<Session> sessions) {
+        return vertx.createHttpServer()
+                .requestHandler(request -> {
+
+                    if (request.path().equals("/healthy")) {
+                        request.response().setStatusCode(200).end();
+                    } else if (request.path().equals("/ready")) {
+                        boolean ready = sessions.stream().allMatch(Session::ready);
+                        request.response().setStatusCode(ready ? 200 : 503).end();
+                    } else if (request.path().equals("/metrics")) {
+                        request.response().setStatusCode(200)
+                                .putHeader("Content-Type", TextFormat.CONTENT_TYPE_004)
+                                .end(Metrics.scrape());
+                    }
+                })
+                .listen(HEALTH_SERVER_PORT);
     }
 }
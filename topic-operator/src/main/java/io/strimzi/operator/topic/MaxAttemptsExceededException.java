@@ -5,7 +5,7 @@
 package io.strimzi.operator.topic;
 
 /**
- * Thrown to indicate a {@link BackOff} has exceeded its maximum number of attempts.
+ * Thrown to indicate a {@link BackOff} or a {@link RetryScheduler.Retry} has exceeded its maximum number of attempts.
  */
 public class MaxAttemptsExceededException extends RuntimeException {
 }
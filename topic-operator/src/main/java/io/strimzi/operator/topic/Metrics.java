@@ -0,0 +1,166 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.operator.topic;
+
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import io.prometheus.client.Histogram;
+import io.prometheus.client.exporter.common.TextFormat;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+
+/**
+ * The operator's Prometheus metrics, which are served (in the Prometheus text format)
+ * by the health server's {@code /metrics} endpoint.
+ * The metrics are registered with the {@linkplain CollectorRegistry#defaultRegistry default registry}
+ * so they're shared by all the {@link Session}s in the process.
+ */
+final class Metrics {
+
+    private static final String PREFIX = "strimzi_topic_operator_";
+
+    static final String SUCCESS = "success";
+    static final String FAILURE = "failure";
+
+    /** Reconciliations triggered by a ConfigMap watch event. */
+    static final String TRIGGER_WATCH = "watch";
+    /** Reconciliations triggered by the periodic reconciliation of all topics. */
+    static final String TRIGGER_PERIODIC = "periodic";
+    /** Reconciliations triggered by a ZooKeeper watch. */
+    static final String TRIGGER_ZOOKEEPER = "zookeeper";
+
+    static final String PHASE_KAFKA_METADATA = "kafka_metadata";
+    static final String PHASE_STORE_READ = "store_read";
+    static final String PHASE_K8S_READ = "k8s_read";
+    static final String PHASE_WRITE = "write";
+
+    /** Reconciliations, by the namespace, what triggered them and their outcome. */
+    static final Counter RECONCILIATIONS = Counter.build()
+            .name(PREFIX + "reconciliations_total")
+            .help("Topic reconciliations, by what triggered them (watch, zookeeper or periodic) and outcome")
+            .labelNames("namespace", "trigger", "outcome")
+            .register();
+
+    /** The duration of reconciliations, by namespace and trigger, from being enqueued until completion. */
+    static final Histogram RECONCILIATION_DURATION = Histogram.build()
+            .name(PREFIX + "reconciliation_duration_seconds")
+            .help("The duration of topic reconciliations, including waiting behind other work on the same topic")
+            .labelNames("namespace", "trigger")
+            .register();
+
+    /** The duration of each phase of a reconciliation, by namespace. */
+    static final Histogram PHASE_DURATION = Histogram.build()
+            .name(PREFIX + "reconciliation_phase_duration_seconds")
+            .help("The duration of the phases of topic reconciliations (kafka_metadata, store_read, k8s_read or write)")
+            .labelNames("namespace", "phase")
+            .register();
+
+    /** The number of topics with work in {@link InFlight}. */
+    static final Gauge INFLIGHT_TOPICS = Gauge.build()
+            .name(PREFIX + "inflight_topics")
+            .help("The number of topics with reconciliations in progress or waiting")
+            .labelNames("namespace")
+            .register();
+
+    /** The number of actions waiting in {@link InFlight} for earlier actions on the same topic. */
+    static final Gauge INFLIGHT_WAITING = Gauge.build()
+            .name(PREFIX + "inflight_waiting_actions")
+            .help("The number of reconciliations waiting for earlier reconciliations of the same topic")
+            .labelNames("namespace")
+            .register();
+
+    /** The time actions spend waiting in {@link InFlight} before they're started. */
+    static final Histogram INFLIGHT_WAIT = Histogram.build()
+            .name(PREFIX + "inflight_wait_seconds")
+            .help("The time reconciliations wait for earlier reconciliations of the same topic")
+            .labelNames("namespace")
+            .register();
+
+    /** Requests made via the Kafka AdminClient. */
+    static final Histogram KAFKA_REQUESTS = Histogram.build()
+            .name(PREFIX + "kafka_request_duration_seconds")
+            .help("The duration of Kafka AdminClient requests, by operation and outcome")
+            .labelNames("namespace", "operation", "outcome")
+            .register();
+
+    /** Requests made to the Kubernetes API server. */
+    static final Histogram K8S_REQUESTS = Histogram.build()
+            .name(PREFIX + "k8s_request_duration_seconds")
+            .help("The duration of Kubernetes API requests, by operation and outcome")
+            .labelNames("namespace", "operation", "outcome")
+            .register();
+
+    /** Retries, with delays computed by {@link BackOff} or scheduled by {@link RetryScheduler}. */
+    static final Counter BACKOFF_RETRIES = Counter.build()
+            .name(PREFIX + "backoff_retries_total")
+            .help("Retries made with an exponential back-off")
+            .register();
+
+    /** {@link BackOff}s and {@link RetryScheduler.Retry}s which ran out of attempts. */
+    static final Counter BACKOFF_EXHAUSTED = Counter.build()
+            .name(PREFIX + "backoff_exhausted_total")
+            .help("Exponential back-offs which exceeded their maximum number of attempts")
+            .register();
+
+    /** Retries which {@link RetryScheduler} ran later than due, because its budget was spent. */
+    static final Counter RETRIES_DEFERRED = Counter.build()
+            .name(PREFIX + "retries_deferred_total")
+            .help("Retries run later than due because the retry budget was spent")
+            .register();
+
+    private Metrics() {
+    }
+
+    static String outcome(AsyncResult<?> result) {
+        return result.succeeded() ? SUCCESS : FAILURE;
+    }
+
+    /**
+     * Wrap the given {@code handler} so that the time until it's called is observed
+     * in the given (labelled) {@code histogram}, with the namespace as the first label and the outcome as the last.
+     */
+    static <T> Handler<AsyncResult<T>> timed(Histogram histogram, String namespace, String operation, Handler<AsyncResult<T>> handler) {
+        long start = System.nanoTime();
+        return result -> {
+            histogram.labels(namespace, operation, outcome(result)).observe(seconds(start));
+            handler.handle(result);
+        };
+    }
+
+    /**
+     * Wrap the given {@code handler} so that the time until it's called is observed
+     * as the duration of the given reconciliation {@code phase} in the given {@code namespace}.
+     */
+    static <T> Handler<AsyncResult<T>> phase(String namespace, String phase, Handler<AsyncResult<T>> handler) {
+        long start = System.nanoTime();
+        return result -> {
+            PHASE_DURATION.labels(namespace, phase).observe(seconds(start));
+            handler.handle(result);
+        };
+    }
+
+    /** The time, in seconds, since the given {@link System#nanoTime()}. */
+    static double seconds(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1e9;
+    }
+
+    /**
+     * The current values of all the metrics, in the Prometheus text format.
+     */
+    static String scrape() {
+        StringWriter writer = new StringWriter();
+        try {
+            TextFormat.write004(writer, CollectorRegistry.defaultRegistry.metricFamilySamples());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
+    }
+}
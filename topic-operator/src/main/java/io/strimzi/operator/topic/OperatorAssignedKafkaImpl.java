@@ -4,63 +4,84 @@
  */
 package io.strimzi.operator.topic;
 
-import com.fasterxml.jackson.core.JsonEncoding;
-import com.fasterxml.jackson.core.JsonFactory;
-import com.fasterxml.jackson.core.JsonGenerator;
+import io.strimzi.operator.topic.zk.Zk;
+import io.strimzi.operator.topic.zk.ZkWatchManager;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.CompositeFuture;
+import io.vertx.core.Context;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.ListTopicsOptions;
 import org.apache.kafka.clients.admin.NewPartitions;
 import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.admin.TopicDescription;
 import org.apache.kafka.common.KafkaFuture;
 import org.apache.kafka.common.Node;
+import org.apache.kafka.common.TopicPartitionInfo;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.io.Writer;
-import java.nio.charset.Charset;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
-import java.util.function.Function;
-import java.util.regex.Pattern;
+import java.util.Set;
+import java.util.TreeMap;
 
 /**
  * An implementation of {@link Kafka} which leave partition assignment decisions to the Kafka operator.
- * The operator is able to make rack-aware assignments (if so configured), but does not take into account
- * other aspects (e.g. disk utilisation, CPU load, network IO).
+ * The operator makes rack-aware assignments (using a {@link ReplicaAssigner}) which balance the number of
+ * replicas on each broker, but does not take into account other aspects (e.g. disk utilisation, CPU load, network IO).
  */
 public class OperatorAssignedKafkaImpl extends BaseKafkaImpl {
 
     private final static Logger LOGGER = LogManager.getLogger(OperatorAssignedKafkaImpl.class);
+
+    /** How long a snapshot of the cluster is used for making assignments before the cluster is described again. */
+    static final long CLUSTER_SNAPSHOT_MAX_AGE_MS = 30_000;
+
     private final Config config;
+    private final PartitionReassignment reassignment;
 
-    public OperatorAssignedKafkaImpl(AdminClient adminClient, Vertx vertx, Config config) {
-        super(adminClient, vertx);
+    // Guarded by this
+    private ReplicaAssigner replicaAssigner;
+    private long replicaAssignerTime;
+    private List<Handler<AsyncResult<ReplicaAssigner>>> waitingForAssigner;
+
+    public OperatorAssignedKafkaImpl(AdminClient adminClient, Vertx vertx, Config config, Zk zk, ZkWatchManager watchManager) {
+        super(adminClient, vertx, config.get(Config.NAMESPACE));
         this.config = config;
+        this.reassignment = new PartitionReassignment(vertx, zk, watchManager,
+                config.get(Config.REASSIGN_VERIFY_INTERVAL_MS), config.get(Config.REASSIGN_STALL_TIMEOUT_MS));
     }
 
     @Override
     public void increasePartitions(Topic topic, Handler<AsyncResult<Void>> handler) {
-        final NewPartitions newPartitions = NewPartitions.increaseTo(topic.getNumPartitions());
-        final Map<String, NewPartitions> request = Collections.singletonMap(topic.getTopicName().toString(), newPartitions);
-        KafkaFuture<Void> future = adminClient.createPartitions(request).values().get(topic.getTopicName().toString());
-        queueWork(new UniWork<>("increasePartitions", future, handler));
+        final String topicName = topic.getTopicName().toString();
+        Future<ReplicaAssigner> assignerFuture = assigner();
+        Future<TopicDescription> descriptionFuture = describeTopic(topicName);
+        CompositeFuture.all(assignerFuture, descriptionFuture).compose(ignored -> {
+            TopicDescription description = descriptionFuture.result();
+            int currentPartitions = description.partitions().size();
+            int replicationFactor = description.partitions().get(0).replicas().size();
+            ReplicaAssigner assigner = assignerFuture.result();
+            Map<Integer, List<Integer>> assignment;
+            synchronized (assigner) {
+                assignment = assigner.assignNewPartitions(
+                        currentPartitions, topic.getNumPartitions() - currentPartitions, replicationFactor);
+            }
+            LOGGER.debug("Assigning new partitions of topic {}: {}", topicName, assignment);
+            final NewPartitions newPartitions = NewPartitions.increaseTo(topic.getNumPartitions(), new ArrayList<>(assignment.values()));
+            final Map<String, NewPartitions> request = Collections.singletonMap(topicName, newPartitions);
+            KafkaFuture<Void> future = adminClient.createPartitions(request).values().get(topicName);
+            Future<Void> result = Future.future();
+            queueWork(new UniWork<>("increasePartitions", future, invalidateAssignerOnFailure(result)));
+            return result;
+        }).setHandler(handler);
     }
 
     /**
@@ -69,343 +90,154 @@ public class OperatorAssignedKafkaImpl extends BaseKafkaImpl {
      */
     @Override
     public void createTopic(Topic topic, Handler<AsyncResult<Void>> handler) {
-        NewTopic newTopic = TopicSerialization.toNewTopic(topic, null);
-
-        LOGGER.debug("Creating topic {}", newTopic);
-        KafkaFuture<Void> future = adminClient.createTopics(
-                Collections.singleton(newTopic)).values().get(newTopic.name());
-        queueWork(new UniWork<>("createTopic", future, handler));
+        assigner().compose(assigner -> {
+            Map<Integer, List<Integer>> assignment;
+            synchronized (assigner) {
+                assignment = assigner.assignNewPartitions(0, topic.getNumPartitions(), topic.getNumReplicas());
+            }
+            NewTopic newTopic = TopicSerialization.toNewTopic(topic, assignment);
+
+            LOGGER.debug("Creating topic {}", newTopic);
+            KafkaFuture<Void> future = adminClient.createTopics(
+                    Collections.singleton(newTopic)).values().get(newTopic.name());
+            Future<Void> result = Future.future();
+            queueWork(new UniWork<>("createTopic", future, invalidateAssignerOnFailure(result)));
+            return result;
+        }).setHandler(handler);
     }
 
     @Override
-    public void changeReplicationFactor(Topic topic, Handler<AsyncResult<Void>> handler) {
+    public void changeReplicationFactor(Topic topic, Handler<ReassignmentProgress> progressHandler, Handler<AsyncResult<Void>> handler) {
 
         LOGGER.info("Changing replication factor of topic {} to {}", topic.getTopicName(), topic.getNumReplicas());
 
-        final String zookeeper = config.get(Config.ZOOKEEPER_CONNECT);
-        Future<File> generateFuture = Future.future();
-
-        // generate a reassignment
-        vertx.executeBlocking(fut -> {
-            try {
-                LOGGER.debug("Generating reassignment json for topic {}", topic.getTopicName());
-                String reassignment = generateReassignment(topic, zookeeper);
-                LOGGER.debug("Reassignment json for topic {}: {}", topic.getTopicName(), reassignment);
-                File reassignmentJsonFile = createTmpFile("-reassignment.json");
-                try (Writer w = new OutputStreamWriter(new FileOutputStream(reassignmentJsonFile), StandardCharsets.UTF_8)) {
-                    w.write(reassignment);
-                }
-                fut.complete(reassignmentJsonFile);
-            } catch (Exception e) {
-                fut.fail(e);
+        final String topicName = topic.getTopicName().toString();
+        Future<ReplicaAssigner> assignerFuture = assigner();
+        Future<TopicDescription> descriptionFuture = describeTopic(topicName);
+        CompositeFuture.all(assignerFuture, descriptionFuture).compose(ignored -> {
+            Map<Integer, List<Integer>> current = assignment(descriptionFuture.result());
+            ReplicaAssigner assigner = assignerFuture.result();
+            Map<Integer, List<Integer>> proposed;
+            synchronized (assigner) {
+                proposed = assigner.changeReplicationFactor(current, topic.getNumReplicas());
             }
-        },
-            generateFuture.completer());
-
-        Future<File> executeFuture = Future.future();
-
-        generateFuture.compose(reassignmentJsonFile -> {
-            // execute the reassignment
-            vertx.executeBlocking(fut -> {
-                final Long throttle = config.get(Config.REASSIGN_THROTTLE);
-                try {
-                    LOGGER.debug("Starting reassignment for topic {} with throttle {}", topic.getTopicName(), throttle);
-                    executeReassignment(reassignmentJsonFile, zookeeper, throttle);
-                    fut.complete(reassignmentJsonFile);
-                } catch (Exception e) {
-                    fut.fail(e);
-                }
-            },
-                executeFuture.completer());
-        }, executeFuture);
-
-        Future<Void> periodicFuture = Future.future();
-        Future<Void> reassignmentFinishedFuture = Future.future();
-
-        executeFuture.compose(reassignmentJsonFile -> {
-            // Poll repeatedly, calling --verify to remove the throttle
-            long timeout = 10_000;
-            long first = System.currentTimeMillis();
-            final Long periodMs = config.get(Config.REASSIGN_VERIFY_INTERVAL_MS);
-            LOGGER.debug("Verifying reassignment every {} seconds", TimeUnit.SECONDS.convert(periodMs, TimeUnit.MILLISECONDS));
-            vertx.setPeriodic(periodMs, timerId ->
-                vertx.<Boolean>executeBlocking(fut -> {
-                    LOGGER.debug(String.format("Verifying reassignment for topic {} (timer id=%s)", topic.getTopicName(), timerId));
-
-                    final Long throttle = config.get(Config.REASSIGN_THROTTLE);
-                    final boolean reassignmentComplete;
-                    try {
-                        reassignmentComplete = verifyReassignment(reassignmentJsonFile, zookeeper, throttle);
-                    } catch (Exception e) {
-                        fut.fail(e);
-                        return;
-                    }
-                    fut.complete(reassignmentComplete);
-                },
-                    ar -> {
-                        if (ar.succeeded()) {
-                            if (ar.result()) {
-                                LOGGER.info("Reassignment complete");
-                                delete(reassignmentJsonFile);
-                                LOGGER.debug("Cancelling timer " + timerId);
-                                vertx.cancelTimer(timerId);
-                                reassignmentFinishedFuture.complete();
-                            } else if (System.currentTimeMillis() - first > timeout) {
-                                LOGGER.error("Reassignment timed out");
-                                delete(reassignmentJsonFile);
-                                LOGGER.debug("Cancelling timer " + timerId);
-                                vertx.cancelTimer(timerId);
-                                reassignmentFinishedFuture.fail("Timeout");
-                            }
-                        } else {
-                            //reassignmentFinishedFuture.fail(ar.cause());
-                            LOGGER.error("Error while verifying reassignment", ar.cause());
-                        }
-                    }
-                )
-            );
-            periodicFuture.complete();
-        },
-            periodicFuture);
-
-
-        CompositeFuture.all(periodicFuture, reassignmentFinishedFuture).map((Void) null).setHandler(handler);
-
-        // TODO The algorithm should really be more like this:
-        // 1. Use the cmdline tool to generate an assignment
-        // 2. Set the throttles
-        // 3. Update the reassign_partitions znode
-        // 4. Watch for changes or deletion of reassign_partitions
-        //    a. Update the throttles
-        //    b. complete the handler
-        // Doing this is much better because means we don't have to batch reassignments
-        // and also means we need less state for reassignment
-        // though we aren't relieved of the statefullness wrt removing throttles :-(
+            final Long throttle = config.get(Config.REASSIGN_THROTTLE);
+            Future<Void> reassigned = Future.future();
+            reassignment.reassign(topic.getTopicName(), current, proposed,
+                    throttle == null || throttle == Long.MAX_VALUE ? null : throttle, progressHandler,
+                    invalidateAssignerOnFailure(reassigned));
+            return reassigned;
+        }).setHandler(handler);
     }
 
-    private static void delete(File file) {
-        /*if (!file.delete()) {
-            logger.warn("Unable to delete temporary file {}", file);
-        }*/
+    private Future<TopicDescription> describeTopic(String topicName) {
+        Future<TopicDescription> result = Future.future();
+        queueWork(new UniWork<>("describeTopics",
+                adminClient.describeTopics(Collections.singleton(topicName)).values().get(topicName), result));
+        return result;
     }
 
-    private static File createTmpFile(String suffix) throws IOException {
-        File tmpFile = File.createTempFile(OperatorAssignedKafkaImpl.class.getName(), suffix);
-        if (LOGGER.isTraceEnabled()) {
-            LOGGER.trace("Created temporary file {}", tmpFile);
-        }
-        /*tmpFile.deleteOnExit();*/
-        return tmpFile;
-    }
-
-    private static class VerifyLineParser implements Function<String, Void> {
-        int complete = 0;
-        int inProgress = 0;
-
-        @Override
-        public Void apply(String line) {
-            if (line.contains("Partitions reassignment failed due to")
-                    || Pattern.matches("Reassignment of partition .* failed", line)) {
-                throw new OperatorException("Reassigment failed: " + line);
-            } else if (Pattern.matches("Reassignment of partition .* completed successfully", line)) {
-                complete++;
-            } else if (Pattern.matches("Reassignment of partition .* is still in progress", line)) {
-                inProgress++;
+    /**
+     * Get a {@link ReplicaAssigner} for the cluster, which must be used while holding its lock.
+     * The brokers and all the topics in the cluster are only described when there's no assigner
+     * from the last {@link #CLUSTER_SNAPSHOT_MAX_AGE_MS}, so a burst of creations (such as a full reconciliation
+     * or a batch of new ConfigMaps) shares a single snapshot of the cluster.
+     * The assigner keeps the replica counts of the snapshot up to date as it makes assignments.
+     * Concurrent callers wait for the same description, and each is called back on its own context.
+     */
+    private Future<ReplicaAssigner> assigner() {
+        Context context = vertx.getOrCreateContext();
+        Future<ReplicaAssigner> result = Future.future();
+        Handler<AsyncResult<ReplicaAssigner>> waiter = ar -> context.runOnContext(ignored -> result.handle(ar));
+        synchronized (this) {
+            if (replicaAssigner != null && System.currentTimeMillis() - replicaAssignerTime < CLUSTER_SNAPSHOT_MAX_AGE_MS) {
+                result.complete(replicaAssigner);
+                return result;
             }
-            return null;
-        }
-    }
-
-    private boolean verifyReassignment(File reassignmentJsonFile, String zookeeper, Long throttle) throws IOException, InterruptedException {
-        List<String> verifyArgs = new ArrayList<>();
-        addJavaArgs(verifyArgs);
-        // command args
-        verifyArgs.add("--zookeeper");
-        verifyArgs.add(zookeeper);
-        if (throttle != null) {
-            verifyArgs.add("--throttle");
-            verifyArgs.add(Long.toString(throttle));
-        }
-        verifyArgs.add("--reassignment-json-file");
-        verifyArgs.add(reassignmentJsonFile.toString());
-        verifyArgs.add("--verify");
-        VerifyLineParser verifyLineParser = new VerifyLineParser();
-        executeSubprocess(verifyArgs).forEachLineStdout(verifyLineParser);
-        return verifyLineParser.inProgress == 0;
-    }
-
-    private void executeReassignment(File reassignmentJsonFile, String zookeeper, Long throttle) throws IOException, InterruptedException {
-        List<String> executeArgs = new ArrayList<>();
-        addJavaArgs(executeArgs);
-        executeArgs.add("--zookeeper");
-        executeArgs.add(zookeeper);
-        if (throttle != null) {
-            executeArgs.add("--throttle");
-            executeArgs.add(Long.toString(throttle));
-        }
-        executeArgs.add("--reassignment-json-file");
-        executeArgs.add(reassignmentJsonFile.toString());
-        executeArgs.add("--execute");
-
-        if (!executeSubprocess(executeArgs).forEachLineStdout(line -> {
-            if (line.contains("Partitions reassignment failed due to")
-                    || line.contains("There is an existing assignment running")
-                    || line.contains("Failed to reassign partitions")) {
-                throw new TransientOperatorException("Reassigment failed: " + line);
-            } else if (line.contains("Successfully started reassignment of partitions.")) {
-                return true;
-            } else {
-                return null;
+            if (waitingForAssigner != null) {
+                waitingForAssigner.add(waiter);
+                return result;
             }
-        })) {
-            throw new TransientOperatorException("Reassignment execution neither failed nor finished");
-        }
-    }
-
-    private String generateReassignment(Topic topic, String zookeeper) throws IOException, InterruptedException, ExecutionException {
-        JsonFactory factory = new JsonFactory();
-
-        File topicsToMove = createTmpFile("-topics-to-move.json");
-
-        try (JsonGenerator gen = factory.createGenerator(topicsToMove, JsonEncoding.UTF8)) {
-            gen.writeStartObject();
-            gen.writeNumberField("version", 1);
-            gen.writeArrayFieldStart("topics");
-            gen.writeStartObject();
-            gen.writeStringField("topic", topic.getTopicName().toString());
-            gen.writeEndObject();
-            gen.writeEndArray();
-            gen.writeEndObject();
-            gen.flush();
+            waitingForAssigner = new ArrayList<>();
+            waitingForAssigner.add(waiter);
         }
-        List<String> executeArgs = new ArrayList<>();
-        addJavaArgs(executeArgs);
-        executeArgs.add("--zookeeper");
-        executeArgs.add(zookeeper);
-        executeArgs.add("--topics-to-move-json-file");
-        executeArgs.add(topicsToMove.toString());
-        executeArgs.add("--broker-list");
-        executeArgs.add(brokerList());
-        executeArgs.add("--generate");
-
-        final ProcessResult processResult = executeSubprocess(executeArgs);
-        delete(topicsToMove);
-        String json = processResult.forEachLineStdout(new ReassignmentLineParser());
-        return json;
-
-    }
-
-    /** Use the AdminClient to get a comma-separated list of the broker ids in the Kafka cluster */
-    private String brokerList() throws InterruptedException, ExecutionException {
-        StringBuilder sb = new StringBuilder();
-        for (Node node: adminClient.describeCluster().nodes().get()) {
-            if (sb.length() != 0) {
-                sb.append(",");
+        describeCluster().setHandler(ar -> {
+            List<Handler<AsyncResult<ReplicaAssigner>>> waiters;
+            synchronized (this) {
+                if (ar.succeeded()) {
+                    replicaAssigner = ar.result();
+                    replicaAssignerTime = System.currentTimeMillis();
+                }
+                waiters = waitingForAssigner;
+                waitingForAssigner = null;
             }
-            sb.append(node.id());
-        }
-        return sb.toString();
+            for (Handler<AsyncResult<ReplicaAssigner>> w : waiters) {
+                w.handle(ar);
+            }
+        });
+        return result;
     }
 
-    protected void addJavaArgs(List<String> verifyArgs) {
-        // protected access only for testing purposes
-
-        // use the same java executable that's executing this code
-        verifyArgs.add(System.getProperty("java.home") + "/bin/java");
-        // use the same classpath as we have
-        verifyArgs.add("-cp");
-        verifyArgs.add(System.getProperty("java.class.path"));
-        // main
-        verifyArgs.add("kafka.admin.ReassignPartitionsCommand");
+    /**
+     * Wrap the given handler so that a failure discards the current {@link ReplicaAssigner}.
+     * Its counts include the replicas of the failed assignment, so the cluster needs to be described again.
+     */
+    private <T> Handler<AsyncResult<T>> invalidateAssignerOnFailure(Handler<AsyncResult<T>> handler) {
+        return ar -> {
+            if (ar.failed()) {
+                synchronized (this) {
+                    replicaAssigner = null;
+                }
+            }
+            handler.handle(ar);
+        };
     }
 
-    private ProcessResult executeSubprocess(List<String> verifyArgs) throws IOException, InterruptedException {
-        // We choose to run the reassignment as an external process because the Scala class:
-        //  a) doesn't throw on errors, but
-        //  b) writes them to stdout
-        // so we need to parse its output, but we can't do that in an isolated way if we run it in our process
-        // (System.setOut being global to the VM).
-
-        if (verifyArgs.isEmpty() || !new File(verifyArgs.get(0)).canExecute()) {
-            throw new OperatorException("Command " + verifyArgs + " lacks an executable arg[0]");
-        }
-
-        ProcessBuilder pb = new ProcessBuilder(verifyArgs);
-        // If we redirect stderr to stdout we could break the predicates because the
-        // characters will be jumbled.
-        // Reading two pipes without deadlocking on the blocking is difficult, so let's just write stderr to a file.
-        File stdout = createTmpFile(".out");
-        File stderr = createTmpFile(".err");
-        pb.redirectError(stderr);
-        pb.redirectOutput(stdout);
-        Process p = pb.start();
-        LOGGER.info("Started process {} with command line {}", p, verifyArgs);
-        p.getOutputStream().close();
-        int exitCode = p.waitFor();
-        // TODO timeout on wait
-        LOGGER.info("Process {}: exited with status {}", p, exitCode);
-        return new ProcessResult(p, stdout, stderr);
+    /**
+     * Describe the brokers and all the topics in the cluster, so that assignments can take into account
+     * the racks of the brokers and the number of replicas they already have.
+     */
+    private Future<ReplicaAssigner> describeCluster() {
+        Future<Collection<Node>> nodesFuture = Future.future();
+        queueWork(new UniWork<>("describeCluster", adminClient.describeCluster().nodes(), nodesFuture));
+        Future<Set<String>> namesFuture = Future.future();
+        queueWork(new UniWork<>("listTopics", adminClient.listTopics(new ListTopicsOptions().listInternal(true)).names(), namesFuture));
+        Future<Map<String, TopicDescription>> descriptionsFuture = namesFuture.compose(names -> {
+            Future<Map<String, TopicDescription>> result = Future.future();
+            // A topic deleted since it was listed is left out, rather than failing the whole description
+            queueWork(new DescriptionsWork(adminClient.describeTopics(names).values(), result));
+            return result;
+        });
+        return CompositeFuture.all(nodesFuture, descriptionsFuture).map(ignored ->
+                replicaAssigner(nodesFuture.result(), descriptionsFuture.result()));
     }
 
-
-
-    private static class ProcessResult implements AutoCloseable {
-        private final File stdout;
-        private final File stderr;
-        private final Object pid;
-
-        ProcessResult(Object pid, File stdout, File stderr) {
-            this.pid = pid;
-            this.stdout = stdout;
-            this.stderr = stderr;
-        }
-
-        public <T> T forEachLineStdout(Function<String, T> fn) throws IOException {
-            return forEachLine(this.stdout, fn);
-        }
-
-        private <T> T forEachLine(File file, Function<String, T> fn) throws IOException {
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
-                    // Use platform default charset, on assumption that
-                    // the ReassignPartitionsCommand will output in that
-                    new FileInputStream(file), Charset.defaultCharset()))) {
-                String line = reader.readLine();
-                while (line != null) {
-                    LOGGER.debug("Process {}: stdout: {}", pid, line);
-                    T result = fn.apply(line);
-                    if (result != null) {
-                        return result;
-                    }
-                    line = reader.readLine();
+    private static ReplicaAssigner replicaAssigner(Collection<Node> nodes, Map<String, TopicDescription> descriptions) {
+        Map<Integer, Integer> replicaCounts = new HashMap<>();
+        Map<Integer, Integer> leaderCounts = new HashMap<>();
+        for (TopicDescription description : descriptions.values()) {
+            for (TopicPartitionInfo partition : description.partitions()) {
+                for (Node replica : partition.replicas()) {
+                    replicaCounts.merge(replica.id(), 1, Integer::sum);
+                }
+                if (!partition.replicas().isEmpty()) {
+                    leaderCounts.merge(partition.replicas().get(0).id(), 1, Integer::sum);
                 }
-                return null;
             }
         }
-
-        @Override
-        public void close() throws Exception {
-            delete(stdout);
-            delete(stderr);
-        }
+        return new ReplicaAssigner(nodes, replicaCounts, leaderCounts);
     }
 
-    private static class ReassignmentLineParser implements Function<String, String> {
-        boolean returnLine = false;
-
-        @Override
-        public String apply(String line) {
-            if (line.contains("Partitions reassignment failed due to")) {
-                throw new TransientOperatorException("Reassignment failed: " + line);
-            }
-            if (returnLine) {
-                return line;
+    /** The current assignment of the given topic, as a map from partition id to replica broker ids. */
+    private static Map<Integer, List<Integer>> assignment(TopicDescription description) {
+        Map<Integer, List<Integer>> current = new TreeMap<>();
+        for (TopicPartitionInfo partition : description.partitions()) {
+            List<Integer> replicas = new ArrayList<>(partition.replicas().size());
+            for (Node node : partition.replicas()) {
+                replicas.add(node.id());
             }
-            if (line.contains("Proposed partition reassignment configuration")) {
-                // Return the line following this one, since that's the JSON representation of the reassignment
-                returnLine = true;
-            }
-            return null;
+            current.put(partition.partition(), replicas);
         }
+        return current;
     }
 }
-
@@ -0,0 +1,633 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.operator.topic;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.strimzi.operator.topic.zk.AclBuilder;
+import io.strimzi.operator.topic.zk.Zk;
+import io.strimzi.operator.topic.zk.ZkWatchManager;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.data.ACL;
+import org.apache.zookeeper.data.Stat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static java.util.Arrays.asList;
+
+/**
+ * Performs a partition reassignment in the same way as {@code kafka-reassign-partitions.sh --execute},
+ * but in-process and asynchronously, via the given {@link Zk}:
+ * <ol>
+ *     <li>If the {@value #REASSIGN_PARTITIONS_PATH} znode exists another reassignment is running,
+ *     so the reassignment fails without changing anything.</li>
+ *     <li>If a throttle is given, the replication throttles are set in the topic's and brokers' config znodes.</li>
+ *     <li>The proposed assignment is written to the {@value #REASSIGN_PARTITIONS_PATH} znode,
+ *     which is what the Kafka controller acts upon.</li>
+ *     <li>The progress of each moving partition is tracked by watching its state znode, whose ISR shows
+ *     which of the new replicas have caught up, and the {@value #REASSIGN_PARTITIONS_PATH} znode, from which
+ *     the controller removes each partition once its reassignment is complete, deleting the znode after the last.
+ *     The progress is reported to a handler whenever it changes. In case a watch event is missed, the znodes are
+ *     also read again every {@code verifyIntervalMs}.</li>
+ *     <li>As soon as a partition is complete its replicas are removed from the topic's throttled replicas,
+ *     so the partitions which are still moving get the whole throttle.</li>
+ *     <li>Once all the partitions are complete the remaining throttles are removed
+ *     (as {@code kafka-reassign-partitions.sh --verify} would) and the handler is completed.</li>
+ * </ol>
+ * Only the throttles this reassignment set are removed, both when it completes and when it can't be started:
+ * A broker throttle which has since been changed by someone else is left as it is,
+ * and throttles which existed before the reassignment are put back.
+ * If the reassignment makes no progress for {@code stallTimeoutMs} (for example because a large partition is
+ * still being copied) the handler is failed, so that the stall is reported. The reassignment is still tracked though,
+ * since the controller is still moving the partitions, and its throttles are removed once it completes.
+ */
+class PartitionReassignment {
+
+    private final static Logger LOGGER = LogManager.getLogger(PartitionReassignment.class);
+
+    static final String REASSIGN_PARTITIONS_PATH = "/admin/reassign_partitions";
+    static final String CONFIG_CHANGES_PATH = "/config/changes/config_change_";
+
+    static final String LEADER_THROTTLED_REPLICAS = "leader.replication.throttled.replicas";
+    static final String FOLLOWER_THROTTLED_REPLICAS = "follower.replication.throttled.replicas";
+    static final String LEADER_THROTTLED_RATE = "leader.replication.throttled.rate";
+    static final String FOLLOWER_THROTTLED_RATE = "follower.replication.throttled.rate";
+
+    private final Vertx vertx;
+    private final Zk zk;
+    private final ZkWatchManager watchManager;
+    private final long verifyIntervalMs;
+    private final long stallTimeoutMs;
+    private final List<ACL> acl = new AclBuilder().setWorld(AclBuilder.Permission.values()).build();
+
+    PartitionReassignment(Vertx vertx, Zk zk, ZkWatchManager watchManager, long verifyIntervalMs, long stallTimeoutMs) {
+        this.vertx = vertx;
+        this.zk = zk;
+        this.watchManager = watchManager;
+        this.verifyIntervalMs = verifyIntervalMs;
+        this.stallTimeoutMs = stallTimeoutMs;
+    }
+
+    /**
+     * Reassign the partitions of the given topic from the {@code current} to the {@code proposed}
+     * assignment (both maps from partition id to replica broker ids), calling the given handler
+     * once the reassignment is complete.
+     * @param throttle The replication throttle (in bytes/second) or null if the reassignment should not be throttled.
+     * @param progressHandler Called whenever the progress of the reassignment changes.
+     */
+    void reassign(TopicName topicName, Map<Integer, List<Integer>> current, Map<Integer, List<Integer>> proposed,
+                  Long throttle, Handler<ReassignmentProgress> progressHandler, Handler<AsyncResult<Void>> handler) {
+        Set<Integer> brokers = new TreeSet<>();
+        current.values().forEach(brokers::addAll);
+        proposed.values().forEach(brokers::addAll);
+
+        Future<Void> result = Future.future();
+        result.setHandler(handler);
+        List<ThrottleChange> throttles = new ArrayList<>();
+        Future<Void> notRunning = Future.future();
+        // Check before throttling, as kafka-reassign-partitions.sh does,
+        // so we don't change the throttles of a reassignment which is already running
+        zk.exists(REASSIGN_PARTITIONS_PATH, ar -> {
+            if (ar.failed() && ar.cause() instanceof KeeperException.NoNodeException
+                    || ar.succeeded() && ar.result() == null) {
+                notRunning.complete();
+            } else if (ar.failed()) {
+                notRunning.fail(new TransientOperatorException(null, "Failed to reassign partitions of topic " + topicName, ar.cause()));
+            } else {
+                notRunning.fail(new TransientOperatorException("Reassigment failed: There is an existing assignment running."));
+            }
+        });
+
+        notRunning.compose(ignored -> {
+            Future<Void> throttled = Future.future();
+            if (throttle != null) {
+                LOGGER.debug("Throttling reassignment of topic {} on brokers {} to {} bytes/s", topicName, brokers, throttle);
+                setThrottles(topicName, current, proposed, brokers, throttle, throttles, throttled);
+            } else {
+                throttled.complete();
+            }
+            return throttled;
+        }).compose(ignored -> {
+            Future<Void> started = Future.future();
+            byte[] json = reassignmentJson(topicName, proposed);
+            LOGGER.debug("Starting reassignment of topic {}: {}", topicName, new String(json, StandardCharsets.UTF_8));
+            zk.create(REASSIGN_PARTITIONS_PATH, json, acl, CreateMode.PERSISTENT, ar -> {
+                if (ar.failed() && ar.cause() instanceof KeeperException.NodeExistsException) {
+                    started.fail(new TransientOperatorException("Reassigment failed: There is an existing assignment running."));
+                } else if (ar.failed()) {
+                    started.fail(new TransientOperatorException(null, "Failed to reassign partitions of topic " + topicName, ar.cause()));
+                } else {
+                    started.complete();
+                }
+            });
+            return started.recover(error -> {
+                // Don't leave our throttles behind if we couldn't start
+                Future<Void> failed = Future.future();
+                removeThrottles(topicName, throttles, ar -> failed.fail(error));
+                return failed;
+            });
+        }).compose(ignored -> {
+            Future<Void> finished = Future.future();
+            new Monitor(topicName, current, proposed, throttle, progressHandler, finished, stalled -> {
+                if (!result.tryFail(stalled)) {
+                    LOGGER.debug("Reassignment of topic {} stalled after it had already finished", topicName);
+                }
+            }).start();
+            return finished;
+        }).compose(ignored -> {
+            LOGGER.info("Reassignment of topic {} complete", topicName);
+            Future<Void> unthrottled = Future.future();
+            removeThrottles(topicName, throttles, unthrottled);
+            return unthrottled;
+        }).setHandler(ar -> {
+            boolean handled = ar.succeeded() ? result.tryComplete() : result.tryFail(ar.cause());
+            if (!handled) {
+                // The handler was failed when the reassignment stalled
+                if (ar.succeeded()) {
+                    LOGGER.info("Stalled reassignment of topic {} has now completed and its throttles were removed", topicName);
+                } else {
+                    LOGGER.warn("Stalled reassignment of topic {} has failed", topicName, ar.cause());
+                }
+            }
+        });
+    }
+
+    /**
+     * Tracks the progress of a running reassignment of the partitions of a topic.
+     * The ZooKeeper callbacks are not necessarily run on the same context, so the callbacks synchronize on the monitor.
+     */
+    private class Monitor {
+        private final TopicName topicName;
+        private final Map<Integer, List<Integer>> proposed;
+        private final Long throttle;
+        private final Handler<ReassignmentProgress> progressHandler;
+        private final Future<Void> finished;
+        private final Handler<TransientOperatorException> stallHandler;
+        /** The partitions whose replicas are changing. */
+        private final Set<Integer> moving = new TreeSet<>();
+        private final Set<Integer> completed = new TreeSet<>();
+        private final Map<Integer, Set<Integer>> isrs = new HashMap<>();
+        private final ZkWatchManager.DataListener reassignmentListener = this::reassignmentChanged;
+        private final Map<Integer, ZkWatchManager.DataListener> stateListeners = new HashMap<>();
+        private ReassignmentProgress lastProgress;
+        /** The {@link System#nanoTime()} when the reassignment last made progress. */
+        private long lastProgressNanos;
+        private boolean stalled = false;
+        private long verifyTimerId;
+
+        Monitor(TopicName topicName, Map<Integer, List<Integer>> current, Map<Integer, List<Integer>> proposed,
+                Long throttle, Handler<ReassignmentProgress> progressHandler, Future<Void> finished,
+                Handler<TransientOperatorException> stallHandler) {
+            this.topicName = topicName;
+            this.proposed = proposed;
+            this.throttle = throttle;
+            this.progressHandler = progressHandler;
+            this.finished = finished;
+            this.stallHandler = stallHandler;
+            for (Map.Entry<Integer, List<Integer>> entry : proposed.entrySet()) {
+                List<Integer> existing = current.get(entry.getKey());
+                if (existing == null || !new HashSet<>(existing).equals(new HashSet<>(entry.getValue()))) {
+                    moving.add(entry.getKey());
+                }
+            }
+        }
+
+        synchronized void start() {
+            lastProgressNanos = System.nanoTime();
+            verifyTimerId = vertx.setPeriodic(verifyIntervalMs, ignored -> verify());
+            for (Integer partition : moving) {
+                String path = partitionStatePath(topicName, partition);
+                ZkWatchManager.DataListener listener = (p, ar) -> stateChanged(partition, ar);
+                stateListeners.put(partition, listener);
+                // Set the watch before getting the data, so we can't miss a change
+                watchManager.watchData(path, listener);
+                zk.getData(path, ar -> stateChanged(partition, ar));
+            }
+            watchManager.watchData(REASSIGN_PARTITIONS_PATH, reassignmentListener);
+            zk.getData(REASSIGN_PARTITIONS_PATH, ar -> reassignmentChanged(REASSIGN_PARTITIONS_PATH, ar));
+        }
+
+        /**
+         * Report the reassignment if it has stalled, and read the znodes again,
+         * in case a change was missed by the watches.
+         */
+        private synchronized void verify() {
+            if (finished.isComplete()) {
+                return;
+            }
+            long stalledMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastProgressNanos);
+            if (stalledMs >= stallTimeoutMs && !stalled) {
+                stalled = true;
+                LOGGER.warn("Reassignment of topic {} has made no progress in {}ms, "
+                        + "its throttles will be removed once the controller completes it", topicName, stalledMs);
+                stallHandler.handle(new TransientOperatorException("Reassignment of topic " + topicName
+                        + " made no progress in " + stalledMs + "ms"));
+            }
+            LOGGER.debug("Verifying reassignment of topic {}", topicName);
+            for (Integer partition : moving) {
+                if (!completed.contains(partition)) {
+                    zk.getData(partitionStatePath(topicName, partition), ar -> stateChanged(partition, ar));
+                }
+            }
+            zk.getData(REASSIGN_PARTITIONS_PATH, ar -> reassignmentChanged(REASSIGN_PARTITIONS_PATH, ar));
+        }
+
+        private synchronized void reassignmentChanged(String path, AsyncResult<byte[]> ar) {
+            if (finished.isComplete()) {
+                return;
+            }
+            if (ar.failed() && ar.cause() instanceof KeeperException.NoNodeException) {
+                // The controller deletes the znode once all the partitions are complete.
+                // All the remaining throttles are then removed together, rather than partition by partition.
+                completed.addAll(moving);
+                reportProgress();
+                stop();
+                finished.tryComplete();
+            } else if (ar.failed()) {
+                LOGGER.warn("Error watching reassignment of topic {}", topicName, ar.cause());
+            } else {
+                Set<Integer> remaining = reassigningPartitions(topicName, ar.result());
+                LOGGER.debug("Partitions of topic {} still being reassigned: {}", topicName, remaining);
+                for (Integer partition : moving) {
+                    if (!remaining.contains(partition)) {
+                        partitionComplete(partition);
+                    }
+                }
+            }
+        }
+
+        private synchronized void stateChanged(int partition, AsyncResult<byte[]> ar) {
+            if (finished.isComplete() || completed.contains(partition)) {
+                return;
+            }
+            if (ar.succeeded()) {
+                Set<Integer> isr = isr(ar.result());
+                isrs.put(partition, isr);
+                if (isr.containsAll(proposed.get(partition))) {
+                    // All the new replicas have caught up, so the partition no longer needs throttling,
+                    // even though the controller might not yet have noticed
+                    partitionComplete(partition);
+                } else {
+                    reportProgress();
+                }
+            } else if (!(ar.cause() instanceof KeeperException.NoNodeException)) {
+                LOGGER.warn("Error watching state of partition {} of topic {}", partition, topicName, ar.cause());
+            }
+        }
+
+        private void partitionComplete(int partition) {
+            if (!completed.add(partition)) {
+                return;
+            }
+            LOGGER.info("Reassignment of partition {} of topic {} complete", partition, topicName);
+            if (throttle != null) {
+                removePartitionThrottles(topicName, partition, ar -> {
+                    if (ar.failed()) {
+                        LOGGER.warn("Error removing throttles of partition {} of topic {}", partition, topicName, ar.cause());
+                    }
+                });
+            }
+            reportProgress();
+        }
+
+        private void reportProgress() {
+            int replicas = 0;
+            int replicasInSync = 0;
+            for (Integer partition : moving) {
+                List<Integer> target = proposed.get(partition);
+                replicas += target.size();
+                if (completed.contains(partition)) {
+                    replicasInSync += target.size();
+                } else {
+                    Set<Integer> isr = isrs.getOrDefault(partition, Collections.emptySet());
+                    for (Integer replica : target) {
+                        if (isr.contains(replica)) {
+                            replicasInSync++;
+                        }
+                    }
+                }
+            }
+            ReassignmentProgress progress = new ReassignmentProgress(topicName, moving.size(), completed.size(), replicas, replicasInSync);
+            if (lastProgress == null
+                    || lastProgress.getCompletedPartitions() != progress.getCompletedPartitions()
+                    || lastProgress.getReplicasInSync() != progress.getReplicasInSync()) {
+                lastProgress = progress;
+                lastProgressNanos = System.nanoTime();
+                LOGGER.debug("{}", progress);
+                progressHandler.handle(progress);
+            }
+        }
+
+        private void stop() {
+            vertx.cancelTimer(verifyTimerId);
+            watchManager.unwatchData(REASSIGN_PARTITIONS_PATH, reassignmentListener);
+            for (Map.Entry<Integer, ZkWatchManager.DataListener> entry : stateListeners.entrySet()) {
+                watchManager.unwatchData(partitionStatePath(topicName, entry.getKey()), entry.getValue());
+            }
+        }
+    }
+
+    static String partitionStatePath(TopicName topicName, int partition) {
+        return "/brokers/topics/" + topicName + "/partitions/" + partition + "/state";
+    }
+
+    /** The partitions of the given topic in the given {@value #REASSIGN_PARTITIONS_PATH} data. */
+    static Set<Integer> reassigningPartitions(TopicName topicName, byte[] data) {
+        Set<Integer> result = new HashSet<>();
+        if (data == null || data.length == 0) {
+            return result;
+        }
+        try {
+            JsonNode partitions = new ObjectMapper().readTree(data).path("partitions");
+            for (JsonNode partition : partitions) {
+                if (topicName.toString().equals(partition.path("topic").asText())) {
+                    result.add(partition.path("partition").asInt());
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return result;
+    }
+
+    /** The in-sync replicas in the given partition state znode data. */
+    static Set<Integer> isr(byte[] data) {
+        Set<Integer> result = new HashSet<>();
+        if (data == null || data.length == 0) {
+            return result;
+        }
+        try {
+            for (JsonNode replica : new ObjectMapper().readTree(data).path("isr")) {
+                result.add(replica.asInt());
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return result;
+    }
+
+    /** The JSON which the controller expects to find in the {@value #REASSIGN_PARTITIONS_PATH} znode. */
+    static byte[] reassignmentJson(TopicName topicName, Map<Integer, List<Integer>> proposed) {
+        ObjectMapper mapper = new ObjectMapper();
+        ObjectNode root = mapper.createObjectNode();
+        root.put("version", 1);
+        ArrayNode partitions = root.putArray("partitions");
+        for (Map.Entry<Integer, List<Integer>> entry : proposed.entrySet()) {
+            ObjectNode partition = partitions.addObject();
+            partition.put("topic", topicName.toString());
+            partition.put("partition", entry.getKey());
+            ArrayNode replicas = partition.putArray("replicas");
+            entry.getValue().forEach(replicas::add);
+        }
+        try {
+            return mapper.writeValueAsBytes(root);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Throttle configs set by a reassignment, and the values they had before, so that they can be put back.
+     */
+    private static class ThrottleChange {
+        private final String entityType;
+        private final String entityName;
+        private final Map<String, String> values;
+        /** Whether to leave a config as it is if it no longer has the value the reassignment set. */
+        private final boolean onlyIfUnchanged;
+        /** The previous values (null if there were none), recorded when the change is applied. */
+        private final Map<String, String> previous = Collections.synchronizedMap(new HashMap<>());
+
+        ThrottleChange(String entityType, String entityName, Map<String, String> values, boolean onlyIfUnchanged) {
+            this.entityType = entityType;
+            this.entityName = entityName;
+            this.values = values;
+            this.onlyIfUnchanged = onlyIfUnchanged;
+        }
+
+        void apply(Map<String, String> config) {
+            for (Map.Entry<String, String> entry : values.entrySet()) {
+                previous.put(entry.getKey(), config.put(entry.getKey(), entry.getValue()));
+            }
+        }
+
+        void revert(Map<String, String> config) {
+            for (Map.Entry<String, String> entry : values.entrySet()) {
+                if (onlyIfUnchanged && !entry.getValue().equals(config.get(entry.getKey()))) {
+                    continue;
+                }
+                String previousValue = previous.get(entry.getKey());
+                if (previousValue == null) {
+                    config.remove(entry.getKey());
+                } else {
+                    config.put(entry.getKey(), previousValue);
+                }
+            }
+        }
+    }
+
+    /**
+     * Throttle the replicas which are moving, as {@code kafka-reassign-partitions.sh} does:
+     * The leader throttle applies to the existing replicas of the moving partitions,
+     * the follower throttle to the replicas being added.
+     * The changes are added to the given {@code changes}.
+     */
+    private void setThrottles(TopicName topicName, Map<Integer, List<Integer>> current, Map<Integer, List<Integer>> proposed,
+                              Set<Integer> brokers, long throttle, List<ThrottleChange> changes, Handler<AsyncResult<Void>> handler) {
+        List<String> leaderReplicas = new ArrayList<>();
+        List<String> followerReplicas = new ArrayList<>();
+        for (Map.Entry<Integer, List<Integer>> entry : proposed.entrySet()) {
+            List<Integer> existing = current.get(entry.getKey());
+            if (existing == null || new HashSet<>(existing).equals(new HashSet<>(entry.getValue()))) {
+                continue;
+            }
+            for (Integer broker : existing) {
+                leaderReplicas.add(entry.getKey() + ":" + broker);
+            }
+            for (Integer broker : entry.getValue()) {
+                if (!existing.contains(broker)) {
+                    followerReplicas.add(entry.getKey() + ":" + broker);
+                }
+            }
+        }
+        Map<String, String> replicas = new HashMap<>();
+        replicas.put(LEADER_THROTTLED_REPLICAS, String.join(",", leaderReplicas));
+        replicas.put(FOLLOWER_THROTTLED_REPLICAS, String.join(",", followerReplicas));
+        // The topic's throttled replicas change as partitions complete, so they're always put back
+        changes.add(new ThrottleChange("topics", topicName.toString(), replicas, false));
+        Map<String, String> rates = new HashMap<>();
+        rates.put(LEADER_THROTTLED_RATE, Long.toString(throttle));
+        rates.put(FOLLOWER_THROTTLED_RATE, Long.toString(throttle));
+        for (Integer broker : brokers) {
+            changes.add(new ThrottleChange("brokers", broker.toString(), rates, true));
+        }
+        List<Future> futures = new ArrayList<>();
+        for (ThrottleChange change : changes) {
+            Future<Void> future = Future.future();
+            updateConfig(change.entityType, change.entityName, change::apply, future);
+            futures.add(future);
+        }
+        CompositeFuture.all(futures).<Void>map(ignored -> null).setHandler(handler);
+    }
+
+    /**
+     * Remove the replicas of the given partition from the topic's throttled replicas.
+     */
+    private void removePartitionThrottles(TopicName topicName, int partition, Handler<AsyncResult<Void>> handler) {
+        String prefix = partition + ":";
+        updateConfig("topics", topicName.toString(), config -> {
+            for (String key : asList(LEADER_THROTTLED_REPLICAS, FOLLOWER_THROTTLED_REPLICAS)) {
+                config.computeIfPresent(key, (k, replicas) -> {
+                    List<String> remaining = new ArrayList<>();
+                    for (String replica : replicas.split(",")) {
+                        if (!replica.isEmpty() && !replica.startsWith(prefix)) {
+                            remaining.add(replica);
+                        }
+                    }
+                    // Returning null removes the key
+                    return remaining.isEmpty() ? null : String.join(",", remaining);
+                });
+            }
+        }, handler);
+    }
+
+    /**
+     * Revert the given throttle {@code changes}.
+     */
+    private void removeThrottles(TopicName topicName, List<ThrottleChange> changes, Handler<AsyncResult<Void>> handler) {
+        if (changes.isEmpty()) {
+            handler.handle(Future.succeededFuture());
+            return;
+        }
+        LOGGER.debug("Removing reassignment throttles of topic {}", topicName);
+        List<Future> futures = new ArrayList<>();
+        for (ThrottleChange change : changes) {
+            Future<Void> future = Future.future();
+            updateConfig(change.entityType, change.entityName, change::revert, future);
+            futures.add(future);
+        }
+        CompositeFuture.all(futures).<Void>map(ignored -> null).setHandler(handler);
+    }
+
+    /**
+     * Apply the given {@code mutation} to the dynamic config of the given entity, in the same way
+     * as Kafka's {@code AdminZkClient.changeConfigs()}: The {@code /config/<entityType>/<entityName>} znode is
+     * updated (conditional on the version we read, and retrying if that changed in the meantime)
+     * and a change notification is then created so that the brokers pick up the new config.
+     */
+    private void updateConfig(String entityType, String entityName, Consumer<Map<String, String>> mutation,
+                              Handler<AsyncResult<Void>> handler) {
+        String path = "/config/" + entityType + "/" + entityName;
+        Stat stat = new Stat();
+        zk.getData(path, stat, getResult -> {
+            Map<String, String> config;
+            boolean exists;
+            if (getResult.succeeded()) {
+                config = parseConfig(getResult.result());
+                exists = true;
+            } else if (getResult.cause() instanceof KeeperException.NoNodeException) {
+                config = new LinkedHashMap<>();
+                exists = false;
+            } else {
+                handler.handle(Future.failedFuture(getResult.cause()));
+                return;
+            }
+            Map<String, String> original = new LinkedHashMap<>(config);
+            mutation.accept(config);
+            if (original.equals(config)) {
+                handler.handle(Future.succeededFuture());
+                return;
+            }
+            byte[] data = configJson(config);
+            Handler<AsyncResult<Void>> written = writeResult -> {
+                if (writeResult.failed()
+                        && (writeResult.cause() instanceof KeeperException.BadVersionException
+                            || writeResult.cause() instanceof KeeperException.NodeExistsException)) {
+                    LOGGER.debug("Concurrent modification of {}, retrying", path);
+                    updateConfig(entityType, entityName, mutation, handler);
+                } else if (writeResult.failed()) {
+                    handler.handle(writeResult);
+                } else {
+                    notifyConfigChange(entityType + "/" + entityName, handler);
+                }
+            };
+            if (exists) {
+                zk.setData(path, data, stat.getVersion(), written);
+            } else {
+                zk.create(path, data, acl, CreateMode.PERSISTENT, written);
+            }
+        });
+    }
+
+    private void notifyConfigChange(String entityPath, Handler<AsyncResult<Void>> handler) {
+        ObjectMapper mapper = new ObjectMapper();
+        ObjectNode root = mapper.createObjectNode();
+        root.put("version", 2);
+        root.put("entity_path", entityPath);
+        byte[] data;
+        try {
+            data = mapper.writeValueAsBytes(root);
+        } catch (IOException e) {
+            handler.handle(Future.failedFuture(e));
+            return;
+        }
+        zk.create(CONFIG_CHANGES_PATH, data, acl, CreateMode.PERSISTENT_SEQUENTIAL, handler);
+    }
+
+    @SuppressWarnings("unchecked")
+    static Map<String, String> parseConfig(byte[] data) {
+        Map<String, String> result = new LinkedHashMap<>();
+        if (data == null || data.length == 0) {
+            return result;
+        }
+        try {
+            Map<String, Object> root = new ObjectMapper().readValue(data, Map.class);
+            Object config = root.get("config");
+            if (config instanceof Map) {
+                for (Map.Entry<String, Object> entry : ((Map<String, Object>) config).entrySet()) {
+                    result.put(entry.getKey(), String.valueOf(entry.getValue()));
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return result;
+    }
+
+    static byte[] configJson(Map<String, String> config) {
+        ObjectMapper mapper = new ObjectMapper();
+        ObjectNode root = mapper.createObjectNode();
+        root.put("version", 1);
+        ObjectNode configNode = root.putObject("config");
+        config.forEach(configNode::put);
+        try {
+            return mapper.writeValueAsBytes(root);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.operator.topic;
+
+/**
+ * A snapshot of the progress of reassigning the partitions of a topic,
+ * counting only the partitions whose replicas are changing.
+ */
+public class ReassignmentProgress {
+
+    private final TopicName topicName;
+    private final int partitions;
+    private final int completedPartitions;
+    private final int replicas;
+    private final int replicasInSync;
+
+    public ReassignmentProgress(TopicName topicName, int partitions, int completedPartitions,
+                                int replicas, int replicasInSync) {
+        this.topicName = topicName;
+        this.partitions = partitions;
+        this.completedPartitions = completedPartitions;
+        this.replicas = replicas;
+        this.replicasInSync = replicasInSync;
+    }
+
+    public TopicName getTopicName() {
+        return topicName;
+    }
+
+    /** The number of partitions being reassigned. */
+    public int getPartitions() {
+        return partitions;
+    }
+
+    /** The number of partitions whose reassignment is complete. */
+    public int getCompletedPartitions() {
+        return completedPartitions;
+    }
+
+    /** The number of replicas the reassigned partitions will have in total. */
+    public int getReplicas() {
+        return replicas;
+    }
+
+    /** How many of the {@link #getReplicas() replicas} are in sync. */
+    public int getReplicasInSync() {
+        return replicasInSync;
+    }
+
+    public boolean isComplete() {
+        return completedPartitions == partitions;
+    }
+
+    @Override
+    public String toString() {
+        return "ReassignmentProgress(topicName=" + topicName +
+                ", completedPartitions=" + completedPartitions + "/" + partitions +
+                ", replicasInSync=" + replicasInSync + "/" + replicas +
+                ")";
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.operator.topic;
+
+import org.apache.kafka.common.Node;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Computes balanced, rack-aware replica assignments.
+ *
+ * Each replica is placed on the least loaded broker (the one with the fewest replicas,
+ * counting both the existing replicas in the cluster and those assigned so far, and then the one
+ * which is preferred leader for the fewest partitions) in a rack which doesn't yet have a replica of the partition.
+ * The preferred leader of a new partition is whichever of its replicas is preferred leader for the fewest partitions. Only once every rack has a replica of a partition
+ * will a rack be used for a second replica of it.
+ * If not all the brokers have a rack then the assignment is not rack-aware.
+ *
+ * An instance keeps track of the assignments it has made, so that later assignments take account of them.
+ * It can therefore be shared by the operations made shortly after the cluster was described,
+ * as {@link OperatorAssignedKafkaImpl} does, as long as it's discarded when one of those operations fails.
+ */
+public class ReplicaAssigner {
+
+    private static final Comparator<BrokerState> BY_LOAD = Comparator
+            .<BrokerState>comparingInt(broker -> broker.replicas)
+            .thenComparingInt(broker -> broker.leaders)
+            .thenComparingInt(broker -> broker.id);
+
+    private static final Comparator<BrokerState> BY_LEADERS = Comparator
+            .<BrokerState>comparingInt(broker -> broker.leaders)
+            .thenComparing(BY_LOAD);
+
+    private static final Comparator<RackState> BY_LEAST_LOADED_BROKER = (rack1, rack2) -> {
+        int cmp = BY_LOAD.compare(rack1.brokers.first(), rack2.brokers.first());
+        return cmp != 0 ? cmp : rack1.name.compareTo(rack2.name);
+    };
+
+    private static class BrokerState {
+        private final int id;
+        private final RackState rack;
+        private int replicas;
+        private int leaders;
+
+        BrokerState(int id, RackState rack, int replicas, int leaders) {
+            this.id = id;
+            this.rack = rack;
+            this.replicas = replicas;
+            this.leaders = leaders;
+        }
+    }
+
+    private static class RackState {
+        private final String name;
+        private final TreeSet<BrokerState> brokers = new TreeSet<>(BY_LOAD);
+
+        RackState(String name) {
+            this.name = name;
+        }
+    }
+
+    private final Map<Integer, BrokerState> brokers = new HashMap<>();
+    private final TreeSet<RackState> racks = new TreeSet<>(BY_LEAST_LOADED_BROKER);
+
+    /**
+     * @param nodes The brokers in the cluster.
+     * @param replicaCounts The number of replicas each broker currently has (brokers which are absent have none).
+     */
+    public ReplicaAssigner(Collection<Node> nodes, Map<Integer, Integer> replicaCounts) {
+        this(nodes, replicaCounts, Collections.emptyMap());
+    }
+
+    /**
+     * @param nodes The brokers in the cluster.
+     * @param replicaCounts The number of replicas each broker currently has (brokers which are absent have none).
+     * @param leaderCounts The number of partitions each broker is currently the preferred leader of.
+     */
+    public ReplicaAssigner(Collection<Node> nodes, Map<Integer, Integer> replicaCounts, Map<Integer, Integer> leaderCounts) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("There are no brokers");
+        }
+        boolean rackAware = true;
+        for (Node node : nodes) {
+            if (!node.hasRack()) {
+                rackAware = false;
+                break;
+            }
+        }
+        Map<String, RackState> rackStates = new HashMap<>();
+        for (Node node : nodes) {
+            // Without racks each broker is treated as if it was in a rack of its own
+            String rackName = rackAware ? node.rack() : Integer.toString(node.id());
+            RackState rack = rackStates.computeIfAbsent(rackName, RackState::new);
+            BrokerState broker = new BrokerState(node.id(), rack,
+                    replicaCounts.getOrDefault(node.id(), 0), leaderCounts.getOrDefault(node.id(), 0));
+            brokers.put(node.id(), broker);
+            rack.brokers.add(broker);
+        }
+        racks.addAll(rackStates.values());
+    }
+
+    /** The number of replicas the given broker has, including those assigned by this instance. */
+    public int replicas(int brokerId) {
+        BrokerState broker = brokers.get(brokerId);
+        return broker != null ? broker.replicas : 0;
+    }
+
+    /**
+     * Assign {@code numPartitions} new partitions (numbered from {@code firstPartition})
+     * each with {@code replicationFactor} replicas.
+     * @return A map from partition id to the replicas of that partition, preferred leader first.
+     */
+    public Map<Integer, List<Integer>> assignNewPartitions(int firstPartition, int numPartitions, int replicationFactor) {
+        checkReplicationFactor(replicationFactor);
+        Map<Integer, List<Integer>> result = new TreeMap<>();
+        for (int partition = firstPartition; partition < firstPartition + numPartitions; partition++) {
+            List<Integer> replicas = new ArrayList<>(replicationFactor);
+            addReplicas(replicas, new HashSet<>(), replicationFactor);
+            result.put(partition, replicas);
+        }
+        return result;
+    }
+
+    /**
+     * Change the replication factor of partitions with the given {@code current} assignment to {@code replicationFactor}.
+     * The existing replicas are retained as far as possible, in order, so the preferred leaders don't change.
+     * When decreasing the replication factor the replicas which keep the partition spread over the most racks are retained.
+     * @return A map from partition id to the replicas of that partition, preferred leader first.
+     */
+    public Map<Integer, List<Integer>> changeReplicationFactor(Map<Integer, List<Integer>> current, int replicationFactor) {
+        checkReplicationFactor(replicationFactor);
+        Map<Integer, List<Integer>> result = new TreeMap<>();
+        for (Map.Entry<Integer, List<Integer>> entry : current.entrySet()) {
+            List<Integer> existing = entry.getValue();
+            List<Integer> replicas = new ArrayList<>(replicationFactor);
+            Set<String> usedRacks = new HashSet<>();
+            if (existing.size() > replicationFactor) {
+                // First pick from the existing replicas those in racks not already used, then any others
+                List<Integer> remaining = new ArrayList<>();
+                for (Integer broker : existing) {
+                    String rack = rackOf(broker);
+                    if (replicas.size() < replicationFactor && (rack == null || usedRacks.add(rack))) {
+                        replicas.add(broker);
+                    } else {
+                        remaining.add(broker);
+                    }
+                }
+                for (Integer broker : remaining) {
+                    if (replicas.size() < replicationFactor) {
+                        replicas.add(broker);
+                    } else {
+                        adjust(broker, -1, 0);
+                    }
+                }
+                // Restore the original order, so the preferred leader is unchanged
+                replicas.sort(Comparator.comparingInt(existing::indexOf));
+            } else {
+                for (Integer broker : existing) {
+                    replicas.add(broker);
+                    String rack = rackOf(broker);
+                    if (rack != null) {
+                        usedRacks.add(rack);
+                    }
+                }
+                addReplicas(replicas, usedRacks, replicationFactor);
+            }
+            result.put(entry.getKey(), replicas);
+        }
+        return result;
+    }
+
+    private void checkReplicationFactor(int replicationFactor) {
+        if (replicationFactor <= 0) {
+            throw new OperatorException("Replication factor " + replicationFactor + " must be positive");
+        }
+        if (replicationFactor > brokers.size()) {
+            throw new OperatorException("Replication factor " + replicationFactor
+                    + " larger than the number of brokers " + brokers.size());
+        }
+    }
+
+    private String rackOf(int brokerId) {
+        BrokerState broker = brokers.get(brokerId);
+        return broker != null ? broker.rack.name : null;
+    }
+
+    /**
+     * Add replicas to the given list until it has {@code replicationFactor} of them.
+     * If the list was empty, the replica which leads the fewest partitions is made the preferred leader.
+     */
+    private void addReplicas(List<Integer> replicas, Set<String> usedRacks, int replicationFactor) {
+        boolean newPartition = replicas.isEmpty();
+        while (replicas.size() < replicationFactor) {
+            BrokerState broker = pick(replicas, usedRacks);
+            adjust(broker.id, 1, 0);
+            replicas.add(broker.id);
+            usedRacks.add(broker.rack.name);
+        }
+        if (newPartition) {
+            BrokerState leader = null;
+            for (Integer replica : replicas) {
+                BrokerState broker = brokers.get(replica);
+                if (leader == null || BY_LEADERS.compare(broker, leader) < 0) {
+                    leader = broker;
+                }
+            }
+            replicas.remove((Integer) leader.id);
+            replicas.add(0, leader.id);
+            adjust(leader.id, 0, 1);
+        }
+    }
+
+    /**
+     * Pick the least loaded broker which isn't already one of the {@code replicas},
+     * preferring those in racks which are not yet {@code usedRacks}.
+     */
+    private BrokerState pick(List<Integer> replicas, Set<String> usedRacks) {
+        // usedRacks only contains racks of brokers in the cluster, so comparing the sizes suffices
+        if (usedRacks.size() < racks.size()) {
+            for (RackState rack : racks) {
+                if (!usedRacks.contains(rack.name)) {
+                    return rack.brokers.first();
+                }
+            }
+        }
+        // Every rack has a replica, so pick the least loaded broker that's not a replica already
+        BrokerState best = null;
+        for (RackState rack : racks) {
+            for (BrokerState broker : rack.brokers) {
+                if (!replicas.contains(broker.id)) {
+                    if (best == null || BY_LOAD.compare(broker, best) < 0) {
+                        best = broker;
+                    }
+                    break;
+                }
+            }
+        }
+        if (best == null) {
+            throw new OperatorException("Not enough brokers for " + (replicas.size() + 1) + " replicas");
+        }
+        return best;
+    }
+
+    /** Change the replica and leader counts of the given broker, maintaining the orderings. */
+    private void adjust(int brokerId, int replicasDelta, int leadersDelta) {
+        BrokerState broker = brokers.get(brokerId);
+        if (broker == null) {
+            // A replica on a broker which is no longer in the cluster
+            return;
+        }
+        RackState rack = broker.rack;
+        racks.remove(rack);
+        rack.brokers.remove(broker);
+        broker.replicas += replicasDelta;
+        broker.leaders += leadersDelta;
+        rack.brokers.add(broker);
+        racks.add(rack);
+    }
+}
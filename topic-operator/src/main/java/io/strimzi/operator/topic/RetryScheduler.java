@@ -0,0 +1,234 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.operator.topic;
+
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Schedules retries, for example of getting topic metadata while a topic is being created,
+ * so that many retries don't fire in lockstep against the brokers.
+ * <ul>
+ *     <li>Each {@link Retry} computes its delays with "decorrelated jitter":
+ *     Each delay is random between {@code baseDelayMs} and three times the previous delay,
+ *     capped at {@code maxDelayMs}. So retries which start at the same time soon spread out.</li>
+ *     <li>At most {@code budget} retries are run per {@code budgetWindowMs}, across all the retries of this
+ *     scheduler. Retries which are due when the budget has been spent are run in later ticks,
+ *     so a burst of retries becomes a steady rate of requests.</li>
+ *     <li>Retries are kept in a hashed timer wheel of {@code wheelSize} slots, each {@code tickMs} long,
+ *     which a single periodic timer advances while there are retries scheduled,
+ *     rather than with a timer per retry. Each retry is run on the context which scheduled it,
+ *     not the context of the timer, so retries of topics on different shards stay on their shards.</li>
+ * </ul>
+ */
+class RetryScheduler {
+
+    private static final Logger LOGGER = LogManager.getLogger(RetryScheduler.class);
+
+    static final long DEFAULT_BASE_DELAY_MS = 200L;
+    static final long DEFAULT_MAX_DELAY_MS = 10_000L;
+    static final long DEFAULT_BUDGET_WINDOW_MS = 1_000L;
+    static final long DEFAULT_TICK_MS = 50L;
+    static final int DEFAULT_WHEEL_SIZE = 512;
+
+    /**
+     * The delays and the number of attempts of retrying one operation.
+     */
+    class Retry {
+        private final int maxAttempts;
+        private int attempt = 0;
+        private long previousDelayMs = baseDelayMs;
+        private long totalDelayMs = 0;
+
+        private Retry(int maxAttempts) {
+            if (maxAttempts <= 0) {
+                throw new IllegalArgumentException();
+            }
+            this.maxAttempts = maxAttempts;
+        }
+
+        /**
+         * Schedule the given {@code task} to run after the next delay.
+         * @return The delay, in milliseconds.
+         * @throws MaxAttemptsExceededException if the next attempt would exceed the maximum number of attempts.
+         */
+        long schedule(Handler<Void> task) {
+            if (attempt >= maxAttempts) {
+                Metrics.BACKOFF_EXHAUSTED.inc();
+                throw new MaxAttemptsExceededException();
+            }
+            attempt++;
+            long delay = nextDelayMs();
+            totalDelayMs += delay;
+            Metrics.BACKOFF_RETRIES.inc();
+            RetryScheduler.this.schedule(delay, task);
+            return delay;
+        }
+
+        private long nextDelayMs() {
+            long upper = Math.min(maxDelayMs, previousDelayMs * 3);
+            long delay = upper > baseDelayMs ? baseDelayMs + (long) (random() * (upper - baseDelayMs)) : baseDelayMs;
+            previousDelayMs = delay;
+            return delay;
+        }
+
+        /** The total of the delays so far. */
+        long totalDelayMs() {
+            return totalDelayMs;
+        }
+    }
+
+    private static class Task {
+        private final long dueTick;
+        private final Handler<Void> handler;
+        /** The context to run the handler on, or null to run it on the timer's context. */
+        private final Context context;
+
+        Task(long dueTick, Handler<Void> handler, Context context) {
+            this.dueTick = dueTick;
+            this.handler = handler;
+            this.context = context;
+        }
+
+        void run() {
+            if (context != null) {
+                context.runOnContext(ignored -> runHandler(handler));
+            } else {
+                runHandler(handler);
+            }
+        }
+    }
+
+    private final Vertx vertx;
+    private final Random random;
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+    private final int budget;
+    private final long budgetWindowMs;
+    private final long tickMs;
+
+    // All the following are guarded by this
+    private final List<ArrayDeque<Task>> wheel;
+    private long tick = 0;
+    private int scheduled = 0;
+    private long timerId = -1;
+    private long windowStartMs;
+    private int spent = 0;
+
+    RetryScheduler(Vertx vertx, int budget) {
+        this(vertx, new Random(), DEFAULT_BASE_DELAY_MS, DEFAULT_MAX_DELAY_MS, budget, DEFAULT_BUDGET_WINDOW_MS,
+                DEFAULT_TICK_MS, DEFAULT_WHEEL_SIZE);
+    }
+
+    RetryScheduler(Vertx vertx, Random random, long baseDelayMs, long maxDelayMs,
+                   int budget, long budgetWindowMs, long tickMs, int wheelSize) {
+        if (baseDelayMs <= 0 || maxDelayMs < baseDelayMs) {
+            throw new IllegalArgumentException("Require 0 < baseDelayMs <= maxDelayMs");
+        }
+        if (budget <= 0 || budgetWindowMs <= 0 || tickMs <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.vertx = vertx;
+        this.random = random;
+        this.baseDelayMs = baseDelayMs;
+        this.maxDelayMs = maxDelayMs;
+        this.budget = budget;
+        this.budgetWindowMs = budgetWindowMs;
+        this.tickMs = tickMs;
+        this.wheel = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            wheel.add(new ArrayDeque<>());
+        }
+    }
+
+    /**
+     * @return A new retry, which may schedule up to {@code maxAttempts} attempts.
+     */
+    Retry retry(int maxAttempts) {
+        return new Retry(maxAttempts);
+    }
+
+    private synchronized double random() {
+        return random.nextDouble();
+    }
+
+    private synchronized void schedule(long delayMs, Handler<Void> handler) {
+        long ticks = Math.max(1, (delayMs + tickMs - 1) / tickMs);
+        add(new Task(tick + ticks, handler, Vertx.currentContext()));
+        if (timerId == -1) {
+            windowStartMs = System.currentTimeMillis();
+            timerId = vertx.setPeriodic(tickMs, this::onTick);
+        }
+    }
+
+    /** Must be called holding the lock. */
+    private void add(Task task) {
+        wheel.get((int) (task.dueTick % wheel.size())).add(task);
+        scheduled++;
+    }
+
+    private void onTick(Long ignored) {
+        List<Task> due = new ArrayList<>();
+        int deferred = 0;
+        synchronized (this) {
+            tick++;
+            long now = System.currentTimeMillis();
+            if (now - windowStartMs >= budgetWindowMs) {
+                windowStartMs = now;
+                spent = 0;
+            }
+            ArrayDeque<Task> slot = wheel.get((int) (tick % wheel.size()));
+            List<Task> overBudget = new ArrayList<>();
+            Iterator<Task> iterator = slot.iterator();
+            while (iterator.hasNext()) {
+                Task task = iterator.next();
+                if (task.dueTick > tick) {
+                    // Due in a later revolution of the wheel
+                    continue;
+                }
+                iterator.remove();
+                scheduled--;
+                if (spent < budget) {
+                    spent++;
+                    due.add(task);
+                } else {
+                    overBudget.add(task);
+                }
+            }
+            for (Task task : overBudget) {
+                add(new Task(tick + 1, task.handler, task.context));
+            }
+            deferred = overBudget.size();
+            if (scheduled == 0) {
+                vertx.cancelTimer(timerId);
+                timerId = -1;
+            }
+        }
+        if (deferred > 0) {
+            LOGGER.debug("Retry budget of {} per {}ms spent, deferring {} retries", budget, budgetWindowMs, deferred);
+            Metrics.RETRIES_DEFERRED.inc(deferred);
+        }
+        for (Task task : due) {
+            task.run();
+        }
+    }
+
+    private static void runHandler(Handler<Void> handler) {
+        try {
+            handler.handle(null);
+        } catch (RuntimeException e) {
+            LOGGER.error("Error running retry", e);
+        }
+    }
+}
@@ -5,35 +5,36 @@
 package io.strimzi.operator.topic;
 
 import io.fabric8.kubernetes.client.KubernetesClient;
-import io.fabric8.kubernetes.client.Watch;
 import io.strimzi.operator.topic.zk.Zk;
+import io.strimzi.operator.topic.zk.ZkWatchManager;
 import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Context;
+import io.vertx.core.DeploymentOptions;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
-import io.vertx.core.http.HttpServer;
 import org.apache.kafka.clients.admin.AdminClient;
 import org.apache.kafka.clients.admin.AdminClientConfig;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 
 public class Session extends AbstractVerticle {
 
     private final static Logger LOGGER = LogManager.getLogger(Session.class);
 
-    private static final int HEALTH_SERVER_PORT = 8080;
-
     private final Config config;
     private final KubernetesClient kubeClient;
 
     OperatorAssignedKafkaImpl kafka;
     AdminClient adminClient;
-    K8sImpl k8s;
+    CachingK8s k8s;
     TopicOperator topicOperator;
-    Watch topicCmWatch;
     TopicsWatcher topicsWatcher;
     TopicConfigsWatcher topicConfigsWatcher;
     TopicWatcher topicWatcher;
@@ -41,7 +42,7 @@ public class Session extends AbstractVerticle {
     private volatile Long timerId;
     private volatile boolean stopped = false;
     private Zk zk;
-    private volatile HttpServer healthServer;
+    private volatile boolean ready = false;
 
     public Session(KubernetesClient kubeClient, Config config) {
         this.kubeClient = kubeClient;
@@ -68,7 +69,7 @@ public class Session extends AbstractVerticle {
             long timeout = 120_000L;
             LOGGER.info("Stopping");
             LOGGER.debug("Stopping kube watch");
-            topicCmWatch.close();
+            k8s.stop();
             LOGGER.debug("Stopping zk watches");
             topicsWatcher.stop();
 
@@ -95,19 +96,52 @@ public class Session extends AbstractVerticle {
             LOGGER.debug("Closing AdminClient {}", adminClient);
             adminClient.close(timeout - (System.currentTimeMillis() - t0), TimeUnit.MILLISECONDS);
 
-            HttpServer healthServer = this.healthServer;
-            if (healthServer != null) {
-                healthServer.close();
-            }
-
             LOGGER.info("Stopped");
             blockingResult.complete();
         }, stopFuture);
     }
 
+    /**
+     * A verticle which does nothing, but whose instances provide the event loop contexts
+     * across which the topics are sharded.
+     */
+    static class Shard extends AbstractVerticle {
+        private final List<Context> contexts;
+
+        Shard(List<Context> contexts) {
+            this.contexts = contexts;
+        }
+
+        @Override
+        public void start() {
+            contexts.add(context);
+        }
+    }
+
     @Override
-    public void start() {
-        LOGGER.info("Starting");
+    public void start(Future<Void> startFuture) {
+        int shards = config.get(Config.SHARDS);
+        if (shards > 1) {
+            // Each instance of a verticle gets its own context, on its own event loop where possible.
+            // The shards are undeployed along with this verticle.
+            List<Context> contexts = new CopyOnWriteArrayList<>();
+            vertx.deployVerticle(() -> new Shard(contexts), new DeploymentOptions().setInstances(shards), ar -> {
+                if (ar.succeeded()) {
+                    LOGGER.debug("Sharding topics across {} contexts", contexts.size());
+                    start(contexts);
+                    startFuture.complete();
+                } else {
+                    startFuture.fail(ar.cause());
+                }
+            });
+        } else {
+            start(Collections.emptyList());
+            startFuture.complete();
+        }
+    }
+
+    private void start(List<Context> shardContexts) {
+        LOGGER.info("Starting for namespace {}", config.get(Config.NAMESPACE));
         Properties adminClientProps = new Properties();
         adminClientProps.setProperty(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, config.get(Config.KAFKA_BOOTSTRAP_SERVERS));
 
@@ -119,24 +153,25 @@ public class Session extends AbstractVerticle {
             adminClientProps.setProperty("ssl.keystore.password", config.get(Config.TLS_KEYSTORE_PASSWORD));
         }
 
+        String namespace = config.get(Config.NAMESPACE);
+        this.zk = Zk.create(vertx, config.get(Config.ZOOKEEPER_CONNECT), this.config.get(Config.ZOOKEEPER_SESSION_TIMEOUT_MS).intValue(), namespace);
+        LOGGER.debug("Using ZooKeeper {}", zk);
+
         this.adminClient = AdminClient.create(adminClientProps);
         LOGGER.debug("Using AdminClient {}", adminClient);
-        this.kafka = new OperatorAssignedKafkaImpl(adminClient, vertx, config);
+        ZkWatchManager watchManager = new ZkWatchManager(zk);
+        this.kafka = new OperatorAssignedKafkaImpl(adminClient, vertx, config, zk, watchManager);
         LOGGER.debug("Using Kafka {}", kafka);
         LabelPredicate cmPredicate = config.get(Config.LABELS);
 
-        String namespace = config.get(Config.NAMESPACE);
         LOGGER.debug("Using namespace {}", namespace);
-        this.k8s = new K8sImpl(vertx, kubeClient, cmPredicate, namespace);
+        this.k8s = new CachingK8s(vertx, kubeClient, new K8sImpl(vertx, kubeClient, cmPredicate, namespace), cmPredicate, namespace);
         LOGGER.debug("Using k8s {}", k8s);
 
-        this.zk = Zk.create(vertx, config.get(Config.ZOOKEEPER_CONNECT), this.config.get(Config.ZOOKEEPER_SESSION_TIMEOUT_MS).intValue());
-        LOGGER.debug("Using ZooKeeper {}", zk);
-
-        ZkTopicStore topicStore = new ZkTopicStore(zk);
+        ZkTopicStore topicStore = new ZkTopicStore(zk, vertx);
         LOGGER.debug("Using TopicStore {}", topicStore);
 
-        this.topicOperator = new TopicOperator(vertx, kafka, k8s, topicStore, cmPredicate, namespace, config);
+        this.topicOperator = new TopicOperator(vertx, kafka, k8s, topicStore, cmPredicate, namespace, config, shardContexts);
         LOGGER.debug("Using Operator {}", topicOperator);
 
         this.topicConfigsWatcher = new TopicConfigsWatcher(topicOperator);
@@ -145,17 +180,14 @@ public class Session extends AbstractVerticle {
         LOGGER.debug("Using TopicWatcher {}", topicWatcher);
         this.topicsWatcher = new TopicsWatcher(topicOperator, topicConfigsWatcher, topicWatcher);
         LOGGER.debug("Using TopicsWatcher {}", topicsWatcher);
-        topicsWatcher.start(zk);
+        topicsWatcher.start(watchManager);
 
         Thread configMapThread = new Thread(() -> {
             LOGGER.debug("Watching configmaps matching {}", cmPredicate);
-            Session.this.topicCmWatch = kubeClient.configMaps().inNamespace(namespace).watch(new ConfigMapWatcher(topicOperator, cmPredicate));
+            k8s.start(new ConfigMapWatcher(topicOperator, cmPredicate));
             LOGGER.debug("Watching setup");
-
-            // start the HTTP server for healthchecks
-            healthServer = this.startHealthServer();
-
-        }, "configmap-watcher");
+            ready = true;
+        }, "configmap-watcher-" + namespace);
         LOGGER.debug("Starting {}", configMapThread);
         configMapThread.start();
 
@@ -178,19 +210,9 @@ public class Session extends AbstractVerticle {
     }
 
     /**
-     * Start an HTTP health server
+     * @return Whether the session has started watching ConfigMaps.
      */
-    private HttpServer startHealthServer() {
-
-        return this.vertx.createHttpServer()
-                .requestHandler(request -> {
-
-                    if (request.path().equals("/healthy")) {
-                        request.response().setStatusCode(200).end();
-                    } else if (request.path().equals("/ready")) {
-                        request.response().setStatusCode(200).end();
-                    }
-                })
-                .listen(HEALTH_SERVER_PORT);
+    boolean ready() {
+        return ready;
     }
 }
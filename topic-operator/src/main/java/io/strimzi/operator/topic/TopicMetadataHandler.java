@@ -6,12 +6,9 @@ package io.strimzi.operator.topic;
 
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Handler;
-import io.vertx.core.Vertx;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.util.concurrent.TimeUnit;
-
 /**
  * Represents a handler for getting Kafka topic metadata, providing a helper {@link #retry} method
  * for subclasses which want to retry when they need to do that
@@ -20,60 +17,35 @@ public abstract class TopicMetadataHandler implements Handler<AsyncResult<TopicM
 
     private static final Logger log = LogManager.getLogger(TopicMetadataHandler.class);
 
-    private final BackOff backOff;
+    private final RetryScheduler.Retry retry;
 
-    private final Vertx vertx;
     private final Kafka kafka;
     private final TopicName topicName;
 
     /**
      * Constructor
      *
-     * @param vertx Vert.x instance to use for retrying mechanism
      * @param kafka Kafka client for getting topic metadata
      * @param topicName topic name for which to get metadata
-     * @param backOff   backoff information to use for retrying
+     * @param retry the retry to use for scheduling retries
      */
-    TopicMetadataHandler(Vertx vertx, Kafka kafka, TopicName topicName, BackOff backOff) {
-        this.vertx = vertx;
+    TopicMetadataHandler(Kafka kafka, TopicName topicName, RetryScheduler.Retry retry) {
         this.kafka = kafka;
         this.topicName = topicName;
-        this.backOff = backOff;
-    }
-
-    /**
-     * Constructor
-     *
-     * @param vertx Vert.x instance to use for retrying mechanism
-     * @param kafka Kafka client for getting topic metadata
-     * @param topicName topic name for which to get metadata
-     */
-    TopicMetadataHandler(Vertx vertx, Kafka kafka, TopicName topicName) {
-        this(vertx, kafka, topicName, new BackOff());
+        this.retry = retry;
     }
 
     /**
-     * Schedules this handler to execute again after a delay defined by the {@code BackOff}.
-     * Calls {@link #onMaxAttemptsExceeded} if the backoff has reached its permitted number of retries.
+     * Schedules this handler to execute again after a delay defined by the {@code Retry}.
+     * Calls {@link #onMaxAttemptsExceeded} if the retry has reached its permitted number of attempts.
      */
     protected void retry() {
-
-        long delay;
         try {
-            delay = backOff.delayMs();
+            long delay = retry.schedule(ignored -> kafka.topicMetadata(topicName, this));
             log.debug("Backing off for {}ms on getting metadata for {}", delay, topicName);
         } catch (MaxAttemptsExceededException e) {
-            log.info("Max attempts reached on getting metadata for {} after {}ms, giving up for now", topicName, backOff.totalDelayMs());
+            log.info("Max attempts reached on getting metadata for {} after {}ms, giving up for now", topicName, retry.totalDelayMs());
             this.onMaxAttemptsExceeded(e);
-            return;
-        }
-
-        if (delay < 1) {
-            // vertx won't tolerate a zero delay
-            vertx.runOnContext(timerId -> kafka.topicMetadata(topicName, this));
-        } else {
-            vertx.setTimer(TimeUnit.MILLISECONDS.convert(delay, TimeUnit.MILLISECONDS),
-                timerId -> kafka.topicMetadata(topicName, this));
         }
     }
 
@@ -9,6 +9,7 @@ import io.fabric8.kubernetes.api.model.EventBuilder;
 import io.fabric8.kubernetes.api.model.HasMetadata;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.CompositeFuture;
+import io.vertx.core.Context;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
@@ -18,11 +19,12 @@ import org.apache.logging.log4j.Logger;
 
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 import static java.util.Collections.disjoint;
 
@@ -36,7 +38,10 @@ public class TopicOperator {
     private final LabelPredicate cmPredicate;
     private final String namespace;
     private TopicStore topicStore;
-    private final InFlight<TopicName> inFlight;
+    /** The topics are sharded across these by the hash of their name. */
+    private final List<InFlight<TopicName>> inFlight;
+    private final EventSink eventSink;
+    private final RetryScheduler retryScheduler;
     private final Config config;
 
     enum EventType {
@@ -82,7 +87,7 @@ public class TopicOperator {
             }
             evtb.withType(eventType.name)
                     .withMessage(message)
-                    .withNewMetadata().withLabels(cmPredicate.labels()).withGenerateName("topic-operator").withNamespace(namespace).endMetadata()
+                    .withNewMetadata().withLabels(cmPredicate.labels()).withNamespace(namespace).endMetadata()
                     .withNewSource()
                     .withComponent(TopicOperator.class.getName())
                     .endSource();
@@ -95,7 +100,7 @@ public class TopicOperator {
                     LOGGER.warn("{}", message);
                     break;
             }
-            k8s.createEvent(event, handler);
+            eventSink.emit(event, handler);
         }
 
         public String toString() {
@@ -150,23 +155,27 @@ public class TopicOperator {
     /** Topic config modified in ZK */
     class UpdateConfigMap implements Handler<Void> {
 
-        private final Topic topic;
+        private final MapName mapName;
+        private final Map<String, String> data;
         private final Handler<io.vertx.core.AsyncResult<Void>> handler;
 
-        public UpdateConfigMap(Topic topic, Handler<AsyncResult<Void>> handler) {
-            this.topic = topic;
+        /**
+         * @param data The entries of the ConfigMap's data which have changed.
+         */
+        public UpdateConfigMap(MapName mapName, Map<String, String> data, Handler<AsyncResult<Void>> handler) {
+            this.mapName = mapName;
+            this.data = data;
             this.handler = handler;
         }
 
         @Override
         public void handle(Void v) {
-            ConfigMap cm = TopicSerialization.toConfigMap(topic, cmPredicate);
-            k8s.updateConfigMap(cm, handler);
+            k8s.patchConfigMap(mapName, data, handler);
         }
 
         @Override
         public String toString() {
-            return "UpdateConfigMap(topicName=" + topic.getTopicName() + ")";
+            return "UpdateConfigMap(mapName=" + mapName + ", keys=" + data.keySet() + ")";
         }
     }
 
@@ -283,9 +292,12 @@ public class TopicOperator {
             this.handler = handler;
         }
 
+        /** The tenths of the partitions complete, when we last reported progress. */
+        private int reportedTenths = -1;
+
         @Override
         public void handle(Void v) throws OperatorException {
-            kafka.changeReplicationFactor(topic, ar -> {
+            kafka.changeReplicationFactor(topic, this::progress, ar -> {
                 if (ar.failed()) {
                     enqueue(new Event(involvedObject, ar.cause().toString(), EventType.WARNING, eventResult -> { }));
                 }
@@ -294,6 +306,21 @@ public class TopicOperator {
 
         }
 
+        /**
+         * Report the progress of moving the replicas as an Event each time another tenth of the partitions
+         * is complete, so a large topic doesn't get an Event per partition.
+         */
+        private void progress(ReassignmentProgress progress) {
+            int tenths = progress.getPartitions() == 0 ? 10 : 10 * progress.getCompletedPartitions() / progress.getPartitions();
+            if (tenths > reportedTenths) {
+                reportedTenths = tenths;
+                String message = "Changing the replication factor of topic " + topic.getTopicName() + " to " + topic.getNumReplicas()
+                        + ": " + progress.getCompletedPartitions() + " of " + progress.getPartitions() + " partitions complete, "
+                        + progress.getReplicasInSync() + " of " + progress.getReplicas() + " replicas in sync";
+                enqueue(new Event(involvedObject, message, EventType.INFO, eventResult -> { }));
+            }
+        }
+
         @Override
         public String toString() {
             return "ChangeReplicationFactor(topicName=" + topic.getTopicName() + ")";
@@ -329,19 +356,56 @@ public class TopicOperator {
                          LabelPredicate cmPredicate,
                          String namespace,
                          Config config) {
+        this(vertx, kafka, k8s, topicStore, cmPredicate, namespace, config, Collections.emptyList());
+    }
+
+    /**
+     * @param shardContexts The contexts across which the topics are sharded, each topic's reconciliations being
+     *                      run on the same context. If empty, all the reconciliations are run on the caller's context.
+     */
+    public TopicOperator(Vertx vertx, Kafka kafka,
+                         K8s k8s,
+                         TopicStore topicStore,
+                         LabelPredicate cmPredicate,
+                         String namespace,
+                         Config config,
+                         List<Context> shardContexts) {
         this.kafka = kafka;
         this.k8s = k8s;
         this.vertx = vertx;
         this.cmPredicate = cmPredicate;
         this.topicStore = topicStore;
-        this.inFlight = new InFlight<>(vertx);
+        if (shardContexts.isEmpty()) {
+            this.inFlight = Collections.singletonList(new InFlight<>(vertx, namespace));
+        } else {
+            List<InFlight<TopicName>> shards = new ArrayList<>(shardContexts.size());
+            for (Context context : shardContexts) {
+                shards.add(new InFlight<>(vertx, context, namespace));
+            }
+            this.inFlight = Collections.unmodifiableList(shards);
+        }
+        this.eventSink = new EventSink(vertx, k8s);
+        this.retryScheduler = new RetryScheduler(vertx, config.get(Config.RETRY_BUDGET));
         this.namespace = namespace;
         this.config = config;
     }
 
     Future<Void> reconcile(ConfigMap cm, TopicName topicName) {
+        return reconcile(cm, topicName, metadataResult -> kafka.topicMetadata(topicName,
+                Metrics.phase(namespace, Metrics.PHASE_KAFKA_METADATA, metadataResult.completer())));
+    }
+
+    /**
+     * Like {@link #reconcile(ConfigMap, TopicName)}, but using the given, previously fetched, Kafka metadata
+     * for the topic rather than fetching it from Kafka.
+     */
+    Future<Void> reconcile(ConfigMap cm, TopicName topicName, TopicMetadata kafkaTopicMeta) {
+        return reconcile(cm, topicName, metadataResult -> metadataResult.complete(kafkaTopicMeta));
+    }
+
+    private Future<Void> reconcile(ConfigMap cm, TopicName topicName, Handler<Future<TopicMetadata>> metadataFetcher) {
         Future<Void> result = Future.future();
-        Handler<Future<Void>> action = new Reconciliation("reconcile") {
+        Reconciliation action = new Reconciliation("reconcile", Metrics.TRIGGER_PERIODIC) {
             @Override
             public void handle(Future<Void> fut) {
 
@@ -349,8 +413,8 @@ public class TopicOperator {
                     Topic k8sTopic = cm != null ? TopicSerialization.fromConfigMap(cm) : null;
                     Future<Topic> topicResult = Future.future();
                     Future<TopicMetadata> metadataResult = Future.future();
-                    kafka.topicMetadata(topicName, metadataResult.completer());
-                    topicStore.read(topicName, topicResult.completer());
+                    metadataFetcher.handle(metadataResult);
+                    topicStore.read(topicName, Metrics.phase(namespace, Metrics.PHASE_STORE_READ, topicResult.completer()));
                     CompositeFuture.all(topicResult, metadataResult).setHandler(ar -> {
 
                         if (ar.succeeded()) {
@@ -380,7 +444,7 @@ public class TopicOperator {
                 }
             }
         };
-        inFlight.enqueue(topicName, action, result);
+        enqueue(topicName, action, true, result);
         return result;
     }
 
@@ -409,7 +473,9 @@ public class TopicOperator {
      */
     void reconcile(final HasMetadata involvedObject,
                    final Topic k8sTopic, final Topic kafkaTopic, final Topic privateTopic,
-                   final Handler<AsyncResult<Void>> reconciliationResultHandler) {
+                   final Handler<AsyncResult<Void>> resultHandler) {
+        // The reads are done by now, so the rest of the reconciliation is writes
+        final Handler<AsyncResult<Void>> reconciliationResultHandler = Metrics.phase(namespace, Metrics.PHASE_WRITE, resultHandler);
 
         {
             TopicName topicName = k8sTopic != null ? k8sTopic.getTopicName() : kafkaTopic != null ? kafkaTopic.getTopicName() : privateTopic != null ? privateTopic.getTopicName() : null;
@@ -490,7 +556,7 @@ public class TopicOperator {
             // they're the same => do nothing, but stil create the private copy
             LOGGER.debug("cm created in k8s and topic created in kafka, but they're identical => just creating in topicStore");
             LOGGER.debug("k8s and kafka versions of topic '{}' are the same", kafkaTopic.getTopicName());
-            enqueue(new CreateInTopicStore(kafkaTopic, involvedObject, reconciliationResultHandler));
+            execute(involvedObject, ChangeSet.of(k8sTopic, kafkaTopic, null, kafkaTopic), reconciliationResultHandler);
         } else if (!diff.changesReplicationFactor()
                 && !diff.changesNumPartitions()
                 && diff.changesConfig()
@@ -499,32 +565,14 @@ public class TopicOperator {
             Map<String, String> mergedConfigs = new HashMap<>(kafkaTopic.getConfig());
             mergedConfigs.putAll(k8sTopic.getConfig());
             Topic mergedTopic = new Topic.Builder(kafkaTopic).withConfig(mergedConfigs).build();
-            enqueue(new UpdateConfigMap(mergedTopic, ar -> {
-                if (ar.succeeded()) {
-                    enqueue(new UpdateKafkaConfig(mergedTopic, involvedObject, ar2 -> {
-                        if (ar2.succeeded()) {
-                            enqueue(new CreateInTopicStore(mergedTopic, involvedObject, reconciliationResultHandler));
-                        } else {
-                            reconciliationResultHandler.handle(ar2);
-                        }
-                    }));
-                } else {
-                    reconciliationResultHandler.handle(ar);
-                }
-            }));
+            execute(involvedObject, ChangeSet.of(k8sTopic, kafkaTopic, null, mergedTopic), reconciliationResultHandler);
         } else {
             // Just use kafka version, but also create a warning event
             LOGGER.debug("cm created in k8s and topic created in kafka, and they are irreconcilably different => kafka version wins");
             enqueue(new Event(involvedObject, "ConfigMap is incompatible with the topic metadata. " +
                     "The topic metadata will be treated as canonical.", EventType.INFO, ar -> {
                 if (ar.succeeded()) {
-                    enqueue(new UpdateConfigMap(kafkaTopic, ar2 -> {
-                        if (ar2.succeeded()) {
-                            enqueue(new CreateInTopicStore(kafkaTopic, involvedObject, reconciliationResultHandler));
-                        } else {
-                            reconciliationResultHandler.handle(ar2);
-                        }
-                    }));
+                    execute(involvedObject, ChangeSet.of(k8sTopic, kafkaTopic, null, kafkaTopic), reconciliationResultHandler);
                 } else {
                     reconciliationResultHandler.handle(ar);
                 }
@@ -555,45 +603,64 @@ public class TopicOperator {
             if (merged.isEmpty()) {
                 LOGGER.info("All three topics are identical");
                 reconciliationResultHandler.handle(Future.succeededFuture());
+            } else if (merged.numPartitionsDelta() < 0) {
+                final String message = "Number of partitions cannot be decreased";
+                LOGGER.error(message);
+                enqueue(new Event(involvedObject, message, EventType.INFO, eventResult -> {
+                }));
+                reconciliationResultHandler.handle(Future.failedFuture(new Exception(message)));
             } else {
+                // TODO What if we increase min.in.sync.replicas and the number of replicas,
+                // such that the old number of replicas < the new min isr? But likewise
+                // we could decrease, so order of tasks in the queue will need to change
+                // depending on what the diffs are.
                 Topic result = merged.apply(privateTopic);
-                int partitionsDelta = merged.numPartitionsDelta();
-                if (partitionsDelta < 0) {
-                    final String message = "Number of partitions cannot be decreased";
-                    LOGGER.error(message);
-                    enqueue(new Event(involvedObject, message, EventType.INFO, eventResult -> {
-                    }));
-                    reconciliationResultHandler.handle(Future.failedFuture(new Exception(message)));
+                execute(involvedObject, ChangeSet.of(k8sTopic, kafkaTopic, privateTopic, result), reconciliationResultHandler);
+            }
+        }
+    }
+
+    /**
+     * Perform the writes of the given change set: the ConfigMap, then the Kafka topic config,
+     * then the Kafka partitions and finally the topic store, skipping those which are not needed.
+     * The topic store is only written once the other writes have succeeded, so that a failed write
+     * is retried by the next reconciliation.
+     * A change to the replication factor is started, but not waited for, because the reassignment
+     * can take a long time.
+     */
+    private void execute(HasMetadata involvedObject, ChangeSet changes, Handler<AsyncResult<Void>> handler) {
+        LOGGER.debug("Executing {}", changes);
+        Topic target = changes.target();
+        if (changes.changesKafkaReplicationFactor()) {
+            enqueue(new ChangeReplicationFactor(target, involvedObject, ar -> { }));
+        }
+        Map<String, String> patch = changes.configMapPatch();
+        optionally(!patch.isEmpty(), f -> enqueue(new UpdateConfigMap(changes.mapName(), patch, f.completer())))
+            .compose(v -> optionally(changes.changesKafkaConfig(),
+                f -> enqueue(new UpdateKafkaConfig(target, involvedObject, f.completer()))))
+            .compose(v -> optionally(changes.kafkaPartitionsDelta() > 0,
+                f -> enqueue(new IncreaseKafkaPartitions(target, involvedObject, f.completer()))))
+            .compose(v -> {
+                if (changes.createsInStore()) {
+                    return optionally(true, f -> enqueue(new CreateInTopicStore(target, involvedObject, f.completer())));
                 } else {
-                    if (merged.changesReplicationFactor()) {
-                        LOGGER.error("Changes replication factor");
-                        enqueue(new ChangeReplicationFactor(result, involvedObject, null));
-                    }
-                    // TODO What if we increase min.in.sync.replicas and the number of replicas,
-                    // such that the old number of replicas < the new min isr? But likewise
-                    // we could decrease, so order of tasks in the queue will need to change
-                    // depending on what the diffs are.
-                    LOGGER.debug("Updating cm, kafka topic and topicStore");
-                    // TODO replace this with compose
-                    enqueue(new UpdateConfigMap(result, ar -> {
-                        Handler<Void> topicStoreHandler =
-                            ignored -> enqueue(new UpdateInTopicStore(
-                                result, involvedObject, reconciliationResultHandler));
-                        Handler<Void> partitionsHandler;
-                        if (partitionsDelta > 0) {
-                            partitionsHandler = ar4 -> enqueue(new IncreaseKafkaPartitions(result, involvedObject, ar2 -> topicStoreHandler.handle(null)));
-                        } else {
-                            partitionsHandler = topicStoreHandler;
-                        }
-                        if (merged.changesConfig()) {
-                            enqueue(new UpdateKafkaConfig(result, involvedObject, ar2 -> partitionsHandler.handle(null)));
-                        } else {
-                            enqueue(partitionsHandler);
-                        }
-                    }));
+                    return optionally(changes.changesStore(), f -> enqueue(new UpdateInTopicStore(target, involvedObject, f.completer())));
                 }
-            }
+            }).setHandler(handler);
+    }
+
+    /**
+     * If {@code needed}, run the given {@code step}, returning the future it completes.
+     * Otherwise return a completed future.
+     */
+    private Future<Void> optionally(boolean needed, Handler<Future<Void>> step) {
+        Future<Void> result = Future.future();
+        if (needed) {
+            step.handle(result);
+        } else {
+            result.complete();
         }
+        return result;
     }
 
     void enqueue(Handler<Void> event) {
@@ -601,44 +668,68 @@ public class TopicOperator {
         vertx.runOnContext(event);
     }
 
+    /**
+     * Enqueue the given {@code action} in the topic's shard of {@link #inFlight}, recording its outcome and duration
+     * in the {@link Metrics} before calling the given {@code resultHandler}.
+     */
+    private void enqueue(TopicName topicName, Reconciliation action, boolean coalescing, Handler<AsyncResult<Void>> resultHandler) {
+        long start = System.nanoTime();
+        Handler<AsyncResult<Void>> measured = result -> {
+            Metrics.RECONCILIATIONS.labels(namespace, action.trigger, Metrics.outcome(result)).inc();
+            Metrics.RECONCILIATION_DURATION.labels(namespace, action.trigger).observe(Metrics.seconds(start));
+            resultHandler.handle(result);
+        };
+        InFlight<TopicName> shard = inFlight(topicName);
+        if (coalescing) {
+            shard.enqueueCoalescing(topicName, action, measured);
+        } else {
+            shard.enqueue(topicName, action, measured);
+        }
+    }
+
+    /** The shard of {@link #inFlight} for the given topic. */
+    private InFlight<TopicName> inFlight(TopicName topicName) {
+        return inFlight.get(Math.floorMod(topicName.hashCode(), inFlight.size()));
+    }
+
     /** Called when a topic znode is deleted in ZK */
     void onTopicDeleted(TopicName topicName, Handler<AsyncResult<Void>> resultHandler) {
-        Handler<Future<Void>> action = new Reconciliation("onTopicDeleted") {
+        Reconciliation action = new Reconciliation("onTopicDeleted", Metrics.TRIGGER_ZOOKEEPER) {
             @Override
             public void handle(Future<Void> fut) {
                 TopicOperator.this.reconcileOnTopicChange(topicName, null, fut.completer());
             }
         };
-        inFlight.enqueue(topicName, action, resultHandler);
+        enqueue(topicName, action, false, resultHandler);
 
     }
 
     void onTopicConfigChanged(TopicName topicName, Handler<AsyncResult<Void>> resultHandler) {
-        Handler<Future<Void>> action = new Reconciliation("onTopicConfigChanged") {
+        Reconciliation action = new Reconciliation("onTopicConfigChanged", Metrics.TRIGGER_ZOOKEEPER) {
             @Override
             public void handle(Future<Void> fut) {
-                kafka.topicMetadata(topicName, metadataResult -> {
+                kafka.topicMetadata(topicName, Metrics.phase(namespace, Metrics.PHASE_KAFKA_METADATA, metadataResult -> {
                     if (metadataResult.succeeded()) {
                         Topic topic = TopicSerialization.fromTopicMetadata(metadataResult.result());
                         TopicOperator.this.reconcileOnTopicChange(topicName, topic, fut.completer());
                     } else {
                         fut.fail(metadataResult.cause());
                     }
-                });
+                }));
             }
         };
-        inFlight.enqueue(topicName, action, resultHandler);
+        enqueue(topicName, action, false, resultHandler);
     }
 
     void onTopicPartitionsChanged(TopicName topicName, Handler<AsyncResult<Void>> resultHandler) {
-        Handler<Future<Void>> action = new Reconciliation("onTopicPartitionsChanged") {
+        Reconciliation action = new Reconciliation("onTopicPartitionsChanged", Metrics.TRIGGER_ZOOKEEPER) {
             @Override
             public void handle(Future<Void> fut) {
 
                 // getting topic information from the private store
                 topicStore.read(topicName, topicResult -> {
 
-                    TopicMetadataHandler handler = new TopicMetadataHandler(vertx, kafka, topicName, topicMetadataBackOff()) {
+                    TopicMetadataHandler handler = new TopicMetadataHandler(kafka, topicName, topicMetadataRetry()) {
                         @Override
                         public void handle(AsyncResult<TopicMetadata> metadataResult) {
 
@@ -672,14 +763,14 @@ public class TopicOperator {
                 });
             }
         };
-        inFlight.enqueue(topicName, action, resultHandler);
+        enqueue(topicName, action, false, resultHandler);
     }
 
     private void reconcileOnTopicChange(TopicName topicName, Topic kafkaTopic, Handler<AsyncResult<Void>> resultHandler) {
         // TODO Here I need to lookup the name of the configmap from the name of the topic.
         // I can either do that from the topicStore, or maintain an in-memory map
         // I can then look up the CM from k8s
-        topicStore.read(topicName, storeResult -> {
+        Handler<AsyncResult<Topic>> storeHandler = storeResult -> {
             if (storeResult.succeeded()) {
                 Topic storeTopic = storeResult.result();
                 MapName mapName = null;
@@ -688,7 +779,7 @@ public class TopicOperator {
                 } else {
                     mapName = topicName.asMapName();
                 }
-                k8s.getFromName(mapName, kubeResult -> {
+                k8s.getFromName(mapName, Metrics.phase(namespace, Metrics.PHASE_K8S_READ, kubeResult -> {
                     if (kubeResult.succeeded()) {
                         ConfigMap cm = kubeResult.result();
                         Topic k8sTopic = TopicSerialization.fromConfigMap(cm);
@@ -696,11 +787,12 @@ public class TopicOperator {
                     } else {
                         resultHandler.handle(kubeResult.<Void>map((Void) null));
                     }
-                });
+                }));
             } else {
                 resultHandler.handle(storeResult.<Void>map((Void) null));
             }
-        });
+        };
+        topicStore.read(topicName, Metrics.phase(namespace, Metrics.PHASE_STORE_READ, storeHandler));
 /*
         k8s.getFromName(topicName.asMapName(), kubeResult -> {
             if (kubeResult.succeeded()) {
@@ -730,11 +822,11 @@ public class TopicOperator {
     void onTopicCreated(TopicName topicName, Handler<AsyncResult<Void>> resultHandler) {
         // XXX currently runs on the ZK thread, requiring a synchronized inFlight
         // is it better to put this check in the topic deleted event?
-        Handler<Future<Void>> action = new Reconciliation("onTopicCreated") {
+        Reconciliation action = new Reconciliation("onTopicCreated", Metrics.TRIGGER_ZOOKEEPER) {
             @Override
             public void handle(Future<Void> fut) {
 
-                TopicMetadataHandler handler = new TopicMetadataHandler(vertx, kafka, topicName, topicMetadataBackOff()) {
+                TopicMetadataHandler handler = new TopicMetadataHandler(kafka, topicName, topicMetadataRetry()) {
 
                     @Override
                     public void handle(AsyncResult<TopicMetadata> metadataResult) {
@@ -764,7 +856,7 @@ public class TopicOperator {
                 kafka.topicMetadata(topicName, handler);
             }
         };
-        inFlight.enqueue(topicName, action, resultHandler);
+        enqueue(topicName, action, false, resultHandler);
     }
 
     /** Called when a ConfigMap is added in k8s */
@@ -777,13 +869,13 @@ public class TopicOperator {
                 resultHandler.handle(Future.failedFuture(e));
                 return;
             }
-            Handler<Future<Void>> action = new Reconciliation("onConfigMapAdded") {
+            Reconciliation action = new Reconciliation("onConfigMapAdded", Metrics.TRIGGER_WATCH) {
                 @Override
                 public void handle(Future<Void> fut) {
                     TopicOperator.this.reconcileOnCmChange(configMap, k8sTopic, false, fut);
                 }
             };
-            inFlight.enqueue(new TopicName(configMap), action, resultHandler);
+            enqueue(new TopicName(configMap), action, false, resultHandler);
         } else {
             resultHandler.handle(Future.succeededFuture());
         }
@@ -791,9 +883,11 @@ public class TopicOperator {
 
     abstract class Reconciliation implements Handler<Future<Void>> {
         private final String name;
+        private final String trigger;
 
-        public Reconciliation(String name) {
+        public Reconciliation(String name, String trigger) {
             this.name = name;
+            this.trigger = trigger;
         }
 
         @Override
@@ -812,13 +906,14 @@ public class TopicOperator {
                 resultHandler.handle(Future.failedFuture(e));
                 return;
             }
-            Reconciliation action = new Reconciliation("onConfigMapModified") {
+            Reconciliation action = new Reconciliation("onConfigMapModified", Metrics.TRIGGER_WATCH) {
                 @Override
                 public void handle(Future<Void> fut) {
                     TopicOperator.this.reconcileOnCmChange(configMap, k8sTopic, true, fut);
                 }
             };
-            inFlight.enqueue(new TopicName(configMap), action, resultHandler);
+            // Only the most recent modification needs to be reconciled
+            enqueue(new TopicName(configMap), action, true, resultHandler);
         } else {
             resultHandler.handle(Future.succeededFuture());
         }
@@ -828,8 +923,8 @@ public class TopicOperator {
         TopicName topicName = new TopicName(configMap);
         Future<TopicMetadata> f1 = Future.future();
         Future<Topic> f2 = Future.future();
-        kafka.topicMetadata(topicName, f1.completer());
-        topicStore.read(topicName, f2.completer());
+        kafka.topicMetadata(topicName, Metrics.phase(namespace, Metrics.PHASE_KAFKA_METADATA, f1.completer()));
+        topicStore.read(topicName, Metrics.phase(namespace, Metrics.PHASE_STORE_READ, f2.completer()));
         CompositeFuture.all(f1, f2).setHandler(ar -> {
             if (ar.succeeded()) {
                 TopicMetadata topicMetadata = ar.result().resultAt(0);
@@ -849,13 +944,13 @@ public class TopicOperator {
     /** Called when a ConfigMap is deleted in k8s */
     void onConfigMapDeleted(ConfigMap configMap, Handler<AsyncResult<Void>> resultHandler) {
         if (cmPredicate.test(configMap)) {
-            Reconciliation action = new Reconciliation("onConfigMapDeleted") {
+            Reconciliation action = new Reconciliation("onConfigMapDeleted", Metrics.TRIGGER_WATCH) {
                 @Override
                 public void handle(Future<Void> fut) {
                     TopicOperator.this.reconcileOnCmChange(configMap, null, false, fut);
                 }
             };
-            inFlight.enqueue(new TopicName(configMap), action, resultHandler);
+            enqueue(new TopicName(configMap), action, false, resultHandler);
         } else {
             resultHandler.handle(Future.succeededFuture());
         }
@@ -950,14 +1045,19 @@ public class TopicOperator {
     }
 
     public boolean isWorkInflight() {
-        return inFlight.size() > 0;
+        for (InFlight<TopicName> shard : inFlight) {
+            if (shard.size() > 0) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
-     * @return a new instance of BackOff with configured topic metadata max attempts
+     * @return a new retry with configured topic metadata max attempts
      */
-    private BackOff topicMetadataBackOff() {
-        return new BackOff(config.get(Config.TOPIC_METADATA_MAX_ATTEMPTS));
+    private RetryScheduler.Retry topicMetadataRetry() {
+        return retryScheduler.retry(config.get(Config.TOPIC_METADATA_MAX_ATTEMPTS));
     }
 
     /**
@@ -975,51 +1075,40 @@ public class TopicOperator {
         kafka.listTopics(topicsListResult -> {
             if (topicsListResult.succeeded()) {
                 Set<String> kafkaTopics = topicsListResult.result();
-                LOGGER.debug("Reconciling kafka topics {}", kafkaTopics);
-                // First reconcile the topics in kafka
-                List<Future> topicFutures = new ArrayList<>();
-                for (String name : kafkaTopics) {
-                    LOGGER.debug("{} reconciliation of topic {}", reconciliationType, name);
-                    TopicName topicName = new TopicName(name);
-                    Future topicFuture = Future.future();
-                    topicFutures.add(topicFuture);
-                    k8s.getFromName(topicName.asMapName(), cmResult -> {
-                        if (cmResult.succeeded()) {
-                            ConfigMap cm = cmResult.result();
-                            reconcile(cm, topicName).setHandler(topicFuture);
-                        } else {
-                            LOGGER.error("Error {} getting ConfigMap {} for topic {}",
-                                    reconciliationType,
-                                    topicName.asMapName(), topicName, cmResult.cause());
-                            topicFuture.fail(new OperatorException("Error getting ConfigMap " + topicName.asMapName() + " during " + reconciliationType + " reconciliation", cmResult.cause()));
-                        }
-                    });
-                }
-                CompositeFuture.join(topicFutures).setHandler(topicsJoin);
-                LOGGER.debug("Reconciling configmaps");
-                // Then those in k8s which aren't in kafka
+                // List the ConfigMaps once to find those without a topic in Kafka.
+                // The listed ConfigMaps can be out of date by the time their reconciliation is started,
+                // so each reconciliation gets its ConfigMap again when it's started
                 k8s.listMaps(configMapsListResult -> {
-                    List<Future> cmFutures = new ArrayList<>();
                     if (configMapsListResult.succeeded()) {
-                        List<ConfigMap> configMaps = configMapsListResult.result();
-                        Map<String, ConfigMap> configMapsMap = configMaps.stream().collect(Collectors.toMap(
-                            cm -> cm.getMetadata().getName(),
-                            cm -> cm));
-                        configMapsMap.keySet().removeAll(kafkaTopics);
+                        Map<MapName, ConfigMap> configMapsMap = new HashMap<>();
+                        for (ConfigMap cm : configMapsListResult.result()) {
+                            configMapsMap.put(new MapName(cm), cm);
+                        }
+                        // Limit how many topics are reconciled at once, so a large cluster
+                        // doesn't get (nor cause) a burst of requests for every topic at the same time
+                        int concurrency = config.get(Config.FULL_RECONCILIATION_CONCURRENCY);
+                        BoundedWorkQueue workQueue = new BoundedWorkQueue(concurrency);
+                        LOGGER.debug("Reconciling kafka topics {}", kafkaTopics);
+                        // First reconcile the topics in kafka
+                        reconcileKafkaTopics(reconciliationType, kafkaTopics, configMapsMap, workQueue, concurrency).setHandler(topicsJoin);
+                        // Then those in k8s which aren't in kafka
                         LOGGER.debug("Reconciling configmaps: {}", configMapsMap.keySet());
-                        for (ConfigMap cm : configMapsMap.values()) {
-                            LOGGER.debug("{} reconciliation of configmap {}", reconciliationType, cm.getMetadata().getName());
-
-                            TopicName topicName = new TopicName(cm);
-                            cmFutures.add(reconcile(cm, topicName));
+                        List<Future> cmFutures = new ArrayList<>();
+                        for (Map.Entry<MapName, ConfigMap> entry : configMapsMap.entrySet()) {
+                            MapName mapName = entry.getKey();
+                            TopicName topicName = new TopicName(entry.getValue());
+                            LOGGER.debug("{} reconciliation of configmap {}", reconciliationType, mapName);
+                            cmFutures.add(workQueue.submit(() -> reconcileCurrent(mapName, topicName, null)));
                         }
                         CompositeFuture.join(cmFutures).setHandler(mapsJoin);
+                        // Finally those in private store which we've not dealt with so far...
+                        // TODO ^^
                     } else {
                         LOGGER.error("Unable to list ConfigMaps", configMapsListResult.cause());
-                        mapsJoin.fail(new OperatorException("Error listing existing ConfigMaps during " + reconciliationType + " reconciliation", configMapsListResult.cause()));
+                        OperatorException listException = new OperatorException("Error listing existing ConfigMaps during " + reconciliationType + " reconciliation", configMapsListResult.cause());
+                        topicsJoin.fail(listException);
+                        mapsJoin.fail(listException);
                     }
-                    // Finally those in private store which we've not dealt with so far...
-                    // TODO ^^
                 });
             } else {
                 LOGGER.error("Error performing {} reconciliation", reconciliationType, topicsListResult.cause());
@@ -1030,5 +1119,121 @@ public class TopicOperator {
         });
         return CompositeFuture.join(topicsJoin, mapsJoin);
     }
+
+    /**
+     * Reconcile each of the given {@code kafkaTopics}, removing their ConfigMaps from the given
+     * {@code configMapsMap}. The reconciliations are submitted to the given {@code workQueue}
+     * in batches of {@code batchSize} topics. The metadata for the topics in a batch is described
+     * with a single request when the first reconciliation of the batch is started,
+     * rather than with a pair of requests per topic.
+     */
+    private Future<Void> reconcileKafkaTopics(String reconciliationType, Set<String> kafkaTopics, Map<MapName, ConfigMap> configMapsMap,
+                                              BoundedWorkQueue workQueue, int batchSize) {
+        List<Future> topicFutures = new ArrayList<>();
+        List<TopicName> batch = new ArrayList<>(batchSize);
+        for (String kafkaTopic : kafkaTopics) {
+            batch.add(new TopicName(kafkaTopic));
+            if (batch.size() == batchSize) {
+                submitBatch(reconciliationType, batch, configMapsMap, workQueue, topicFutures);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            submitBatch(reconciliationType, batch, configMapsMap, workQueue, topicFutures);
+        }
+        Future<Void> topicsJoin = Future.future();
+        CompositeFuture.join(topicFutures).setHandler(ar -> {
+            if (ar.succeeded()) {
+                topicsJoin.complete();
+            } else {
+                topicsJoin.fail(ar.cause());
+            }
+        });
+        return topicsJoin;
+    }
+
+    private void submitBatch(String reconciliationType, List<TopicName> topicNames, Map<MapName, ConfigMap> configMapsMap,
+                             BoundedWorkQueue workQueue, List<Future> topicFutures) {
+        BatchMetadata metadata = new BatchMetadata(reconciliationType, new HashSet<>(topicNames));
+        for (TopicName topicName : topicNames) {
+            MapName mapName = topicName.asMapName();
+            configMapsMap.remove(mapName);
+            LOGGER.debug("{} reconciliation of topic {}", reconciliationType, topicName);
+            topicFutures.add(workQueue.submit(() -> reconcileCurrent(mapName, topicName, metadata)));
+        }
+    }
+
+    /**
+     * Reconcile the topic with the given {@code topicName} with the current state of the ConfigMap with
+     * the given {@code mapName}, using the given batch {@code metadata} if it's not null and can be described,
+     * otherwise getting the topic's metadata individually.
+     */
+    private Future<Void> reconcileCurrent(MapName mapName, TopicName topicName, BatchMetadata metadata) {
+        Future<Void> result = Future.future();
+        k8s.getFromName(mapName, cmResult -> {
+            if (cmResult.failed()) {
+                LOGGER.error("Error getting ConfigMap {} for reconciliation", mapName, cmResult.cause());
+                result.fail(cmResult.cause());
+            } else if (metadata == null) {
+                reconcile(cmResult.result(), topicName).setHandler(result);
+            } else {
+                metadata.get(metadataResult -> {
+                    if (metadataResult.succeeded()) {
+                        reconcile(cmResult.result(), topicName, metadataResult.result().get(topicName)).setHandler(result);
+                    } else {
+                        reconcile(cmResult.result(), topicName).setHandler(result);
+                    }
+                });
+            }
+        });
+        return result;
+    }
+
+    /**
+     * The Kafka metadata of a batch of topics, described when it's first needed
+     * and then shared by the reconciliations of the batch.
+     */
+    private class BatchMetadata {
+        private final String reconciliationType;
+        private final Set<TopicName> topicNames;
+        private AsyncResult<Map<TopicName, TopicMetadata>> described;
+        private List<Handler<AsyncResult<Map<TopicName, TopicMetadata>>>> waiting = new ArrayList<>();
+
+        BatchMetadata(String reconciliationType, Set<TopicName> topicNames) {
+            this.reconciliationType = reconciliationType;
+            this.topicNames = topicNames;
+        }
+
+        void get(Handler<AsyncResult<Map<TopicName, TopicMetadata>>> handler) {
+            AsyncResult<Map<TopicName, TopicMetadata>> result;
+            boolean describe;
+            synchronized (this) {
+                result = described;
+                describe = result == null && waiting.isEmpty();
+                if (result == null) {
+                    waiting.add(handler);
+                }
+            }
+            if (result != null) {
+                handler.handle(result);
+            } else if (describe) {
+                kafka.topicsMetadata(topicNames, metadataResult -> {
+                    if (metadataResult.failed()) {
+                        LOGGER.warn("Error getting metadata for topics {} during {} reconciliation, " +
+                                "will get metadata for each topic individually", topicNames, reconciliationType, metadataResult.cause());
+                    }
+                    List<Handler<AsyncResult<Map<TopicName, TopicMetadata>>>> handlers;
+                    synchronized (this) {
+                        described = metadataResult;
+                        handlers = waiting;
+                        waiting = null;
+                    }
+                    for (Handler<AsyncResult<Map<TopicName, TopicMetadata>>> waiter : handlers) {
+                        waiter.handle(metadataResult);
+                    }
+                });
+            }
+        }
+    }
 }
 
@@ -4,10 +4,12 @@
  */
 package io.strimzi.operator.topic;
 
+import com.fasterxml.jackson.core.JsonEncoding;
 import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.core.JsonToken;
 import io.fabric8.kubernetes.api.model.ConfigMap;
 import io.fabric8.kubernetes.api.model.ConfigMapBuilder;
 import org.apache.kafka.clients.admin.Config;
@@ -18,11 +20,12 @@ import org.apache.kafka.common.errors.InvalidTopicException;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.StringReader;
 import java.io.StringWriter;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -47,52 +50,102 @@ public class TopicSerialization {
     public static final String JSON_KEY_REPLICAS = "replicas";
     public static final String JSON_KEY_CONFIG = "config";
 
-    @SuppressWarnings("unchecked")
-    private static Map<String, String> topicConfigFromConfigMapString(ConfigMap cm) {
-        Map<String, String> mapData = cm.getData();
-        String value = mapData.get(CM_KEY_CONFIG);
-        Map<?, ?> result;
-        if (value == null || value.isEmpty()) {
-            result = Collections.emptyMap();
-        } else {
-            try {
-                ObjectMapper mapper = objectMapper();
-                result = mapper.readValue(new StringReader(value) {
-                    @Override
-                    public String toString() {
-                        return "'config' key of 'data' section of ConfigMap '" + cm.getMetadata().getName() + "' in namespace '" + cm.getMetadata().getNamespace() + "'";
-                    }
-                }, Map.class);
-            } catch (IOException e) {
-                throw new InvalidConfigMapException(cm, "ConfigMap's 'data' section has invalid key '" +
-                        CM_KEY_CONFIG + "': " + (e.getMessage() != null ? e.getMessage() : e.toString()));
-            }
+    /**
+     * Shared by all the parsers and generators.
+     * A {@code JsonFactory} is thread-safe once configured, and reuses its buffers
+     * and symbol tables across parsers.
+     */
+    private static final JsonFactory JSON_FACTORY = new JsonFactory()
+            .configure(JsonParser.Feature.INCLUDE_SOURCE_IN_LOCATION, false);
+
+    /**
+     * Thrown when a topic config JSON object is syntactically valid JSON, but has a value which is not a string.
+     */
+    private static class InvalidConfigValueException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private final String key;
+
+        InvalidConfigValueException(String key, String message) {
+            super(message);
+            this.key = key;
         }
+    }
 
-        for (Map.Entry<?, ?> entry : result.entrySet()) {
-            Object key = entry.getKey();
-            String msg = null;
-            if (!(key instanceof String)) {
-                msg = "The must be of type String, not of type " + key.getClass();
+    /**
+     * Read the topic config JSON object the given {@code parser} is positioned at the start of,
+     * adding each entry to the given {@code builder}.
+     */
+    private static void readConfig(JsonParser parser, Topic.Builder builder) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Expected a JSON object but got " + parser.currentToken());
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String key = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.VALUE_STRING) {
+                builder.withConfigEntry(key, parser.getText());
+                continue;
             }
-            Object v = entry.getValue();
-            if (v == null) {
+            final String msg;
+            if (token == JsonToken.VALUE_NULL) {
                 msg = "The value corresponding to the key must have a String value, not null";
-            } else if (!(v instanceof String)) {
-                msg = "The value corresponding to the key must have a String value, not a value of type " + v.getClass();
-            }
-            if (msg != null) {
-                throw new InvalidConfigMapException(cm, "ConfigMap's 'data' section has invalid key '" +
-                        CM_KEY_CONFIG + "': The key '" + key + "' of the topic config is invalid: " + msg);
+            } else {
+                msg = "The value corresponding to the key must have a String value, not a value of type " + valueType(parser, token);
             }
+            throw new InvalidConfigValueException(key, msg);
+        }
+    }
+
+    /** The type the value at the given token would have been bound to by an {@code ObjectMapper}. */
+    private static Class<?> valueType(JsonParser parser, JsonToken token) throws IOException {
+        switch (token) {
+            case VALUE_NUMBER_INT:
+                return parser.getNumberValue().getClass();
+            case VALUE_NUMBER_FLOAT:
+                return Double.class;
+            case VALUE_TRUE:
+            case VALUE_FALSE:
+                return Boolean.class;
+            case START_ARRAY:
+                return ArrayList.class;
+            case START_OBJECT:
+                return LinkedHashMap.class;
+            default:
+                return Object.class;
+        }
+    }
+
+    private static void writeConfig(JsonGenerator generator, Map<String, String> config) throws IOException {
+        generator.writeStartObject();
+        for (Map.Entry<String, String> entry : config.entrySet()) {
+            generator.writeStringField(entry.getKey(), entry.getValue());
+        }
+        generator.writeEndObject();
+    }
+
+    private static void topicConfigFromConfigMapString(ConfigMap cm, Topic.Builder builder) {
+        String value = cm.getData().get(CM_KEY_CONFIG);
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        try (JsonParser parser = JSON_FACTORY.createParser(value)) {
+            parser.nextToken();
+            readConfig(parser, builder);
+        } catch (InvalidConfigValueException e) {
+            throw new InvalidConfigMapException(cm, "ConfigMap's 'data' section has invalid key '" +
+                    CM_KEY_CONFIG + "': The key '" + e.key + "' of the topic config is invalid: " + e.getMessage());
+        } catch (IOException e) {
+            throw new InvalidConfigMapException(cm, "ConfigMap's 'data' section has invalid key '" +
+                    CM_KEY_CONFIG + "': " + (e.getMessage() != null ? e.getMessage() : e.toString()));
         }
-        return (Map<String, String>) result;
     }
 
     private static String topicConfigToConfigMapString(Map<String, String> config) throws IOException {
-        ObjectMapper mapper = objectMapper();
         StringWriter sw = new StringWriter();
-        mapper.writeValue(sw, config);
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(sw)) {
+            writeConfig(generator, config);
+        }
         return sw.toString();
     }
 
@@ -108,8 +161,8 @@ public class TopicSerialization {
                 .withMapName(cm.getMetadata().getName())
                 .withTopicName(getTopicName(cm))
                 .withNumPartitions(getPartitions(cm))
-                .withNumReplicas(getReplicas(cm))
-                .withConfig(topicConfigFromConfigMapString(cm));
+                .withNumReplicas(getReplicas(cm));
+        topicConfigFromConfigMapString(cm, builder);
         return builder.build();
     }
 
@@ -194,6 +247,29 @@ public class TopicSerialization {
     }
 
 
+    /**
+     * Return just those entries of the 'data' section of the ConfigMap for the given {@code topic}
+     * which are changed by the given {@code diff}, suitable for a merge patch of the ConfigMap.
+     * The topic config is a single entry, so if any config entry changes the whole config is included.
+     */
+    public static Map<String, String> toConfigMapDataPatch(Topic topic, TopicDiff diff) {
+        Map<String, String> patch = new HashMap<>();
+        if (diff.changesNumPartitions()) {
+            patch.put(CM_KEY_PARTITIONS, Integer.toString(topic.getNumPartitions()));
+        }
+        if (diff.changesReplicationFactor()) {
+            patch.put(CM_KEY_REPLICAS, Short.toString(topic.getNumReplicas()));
+        }
+        if (diff.changesConfig()) {
+            try {
+                patch.put(CM_KEY_CONFIG, topicConfigToConfigMapString(topic.getConfig()));
+            } catch (IOException e) {
+                throw new RuntimeException("Error converting topic config to a string, for topic '" + topic.getTopicName() + "'", e);
+            }
+        }
+        return patch;
+    }
+
     /**
      * Create a NewTopic to reflect the given Topic.
      */
@@ -263,22 +339,17 @@ public class TopicSerialization {
      * This is what is stored in the znodes owned by the {@link ZkTopicStore}.
      */
     public static byte[] toJson(Topic topic) {
-        ObjectMapper mapper = objectMapper();
-        ObjectNode root = mapper.createObjectNode();
-        // TODO Do we store the k8s uid here?
-        root.put(JSON_KEY_MAP_NAME, topic.getOrAsMapName().toString());
-        root.put(JSON_KEY_TOPIC_NAME, topic.getTopicName().toString());
-        root.put(JSON_KEY_PARTITIONS, topic.getNumPartitions());
-        root.put(JSON_KEY_REPLICAS, topic.getNumReplicas());
-
-        ObjectNode config = mapper.createObjectNode();
-        for (Map.Entry<String, String> entry : topic.getConfig().entrySet()) {
-            config.put(entry.getKey(), entry.getValue());
-        }
-        root.set(JSON_KEY_CONFIG, config);
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        try {
-            mapper.writeValue(baos, root);
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(baos, JsonEncoding.UTF8)) {
+            generator.writeStartObject();
+            // TODO Do we store the k8s uid here?
+            generator.writeStringField(JSON_KEY_MAP_NAME, topic.getOrAsMapName().toString());
+            generator.writeStringField(JSON_KEY_TOPIC_NAME, topic.getTopicName().toString());
+            generator.writeNumberField(JSON_KEY_PARTITIONS, topic.getNumPartitions());
+            generator.writeNumberField(JSON_KEY_REPLICAS, topic.getNumReplicas());
+            generator.writeFieldName(JSON_KEY_CONFIG);
+            writeConfig(generator, topic.getConfig());
+            generator.writeEndObject();
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -289,31 +360,39 @@ public class TopicSerialization {
      * Returns the Topic represented by the given UTF-8 encoded JSON.
      * This is what is stored in the znodes owned by the {@link ZkTopicStore}.
      */
-    @SuppressWarnings("unchecked")
     public static Topic fromJson(byte[] json) {
-        ObjectMapper mapper = objectMapper();
-        Map<String, Object> root = null;
-        try {
-            root = mapper.readValue(json, Map.class);
+        Topic.Builder builder = new Topic.Builder();
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expected a JSON object but got " + parser.currentToken());
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                switch (field) {
+                    case JSON_KEY_TOPIC_NAME:
+                        builder.withTopicName(parser.getText());
+                        break;
+                    case JSON_KEY_MAP_NAME:
+                        builder.withMapName(parser.getText());
+                        break;
+                    case JSON_KEY_PARTITIONS:
+                        builder.withNumPartitions(parser.getIntValue());
+                        break;
+                    case JSON_KEY_REPLICAS:
+                        builder.withNumReplicas(parser.getShortValue());
+                        break;
+                    case JSON_KEY_CONFIG:
+                        readConfig(parser, builder);
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
-        Topic.Builder builder = new Topic.Builder();
-        builder.withTopicName((String) root.get(JSON_KEY_TOPIC_NAME))
-                .withMapName((String) root.get(JSON_KEY_MAP_NAME))
-                .withNumPartitions((Integer) root.get(JSON_KEY_PARTITIONS))
-                .withNumReplicas(((Integer) root.get(JSON_KEY_REPLICAS)).shortValue());
-        Map<String, String> config = (Map) root.get(JSON_KEY_CONFIG);
-        for (Map.Entry<String, String> entry : config.entrySet()) {
-            builder.withConfigEntry(entry.getKey(), entry.getValue());
-        }
         return builder.build();
     }
 
-    private static ObjectMapper objectMapper() {
-        JsonFactory jf = new JsonFactory();
-        jf.configure(JsonParser.Feature.INCLUDE_SOURCE_IN_LOCATION, false);
-        return new ObjectMapper(jf);
-    }
-
 }
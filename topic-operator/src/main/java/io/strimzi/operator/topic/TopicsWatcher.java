@@ -4,12 +4,10 @@
  */
 package io.strimzi.operator.topic;
 
-import io.strimzi.operator.topic.zk.Zk;
+import io.strimzi.operator.topic.zk.ZkWatchManager;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.util.HashSet;
-import java.util.List;
 import java.util.Set;
 
 /**
@@ -27,7 +25,7 @@ class TopicsWatcher {
     private final TopicConfigsWatcher tcw;
     private final TopicWatcher tw;
 
-    private List<String> children;
+    private volatile ZkWatchManager watchManager;
 
     private volatile int state = 0;
 
@@ -54,66 +52,55 @@ class TopicsWatcher {
         return this.state == 1;
     }
 
-    void start(Zk zk) {
-        children = null;
-        tcw.start(zk);
-        tw.start(zk);
-        zk.watchChildren(TOPICS_ZNODE, childResult -> {
-            if (state == 2) {
-                zk.unwatchChildren(TOPICS_ZNODE);
-                return;
-            }
+    void start(ZkWatchManager watchManager) {
+        this.watchManager = watchManager;
+        tcw.start(watchManager);
+        tw.start(watchManager);
+        watchManager.watchChildren(TOPICS_ZNODE, this::topicsChanged, childResult -> {
             if (childResult.failed()) {
                 LOGGER.error("Error on znode {} children", TOPICS_ZNODE, childResult.cause());
                 return;
             }
-            List<String> result = childResult.result();
-            LOGGER.debug("znode {} now has children {}, previous children {}", TOPICS_ZNODE, result, this.children);
-            Set<String> deleted = new HashSet<>(this.children);
-            deleted.removeAll(result);
-            Set<String> created = new HashSet<>(result);
-            created.removeAll(this.children);
-            this.children = result;
+            Set<String> result = childResult.result();
+            LOGGER.debug("Setting initial children {}", result);
+            this.state = 1;
+        });
+    }
 
-            if (!deleted.isEmpty()) {
-                LOGGER.info("Deleted topics: {}", deleted);
-                for (String topicName : deleted) {
-                    tcw.removeChild(topicName);
-                    tw.removeChild(topicName);
-                    topicOperator.onTopicDeleted(new TopicName(topicName), ar -> {
-                        if (ar.succeeded()) {
-                            LOGGER.debug("Success responding to deletion of topic {}", topicName);
-                        } else {
-                            LOGGER.warn("Error responding to deletion of topic {}", topicName, ar.cause());
-                        }
-                    });
-                }
-            }
+    private void topicsChanged(String path, Set<String> created, Set<String> deleted) {
+        if (state == 2) {
+            watchManager.unwatchChildren(TOPICS_ZNODE);
+            return;
+        }
 
-            if (!created.isEmpty()) {
-                LOGGER.info("Created topics: {}", created);
-                for (String topicName : created) {
-                    tcw.addChild(topicName);
-                    tw.addChild(topicName);
-                    topicOperator.onTopicCreated(new TopicName(topicName), ar -> {
-                        if (ar.succeeded()) {
-                            LOGGER.debug("Success responding to creation of topic {}", topicName);
-                        } else {
-                            LOGGER.warn("Error responding to creation of topic {}", topicName, ar.cause());
-                        }
-                    });
-                }
+        if (!deleted.isEmpty()) {
+            LOGGER.info("Deleted topics: {}", deleted);
+            for (String topicName : deleted) {
+                tcw.removeChild(topicName);
+                tw.removeChild(topicName);
+                topicOperator.onTopicDeleted(new TopicName(topicName), ar -> {
+                    if (ar.succeeded()) {
+                        LOGGER.debug("Success responding to deletion of topic {}", topicName);
+                    } else {
+                        LOGGER.warn("Error responding to deletion of topic {}", topicName, ar.cause());
+                    }
+                });
             }
+        }
 
-        }).children(TOPICS_ZNODE, childResult -> {
-            if (childResult.failed()) {
-                LOGGER.error("Error on znode {} children", TOPICS_ZNODE, childResult.cause());
-                return;
+        if (!created.isEmpty()) {
+            LOGGER.info("Created topics: {}", created);
+            for (String topicName : created) {
+                tcw.addChild(topicName);
+                tw.addChild(topicName);
+                topicOperator.onTopicCreated(new TopicName(topicName), ar -> {
+                    if (ar.succeeded()) {
+                        LOGGER.debug("Success responding to creation of topic {}", topicName);
+                    } else {
+                        LOGGER.warn("Error responding to creation of topic {}", topicName, ar.cause());
+                    }
+                });
             }
-            List<String> result = childResult.result();
-            LOGGER.debug("Setting initial children {}", result);
-            this.children = result;
-            this.state = 1;
-        });
+        }
     }
 }
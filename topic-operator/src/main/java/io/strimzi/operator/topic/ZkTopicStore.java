@@ -9,29 +9,111 @@ import io.strimzi.operator.topic.zk.Zk;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.zookeeper.CreateMode;
 import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.Op;
+import org.apache.zookeeper.OpResult;
 import org.apache.zookeeper.data.ACL;
+import org.apache.zookeeper.data.Stat;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Implementation of {@link TopicStore} that stores the topic state in ZooKeeper.
+ *
+ * When constructed with a {@link Vertx} instance, writes (creates, updates and deletes) are
+ * batched: Pending writes are executed together in a single ZooKeeper
+ * {@linkplain Zk#multi(Iterable, Handler) multi()} transaction once {@code maxBatchSize} writes are pending,
+ * or {@code flushWindowMs} after the first write of the batch, whichever happens sooner.
+ * If the transaction fails, the writes which caused the failure are failed, and the others
+ * (which were rolled back) are retried individually.
+ *
+ * Topics are cached once they've been read, and the cache is kept current by a
+ * {@linkplain Zk#watchData(String, Handler) data watch} on their znode, so that subsequent
+ * reads don't need to go to ZooKeeper. Updates and deletes are conditional on the
+ * version of the znode we last read or wrote.
+ * The watches are lost if the session expires, so the cache is cleared when a new session is established.
  */
 public class ZkTopicStore implements TopicStore {
 
     private final static Logger LOGGER = LogManager.getLogger(ZkTopicStore.class);
     public static final String TOPICS_PATH = "/strimzi/topics";
 
+    /** The default maximum number of writes in a batch. */
+    public static final int DEFAULT_MAX_BATCH_SIZE = 100;
+
+    /** The default time to wait for further writes before a batch is executed. */
+    public static final long DEFAULT_FLUSH_WINDOW_MS = 2;
+
     private final Zk zk;
 
     private final List<ACL> acl;
 
+    private final Vertx vertx;
+    private final int maxBatchSize;
+    private final long flushWindowMs;
+
+    /** The topics we've read or written, with the version of their znode. */
+    private final ConcurrentHashMap<TopicName, CachedTopic> cache = new ConcurrentHashMap<>();
+
+    private List<PendingWrite> pending = new ArrayList<>();
+    private Long flushTimerId;
+
+    private static class CachedTopic {
+        private final Topic topic;
+        private final byte[] data;
+        private final int version;
+
+        CachedTopic(Topic topic, byte[] data, int version) {
+            this.topic = topic;
+            this.data = data;
+            this.version = version;
+        }
+    }
+
+    /** A write waiting to be executed as part of a batch. */
+    private static class PendingWrite {
+        private final Op op;
+        private final Handler<Handler<AsyncResult<Void>>> individually;
+        private final Handler<AsyncResult<Void>> handler;
+
+        PendingWrite(Op op, Handler<Handler<AsyncResult<Void>>> individually, Handler<AsyncResult<Void>> handler) {
+            this.op = op;
+            this.individually = individually;
+            this.handler = handler;
+        }
+    }
+
+    /**
+     * Construct a store which executes each write individually.
+     */
     public ZkTopicStore(Zk zk) {
+        this(zk, null, 1, 0);
+    }
+
+    /**
+     * Construct a store which batches writes using the default batch size and flush window.
+     */
+    public ZkTopicStore(Zk zk, Vertx vertx) {
+        this(zk, vertx, DEFAULT_MAX_BATCH_SIZE, DEFAULT_FLUSH_WINDOW_MS);
+    }
+
+    public ZkTopicStore(Zk zk, Vertx vertx, int maxBatchSize, long flushWindowMs) {
         this.zk = zk;
+        this.vertx = vertx;
+        this.maxBatchSize = maxBatchSize;
+        this.flushWindowMs = flushWindowMs;
         acl = new AclBuilder().setWorld(AclBuilder.Permission.values()).build();
+        zk.onSessionReestablished(ignored -> {
+            LOGGER.info("New ZooKeeper session, clearing the {} cached topics", cache.size());
+            cache.clear();
+        });
         createParent("/strimzi");
         createParent(TOPICS_PATH);
     }
@@ -52,15 +134,55 @@ public class ZkTopicStore implements TopicStore {
         return TOPICS_PATH + "/" + name;
     }
 
+    /**
+     * Get a handler which keeps the cached entry for the given topic current.
+     * Our own writes also trigger the watch, but leave the cache as it is because they're
+     * written through to the cache with their version.
+     * Other changes invalidate the cache, so the next read gets the new data and version.
+     * Because watch notifications can be handled after the completion of a later write of ours
+     * the data is not enough to tell whether the cache is stale, so the version is checked too.
+     */
+    private Handler<AsyncResult<byte[]>> cacheWatcher(TopicName topicName, String topicPath) {
+        return result -> {
+            if (result.succeeded()) {
+                CachedTopic cached = cache.get(topicName);
+                if (cached != null && !Arrays.equals(cached.data, result.result())) {
+                    Stat stat = new Stat();
+                    zk.getData(topicPath, stat, current -> {
+                        if (current.failed() || stat.getVersion() != cached.version) {
+                            LOGGER.debug("znode {} changed, invalidating cached topic", topicPath);
+                            cache.remove(topicName, cached);
+                        }
+                    });
+                }
+            } else {
+                LOGGER.debug("znode {} deleted, invalidating cached topic", topicPath);
+                cache.remove(topicName);
+                if (result.cause() instanceof KeeperException.NoNodeException) {
+                    zk.unwatchData(topicPath);
+                }
+            }
+        };
+    }
+
     @Override
     public void read(TopicName topicName, Handler<AsyncResult<Topic>> handler) {
+        CachedTopic cached = cache.get(topicName);
+        if (cached != null) {
+            handler.handle(Future.succeededFuture(cached.topic));
+            return;
+        }
         String topicPath = getTopicPath(topicName);
         LOGGER.debug("read znode {}", topicPath);
-        zk.getData(topicPath, result -> {
+        Stat stat = new Stat();
+        zk.watchData(topicPath, cacheWatcher(topicName, topicPath)).getData(topicPath, stat, result -> {
             final AsyncResult<Topic> fut;
             if (result.succeeded()) {
-                fut = Future.succeededFuture(TopicSerialization.fromJson(result.result()));
+                Topic topic = TopicSerialization.fromJson(result.result());
+                cache.put(topicName, new CachedTopic(topic, result.result(), stat.getVersion()));
+                fut = Future.succeededFuture(topic);
             } else {
+                zk.unwatchData(topicPath);
                 if (result.cause() instanceof KeeperException.NoNodeException) {
                     fut = Future.succeededFuture(null);
                 } else {
@@ -71,39 +193,179 @@ public class ZkTopicStore implements TopicStore {
         });
     }
 
+    /**
+     * Call the given handler with the cached version of the given topic,
+     * reading the topic first if it's not cached.
+     * The version is -1 if the topic doesn't exist.
+     */
+    private void version(TopicName topicName, Handler<AsyncResult<Integer>> handler) {
+        CachedTopic cached = cache.get(topicName);
+        if (cached != null) {
+            handler.handle(Future.succeededFuture(cached.version));
+        } else {
+            read(topicName, readResult -> {
+                CachedTopic read = cache.get(topicName);
+                handler.handle(readResult.map(read != null ? read.version : -1));
+            });
+        }
+    }
+
     @Override
     public void create(Topic topic, Handler<AsyncResult<Void>> handler) {
         byte[] data = TopicSerialization.toJson(topic);
         String topicPath = getTopicPath(topic.getTopicName());
         LOGGER.debug("create znode {}", topicPath);
-        zk.create(topicPath, data, acl, CreateMode.PERSISTENT, result -> {
-            if (result.failed() && result.cause() instanceof KeeperException.NodeExistsException) {
-                handler.handle(Future.failedFuture(new EntityExistsException()));
-            } else {
-                handler.handle(result);
-            }
-        });
+        write(Op.create(topicPath, data, acl, CreateMode.PERSISTENT),
+            h -> zk.create(topicPath, data, acl, CreateMode.PERSISTENT, h),
+            result -> {
+                if (result.failed() && result.cause() instanceof KeeperException.NodeExistsException) {
+                    handler.handle(Future.failedFuture(new EntityExistsException()));
+                } else {
+                    handler.handle(result);
+                }
+            });
     }
 
+    /**
+     * {@inheritDoc}
+     * The update is conditional on the znode having the version we last read or wrote.
+     * If the znode was concurrently modified the handler is called with a failed result whose
+     * {@code cause()} is a {@link KeeperException.BadVersionException}.
+     */
     @Override
     public void update(Topic topic, Handler<AsyncResult<Void>> handler) {
         byte[] data = TopicSerialization.toJson(topic);
-        // TODO pass a non-zero version
-        String topicPath = getTopicPath(topic.getTopicName());
-        LOGGER.debug("update znode {}", topicPath);
-        zk.setData(topicPath, data, -1, handler);
+        TopicName topicName = topic.getTopicName();
+        String topicPath = getTopicPath(topicName);
+        version(topicName, versionResult -> {
+            if (versionResult.failed()) {
+                handler.handle(versionResult.map((Void) null));
+                return;
+            }
+            int version = versionResult.result();
+            LOGGER.debug("update znode {} at version {}", topicPath, version);
+            write(Op.setData(topicPath, data, version),
+                h -> zk.setData(topicPath, data, version, h),
+                result -> {
+                    if (result.succeeded() && version != -1) {
+                        cache.put(topicName, new CachedTopic(topic, data, version + 1));
+                    } else {
+                        cache.remove(topicName);
+                    }
+                    handler.handle(result);
+                });
+        });
     }
 
+    /**
+     * {@inheritDoc}
+     * The delete is conditional on the znode having the version we last read or wrote.
+     * If the znode was concurrently modified the handler is called with a failed result whose
+     * {@code cause()} is a {@link KeeperException.BadVersionException}.
+     */
     @Override
     public void delete(TopicName topicName, Handler<AsyncResult<Void>> handler) {
-        // TODO pass a non-zero version
         String topicPath = getTopicPath(topicName);
-        LOGGER.debug("delete znode {}", topicPath);
-        zk.delete(topicPath, -1, result -> {
-            if (result.failed() && result.cause() instanceof KeeperException.NoNodeException) {
-                handler.handle(Future.failedFuture(new NoSuchEntityExistsException()));
-            } else {
-                handler.handle(result);
+        version(topicName, versionResult -> {
+            if (versionResult.failed()) {
+                handler.handle(versionResult.map((Void) null));
+                return;
+            }
+            int version = versionResult.result();
+            LOGGER.debug("delete znode {} at version {}", topicPath, version);
+            write(Op.delete(topicPath, version),
+                h -> zk.delete(topicPath, version, h),
+                result -> {
+                    cache.remove(topicName);
+                    if (result.succeeded()) {
+                        zk.unwatchData(topicPath);
+                    }
+                    if (result.failed() && result.cause() instanceof KeeperException.NoNodeException) {
+                        handler.handle(Future.failedFuture(new NoSuchEntityExistsException()));
+                    } else {
+                        handler.handle(result);
+                    }
+                });
+        });
+    }
+
+    /**
+     * Execute the given write, either {@code individually}, or as the given {@code op} as part of a batch,
+     * calling the given handler with the result.
+     */
+    private void write(Op op, Handler<Handler<AsyncResult<Void>>> individually, Handler<AsyncResult<Void>> handler) {
+        if (vertx == null || maxBatchSize <= 1) {
+            individually.handle(handler);
+            return;
+        }
+        List<PendingWrite> batch = null;
+        synchronized (this) {
+            pending.add(new PendingWrite(op, individually, handler));
+            if (pending.size() >= maxBatchSize) {
+                batch = takePending();
+            } else if (flushTimerId == null) {
+                flushTimerId = vertx.setTimer(flushWindowMs, timerId -> {
+                    List<PendingWrite> timedBatch;
+                    synchronized (this) {
+                        flushTimerId = null;
+                        timedBatch = takePending();
+                    }
+                    execute(timedBatch);
+                });
+            }
+        }
+        if (batch != null) {
+            execute(batch);
+        }
+    }
+
+    private synchronized List<PendingWrite> takePending() {
+        if (flushTimerId != null) {
+            vertx.cancelTimer(flushTimerId);
+            flushTimerId = null;
+        }
+        List<PendingWrite> batch = pending;
+        pending = new ArrayList<>();
+        return batch;
+    }
+
+    private void execute(List<PendingWrite> batch) {
+        if (batch.isEmpty()) {
+            return;
+        } else if (batch.size() == 1) {
+            PendingWrite write = batch.get(0);
+            write.individually.handle(write.handler);
+            return;
+        }
+        LOGGER.debug("Executing batch of {} writes", batch.size());
+        List<Op> ops = new ArrayList<>(batch.size());
+        for (PendingWrite write : batch) {
+            ops.add(write.op);
+        }
+        zk.multi(ops, ar -> {
+            if (ar.failed()) {
+                for (PendingWrite write : batch) {
+                    write.handler.handle(Future.failedFuture(ar.cause()));
+                }
+                return;
+            }
+            List<OpResult> results = ar.result();
+            for (int i = 0; i < batch.size(); i++) {
+                PendingWrite write = batch.get(i);
+                OpResult result = results.get(i);
+                if (!(result instanceof OpResult.ErrorResult)) {
+                    write.handler.handle(Future.succeededFuture());
+                } else {
+                    KeeperException.Code code = KeeperException.Code.get(((OpResult.ErrorResult) result).getErr());
+                    if (code == KeeperException.Code.OK
+                            || code == KeeperException.Code.RUNTIMEINCONSISTENCY) {
+                        // This write was rolled back because of another write in the batch
+                        LOGGER.debug("Retrying rolled back write to {}", write.op.getPath());
+                        write.individually.handle(write.handler);
+                    } else {
+                        write.handler.handle(Future.failedFuture(KeeperException.create(code, write.op.getPath())));
+                    }
+                }
             }
         });
     }
@@ -4,13 +4,11 @@
  */
 package io.strimzi.operator.topic;
 
-import io.strimzi.operator.topic.zk.Zk;
+import io.strimzi.operator.topic.zk.ZkWatchManager;
 import io.vertx.core.AsyncResult;
-import io.vertx.core.Handler;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-
-import java.util.concurrent.ConcurrentHashMap;
+import org.apache.zookeeper.KeeperException;
 
 /**
  * Base abstract class for a ZooKeeper watcher for child znodes
@@ -21,9 +19,9 @@ public abstract class ZkWatcher {
 
     protected final TopicOperator topicOperator;
     private volatile ZkWatcherState state = ZkWatcherState.NOT_STARTED;
-    private volatile Zk zk;
+    private volatile ZkWatchManager watchManager;
 
-    private final ConcurrentHashMap<String, Boolean> children = new ConcurrentHashMap<>();
+    private final ZkWatchManager.DataListener listener = this::dataChanged;
     private final String rootZNode;
 
     /**
@@ -40,10 +38,10 @@ public abstract class ZkWatcher {
     /**
      * Start the watcher
      *
-     * @param zk    Zookeeper client instance
+     * @param watchManager    Manager of the watches with the Zookeeper client instance
      */
-    protected void start(Zk zk) {
-        this.zk = zk;
+    protected void start(ZkWatchManager watchManager) {
+        this.watchManager = watchManager;
         this.state = ZkWatcherState.STARTED;
     }
 
@@ -67,22 +65,20 @@ public abstract class ZkWatcher {
      * @param child child to watch
      */
     protected void addChild(String child) {
-        this.children.put(child, false);
         String path = getPath(child);
         log.debug("Watching znode {} for changes", path);
-        Handler<AsyncResult<byte[]>> handler = dataResult -> {
-            if (dataResult.succeeded()) {
-                this.children.compute(child, (k, v) -> {
-                    if (v) {
-                        this.notifyOperator(child);
-                    }
-                    return true;
-                });
-            } else {
-                log.error("While getting or watching znode {}", path, dataResult.cause());
-            }
-        };
-        zk.watchData(path, handler).getData(path, handler);
+        watchManager.watchData(path, listener);
+    }
+
+    private void dataChanged(String path, AsyncResult<byte[]> dataResult) {
+        if (dataResult.succeeded()) {
+            this.notifyOperator(path.substring(rootZNode.length() + 1));
+        } else if (dataResult.cause() instanceof KeeperException.NoNodeException) {
+            // The topic was deleted, which is handled via the children watch of the root znode
+            log.debug("Znode {} was deleted", path);
+        } else {
+            log.error("While getting or watching znode {}", path, dataResult.cause());
+        }
     }
 
     /**
@@ -92,8 +88,7 @@ public abstract class ZkWatcher {
      */
     protected void removeChild(String child) {
         log.debug("Unwatching znode {} for changes", child);
-        this.children.remove(child);
-        zk.unwatchData(getPath(child));
+        watchManager.unwatchData(getPath(child), listener);
     }
 
     /**
@@ -113,7 +108,7 @@ public abstract class ZkWatcher {
      * @return  If the passed child is currently watched
      */
     protected boolean watching(String child) {
-        return this.children.containsKey(child);
+        return watchManager != null && watchManager.watchingData(getPath(child));
     }
 
     /**
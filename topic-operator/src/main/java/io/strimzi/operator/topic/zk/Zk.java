@@ -8,6 +8,8 @@ import io.vertx.core.AsyncResult;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.Op;
+import org.apache.zookeeper.OpResult;
 import org.apache.zookeeper.data.ACL;
 import org.apache.zookeeper.data.Stat;
 
@@ -18,8 +20,8 @@ import java.util.List;
  */
 public interface Zk {
 
-    public static Zk create(Vertx vertx, String zkConnectionString, int sessionTimeout) {
-        return new ZkImpl(vertx, zkConnectionString, sessionTimeout, false);
+    public static Zk create(Vertx vertx, String zkConnectionString, int sessionTimeout, String namespace) {
+        return new ZkImpl(vertx, zkConnectionString, sessionTimeout, false, namespace);
     }
 
     /**
@@ -71,11 +73,19 @@ public interface Zk {
      */
     Zk getData(String path, Handler<AsyncResult<byte[]>> handler);
 
+    /**
+     * Like {@link #getData(String, Handler)}, but additionally populating the given {@code stat}
+     * with the {@link Stat} of the znode before the handler is called.
+     */
+    Zk getData(String path, Stat stat, Handler<AsyncResult<byte[]>> handler);
+
     /**
      * Set given the data {@code watcher} on the given {@code path}.
      * A subsequent call to {@link #getData(String, Handler)} with the same path will register the data {@code watcher}
      * for the given {@code path} current at that time with zookeeper so
      * that that {@code watcher} is called when the data of the given {@code path} changes.
+     * If the znode is deleted the {@code watcher} is called with a failed result whose cause is a
+     * {@link org.apache.zookeeper.KeeperException.NoNodeException}.
      */
     Zk watchData(String path, Handler<AsyncResult<byte[]>> watcher);
 
@@ -104,7 +114,27 @@ public interface Zk {
      */
     Zk unwatchExists(String path);
 
-    // TODO getAcl(), setAcl(), multi()
+    /**
+     * Asynchronously execute the given {@code ops} in a single transaction,
+     * calling the given handler with the result of each op.
+     * If the transaction was not applied the handler is still called with a
+     * successful result, but the list will contain an {@link org.apache.zookeeper.OpResult.ErrorResult}
+     * for each op: The op(s) responsible for the failure will have a non-zero
+     * {@link org.apache.zookeeper.OpResult.ErrorResult#getErr() error code}.
+     * The handler is only called with a failed result when no per-op results were
+     * available, for example on connection loss.
+     */
+    Zk multi(Iterable<Op> ops, Handler<AsyncResult<List<OpResult>>> handler);
+
+    /**
+     * Add a {@code handler} to be called whenever a new session has been established because the previous
+     * session expired.
+     * The watches set with zookeeper in the expired session are lost, so need to be set again
+     * (see {@link ZkWatchManager}).
+     */
+    Zk onSessionReestablished(Handler<Void> handler);
+
+    // TODO getAcl(), setAcl()
 
 }
 
@@ -4,6 +4,7 @@
  */
 package io.strimzi.operator.topic.zk;
 
+import io.prometheus.client.Histogram;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
@@ -13,6 +14,8 @@ import org.apache.logging.log4j.Logger;
 import org.apache.zookeeper.AsyncCallback;
 import org.apache.zookeeper.CreateMode;
 import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.Op;
+import org.apache.zookeeper.OpResult;
 import org.apache.zookeeper.WatchedEvent;
 import org.apache.zookeeper.Watcher;
 import org.apache.zookeeper.ZooKeeper;
@@ -21,9 +24,12 @@ import org.apache.zookeeper.data.Stat;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Implementation of {@link Zk}
@@ -34,37 +40,73 @@ public class ZkImpl implements Zk {
     public static final String PREFIX_DATA = "data:";
     public static final String PREFIX_CHILDREN = "children:";
     public static final String PREFIX_EXISTS = "exists:";
+
+    /** Requests made to zookeeper, excluding those made to re-set watches. */
+    static final Histogram REQUESTS = Histogram.build()
+            .name("strimzi_topic_operator_zookeeper_request_duration_seconds")
+            .help("The duration of ZooKeeper requests, by operation and outcome")
+            .labelNames("namespace", "operation", "outcome")
+            .register();
+
     private final boolean readOnly;
 
     private final String zkConnectionString;
     private final int sessionTimeout;
     private final Vertx vertx;
-    private final ZooKeeper zk;
-
-    // Only accessed on the vertx context.
+    // The namespace of the operator using this connection, for metrics
+    private final String namespace;
+    // The current ZooKeeper instance (and so session), or null once disconnected.
+    // It's swapped atomically when a new session is established, so operations don't need a lock:
+    // They just use whichever instance is current when they're called.
+    private final AtomicReference<ZooKeeper> session = new AtomicReference<>();
+
+    // Accessed from both the vertx context and the ZooKeeper event thread.
     private final ConcurrentHashMap<String, Handler<? extends AsyncResult<?>>> watches = new ConcurrentHashMap<>();
 
-    // TODO We need to reset the watches on reconnection.
+    // The paths with a data watch currently set with zookeeper, so we don't set another
+    private final Set<String> armedDataWatches = ConcurrentHashMap.newKeySet();
+
+    private final List<Handler<Void>> sessionReestablishedHandlers = new CopyOnWriteArrayList<>();
+
     // TODO We need to retry methods which fail due to connection loss, up to some limit/time
     // We should probably try to avoid stampede though, so random exponential backoff
 
-    public ZkImpl(Vertx vertx, String zkConnectionString, int sessionTimeout, boolean readOnly) {
+    public ZkImpl(Vertx vertx, String zkConnectionString, int sessionTimeout, boolean readOnly, String namespace) {
         this.vertx = vertx;
+        this.namespace = namespace;
         this.zkConnectionString = zkConnectionString;
         this.sessionTimeout = sessionTimeout;
         this.readOnly = readOnly;
         CompletableFuture<Void> f = new CompletableFuture<>();
+        session.set(connect(f));
+        try {
+            f.get();
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else {
+                throw new RuntimeException(cause);
+            }
+        }
+    }
+
+    /**
+     * Create a new {@link ZooKeeper} (and so a new session), completing the given {@code connected} future
+     * when it's first connected.
+     */
+    private ZooKeeper connect(CompletableFuture<Void> connected) {
         try {
-            zk = new ZooKeeper(zkConnectionString, sessionTimeout, watchedEvent -> {
+            return new ZooKeeper(zkConnectionString, sessionTimeout, watchedEvent -> {
                 // See https://wiki.apache.org/hadoop/ZooKeeper/FAQ
                 // for state transitions
                 Watcher.Event.KeeperState state = watchedEvent.getState();
                 LOGGER.debug("In state {}", state);
-                final Future<Zk> future;
-                final Handler<AsyncResult<Zk>> handler;
                 switch (state) {
                     case AuthFailed:
-                        f.completeExceptionally(new RuntimeException("Zookeeper authentication failed"));
+                        connected.completeExceptionally(new RuntimeException("Zookeeper authentication failed"));
                     case SaslAuthenticated:
                         // TODO record that we're auth, so methods can reject ACLs with "auth" scheme?
                         break;
@@ -75,13 +117,15 @@ public class ZkImpl implements Zk {
                         }
                         /* fall through */
                     case SyncConnected:
-                        LOGGER.debug("Connected, session id {}", zk().getSessionId());
-                        f.complete(null);
+                        LOGGER.debug("Connected, session id {}", sessionId());
+                        connected.complete(null);
                         break;
                     case Expired:
                         // We've just been reconnected to the emsemble, and our session has expired while
-                        // we were disconnected
-                        f.complete(null);
+                        // we were disconnected. This ZooKeeper instance can't be used any more, so we need a new
+                        // one (and a new session). The watches set in the expired session are lost.
+                        connected.complete(null);
+                        reestablishSession();
                         break;
                     case Disconnected:
                         // We've just been disconnected from the emsemble. The ZooKeeper implementation
@@ -97,24 +141,52 @@ public class ZkImpl implements Zk {
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
-        try {
-            f.get();
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        } catch (ExecutionException e) {
-            Throwable cause = e.getCause();
-            if (cause instanceof RuntimeException) {
-                throw (RuntimeException) cause;
-            } else {
-                throw new RuntimeException(cause);
+    }
+
+    private void reestablishSession() {
+        ZooKeeper expired = session.get();
+        if (expired == null) {
+            // We've been disconnected meanwhile
+            return;
+        }
+        LOGGER.warn("Session expired, establishing a new session");
+        CompletableFuture<Void> connected = new CompletableFuture<>();
+        CompletableFuture<ZooKeeper> swapped = new CompletableFuture<>();
+        // Only once the new instance is current can the handlers use it
+        connected.runAfterBoth(swapped, () -> {
+            // None of the data watches are set in the new session
+            armedDataWatches.clear();
+            for (Handler<Void> handler : sessionReestablishedHandlers) {
+                vertx.runOnContext(handler);
             }
+        });
+        ZooKeeper fresh = connect(connected);
+        if (session.compareAndSet(expired, fresh)) {
+            swapped.complete(fresh);
+        } else {
+            // We've been disconnected meanwhile
+            closeQuietly(fresh);
         }
     }
 
-    private ZooKeeper zk() {
-        return zk;
+    private String sessionId() {
+        ZooKeeper zookeeper = session.get();
+        return zookeeper != null ? Long.toHexString(zookeeper.getSessionId()) : null;
+    }
+
+    private static void closeQuietly(ZooKeeper zookeeper) {
+        try {
+            zookeeper.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
+    @Override
+    public Zk onSessionReestablished(Handler<Void> handler) {
+        sessionReestablishedHandlers.add(handler);
+        return this;
+    }
 
     /**
      * Map the given rc result code to a KeeperException, then run the given handler on the vertx context.
@@ -139,56 +211,98 @@ public class ZkImpl implements Zk {
 
     @Override
     public Zk create(String path, byte[] data, List<ACL> acls, CreateMode createMode, Handler<AsyncResult<Void>> handler) {
-        ZooKeeper zookeeper;
-        synchronized (this) {
-            zookeeper = zk;
-        }
+        Handler<AsyncResult<Void>> timedHandler = timed("create", handler);
+        ZooKeeper zookeeper = session.get();
         if (zookeeper == null) {
-            handler.handle(Future.failedFuture(new IllegalStateException("Not connected")));
+            timedHandler.handle(Future.failedFuture(new IllegalStateException("Not connected")));
             return this;
         }
         zookeeper.create(path, data == null ? new byte[0] : data, acls, createMode,
-            (rc, path2, ctx, name) -> invokeOnContext(handler, path, rc, null), null);
+            (rc, path2, ctx, name) -> invokeOnContext(timedHandler, path, rc, null), null);
         return this;
     }
 
 
     @Override
     public Zk setData(String path, byte[] data, int version, Handler<AsyncResult<Void>> handler) {
-        ZooKeeper zookeeper;
-        synchronized (this) {
-            zookeeper = zk;
-        }
+        Handler<AsyncResult<Void>> timedHandler = timed("setData", handler);
+        ZooKeeper zookeeper = session.get();
         if (zookeeper == null) {
-            handler.handle(Future.failedFuture(new IllegalStateException("Not connected")));
+            timedHandler.handle(Future.failedFuture(new IllegalStateException("Not connected")));
             return this;
         }
         zookeeper.setData(path, data, version,
-            (int rc, String path2, Object ctx, Stat stat) -> invokeOnContext(handler, path, rc, null),
+            (int rc, String path2, Object ctx, Stat stat) -> invokeOnContext(timedHandler, path, rc, null),
                 null);
         return this;
     }
 
+    @Override
+    public Zk multi(Iterable<Op> ops, Handler<AsyncResult<List<OpResult>>> handler) {
+        Handler<AsyncResult<List<OpResult>>> timedHandler = timed("multi", handler);
+        ZooKeeper zookeeper = session.get();
+        if (zookeeper == null) {
+            timedHandler.handle(Future.failedFuture(new IllegalStateException("Not connected")));
+            return this;
+        }
+        zookeeper.multi(ops, (rc, path, ctx, opResults) -> {
+            if (opResults != null) {
+                vertx.runOnContext(ignored -> timedHandler.handle(Future.succeededFuture(opResults)));
+            } else {
+                invokeOnContext(timedHandler, path, rc, null);
+            }
+        }, null);
+        return this;
+    }
+
+    /**
+     * Wrap the given {@code handler} so that the time until it's called is observed in {@link #REQUESTS}.
+     */
+    private <T> Handler<AsyncResult<T>> timed(String operation, Handler<AsyncResult<T>> handler) {
+        long start = System.nanoTime();
+        return result -> {
+            REQUESTS.labels(namespace, operation, result.succeeded() ? "success" : "failure")
+                    .observe((System.nanoTime() - start) / 1e9);
+            if (handler != null) {
+                handler.handle(result);
+            }
+        };
+    }
+
     @Override
     public Zk disconnect() throws InterruptedException {
-        zk.close();
+        ZooKeeper zookeeper = session.getAndSet(null);
+        if (zookeeper != null) {
+            zookeeper.close();
+        }
         return this;
     }
 
     @Override
     public Zk getData(String path, Handler<AsyncResult<byte[]>> handler) {
-        ZooKeeper zookeeper;
-        synchronized (this) {
-            zookeeper = zk;
-        }
+        return getData(path, null, handler);
+    }
+
+    @Override
+    public Zk getData(String path, Stat stat, Handler<AsyncResult<byte[]>> handler) {
+        Handler<AsyncResult<byte[]>> timedHandler = timed("getData", handler);
+        ZooKeeper zookeeper = session.get();
         if (zookeeper == null) {
-            handler.handle(Future.failedFuture(new IllegalStateException("Not connected")));
+            timedHandler.handle(Future.failedFuture(new IllegalStateException("Not connected")));
             return this;
         }
-        final AsyncCallback.DataCallback callback = (rc, path2, ctx, data, stat) -> {
+        final AsyncCallback.DataCallback callback = (rc, path2, ctx, data, dataStat) -> {
             Watcher.Event.EventType eventType = (Watcher.Event.EventType) ctx;
+            if (KeeperException.Code.get(rc) != KeeperException.Code.OK) {
+                // No watch is left set on a znode which doesn't exist
+                armedDataWatches.remove(path);
+            }
             if (eventType == null // first time
-                    || eventType == Watcher.Event.EventType.NodeDataChanged) {
+                    || eventType == Watcher.Event.EventType.NodeDataChanged
+                    || eventType == Watcher.Event.EventType.NodeDeleted) {
+                if (eventType == null && stat != null && dataStat != null) {
+                    copyStat(dataStat, stat);
+                }
                 Future<byte[]> future = mapResult(path2, rc, data);
                 vertx.runOnContext(ignored -> {
                     final Handler<AsyncResult<byte[]>> watch = getDataWatchHandler(path);
@@ -196,14 +310,16 @@ public class ZkImpl implements Zk {
                         // Only call the handlers if callback fired due to watch
                         watch.handle(future);
                     }
-                    if (eventType == null && handler != null) {
-                        handler.handle(future);
+                    if (eventType == null) {
+                        timedHandler.handle(future);
                     }
                 });
             }
         };
         final Watcher watcher;
-        if (getDataWatchHandler(path) != null) {
+        // Only set a watch if there's a handler, and we've not already set one
+        if (getDataWatchHandler(path) != null
+                && armedDataWatches.add(path)) {
             watcher = new Watcher() {
                 @Override
                 public void process(WatchedEvent event) {
@@ -211,6 +327,8 @@ public class ZkImpl implements Zk {
                         // Reset the watch if there still is a handler
                         zookeeper.getData(path, this,
                                 callback, event.getType());
+                    } else {
+                        armedDataWatches.remove(path);
                     }
                 }
             };
@@ -221,6 +339,20 @@ public class ZkImpl implements Zk {
         return this;
     }
 
+    private static void copyStat(Stat from, Stat to) {
+        to.setCzxid(from.getCzxid());
+        to.setMzxid(from.getMzxid());
+        to.setCtime(from.getCtime());
+        to.setMtime(from.getMtime());
+        to.setVersion(from.getVersion());
+        to.setCversion(from.getCversion());
+        to.setAversion(from.getAversion());
+        to.setEphemeralOwner(from.getEphemeralOwner());
+        to.setDataLength(from.getDataLength());
+        to.setNumChildren(from.getNumChildren());
+        to.setPzxid(from.getPzxid());
+    }
+
     @SuppressWarnings("unchecked")
     private Handler<AsyncResult<byte[]>> getDataWatchHandler(String path) {
         return (Handler<AsyncResult<byte[]>>) watches.get(PREFIX_DATA + path);
@@ -250,27 +382,22 @@ public class ZkImpl implements Zk {
 
     @Override
     public Zk delete(String path, int version, Handler<AsyncResult<Void>> handler) {
-        ZooKeeper zookeeper;
-        synchronized (this) {
-            zookeeper = zk;
-        }
+        Handler<AsyncResult<Void>> timedHandler = timed("delete", handler);
+        ZooKeeper zookeeper = session.get();
         if (zookeeper == null) {
-            handler.handle(Future.failedFuture(new IllegalStateException("Not connected")));
+            timedHandler.handle(Future.failedFuture(new IllegalStateException("Not connected")));
             return this;
         }
-        Object ctx = null;
-        zookeeper.delete(path, version, (rc, path1, ctx1) -> invokeOnContext(handler, path, rc, null), ctx);
+        zookeeper.delete(path, version, (rc, path1, ctx1) -> invokeOnContext(timedHandler, path, rc, null), null);
         return this;
     }
 
     @Override
     public Zk exists(String path, Handler<AsyncResult<Stat>> handler) {
-        ZooKeeper zookeeper;
-        synchronized (this) {
-            zookeeper = zk;
-        }
+        Handler<AsyncResult<Stat>> timedHandler = timed("exists", handler);
+        ZooKeeper zookeeper = session.get();
         if (zookeeper == null) {
-            handler.handle(Future.failedFuture(new IllegalStateException("Not connected")));
+            timedHandler.handle(Future.failedFuture(new IllegalStateException("Not connected")));
             return this;
         }
         final AsyncCallback.StatCallback callback = (rc, path1, ctx1, stat) -> {
@@ -286,8 +413,8 @@ public class ZkImpl implements Zk {
                         // Only call the handlers if callback fired due to watch
                         watch.handle(future);
                     }
-                    if (eventType == null && handler != null) {
-                        handler.handle(future);
+                    if (eventType == null) {
+                        timedHandler.handle(future);
                     }
                 });
             }
@@ -325,12 +452,10 @@ public class ZkImpl implements Zk {
 
     @Override
     public Zk children(String path, Handler<AsyncResult<List<String>>> handler) {
-        ZooKeeper zookeeper;
-        synchronized (this) {
-            zookeeper = zk;
-        }
+        Handler<AsyncResult<List<String>>> timedHandler = timed("children", handler);
+        ZooKeeper zookeeper = session.get();
         if (zookeeper == null) {
-            handler.handle(Future.failedFuture(new IllegalStateException("Not connected")));
+            timedHandler.handle(Future.failedFuture(new IllegalStateException("Not connected")));
             return this;
         }
         final AsyncCallback.Children2Callback callback = (rc, path2, ctx, children, stat) -> {
@@ -347,8 +472,8 @@ public class ZkImpl implements Zk {
                         // Only call the handlers if callback fired due to watch
                         watch.handle(future);
                     }
-                    if (eventType == null && handler != null) {
-                        handler.handle(future);
+                    if (eventType == null) {
+                        timedHandler.handle(future);
                     }
                 });
             }
@@ -0,0 +1,345 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.operator.topic.zk;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.zookeeper.KeeperException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Manages persistent data and children watches on top of a {@link Zk}.
+ * <ul>
+ *     <li>There is at most one watch set with zookeeper per path, however many listeners are watching it.</li>
+ *     <li>Children listeners are called with the children added and removed since the last time they were
+ *     called, rather than with all the current children.</li>
+ *     <li>When a new session is established after the previous one expired the watches are set again.
+ *     Children watches are set first, calling the listeners with any children added or removed while there was no
+ *     session. Data watches are then set again with at most {@code maxConcurrentRearms} requests outstanding,
+ *     so that tens of thousands of watches don't all hit the ensemble at once, and listeners are called only
+ *     for znodes whose data changed, or which were deleted, while there was no session.</li>
+ * </ul>
+ */
+public class ZkWatchManager {
+
+    private static final Logger LOGGER = LogManager.getLogger(ZkWatchManager.class);
+
+    public static final int DEFAULT_MAX_CONCURRENT_REARMS = 16;
+
+    /**
+     * A listener for changes to the data of a znode.
+     */
+    @FunctionalInterface
+    public interface DataListener {
+        /**
+         * Called when the data of the znode at the given {@code path} has changed.
+         * If the znode was deleted the {@code result} is failed with a
+         * {@link org.apache.zookeeper.KeeperException.NoNodeException}.
+         */
+        void dataChanged(String path, AsyncResult<byte[]> result);
+    }
+
+    /**
+     * A listener for changes to the children of a znode.
+     */
+    @FunctionalInterface
+    public interface ChildrenListener {
+        /**
+         * Called when the children of the znode at the given {@code path} have changed,
+         * with the children which were {@code added} and {@code removed}.
+         */
+        void childrenChanged(String path, Set<String> added, Set<String> removed);
+    }
+
+    private static class DataWatch {
+        final List<DataListener> listeners = new CopyOnWriteArrayList<>();
+        /** A hash of the last known data, or null if it's not known. */
+        volatile Integer dataHash;
+    }
+
+    private static class ChildrenWatch {
+        final ChildrenListener listener;
+        /** The last known children, or null if they're not known. */
+        Set<String> children;
+
+        ChildrenWatch(ChildrenListener listener) {
+            this.listener = listener;
+        }
+    }
+
+    private final Zk zk;
+    private final int maxConcurrentRearms;
+    private final ConcurrentHashMap<String, DataWatch> dataWatches = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, ChildrenWatch> childrenWatches = new ConcurrentHashMap<>();
+
+    public ZkWatchManager(Zk zk) {
+        this(zk, DEFAULT_MAX_CONCURRENT_REARMS);
+    }
+
+    public ZkWatchManager(Zk zk, int maxConcurrentRearms) {
+        if (maxConcurrentRearms < 1) {
+            throw new IllegalArgumentException("maxConcurrentRearms must be positive");
+        }
+        this.zk = zk;
+        this.maxConcurrentRearms = maxConcurrentRearms;
+        zk.onSessionReestablished(ignored -> rearm(ar -> {
+            if (ar.failed()) {
+                LOGGER.error("Error setting watches in the new session", ar.cause());
+            }
+        }));
+    }
+
+    /**
+     * Call the given {@code listener} whenever the data of the znode at the given {@code path} changes.
+     * The first listener for a path causes the watch to be set with zookeeper.
+     */
+    public void watchData(String path, DataListener listener) {
+        boolean[] first = {false};
+        DataWatch watch = dataWatches.computeIfAbsent(path, p -> {
+            first[0] = true;
+            return new DataWatch();
+        });
+        watch.listeners.add(listener);
+        if (first[0]) {
+            LOGGER.debug("Setting data watch on {}", path);
+            zk.watchData(path, result -> {
+                if (result.succeeded()) {
+                    watch.dataHash = Arrays.hashCode(result.result());
+                } else {
+                    watch.dataHash = null;
+                }
+                notifyDataListeners(path, watch, result);
+            }).getData(path, result -> {
+                if (result.succeeded()) {
+                    watch.dataHash = Arrays.hashCode(result.result());
+                } else if (!(result.cause() instanceof KeeperException.NoNodeException)) {
+                    LOGGER.error("Error getting data of {}", path, result.cause());
+                }
+            });
+        }
+    }
+
+    /**
+     * Stop calling the given {@code listener} when the data of the znode at the given {@code path} changes.
+     * Removing the last listener for a path causes the watch to be removed.
+     */
+    public void unwatchData(String path, DataListener listener) {
+        dataWatches.computeIfPresent(path, (p, watch) -> {
+            watch.listeners.remove(listener);
+            if (watch.listeners.isEmpty()) {
+                LOGGER.debug("Removing data watch on {}", path);
+                zk.unwatchData(path);
+                return null;
+            }
+            return watch;
+        });
+    }
+
+    /**
+     * @return Whether the data of the znode at the given {@code path} is being watched.
+     */
+    public boolean watchingData(String path) {
+        return dataWatches.containsKey(path);
+    }
+
+    /**
+     * Call the given {@code listener} whenever the children of the znode at the given {@code path} change.
+     * The {@code initialChildren} handler is called with the children when the watch has been set.
+     * There can be only one children listener per path.
+     */
+    public void watchChildren(String path, ChildrenListener listener, Handler<AsyncResult<Set<String>>> initialChildren) {
+        ChildrenWatch watch = new ChildrenWatch(listener);
+        if (childrenWatches.putIfAbsent(path, watch) != null) {
+            initialChildren.handle(Future.failedFuture(new IllegalStateException("Children of " + path + " are already watched")));
+            return;
+        }
+        LOGGER.debug("Setting children watch on {}", path);
+        zk.watchChildren(path, result -> {
+            if (result.failed()) {
+                LOGGER.error("Error on znode {} children", path, result.cause());
+            } else {
+                updateChildren(path, watch, result.result());
+            }
+        }).children(path, result -> {
+            if (result.failed()) {
+                initialChildren.handle(Future.failedFuture(result.cause()));
+            } else {
+                Set<String> children = new HashSet<>(result.result());
+                synchronized (watch) {
+                    watch.children = children;
+                }
+                LOGGER.debug("Initial children of {} are {}", path, children);
+                initialChildren.handle(Future.succeededFuture(Collections.unmodifiableSet(children)));
+            }
+        });
+    }
+
+    /**
+     * Stop watching the children of the znode at the given {@code path}.
+     */
+    public void unwatchChildren(String path) {
+        if (childrenWatches.remove(path) != null) {
+            LOGGER.debug("Removing children watch on {}", path);
+            zk.unwatchChildren(path);
+        }
+    }
+
+    /**
+     * Set all the watches with zookeeper again, for example because they were lost when a session expired,
+     * calling the listeners with whatever changed meanwhile.
+     * This is called automatically when a new session is established.
+     * The given {@code handler} is called once all the watches have been set.
+     * If setting any of them failed it is called with the first failure.
+     */
+    public void rearm(Handler<AsyncResult<Void>> handler) {
+        LOGGER.info("Setting {} children watches and {} data watches", childrenWatches.size(), dataWatches.size());
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        // Set the children watches first: If children were removed, their listeners are likely to unwatch
+        // the data of those children, which saves setting watches just to find the znodes have gone.
+        Queue<Handler<Future<Void>>> childrenTasks = new ConcurrentLinkedQueue<>();
+        for (Map.Entry<String, ChildrenWatch> entry : childrenWatches.entrySet()) {
+            childrenTasks.add(fut -> rearmChildren(entry.getKey(), entry.getValue(), fut));
+        }
+        runBounded(childrenTasks, failure, ignored -> {
+            Queue<Handler<Future<Void>>> dataTasks = new ConcurrentLinkedQueue<>();
+            for (String path : new ArrayList<>(dataWatches.keySet())) {
+                dataTasks.add(fut -> rearmData(path, fut));
+            }
+            runBounded(dataTasks, failure, ignored2 -> {
+                Throwable cause = failure.get();
+                LOGGER.info("Finished setting watches{}", cause != null ? " with errors" : "");
+                handler.handle(cause == null ? Future.succeededFuture() : Future.failedFuture(cause));
+            });
+        });
+    }
+
+    /**
+     * Run the given tasks with at most {@link #maxConcurrentRearms} incomplete at once, recording the first failure
+     * in the given {@code failure} and calling the given {@code done} handler when they've all completed.
+     */
+    private void runBounded(Queue<Handler<Future<Void>>> tasks, AtomicReference<Throwable> failure, Handler<Void> done) {
+        int size = tasks.size();
+        if (size == 0) {
+            done.handle(null);
+            return;
+        }
+        AtomicInteger remaining = new AtomicInteger(size);
+        for (int i = 0; i < Math.min(size, maxConcurrentRearms); i++) {
+            runNext(tasks, remaining, failure, done);
+        }
+    }
+
+    private void runNext(Queue<Handler<Future<Void>>> tasks, AtomicInteger remaining, AtomicReference<Throwable> failure, Handler<Void> done) {
+        Handler<Future<Void>> task = tasks.poll();
+        if (task == null) {
+            return;
+        }
+        Future<Void> fut = Future.future();
+        fut.setHandler(ar -> {
+            if (ar.failed()) {
+                failure.compareAndSet(null, ar.cause());
+            }
+            if (remaining.decrementAndGet() == 0) {
+                done.handle(null);
+            } else {
+                runNext(tasks, remaining, failure, done);
+            }
+        });
+        task.handle(fut);
+    }
+
+    private void rearmChildren(String path, ChildrenWatch watch, Future<Void> fut) {
+        // Because the children watcher is still registered with the Zk, listing the children sets the watch again
+        zk.children(path, result -> {
+            if (result.failed()) {
+                LOGGER.error("Error setting children watch on {}", path, result.cause());
+                fut.fail(result.cause());
+            } else {
+                if (childrenWatches.get(path) == watch) {
+                    updateChildren(path, watch, result.result());
+                }
+                fut.complete();
+            }
+        });
+    }
+
+    private void rearmData(String path, Future<Void> fut) {
+        DataWatch watch = dataWatches.get(path);
+        if (watch == null) {
+            // Unwatched meanwhile
+            fut.complete();
+            return;
+        }
+        // Because the data watcher is still registered with the Zk, getting the data sets the watch again
+        zk.getData(path, result -> {
+            Integer previous = watch.dataHash;
+            if (result.succeeded()) {
+                int hash = Arrays.hashCode(result.result());
+                watch.dataHash = hash;
+                if (previous == null || previous != hash) {
+                    notifyDataListeners(path, watch, result);
+                }
+                fut.complete();
+            } else if (result.cause() instanceof KeeperException.NoNodeException) {
+                watch.dataHash = null;
+                if (previous != null) {
+                    notifyDataListeners(path, watch, result);
+                }
+                fut.complete();
+            } else {
+                LOGGER.error("Error setting data watch on {}", path, result.cause());
+                fut.fail(result.cause());
+            }
+        });
+    }
+
+    private void notifyDataListeners(String path, DataWatch watch, AsyncResult<byte[]> result) {
+        for (DataListener listener : watch.listeners) {
+            try {
+                listener.dataChanged(path, result);
+            } catch (RuntimeException e) {
+                LOGGER.error("Error in data listener for {}", path, e);
+            }
+        }
+    }
+
+    private void updateChildren(String path, ChildrenWatch watch, List<String> result) {
+        Set<String> children = new HashSet<>(result);
+        Set<String> added;
+        Set<String> removed;
+        synchronized (watch) {
+            if (watch.children == null) {
+                // The initial listing hasn't completed yet, so there is nothing to compare with
+                watch.children = children;
+                return;
+            }
+            added = new HashSet<>(children);
+            added.removeAll(watch.children);
+            removed = new HashSet<>(watch.children);
+            removed.removeAll(children);
+            watch.children = children;
+        }
+        if (!added.isEmpty() || !removed.isEmpty()) {
+            LOGGER.debug("Children of {} added {}, removed {}", path, added, removed);
+            watch.listener.childrenChanged(path, added, removed);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.operator.topic;
+
+import io.strimzi.operator.topic.zk.ZkWatchManager;
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.apache.kafka.clients.admin.Config;
+import org.apache.kafka.clients.admin.DeleteTopicsOptions;
+import org.apache.kafka.clients.admin.DeleteTopicsResult;
+import org.apache.kafka.clients.admin.DescribeConfigsOptions;
+import org.apache.kafka.clients.admin.DescribeConfigsResult;
+import org.apache.kafka.clients.admin.DescribeTopicsOptions;
+import org.apache.kafka.clients.admin.DescribeTopicsResult;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.common.KafkaFuture;
+import org.apache.kafka.common.config.ConfigResource;
+import org.apache.kafka.common.errors.UnknownTopicOrPartitionException;
+import org.apache.kafka.common.internals.KafkaFutureImpl;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Constructor;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@RunWith(VertxUnitRunner.class)
+public class BaseKafkaImplTest {
+
+    private static final Map<String, String> MANDATORY_CONFIG = new HashMap<>();
+
+    static {
+        MANDATORY_CONFIG.put(io.strimzi.operator.topic.Config.ZOOKEEPER_CONNECT.key, "localhost:2181");
+        MANDATORY_CONFIG.put(io.strimzi.operator.topic.Config.KAFKA_BOOTSTRAP_SERVERS.key, "localhost:9092");
+        MANDATORY_CONFIG.put(io.strimzi.operator.topic.Config.NAMESPACE.key, "default");
+    }
+
+    /** An AdminClient whose futures are only completed when the test says so */
+    static class PendingAdminClient extends MockAdminClient {
+        final KafkaFutureImpl<Void> deleteFuture = new KafkaFutureImpl<>();
+        final KafkaFutureImpl<TopicDescription> descFuture = new KafkaFutureImpl<>();
+        final KafkaFutureImpl<Config> configFuture = new KafkaFutureImpl<>();
+
+        private static <T> T newResult(Class<T> cls, Map<?, ?> futures) {
+            try {
+                Constructor<T> ctor = cls.getDeclaredConstructor(Map.class);
+                ctor.setAccessible(true);
+                return ctor.newInstance(futures);
+            } catch (ReflectiveOperationException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public DeleteTopicsResult deleteTopics(Collection<String> collection, DeleteTopicsOptions deleteTopicsOptions) {
+            Map<String, KafkaFuture<Void>> futures = Collections.singletonMap(collection.iterator().next(), deleteFuture);
+            return newResult(DeleteTopicsResult.class, futures);
+        }
+
+        @Override
+        public DescribeTopicsResult describeTopics(Collection<String> collection, DescribeTopicsOptions describeTopicsOptions) {
+            Map<String, KafkaFuture<TopicDescription>> futures = Collections.singletonMap(collection.iterator().next(), descFuture);
+            return newResult(DescribeTopicsResult.class, futures);
+        }
+
+        @Override
+        public DescribeConfigsResult describeConfigs(Collection<ConfigResource> collection, DescribeConfigsOptions describeConfigsOptions) {
+            Map<ConfigResource, KafkaFuture<Config>> futures = Collections.singletonMap(collection.iterator().next(), configFuture);
+            return newResult(DescribeConfigsResult.class, futures);
+        }
+    }
+
+    private Vertx vertx;
+    private PendingAdminClient adminClient;
+    private OperatorAssignedKafkaImpl kafka;
+
+    @Before
+    public void setup() {
+        vertx = Vertx.vertx();
+        adminClient = new PendingAdminClient();
+        kafka = new OperatorAssignedKafkaImpl(adminClient, vertx, new io.strimzi.operator.topic.Config(MANDATORY_CONFIG), new MockZk(), new ZkWatchManager(new MockZk()));
+    }
+
+    @After
+    public void teardown() {
+        vertx.close();
+    }
+
+    @Test
+    public void testDeleteTopicCompletesOnCallersContext(TestContext context) {
+        Async async = context.async();
+        Context callerContext = vertx.getOrCreateContext();
+        callerContext.runOnContext(v -> {
+            kafka.deleteTopic(new TopicName("my-topic"), ar -> {
+                context.assertTrue(ar.succeeded());
+                context.assertEquals(callerContext, Vertx.currentContext());
+                async.complete();
+            });
+            // complete the future on a non-Vert.x thread, as the AdminClient would
+            new Thread(() -> adminClient.deleteFuture.complete(null)).start();
+        });
+    }
+
+    @Test
+    public void testNoCpuBurnedWhileFuturesPending(TestContext context) throws InterruptedException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threads.isThreadCpuTimeSupported());
+        threads.setThreadCpuTimeEnabled(true);
+
+        Context callerContext = vertx.getOrCreateContext();
+        Async queued = context.async();
+        Async completed = context.async();
+        long[] eventLoopThreadId = new long[1];
+        callerContext.runOnContext(v -> {
+            eventLoopThreadId[0] = Thread.currentThread().getId();
+            kafka.topicMetadata(new TopicName("my-topic"), ar -> {
+                context.assertTrue(ar.succeeded());
+                context.assertNull(ar.result());
+                context.assertEquals(callerContext, Vertx.currentContext());
+                completed.complete();
+            });
+            queued.complete();
+        });
+        queued.await();
+
+        long cpuBefore = threads.getThreadCpuTime(eventLoopThreadId[0]);
+        long wallMs = 1_000;
+        Thread.sleep(wallMs);
+        long cpuMs = TimeUnit.NANOSECONDS.toMillis(threads.getThreadCpuTime(eventLoopThreadId[0]) - cpuBefore);
+        context.assertTrue(cpuMs < wallMs / 10,
+                "The event loop used " + cpuMs + "ms of CPU in " + wallMs + "ms while the futures were pending");
+
+        adminClient.descFuture.completeExceptionally(new UnknownTopicOrPartitionException());
+        adminClient.configFuture.completeExceptionally(new UnknownTopicOrPartitionException());
+        completed.await();
+    }
+
+    @Test
+    public void testTopicMetadataWaitsForBothFutures(TestContext context) throws InterruptedException {
+        Async completed = context.async();
+        AtomicBoolean handled = new AtomicBoolean(false);
+        kafka.topicMetadata(new TopicName("my-topic"), ar -> {
+            handled.set(true);
+            context.assertTrue(ar.succeeded());
+            context.assertNull(ar.result());
+            completed.complete();
+        });
+        // A failed description must not cause the handler to run (or block on) the still-pending config
+        adminClient.descFuture.completeExceptionally(new UnknownTopicOrPartitionException());
+        Thread.sleep(200);
+        context.assertFalse(handled.get());
+        adminClient.configFuture.completeExceptionally(new UnknownTopicOrPartitionException());
+        completed.await();
+    }
+
+    @Test
+    public void testDescriptionsOmitDeletedTopics(TestContext context) {
+        Async completed = context.async();
+        KafkaFutureImpl<TopicDescription> deleted = new KafkaFutureImpl<>();
+        Map<String, KafkaFuture<TopicDescription>> futures = new HashMap<>();
+        futures.put("my-topic", adminClient.descFuture);
+        futures.put("deleted-topic", deleted);
+        vertx.runOnContext(v -> kafka.queueWork(kafka.new DescriptionsWork(futures, context.asyncAssertSuccess(descriptions -> {
+            context.assertEquals(Collections.singleton("my-topic"), descriptions.keySet());
+            completed.complete();
+        }))));
+        deleted.completeExceptionally(new UnknownTopicOrPartitionException());
+        adminClient.descFuture.complete(new TopicDescription("my-topic", false, Collections.emptyList()));
+        completed.await();
+    }
+
+    @Test
+    public void testDescriptionsFailOnOtherErrors(TestContext context) {
+        Map<String, KafkaFuture<TopicDescription>> futures = Collections.singletonMap("my-topic", adminClient.descFuture);
+        RuntimeException error = new RuntimeException("some failure");
+        vertx.runOnContext(v -> kafka.queueWork(kafka.new DescriptionsWork(futures, context.asyncAssertFailure(e ->
+            context.assertEquals(error, e)))));
+        adminClient.descFuture.completeExceptionally(error);
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.operator.topic;
+
+import io.vertx.core.Future;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BoundedWorkQueueTest {
+
+    @Test
+    public void testLimitsConcurrency() {
+        BoundedWorkQueue queue = new BoundedWorkQueue(2);
+        List<Future<Integer>> tasks = new ArrayList<>();
+        List<Integer> started = new ArrayList<>();
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            int n = i;
+            Future<Integer> task = Future.future();
+            tasks.add(task);
+            results.add(queue.submit(() -> {
+                started.add(n);
+                return task;
+            }));
+        }
+        assertEquals(2, queue.running());
+        assertEquals(3, queue.queued());
+        assertEquals(asList(0, 1), started);
+
+        tasks.get(1).complete(1);
+        assertTrue(results.get(1).succeeded());
+        assertEquals(asList(0, 1, 2), started);
+        assertEquals(2, queue.running());
+
+        tasks.get(0).fail("failed");
+        assertTrue(results.get(0).failed());
+        assertEquals(asList(0, 1, 2, 3), started);
+
+        tasks.get(2).complete(2);
+        tasks.get(3).complete(3);
+        assertEquals(asList(0, 1, 2, 3, 4), started);
+        assertEquals(1, queue.running());
+        tasks.get(4).complete(4);
+        assertEquals(0, queue.running());
+        assertEquals(0, queue.queued());
+        assertEquals(Integer.valueOf(4), results.get(4).result());
+    }
+
+    @Test
+    public void testSynchronouslyCompletingTasksDontRecurse() {
+        BoundedWorkQueue queue = new BoundedWorkQueue(1);
+        List<Future<Void>> results = new ArrayList<>();
+        // Enough tasks that recursion for each one would overflow the stack
+        for (int i = 0; i < 100_000; i++) {
+            results.add(queue.submit(() -> Future.succeededFuture()));
+        }
+        for (Future<Void> result : results) {
+            assertTrue(result.succeeded());
+        }
+        assertEquals(0, queue.running());
+    }
+
+    @Test
+    public void testThrowingTask() {
+        BoundedWorkQueue queue = new BoundedWorkQueue(1);
+        Future<Void> result = queue.submit(() -> {
+            throw new RuntimeException("boom");
+        });
+        assertTrue(result.failed());
+        assertEquals("boom", result.cause().getMessage());
+        assertEquals(0, queue.running());
+    }
+}
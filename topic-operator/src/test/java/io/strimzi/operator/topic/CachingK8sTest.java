@@ -0,0 +1,209 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.operator.topic;
+
+import io.fabric8.kubernetes.api.model.ConfigMap;
+import io.fabric8.kubernetes.api.model.ConfigMapBuilder;
+import io.fabric8.kubernetes.api.model.ConfigMapList;
+import io.fabric8.kubernetes.api.model.ConfigMapListBuilder;
+import io.fabric8.kubernetes.api.model.DoneableConfigMap;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+import io.fabric8.kubernetes.client.dsl.MixedOperation;
+import io.fabric8.kubernetes.client.dsl.Resource;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static java.util.Collections.singletonList;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(VertxUnitRunner.class)
+public class CachingK8sTest {
+
+    private final LabelPredicate cmPredicate = new LabelPredicate("foo", "bar");
+
+    private Vertx vertx;
+    private MixedOperation<ConfigMap, ConfigMapList, DoneableConfigMap, Resource<ConfigMap, DoneableConfigMap>> mockConfigMaps;
+    private MockK8s delegate;
+    private CachingK8s k8s;
+    private final List<ConfigMap> listed = new ArrayList<>();
+    private final List<String> watchedFrom = new CopyOnWriteArrayList<>();
+    private volatile Watcher<ConfigMap> watcher;
+    private final List<String> downstreamEvents = new CopyOnWriteArrayList<>();
+
+    private ConfigMap cm(String name, String resourceVersion) {
+        return new ConfigMapBuilder().withNewMetadata()
+                .withName(name)
+                .withResourceVersion(resourceVersion)
+                .withLabels(cmPredicate.labels())
+                .endMetadata().build();
+    }
+
+    @Before
+    public void setup() {
+        vertx = Vertx.vertx();
+        KubernetesClient mockClient = mock(KubernetesClient.class);
+        mockConfigMaps = mock(MixedOperation.class);
+        when(mockClient.configMaps()).thenReturn(mockConfigMaps);
+        when(mockConfigMaps.withLabels(any())).thenReturn(mockConfigMaps);
+        when(mockConfigMaps.inNamespace(any())).thenReturn(mockConfigMaps);
+        when(mockConfigMaps.list()).thenAnswer(invocation -> new ConfigMapListBuilder()
+                .withNewMetadata().withResourceVersion("list-" + watchedFrom.size()).endMetadata()
+                .withItems(new ArrayList<>(listed)).build());
+        when(mockConfigMaps.watch(anyString(), any())).thenAnswer(invocation -> {
+            watchedFrom.add(invocation.getArgument(0));
+            watcher = invocation.getArgument(1);
+            return mock(Watch.class);
+        });
+        delegate = new MockK8s();
+        k8s = new CachingK8s(vertx, mockClient, delegate, cmPredicate, "default");
+    }
+
+    @After
+    public void teardown() {
+        k8s.stop();
+        vertx.close();
+    }
+
+    private void start() {
+        k8s.start(new Watcher<ConfigMap>() {
+            @Override
+            public void eventReceived(Action action, ConfigMap resource) {
+                downstreamEvents.add(action + " " + resource.getMetadata().getName());
+            }
+
+            @Override
+            public void onClose(KubernetesClientException cause) {
+            }
+        });
+    }
+
+    @Test
+    public void testReadsServedFromStore(TestContext context) {
+        listed.add(cm("foo", "1"));
+        start();
+        context.assertEquals(singletonList("list-0"), watchedFrom);
+
+        k8s.getFromName(new MapName("foo"), context.asyncAssertSuccess(cm -> {
+            context.assertEquals("foo", cm.getMetadata().getName());
+        }));
+        k8s.getFromName(new MapName("bar"), context.asyncAssertSuccess(cm -> {
+            context.assertNull(cm);
+        }));
+        k8s.listMaps(context.asyncAssertSuccess(cms -> {
+            context.assertEquals(1, cms.size());
+        }));
+        verify(mockConfigMaps, times(1)).list();
+    }
+
+    @Test
+    public void testWatchEventsUpdateStore(TestContext context) {
+        start();
+        watcher.eventReceived(Watcher.Action.ADDED, cm("foo", "2"));
+        k8s.getFromName(new MapName("foo"), context.asyncAssertSuccess(cm -> {
+            context.assertEquals("2", cm.getMetadata().getResourceVersion());
+        }));
+
+        // A ConfigMap whose labels no longer match is removed from the store
+        ConfigMap unlabelled = new ConfigMapBuilder(cm("foo", "3")).editMetadata().withLabels(null).endMetadata().build();
+        watcher.eventReceived(Watcher.Action.MODIFIED, unlabelled);
+        k8s.getFromName(new MapName("foo"), context.asyncAssertSuccess(cm -> {
+            context.assertNull(cm);
+        }));
+
+        watcher.eventReceived(Watcher.Action.ADDED, cm("bar", "4"));
+        watcher.eventReceived(Watcher.Action.DELETED, cm("bar", "5"));
+        k8s.listMaps(context.asyncAssertSuccess(cms -> {
+            context.assertTrue(cms.isEmpty());
+        }));
+        context.assertEquals(4, downstreamEvents.size());
+    }
+
+    @Test
+    public void testResyncOnWatchClose(TestContext context) {
+        listed.add(cm("foo", "1"));
+        listed.add(cm("bar", "1"));
+        start();
+
+        // While the watch is down, foo is modified, bar is deleted and baz is added
+        listed.clear();
+        listed.add(cm("foo", "2"));
+        listed.add(cm("baz", "3"));
+        watcher.onClose(new KubernetesClientException("too old resource version"));
+
+        Async async = context.async();
+        vertx.setPeriodic(10, timerId -> {
+            if (watchedFrom.size() == 2) {
+                vertx.cancelTimer(timerId);
+                context.assertEquals("list-1", watchedFrom.get(1));
+                context.assertTrue(downstreamEvents.contains("MODIFIED foo"));
+                context.assertTrue(downstreamEvents.contains("ADDED baz"));
+                context.assertTrue(downstreamEvents.contains("DELETED bar"));
+                context.assertEquals(3, downstreamEvents.size());
+                k8s.getFromName(new MapName("bar"), context.asyncAssertSuccess(cm -> {
+                    context.assertNull(cm);
+                    async.complete();
+                }));
+            }
+        });
+    }
+
+    @Test
+    public void testWritesAreWrittenThrough(TestContext context) {
+        start();
+        MapName mapName = new MapName("foo");
+        delegate.setCreateResponse(mapName, null);
+        delegate.setDeleteResponse(mapName, null);
+        k8s.createConfigMap(cm("foo", null), context.asyncAssertSuccess(v -> {
+            k8s.getFromName(mapName, context.asyncAssertSuccess(cm -> {
+                context.assertNotNull(cm);
+                k8s.deleteConfigMap(mapName, context.asyncAssertSuccess(v2 -> {
+                    k8s.getFromName(mapName, context.asyncAssertSuccess(context::assertNull));
+                }));
+            }));
+        }));
+    }
+
+    @Test
+    public void testWriteThroughDoesNotOverwriteNewerWatchEvent(TestContext context) {
+        listed.add(cm("foo", "1"));
+        KubernetesClient mockClient = mock(KubernetesClient.class);
+        when(mockClient.configMaps()).thenReturn(mockConfigMaps);
+        k8s = new CachingK8s(vertx, mockClient, new MockK8s() {
+            @Override
+            public void updateConfigMap(ConfigMap cm, Handler<AsyncResult<Void>> handler) {
+                // The watch delivers a later change before the update completes
+                watcher.eventReceived(Watcher.Action.MODIFIED, cm("foo", "3"));
+                handler.handle(Future.succeededFuture());
+            }
+        }, cmPredicate, "default");
+        start();
+        k8s.updateConfigMap(cm("foo", null), context.asyncAssertSuccess(v -> {
+            k8s.getFromName(new MapName("foo"), context.asyncAssertSuccess(cm -> {
+                context.assertEquals("3", cm.getMetadata().getResourceVersion());
+            }));
+        }));
+    }
+}
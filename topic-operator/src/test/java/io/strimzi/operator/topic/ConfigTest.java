@@ -8,9 +8,11 @@ import org.junit.Test;
 
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.fail;
 
 public class ConfigTest {
@@ -75,4 +77,53 @@ public class ConfigTest {
         Config c = new Config(map);
         assertEquals(3, c.get(Config.TOPIC_METADATA_MAX_ATTEMPTS).intValue());
     }
+
+    @Test
+    public void singleCluster() {
+        Config c = new Config(MANDATORY);
+        assertEquals(Collections.singletonList(c), c.clusterConfigs());
+    }
+
+    @Test
+    public void multipleClusters() {
+        Map<String, String> map = new HashMap<>();
+        map.put(Config.TC_CLUSTERS, "ns1;kafka1:9092,kafka1b:9092;zk1:2181  ns2;kafka2:9092;zk2:2181/chroot");
+        map.put(Config.ZOOKEEPER_SESSION_TIMEOUT_MS.key, "13000");
+        List<Config> clusters = new Config(map).clusterConfigs();
+        assertEquals(2, clusters.size());
+        assertEquals("ns1", clusters.get(0).get(Config.NAMESPACE));
+        assertEquals("kafka1:9092,kafka1b:9092", clusters.get(0).get(Config.KAFKA_BOOTSTRAP_SERVERS));
+        assertEquals("zk1:2181", clusters.get(0).get(Config.ZOOKEEPER_CONNECT));
+        assertEquals("ns2", clusters.get(1).get(Config.NAMESPACE));
+        assertEquals("zk2:2181/chroot", clusters.get(1).get(Config.ZOOKEEPER_CONNECT));
+        // The other values are shared
+        assertEquals(13_000, clusters.get(1).get(Config.ZOOKEEPER_SESSION_TIMEOUT_MS).intValue());
+        assertNull(clusters.get(1).get(Config.CLUSTERS));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void malformedCluster() {
+        new Config(Collections.singletonMap(Config.TC_CLUSTERS, "ns1;kafka1:9092")).clusterConfigs();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void duplicateClusterNamespace() {
+        new Config(Collections.singletonMap(Config.TC_CLUSTERS, "ns1;kafka1:9092;zk1:2181 ns1;kafka2:9092;zk2:2181")).clusterConfigs();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tlsWithSeveralClusters() {
+        Map<String, String> map = new HashMap<>();
+        map.put(Config.TC_CLUSTERS, "ns1;kafka1:9092;zk1:2181 ns2;kafka2:9092;zk2:2181");
+        map.put(Config.TC_TLS_ENABLED, "true");
+        new Config(map).clusterConfigs();
+    }
+
+    @Test
+    public void tlsWithOneCluster() {
+        Map<String, String> map = new HashMap<>();
+        map.put(Config.TC_CLUSTERS, "ns1;kafka1:9092;zk1:2181");
+        map.put(Config.TC_TLS_ENABLED, "true");
+        assertEquals(1, new Config(map).clusterConfigs().size());
+    }
 }
@@ -4,13 +4,17 @@
  */
 package io.strimzi.operator.topic;
 
+import org.apache.zookeeper.server.NIOServerCnxn;
 import org.apache.zookeeper.server.NIOServerCnxnFactory;
+import org.apache.zookeeper.server.ServerCnxn;
 import org.apache.zookeeper.server.ZooKeeperServer;
 
 import java.io.File;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
 
 public class EmbeddedZooKeeper {
 
@@ -42,6 +46,19 @@ public class EmbeddedZooKeeper {
         start(addr);
     }
 
+    /**
+     * Expire the sessions of all the clients, as if they'd been disconnected for longer than their session timeout.
+     */
+    public void expireSessions() {
+        List<Long> sessionIds = new ArrayList<>();
+        for (ServerCnxn cnxn : factory.getConnections()) {
+            sessionIds.add(((NIOServerCnxn) cnxn).getSessionId());
+        }
+        for (long sessionId : sessionIds) {
+            zk.closeSession(sessionId);
+        }
+    }
+
     public void close() {
         if (zk != null) {
             zk.shutdown(true);
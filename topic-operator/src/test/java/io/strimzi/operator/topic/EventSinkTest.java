@@ -0,0 +1,117 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.operator.topic;
+
+import io.fabric8.kubernetes.api.model.Event;
+import io.fabric8.kubernetes.api.model.EventBuilder;
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.function.BooleanSupplier;
+
+@RunWith(VertxUnitRunner.class)
+public class EventSinkTest {
+
+    private final Vertx vertx = Vertx.vertx();
+    private final MockK8s mockK8s = new MockK8s();
+
+    @After
+    public void teardown() {
+        vertx.close();
+    }
+
+    private static Event event(String configMap, String message) {
+        return new EventBuilder()
+                .withNewInvolvedObject()
+                    .withKind("ConfigMap")
+                    .withName(configMap)
+                    .withNamespace("default")
+                .endInvolvedObject()
+                .withType("Warning")
+                .withMessage(message)
+                .withNewMetadata().withNamespace("default").endMetadata()
+                .build();
+    }
+
+    private void emit(TestContext context, EventSink sink, Event event) {
+        Async async = context.async();
+        sink.emit(event, ar -> {
+            context.assertTrue(ar.succeeded());
+            async.complete();
+        });
+        async.await();
+    }
+
+    private void awaitCondition(TestContext context, BooleanSupplier condition) {
+        Async async = context.async();
+        vertx.setPeriodic(10, timerId -> {
+            if (condition.getAsBoolean()) {
+                vertx.cancelTimer(timerId);
+                async.complete();
+            }
+        });
+        async.await(5_000);
+    }
+
+    @Test
+    public void testIdenticalEventsAreAggregated(TestContext context) {
+        EventSink sink = new EventSink(vertx, mockK8s, Clock.systemUTC(), 10, 1_000, 20);
+        for (int i = 0; i < 5; i++) {
+            emit(context, sink, event("my-topic", "Broker unavailable"));
+        }
+        // The first occurrence is written straight away, the others are flushed as an update
+        awaitCondition(context, () -> mockK8s.getEvents().size() == 1
+                && mockK8s.getEvents().get(0).getCount() == 5);
+        Event event = mockK8s.getEvents().get(0);
+        context.assertTrue(event.getMetadata().getName().startsWith("my-topic."));
+        context.assertNotNull(event.getFirstTimestamp());
+        context.assertNotNull(event.getLastTimestamp());
+    }
+
+    @Test
+    public void testDifferentEventsAreNotAggregated(TestContext context) {
+        EventSink sink = new EventSink(vertx, mockK8s, Clock.systemUTC(), 10, 1_000, 20);
+        emit(context, sink, event("my-topic", "Broker unavailable"));
+        emit(context, sink, event("my-topic", "Something else"));
+        emit(context, sink, event("other-topic", "Broker unavailable"));
+        context.assertEquals(3, mockK8s.getEvents().size());
+        for (Event event : mockK8s.getEvents()) {
+            context.assertEquals(1, event.getCount());
+        }
+    }
+
+    @Test
+    public void testWritesAreRateLimited(TestContext context) {
+        // With a fixed clock no tokens are added, so only the burst gets written
+        Clock clock = Clock.fixed(Instant.now(), ZoneOffset.UTC);
+        EventSink sink = new EventSink(vertx, mockK8s, clock, 2, 1_000, 10);
+        for (int i = 0; i < 5; i++) {
+            emit(context, sink, event("topic-" + i, "Broker unavailable"));
+        }
+        context.assertEquals(2, mockK8s.getEvents().size());
+        Async flushed = context.async();
+        vertx.setTimer(100, timerId -> {
+            context.assertEquals(2, mockK8s.getEvents().size());
+            flushed.complete();
+        });
+    }
+
+    @Test
+    public void testDeferredEventsAreFlushed(TestContext context) {
+        EventSink sink = new EventSink(vertx, mockK8s, Clock.systemUTC(), 2, 10, 20);
+        for (int i = 0; i < 5; i++) {
+            emit(context, sink, event("topic-" + i, "Broker unavailable"));
+        }
+        awaitCondition(context, () -> mockK8s.getEvents().size() == 5);
+    }
+}
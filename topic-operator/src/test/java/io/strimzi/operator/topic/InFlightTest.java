@@ -4,6 +4,10 @@
  */
 package io.strimzi.operator.topic;
 
+import io.vertx.core.Context;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import io.vertx.ext.unit.Async;
 import io.vertx.ext.unit.TestContext;
@@ -13,6 +17,10 @@ import org.apache.logging.log4j.Logger;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
 
 
 @RunWith(VertxUnitRunner.class)
@@ -25,7 +33,7 @@ public class InFlightTest {
     @Test
     public void testSingleTask(TestContext context) {
         Async async = context.async();
-        InFlight<String> inflight = new InFlight(vertx);
+        InFlight<String> inflight = new InFlight(vertx, "test");
 
         inflight.enqueue("test", fut -> fut.complete(), ignored -> async.complete());
     }
@@ -35,7 +43,7 @@ public class InFlightTest {
         Async bothEnqueued = context.async();
         Async firstCompleted = context.async();
         Async secondCompleted = context.async();
-        InFlight<String> inflight = new InFlight(vertx);
+        InFlight<String> inflight = new InFlight(vertx, "test");
         inflight.enqueue("test", fut -> {
             LOGGER.debug("1st task waiting for both to enqueue");
             bothEnqueued.await();
@@ -78,7 +86,7 @@ public class InFlightTest {
         Async bothEnqueued = context.async();
         Async firstCompleted = context.async();
         Async secondCompleted = context.async();
-        InFlight<String> inflight = new InFlight(vertx);
+        InFlight<String> inflight = new InFlight(vertx, "test");
         inflight.enqueue("test", fut -> {
             LOGGER.debug("1st task waiting for both to enqueue");
             bothEnqueued.await();
@@ -116,6 +124,107 @@ public class InFlightTest {
         });
     }
 
+    static class CountingAction implements Handler<Future<Void>> {
+        private final AtomicInteger runs;
+
+        CountingAction(AtomicInteger runs) {
+            this.runs = runs;
+        }
+
+        @Override
+        public void handle(Future<Void> fut) {
+            runs.incrementAndGet();
+            fut.complete();
+        }
+    }
+
+    @Test
+    public void testCoalescing(TestContext context) {
+        Async firstStarted = context.async();
+        Async releaseFirst = context.async();
+        InFlight<String> inflight = new InFlight<>(vertx, "test");
+        inflight.enqueueCoalescing("test", fut -> {
+            firstStarted.complete();
+            // Complete the running action once the others are enqueued
+            vertx.setPeriodic(10, timerId -> {
+                if (releaseFirst.isCompleted()) {
+                    vertx.cancelTimer(timerId);
+                    fut.complete();
+                }
+            });
+        }, context.asyncAssertSuccess());
+        firstStarted.await();
+
+        AtomicInteger coalescedRuns = new AtomicInteger();
+        AtomicInteger otherRuns = new AtomicInteger();
+        Async coalescedCompleted = context.async(5);
+        for (int i = 0; i < 5; i++) {
+            inflight.enqueueCoalescing("test", new CountingAction(coalescedRuns), ar -> {
+                context.assertTrue(ar.succeeded());
+                coalescedCompleted.countDown();
+            });
+        }
+        // A non-coalescing action isn't merged, and actions after it aren't merged with those before it
+        Async otherCompleted = context.async();
+        inflight.enqueue("test", new CountingAction(otherRuns), ar -> otherCompleted.complete());
+        Async lastCompleted = context.async();
+        inflight.enqueueCoalescing("test", new CountingAction(coalescedRuns), ar -> lastCompleted.complete());
+        releaseFirst.complete();
+
+        coalescedCompleted.await();
+        otherCompleted.await();
+        lastCompleted.await();
+        context.assertEquals(2, coalescedRuns.get());
+        context.assertEquals(1, otherRuns.get());
+    }
+
+    @Test
+    public void testCoalescingOnlyActionsOfSameClass(TestContext context) {
+        Async releaseFirst = context.async();
+        InFlight<String> inflight = new InFlight<>(vertx, "test");
+        inflight.enqueueCoalescing("test", fut -> {
+            vertx.setPeriodic(10, timerId -> {
+                if (releaseFirst.isCompleted()) {
+                    vertx.cancelTimer(timerId);
+                    fut.complete();
+                }
+            });
+        }, context.asyncAssertSuccess());
+
+        AtomicInteger runs = new AtomicInteger();
+        Async completed = context.async(2);
+        inflight.enqueueCoalescing("test", new CountingAction(runs), ar -> completed.countDown());
+        inflight.enqueueCoalescing("test", fut -> {
+            runs.incrementAndGet();
+            fut.complete();
+        }, ar -> completed.countDown());
+        releaseFirst.complete();
+
+        completed.await();
+        context.assertEquals(2, runs.get());
+    }
+
+    @Test
+    public void testActionsRunOnTheShardContext(TestContext context) {
+        List<Context> contexts = new CopyOnWriteArrayList<>();
+        Async deployed = context.async();
+        vertx.deployVerticle(() -> new Session.Shard(contexts), new DeploymentOptions().setInstances(2),
+            context.asyncAssertSuccess(id -> deployed.complete()));
+        deployed.await();
+        context.assertEquals(2, contexts.size());
+        context.assertNotEquals(contexts.get(0), contexts.get(1));
+
+        for (Context shardContext : contexts) {
+            InFlight<String> inflight = new InFlight<>(vertx, shardContext, "test");
+            Async completed = context.async();
+            inflight.enqueue("test", fut -> {
+                context.assertEquals(shardContext, Vertx.currentContext());
+                fut.complete();
+            }, context.asyncAssertSuccess(v -> completed.complete()));
+            completed.await();
+        }
+    }
+
     @Test
     public void test0(TestContext context) {
         testSingleTask(context);
@@ -12,17 +12,29 @@ import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.dsl.MixedOperation;
 import io.fabric8.kubernetes.client.dsl.Resource;
 import io.vertx.core.Vertx;
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
 import io.vertx.ext.unit.Async;
 import io.vertx.ext.unit.TestContext;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(VertxUnitRunner.class)
@@ -56,4 +68,43 @@ public class K8sImplTest {
             async.complete();
         });
     }
+
+    @Test
+    public void testPatchIsASingleMergePatch(TestContext context) throws Exception {
+        KubernetesClient mockClient = mock(KubernetesClient.class);
+        OkHttpClient mockHttpClient = mock(OkHttpClient.class);
+        when(mockClient.isAdaptable(OkHttpClient.class)).thenReturn(true);
+        when(mockClient.adapt(OkHttpClient.class)).thenReturn(mockHttpClient);
+        when(mockClient.getMasterUrl()).thenReturn(new URL("http://localhost/"));
+        List<Request> requests = new CopyOnWriteArrayList<>();
+        when(mockHttpClient.newCall(any())).thenAnswer(invocation -> {
+            Request request = invocation.getArgument(0);
+            requests.add(request);
+            Call call = mock(Call.class);
+            when(call.execute()).thenReturn(new Response.Builder().protocol(Protocol.HTTP_1_1)
+                    .request(request).code(200).message("OK").build());
+            return call;
+        });
+
+        K8sImpl k8s = new K8sImpl(vertx, mockClient, new LabelPredicate("foo", "bar"), "default");
+
+        Async async = context.async();
+        k8s.patchConfigMap(new MapName("my-topic"), Collections.singletonMap("partitions", "12"), context.asyncAssertSuccess(v -> {
+            context.assertEquals(1, requests.size());
+            Request request = requests.get(0);
+            context.assertEquals("PATCH", request.method());
+            context.assertEquals("http://localhost/api/v1/namespaces/default/configmaps/my-topic", request.url().toString());
+            context.assertEquals("application/merge-patch+json", request.body().contentType().toString());
+            byte[] patch = "{\"data\":{\"partitions\":\"12\"}}".getBytes(StandardCharsets.UTF_8);
+            try {
+                context.assertTrue(Arrays.equals(patch, K8sImpl.dataMergePatch(Collections.singletonMap("partitions", "12"))));
+                context.assertEquals((long) patch.length, request.body().contentLength());
+            } catch (IOException e) {
+                context.fail(e);
+            }
+            // The ConfigMap is not read first
+            verify(mockClient, never()).configMaps();
+            async.complete();
+        }));
+    }
 }
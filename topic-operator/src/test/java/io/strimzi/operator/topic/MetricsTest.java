@@ -0,0 +1,68 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.operator.topic;
+
+import io.prometheus.client.CollectorRegistry;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MetricsTest {
+
+    private static double value(String name, String... labels) {
+        String[] labelNames = labels.length == 0 ? new String[0] : new String[]{"namespace", "operation", "outcome"};
+        Double value = CollectorRegistry.defaultRegistry.getSampleValue(name, labelNames, labels);
+        return value != null ? value : 0;
+    }
+
+    @Test
+    public void testBackOffCounters() {
+        double retries = value("strimzi_topic_operator_backoff_retries_total");
+        double exhausted = value("strimzi_topic_operator_backoff_exhausted_total");
+        BackOff b = new BackOff(3);
+        b.delayMs();
+        b.delayMs();
+        b.delayMs();
+        try {
+            b.delayMs();
+            fail("Should throw");
+        } catch (MaxAttemptsExceededException e) {
+
+        }
+        assertEquals(retries + 2, value("strimzi_topic_operator_backoff_retries_total"), 0);
+        assertEquals(exhausted + 1, value("strimzi_topic_operator_backoff_exhausted_total"), 0);
+    }
+
+    @Test
+    public void testTimedRecordsOutcome() {
+        String name = "strimzi_topic_operator_k8s_request_duration_seconds_count";
+        double successes = value(name, "ns", "test", Metrics.SUCCESS);
+        double failures = value(name, "ns", "test", Metrics.FAILURE);
+        double otherSuccesses = value(name, "other", "test", Metrics.SUCCESS);
+        boolean[] called = {false};
+        Handler<AsyncResult<Void>> handler = Metrics.timed(Metrics.K8S_REQUESTS, "ns", "test", ar -> called[0] = true);
+        handler.handle(Future.succeededFuture());
+        assertTrue(called[0]);
+        Metrics.timed(Metrics.K8S_REQUESTS, "ns", "test", ar -> { }).handle(Future.failedFuture("boom"));
+        assertEquals(successes + 1, value(name, "ns", "test", Metrics.SUCCESS), 0);
+        assertEquals(failures + 1, value(name, "ns", "test", Metrics.FAILURE), 0);
+        // Each namespace is counted separately
+        assertEquals(otherSuccesses, value(name, "other", "test", Metrics.SUCCESS), 0);
+    }
+
+    @Test
+    public void testScrape() {
+        Metrics.RECONCILIATIONS.labels("ns", Metrics.TRIGGER_WATCH, Metrics.SUCCESS).inc();
+        String text = Metrics.scrape();
+        assertTrue(text.contains("# TYPE strimzi_topic_operator_reconciliations_total counter"));
+        assertTrue(text.contains("strimzi_topic_operator_reconciliations_total{namespace=\"ns\",trigger=\"watch\",outcome=\"success\",}"));
+        assertTrue(text.contains("# TYPE strimzi_topic_operator_inflight_wait_seconds histogram"));
+    }
+}
@@ -5,6 +5,7 @@
 package io.strimzi.operator.topic;
 
 import io.fabric8.kubernetes.api.model.ConfigMap;
+import io.fabric8.kubernetes.api.model.ConfigMapBuilder;
 import io.fabric8.kubernetes.api.model.Event;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
@@ -15,6 +16,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
@@ -23,7 +25,8 @@ import java.util.stream.Collectors;
 public class MockK8s implements K8s {
 
     private Map<MapName, AsyncResult<ConfigMap>> byName = new HashMap<>();
-    private List<Event> events = new ArrayList<>();
+    private List<Event> events = new CopyOnWriteArrayList<>();
+    private List<Map<String, String>> patches = new ArrayList<>();
     private Function<MapName, AsyncResult<Void>> createResponse = n -> Future.failedFuture("Unexpected. ");
     private Function<MapName, AsyncResult<Void>> modifyResponse = n -> Future.failedFuture("Unexpected. ");
     private Function<MapName, AsyncResult<Void>> deleteResponse = n -> Future.failedFuture("Unexpected. ");
@@ -100,6 +103,21 @@ public class MockK8s implements K8s {
         handler.handle(response);
     }
 
+    @Override
+    public void patchConfigMap(MapName mapName, Map<String, String> data, Handler<AsyncResult<Void>> handler) {
+        AsyncResult<Void> response = modifyResponse.apply(mapName);
+        if (response.succeeded()) {
+            AsyncResult<ConfigMap> old = byName.get(mapName);
+            if (old == null) {
+                handler.handle(Future.failedFuture("configmap does not exist, cannot be patched: " + mapName));
+                return;
+            }
+            byName.put(mapName, Future.succeededFuture(new ConfigMapBuilder(old.result()).addToData(data).build()));
+            patches.add(data);
+        }
+        handler.handle(response);
+    }
+
     @Override
     public void deleteConfigMap(MapName mapName, Handler<AsyncResult<Void>> handler) {
         AsyncResult<Void> response = deleteResponse.apply(mapName);
@@ -133,6 +151,17 @@ public class MockK8s implements K8s {
         handler.handle(Future.succeededFuture());
     }
 
+    @Override
+    public void updateEvent(Event event, Handler<AsyncResult<Void>> handler) {
+        events.removeIf(e -> e.getMetadata().getName().equals(event.getMetadata().getName()));
+        events.add(event);
+        handler.handle(Future.succeededFuture());
+    }
+
+    public List<Event> getEvents() {
+        return events;
+    }
+
     public void assertExists(TestContext context, MapName mapName) {
         AsyncResult<ConfigMap> got = byName.get(mapName);
         context.assertTrue(got != null && got.succeeded());
@@ -157,6 +186,14 @@ public class MockK8s implements K8s {
         context.fail("Missing event");
     }
 
+    public void assertNoPatches(TestContext context) {
+        context.assertTrue(patches.isEmpty(), "Unexpected patches " + patches);
+    }
+
+    public List<Map<String, String>> patches() {
+        return patches;
+    }
+
     public void assertNoEvents(TestContext context) {
         context.assertTrue(events.isEmpty());
     }
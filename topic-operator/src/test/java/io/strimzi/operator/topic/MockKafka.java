@@ -27,6 +27,17 @@ public class MockKafka implements Kafka {
     private AsyncResult<Set<String>> topicsListResponse = Future.succeededFuture(Collections.emptySet());
     private Function<TopicName, AsyncResult<TopicMetadata>> topicMetadataRespose =
         t -> failedFuture("Unexpected. Your test probably need to configure the MockKafka with a topicMetadataResponse.");
+    private Function<Set<TopicName>, AsyncResult<Map<TopicName, TopicMetadata>>> topicsMetadataResponse = topicNames -> {
+        Map<TopicName, TopicMetadata> result = new HashMap<>();
+        for (TopicName topicName : topicNames) {
+            AsyncResult<TopicMetadata> metadata = topicMetadataRespose.apply(topicName);
+            if (metadata.failed()) {
+                return failedFuture(metadata.cause());
+            }
+            result.put(topicName, metadata.result());
+        }
+        return succeededFuture(result);
+    };
     private Function<String, AsyncResult<Void>> createTopicResponse =
         t -> failedFuture("Unexpected. Your test probably need to configure the MockKafka with a createTopicResponse.");
     private Function<TopicName, AsyncResult<Void>> deleteTopicResponse =
@@ -65,6 +76,11 @@ public class MockKafka implements Kafka {
         return this;
     }
 
+    public MockKafka setTopicsMetadataResponse(Function<Set<TopicName>, AsyncResult<Map<TopicName, TopicMetadata>>> topicsMetadataResponse) {
+        this.topicsMetadataResponse = topicsMetadataResponse;
+        return this;
+    }
+
     public MockKafka setCreateTopicResponse(Function<String, AsyncResult<Void>> createTopicResponse) {
         this.createTopicResponse = createTopicResponse;
         return this;
@@ -172,7 +188,7 @@ public class MockKafka implements Kafka {
     }
 
     @Override
-    public void changeReplicationFactor(Topic topic, Handler<AsyncResult<Void>> handler) {
+    public void changeReplicationFactor(Topic topic, Handler<ReassignmentProgress> progressHandler, Handler<AsyncResult<Void>> handler) {
         AsyncResult<Void> event = updateTopicResponse.apply(topic.getTopicName());
         if (event.succeeded()) {
             Topic t = topics.get(topic.getTopicName());
@@ -190,6 +206,11 @@ public class MockKafka implements Kafka {
         handler.handle(topicMetadataRespose.apply(topicName));
     }
 
+    @Override
+    public void topicsMetadata(Set<TopicName> topicNames, Handler<AsyncResult<Map<TopicName, TopicMetadata>>> handler) {
+        handler.handle(topicsMetadataResponse.apply(topicNames));
+    }
+
     @Override
     public void listTopics(Handler<AsyncResult<Set<String>>> handler) {
         handler.handle(topicsListResponse);
@@ -9,9 +9,12 @@ import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.Op;
+import org.apache.zookeeper.OpResult;
 import org.apache.zookeeper.data.ACL;
 import org.apache.zookeeper.data.Stat;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -24,6 +27,7 @@ class MockZk implements Zk {
     public AsyncResult<byte[]> dataResult = Future.failedFuture("Unexpected mock interaction. Configure " + getClass().getSimpleName() + ".dataResult");
     private Handler<AsyncResult<List<String>>> childrenHandler;
     private Map<String, Handler<AsyncResult<byte[]>>> dataHandlers = new HashMap<>();
+    private List<Handler<Void>> sessionReestablishedHandlers = new ArrayList<>();
 
     public void triggerChildren(AsyncResult<List<String>> childrenResult) {
         if (childrenHandler != null) {
@@ -39,6 +43,18 @@ class MockZk implements Zk {
         }
     }
 
+    public void triggerSessionReestablished() {
+        for (Handler<Void> handler : sessionReestablishedHandlers) {
+            handler.handle(null);
+        }
+    }
+
+    @Override
+    public Zk onSessionReestablished(Handler<Void> handler) {
+        sessionReestablishedHandlers.add(handler);
+        return this;
+    }
+
     @Override
     public Zk disconnect() {
         return this;
@@ -50,6 +66,12 @@ class MockZk implements Zk {
         return this;
     }
 
+    @Override
+    public Zk multi(Iterable<Op> ops, Handler<AsyncResult<List<OpResult>>> handler) {
+        handler.handle(Future.failedFuture("Unexpected mock interaction"));
+        return this;
+    }
+
     @Override
     public Zk setData(String path, byte[] data, int version, Handler<AsyncResult<Void>> handler) {
         handler.handle(setDataResult);
@@ -80,6 +102,11 @@ class MockZk implements Zk {
         return this;
     }
 
+    @Override
+    public Zk getData(String path, Stat stat, Handler<AsyncResult<byte[]>> handler) {
+        return getData(path, handler);
+    }
+
     @Override
     public Zk watchData(String path, Handler<AsyncResult<byte[]>> watcher) {
         dataHandlers.put(path, watcher);
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.operator.topic;
+
+import org.apache.kafka.common.Node;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ReplicaAssignerTest {
+
+    private static List<Node> nodes(int count, String... racks) {
+        List<Node> nodes = new ArrayList<>(count);
+        for (int id = 0; id < count; id++) {
+            nodes.add(new Node(id, "localhost", -1, racks.length == 0 ? null : racks[id % racks.length]));
+        }
+        return nodes;
+    }
+
+    private static void assertBalanced(ReplicaAssigner assigner, int brokers, int expectedReplicas) {
+        for (int id = 0; id < brokers; id++) {
+            assertEquals("Broker " + id, expectedReplicas, assigner.replicas(id));
+        }
+    }
+
+    @Test
+    public void testNewPartitionsAreBalanced() {
+        ReplicaAssigner assigner = new ReplicaAssigner(nodes(6), emptyMap());
+        Map<Integer, List<Integer>> assignment = assigner.assignNewPartitions(0, 12, 3);
+        assertEquals(12, assignment.size());
+        Map<Integer, Integer> leaders = new HashMap<>();
+        for (List<Integer> replicas : assignment.values()) {
+            assertEquals(3, replicas.size());
+            assertEquals(3, new HashSet<>(replicas).size());
+            leaders.merge(replicas.get(0), 1, Integer::sum);
+        }
+        assertBalanced(assigner, 6, 6);
+        // Leadership is approximately balanced too
+        assertEquals(6, leaders.size());
+        int min = Collections.min(leaders.values());
+        int max = Collections.max(leaders.values());
+        assertTrue("Leaders " + leaders + " unbalanced", max - min <= 2);
+    }
+
+    @Test
+    public void testNewPartitionsAreRackAware() {
+        List<Node> nodes = nodes(6, "a", "b", "c");
+        ReplicaAssigner assigner = new ReplicaAssigner(nodes, emptyMap());
+        Map<Integer, List<Integer>> assignment = assigner.assignNewPartitions(0, 10, 3);
+        for (List<Integer> replicas : assignment.values()) {
+            Set<String> racks = new HashSet<>();
+            for (Integer replica : replicas) {
+                racks.add(nodes.get(replica).rack());
+            }
+            assertEquals("Replicas " + replicas + " not spread across the racks", 3, racks.size());
+        }
+        assertBalanced(assigner, 6, 5);
+    }
+
+    @Test
+    public void testMoreReplicasThanRacks() {
+        List<Node> nodes = nodes(4, "a", "b");
+        ReplicaAssigner assigner = new ReplicaAssigner(nodes, emptyMap());
+        for (List<Integer> replicas : assigner.assignNewPartitions(0, 4, 3).values()) {
+            assertEquals(3, new HashSet<>(replicas).size());
+            Set<String> racks = new HashSet<>();
+            for (Integer replica : replicas) {
+                racks.add(nodes.get(replica).rack());
+            }
+            assertEquals(2, racks.size());
+        }
+        assertBalanced(assigner, 4, 3);
+    }
+
+    @Test
+    public void testExistingLoadIsTakenIntoAccount() {
+        Map<Integer, Integer> counts = new HashMap<>();
+        counts.put(0, 10);
+        counts.put(1, 5);
+        ReplicaAssigner assigner = new ReplicaAssigner(nodes(3), counts);
+        assigner.assignNewPartitions(0, 15, 1);
+        assertBalanced(assigner, 3, 10);
+    }
+
+    @Test
+    public void testIncreaseReplicationFactor() {
+        Map<Integer, List<Integer>> current = new HashMap<>();
+        current.put(0, asList(2, 0));
+        current.put(1, asList(0, 1));
+        current.put(2, asList(1, 2));
+        Map<Integer, Integer> counts = new HashMap<>();
+        counts.put(0, 2);
+        counts.put(1, 2);
+        counts.put(2, 2);
+        ReplicaAssigner assigner = new ReplicaAssigner(nodes(4), counts);
+        Map<Integer, List<Integer>> proposed = assigner.changeReplicationFactor(current, 3);
+        // The existing replicas (and so the preferred leaders) are retained, and the new replicas are
+        // put on the least loaded brokers
+        assertEquals(asList(2, 0, 3), proposed.get(0));
+        assertEquals(asList(0, 1, 3), proposed.get(1));
+        assertEquals(asList(1, 2, 0), proposed.get(2));
+        assertEquals(3, assigner.replicas(0));
+        assertEquals(2, assigner.replicas(3));
+    }
+
+    @Test
+    public void testIncreaseReplicationFactorRackAware() {
+        List<Node> nodes = nodes(4, "a", "b");
+        // Broker 0 is in rack a, so the new replica should be in rack b, on broker 1 or 3
+        ReplicaAssigner assigner = new ReplicaAssigner(nodes, singletonMap(0, 1));
+        List<Integer> replicas = assigner.changeReplicationFactor(singletonMap(0, singletonList(0)), 2).get(0);
+        assertEquals(0, replicas.get(0).intValue());
+        assertEquals("b", nodes.get(replicas.get(1)).rack());
+    }
+
+    @Test
+    public void testDecreaseReplicationFactor() {
+        List<Node> nodes = nodes(4, "a", "b");
+        Map<Integer, Integer> counts = new HashMap<>();
+        counts.put(0, 1);
+        counts.put(1, 1);
+        counts.put(2, 1);
+        ReplicaAssigner assigner = new ReplicaAssigner(nodes, counts);
+        // 0 and 2 are both in rack a, so 1 should be retained, rather than 2
+        List<Integer> replicas = assigner.changeReplicationFactor(singletonMap(0, asList(0, 2, 1)), 2).get(0);
+        assertEquals(asList(0, 1), replicas);
+        assertEquals(0, assigner.replicas(2));
+
+        replicas = assigner.changeReplicationFactor(singletonMap(0, asList(2, 0, 1)), 1).get(0);
+        assertEquals(singletonList(2), replicas);
+    }
+
+    @Test
+    public void testReplicaOnUnknownBroker() {
+        // Broker 5 is no longer in the cluster, but its replica is retained
+        ReplicaAssigner assigner = new ReplicaAssigner(nodes(3), emptyMap());
+        List<Integer> replicas = assigner.changeReplicationFactor(singletonMap(0, singletonList(5)), 2).get(0);
+        assertEquals(5, replicas.get(0).intValue());
+        assertTrue(replicas.get(1) < 3);
+    }
+
+    @Test(expected = OperatorException.class)
+    public void testTooFewBrokers() {
+        new ReplicaAssigner(nodes(2), emptyMap()).assignNewPartitions(0, 1, 3);
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.operator.topic;
+
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RunWith(VertxUnitRunner.class)
+public class RetrySchedulerTest {
+
+    private final Vertx vertx = Vertx.vertx();
+
+    @After
+    public void teardown() {
+        vertx.close();
+    }
+
+    @Test
+    public void testDelaysAreJitteredAndBounded(TestContext context) {
+        RetryScheduler scheduler = new RetryScheduler(vertx, new Random(42), 100, 1_000, 100, 1_000, 10, 64);
+        RetryScheduler.Retry retry = scheduler.retry(5);
+        Async async = context.async(5);
+        long previous = 100;
+        long total = 0;
+        for (int i = 0; i < 5; i++) {
+            long delay = retry.schedule(ignored -> async.countDown());
+            context.assertTrue(delay >= 100, "delay " + delay);
+            context.assertTrue(delay <= Math.min(1_000, previous * 3), "delay " + delay);
+            previous = delay;
+            total += delay;
+        }
+        context.assertEquals(total, retry.totalDelayMs());
+        try {
+            retry.schedule(ignored -> context.fail("Should not run"));
+            context.fail("Should throw");
+        } catch (MaxAttemptsExceededException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testConcurrentRetriesSpreadOut(TestContext context) {
+        RetryScheduler scheduler = new RetryScheduler(vertx, new Random(42), 100, 1_000, 1_000, 1_000, 10, 64);
+        long min = Long.MAX_VALUE;
+        long max = 0;
+        for (int i = 0; i < 100; i++) {
+            RetryScheduler.Retry retry = scheduler.retry(3);
+            retry.schedule(ignored -> { });
+            long delay = retry.schedule(ignored -> { });
+            min = Math.min(min, delay);
+            max = Math.max(max, delay);
+        }
+        // Retries which started together are no longer in lockstep by their second attempt
+        context.assertTrue(max - min > 100, "min " + min + ", max " + max);
+    }
+
+    @Test
+    public void testBudgetIsEnforced(TestContext context) {
+        // No jitter, so all the retries are due in the same tick
+        RetryScheduler scheduler = new RetryScheduler(vertx, new Random(42), 10, 10, 5, 500, 10, 64);
+        AtomicInteger run = new AtomicInteger();
+        Async all = context.async(15);
+        for (int i = 0; i < 15; i++) {
+            scheduler.retry(1).schedule(ignored -> {
+                run.incrementAndGet();
+                all.countDown();
+            });
+        }
+        Async checked = context.async();
+        vertx.setTimer(200, timerId -> {
+            context.assertEquals(5, run.get());
+            checked.complete();
+        });
+    }
+}
@@ -163,4 +163,12 @@ public class TopicDiffTest {
         assertTrue(TopicDiff.diff(topicD, topicE).changesReplicationFactor());
         assertTrue(TopicDiff.diff(topicC, topicE).changesReplicationFactor());
     }
+
+    @Test
+    public void testApplyChangesReplicationFactor() {
+        Topic topicC = new Topic.Builder(topicA.getTopicName(), topicA.getNumPartitions(), (short) 3, topicA.getConfig()).build();
+        TopicDiff diff = TopicDiff.diff(topicA, topicC);
+        assertTrue(diff.changesReplicationFactor());
+        assertEquals(topicC, diff.apply(topicA));
+    }
 }
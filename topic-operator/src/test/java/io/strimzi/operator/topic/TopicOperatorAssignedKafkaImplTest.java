@@ -4,268 +4,411 @@
  */
 package io.strimzi.operator.topic;
 
+import io.strimzi.operator.topic.zk.AclBuilder;
+import io.strimzi.operator.topic.zk.Zk;
+import io.strimzi.operator.topic.zk.ZkImpl;
+import io.strimzi.operator.topic.zk.ZkWatchManager;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import io.vertx.ext.unit.Async;
 import io.vertx.ext.unit.TestContext;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
-import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.CreateTopicsOptions;
+import org.apache.kafka.clients.admin.CreateTopicsResult;
+import org.apache.kafka.clients.admin.DescribeTopicsOptions;
+import org.apache.kafka.clients.admin.DescribeTopicsResult;
+import org.apache.kafka.clients.admin.ListTopicsOptions;
+import org.apache.kafka.clients.admin.ListTopicsResult;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.clients.admin.TopicListing;
+import org.apache.kafka.common.KafkaFuture;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.TopicPartitionInfo;
+import org.apache.kafka.common.internals.KafkaFutureImpl;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.data.ACL;
+import org.apache.zookeeper.data.Stat;
+import org.junit.After;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
 
 @RunWith(VertxUnitRunner.class)
 public class TopicOperatorAssignedKafkaImplTest {
 
-    private static Config config;
+    private static final String TOPIC = "changeReplicationFactor";
 
-    static {
+    private static Config config = new Config(configMap());
 
+    private static Map<String, String> configMap() {
         Map<String, String> map = new HashMap<>();
         map.put(Config.ZOOKEEPER_CONNECT.key, "localhost:2181");
         map.put(Config.KAFKA_BOOTSTRAP_SERVERS.key, "localhost:9092");
         map.put(Config.NAMESPACE.key, "default");
-        map.put(Config.REASSIGN_VERIFY_INTERVAL_MS.key, "1000");
-        config = new Config(map);
+        map.put(Config.REASSIGN_THROTTLE.key, "1000");
+        return map;
     }
 
-    /**
-     * We subclass the class under test so that we can run our own executable
-     * rather than the real ReassignPartitionsCommand. This allows us to test
-     * various scenarios without needing ZK+Kafka clusters deployed.
-     */
-    static class Subclass extends OperatorAssignedKafkaImpl {
+    /** An AdminClient for a cluster of 3 brokers with a single topic which has 2 partitions, each with a single replica on broker 0 */
+    static class SingleReplicaAdminClient extends MockAdminClient {
 
-        static List<String> fail(String message) {
-            return asList("--fail", message);
+        static <T> T newResult(Class<T> cls, Class<?> argType, Object arg) {
+            try {
+                Constructor<T> ctor = cls.getDeclaredConstructor(argType);
+                ctor.setAccessible(true);
+                return ctor.newInstance(arg);
+            } catch (ReflectiveOperationException e) {
+                throw new RuntimeException(e);
+            }
         }
 
-        static List<String> generate(String current, String propose) {
-            return asList("--generate-current", current, "--generate-propose", propose);
+        @Override
+        public ListTopicsResult listTopics(ListTopicsOptions listTopicsOptions) {
+            Map<String, TopicListing> listings = singletonMap(TOPIC, new TopicListing(TOPIC, false));
+            return newResult(ListTopicsResult.class, KafkaFuture.class, KafkaFutureImpl.completedFuture(listings));
         }
 
-        static List<String> executeStarted() {
-            return asList("--execute-started");
+        @Override
+        public DescribeTopicsResult describeTopics(Collection<String> collection, DescribeTopicsOptions describeTopicsOptions) {
+            Node node = new Node(0, "localhost", -2);
+            TopicDescription description = new TopicDescription(TOPIC, false, asList(
+                    new TopicPartitionInfo(0, node, singletonList(node), singletonList(node)),
+                    new TopicPartitionInfo(1, node, singletonList(node), singletonList(node))));
+            Map<String, KafkaFuture<TopicDescription>> futures = singletonMap(TOPIC, KafkaFutureImpl.completedFuture(description));
+            return newResult(DescribeTopicsResult.class, Map.class, futures);
         }
+    }
 
-        static List<String> verifyInProgress(String... partitions) {
-            List<String> result = new ArrayList(2 * partitions.length);
-            for (String partition: partitions) {
-                result.add("--verify-in-progress");
-                result.add(partition);
-            }
-            return result;
-        }
+    private final List<ACL> acl = new AclBuilder().setWorld(AclBuilder.Permission.values()).build();
+    private Vertx vertx;
+    private EmbeddedZooKeeper zkServer;
+    private Zk zk;
+    /** A separate connection, used to play the part of the Kafka controller */
+    private Zk controller;
+    private ZkWatchManager watchManager;
+    private OperatorAssignedKafkaImpl kafka;
 
-        static List<String> verifySuccess(String... partitions) {
-            List<String> result = new ArrayList(2 * partitions.length);
-            for (String partition: partitions) {
-                result.add("--verify-success");
-                result.add(partition);
-            }
-            return result;
+    @Before
+    public void setup(TestContext context) throws IOException, InterruptedException {
+        vertx = Vertx.vertx();
+        zkServer = new EmbeddedZooKeeper();
+        zk = new ZkImpl(vertx, zkServer.getZkConnectString(), 60000, false, "test");
+        controller = new ZkImpl(vertx, zkServer.getZkConnectString(), 60000, false, "test");
+        watchManager = new ZkWatchManager(zk);
+        kafka = new OperatorAssignedKafkaImpl(new SingleReplicaAdminClient(), vertx, config, zk, watchManager);
+        Map<String, String> topicConfig = new HashMap<>();
+        topicConfig.put("retention.ms", "1000");
+        for (String path : asList("/admin", "/config", "/config/changes", "/config/brokers", "/config/topics")) {
+            Async async = context.async();
+            controller.create(path, null, acl, CreateMode.PERSISTENT, context.asyncAssertSuccess(v -> async.complete()));
+            async.await();
         }
+        Async async = context.async();
+        controller.create("/config/topics/" + TOPIC, PartitionReassignment.configJson(topicConfig), acl, CreateMode.PERSISTENT,
+            context.asyncAssertSuccess(v -> async.complete()));
+        async.await();
+    }
 
-        static List<String> verifyFail(String message) {
-            return asList("--verify-fail", message);
-        }
+    @After
+    public void teardown() throws InterruptedException {
+        zk.disconnect();
+        controller.disconnect();
+        zkServer.close();
+        vertx.close();
+    }
 
-        static List<String> executeFail(String message) {
-            return asList("--execute-fail", message);
-        }
+    private Map<String, String> config(TestContext context, String path) {
+        Future<Map<String, String>> result = Future.future();
+        Async async = context.async();
+        controller.getData(path, ar -> {
+            result.handle(ar.map(PartitionReassignment::parseConfig));
+            async.complete();
+        });
+        async.await();
+        return result.result();
+    }
 
-        static List<String> executeInProgress() {
-            return asList("--execute-running");
-        }
+    @Test
+    public void changeReplicationFactor(TestContext context) {
+        Topic topic = new Topic.Builder(TOPIC, 2, (short) 2, emptyMap()).build();
+        // Broker 0 already has both the replicas, so the new replicas go to brokers 1 and 2
+        Map<Integer, List<Integer>> proposed = new HashMap<>();
+        proposed.put(0, asList(0, 1));
+        proposed.put(1, asList(0, 2));
+        String expectedJson = new String(PartitionReassignment.reassignmentJson(new TopicName(TOPIC), proposed));
 
-        public static final String SCRIPT = "src/test/scripts/reassign.sh";
-        private final List<List<String>> args;
-        private final String script;
-        private int i = 0;
+        Async reassigned = context.async();
+        kafka.changeReplicationFactor(topic, progress -> { }, context.asyncAssertSuccess(v -> reassigned.complete()));
 
-        public Subclass(AdminClient adminClient, Vertx vertx, Config config, List<List<String>> args) {
-            this(adminClient, vertx, config, SCRIPT, args);
-        }
+        // Wait for the reassignment to be started, then check the throttles are set and complete it
+        Async started = context.async();
+        vertx.setPeriodic(10, timerId -> controller.getData(PartitionReassignment.REASSIGN_PARTITIONS_PATH, ar -> {
+            if (ar.succeeded() && !started.isCompleted()) {
+                vertx.cancelTimer(timerId);
+                context.assertEquals(expectedJson, new String(ar.result()));
+                started.complete();
+            }
+        }));
+        started.await();
+        Map<String, String> topicConfig = config(context, "/config/topics/" + TOPIC);
+        context.assertEquals("0:0,1:0", topicConfig.get(PartitionReassignment.LEADER_THROTTLED_REPLICAS));
+        context.assertEquals("0:1,1:2", topicConfig.get(PartitionReassignment.FOLLOWER_THROTTLED_REPLICAS));
+        context.assertEquals("1000", config(context, "/config/brokers/1").get(PartitionReassignment.LEADER_THROTTLED_RATE));
+        Async changes = context.async();
+        controller.children("/config/changes", context.asyncAssertSuccess(children -> {
+            context.assertFalse(children.isEmpty());
+            changes.complete();
+        }));
+        changes.await();
+        context.assertFalse(reassigned.isCompleted());
 
-        public Subclass(AdminClient adminClient, Vertx vertx, Config config, String script, List<List<String>> args) {
-            super(adminClient, vertx, config);
-            this.script = script;
-            this.args = args;
-        }
+        controller.delete(PartitionReassignment.REASSIGN_PARTITIONS_PATH, -1, context.asyncAssertSuccess());
+        reassigned.await();
 
-        @Override
-        protected void addJavaArgs(List<String> args) {
-            args.add(script);
-            args.addAll(this.args.get(i++));
-        }
+        topicConfig = config(context, "/config/topics/" + TOPIC);
+        context.assertEquals(singletonMap("retention.ms", "1000"), topicConfig);
+        context.assertTrue(config(context, "/config/brokers/0").isEmpty());
+        context.assertTrue(config(context, "/config/brokers/1").isEmpty());
     }
 
+    /**
+     * Test that a burst of topic creations shares a single description of the cluster,
+     * and that the assigner's counts include the replicas it has already assigned.
+     */
     @Test
-    public void changeReplicationFactor_missingExecutable(TestContext context) {
-        MockAdminClient adminClient = new MockAdminClient();
-        Vertx vertx = Vertx.vertx();
-        Topic topic = new Topic.Builder("changeReplicationFactor", 2, (short) 2, emptyMap()).build();
-        String[] partitions = new String[]{"changeReplicationFactor-0", "changeReplicationFactor-1"};
-        final String doesNotExist = "/some/executable/that/does/not/exist";
-        Subclass sub = new Subclass(adminClient, vertx, config, doesNotExist, asList(
-                Subclass.generate("{\"version\":1,\"partitions\":[{\"topic\":\"test-topic\",\"partition\":0,\"replicas\":[0],\"log_dirs\":[\"any\"]},{\"topic\":\"test-topic\",\"partition\":1,\"replicas\":[0],\"log_dirs\":[\"any\"]}]}",
-                        "{\"version\":1,\"partitions\":[{\"topic\":\"test-topic\",\"partition\":0,\"replicas\":[0],\"log_dirs\":[\"any\"]},{\"topic\":\"test-topic\",\"partition\":1,\"replicas\":[0],\"log_dirs\":[\"any\"]}]}"),
-                Subclass.executeStarted(),
-                Subclass.verifyInProgress(partitions),
-                Subclass.verifySuccess(partitions)));
-        Async async = context.async();
-        sub.changeReplicationFactor(topic, ar -> {
-            context.assertFalse(ar.succeeded());
-            final String message = ar.cause().getMessage();
-            context.assertTrue(message.contains("lacks an executable arg[0]")
-                    && message.contains("/some/executable/that/does/not/exist"));
-            async.complete();
-        });
+    public void createTopicsShareClusterSnapshot(TestContext context) {
+        AtomicInteger listTopicsCalls = new AtomicInteger();
+        List<NewTopic> created = new CopyOnWriteArrayList<>();
+        kafka = new OperatorAssignedKafkaImpl(new SingleReplicaAdminClient() {
+            @Override
+            public ListTopicsResult listTopics(ListTopicsOptions listTopicsOptions) {
+                listTopicsCalls.incrementAndGet();
+                return super.listTopics(listTopicsOptions);
+            }
+
+            @Override
+            public CreateTopicsResult createTopics(Collection<NewTopic> newTopics, CreateTopicsOptions createTopicsOptions) {
+                created.addAll(newTopics);
+                Map<String, KafkaFuture<Void>> futures = new HashMap<>();
+                for (NewTopic newTopic : newTopics) {
+                    futures.put(newTopic.name(), KafkaFutureImpl.completedFuture(null));
+                }
+                return newResult(CreateTopicsResult.class, Map.class, futures);
+            }
+        }, vertx, config, zk, watchManager);
+
+        Async async = context.async(4);
+        for (int i = 0; i < 4; i++) {
+            kafka.createTopic(new Topic.Builder("topic-" + i, 1, (short) 1, emptyMap()).build(),
+                context.asyncAssertSuccess(v -> async.countDown()));
+        }
+        async.await();
+        context.assertEquals(1, listTopicsCalls.get());
+        // Broker 0 already has 2 replicas, so the new single replica partitions go to 1, 2, 1 and 2 (in some order)
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (NewTopic newTopic : created) {
+            counts.merge(newTopic.replicasAssignments().get(0).get(0), 1, Integer::sum);
+        }
+        context.assertNull(counts.get(0));
+        context.assertEquals(2, counts.get(1));
+        context.assertEquals(2, counts.get(2));
     }
 
-    @Test
-    public void changeReplicationFactor_notExecutable(TestContext context) {
-        MockAdminClient adminClient = new MockAdminClient();
-        Vertx vertx = Vertx.vertx();
-        Topic topic = new Topic.Builder("changeReplicationFactor", 2, (short) 2, emptyMap()).build();
-        String[] partitions = new String[]{"changeReplicationFactor-0", "changeReplicationFactor-1"};
-        Subclass sub = new Subclass(adminClient, vertx, config, "pom.xml", asList(
-                Subclass.generate("{\"version\":1,\"partitions\":[{\"topic\":\"test-topic\",\"partition\":0,\"replicas\":[0],\"log_dirs\":[\"any\"]},{\"topic\":\"test-topic\",\"partition\":1,\"replicas\":[0],\"log_dirs\":[\"any\"]}]}",
-                        "{\"version\":1,\"partitions\":[{\"topic\":\"test-topic\",\"partition\":0,\"replicas\":[0],\"log_dirs\":[\"any\"]},{\"topic\":\"test-topic\",\"partition\":1,\"replicas\":[0],\"log_dirs\":[\"any\"]}]}"),
-                Subclass.executeStarted(),
-                Subclass.verifyInProgress(partitions),
-                Subclass.verifySuccess(partitions)));
+    private void createPartitionState(TestContext context, int partition, List<Integer> isr) {
+        String partitions = "/brokers/topics/" + TOPIC + "/partitions";
+        for (String path : asList("/brokers", "/brokers/topics", "/brokers/topics/" + TOPIC, partitions, partitions + "/" + partition)) {
+            Async async = context.async();
+            controller.create(path, null, acl, CreateMode.PERSISTENT, ar -> async.complete());
+            async.await();
+        }
         Async async = context.async();
-        sub.changeReplicationFactor(topic, ar -> {
-            context.assertFalse(ar.succeeded());
-            final String message = ar.cause().getMessage();
-            context.assertTrue(message.contains("lacks an executable arg[0]")
-                && message.contains("pom.xml"));
-            async.complete();
-        });
+        controller.create(partitions + "/" + partition + "/state", partitionState(isr), acl, CreateMode.PERSISTENT,
+            context.asyncAssertSuccess(v -> async.complete()));
+        async.await();
     }
 
-    @Test
-    public void changeReplicationFactor(TestContext context) {
-        MockAdminClient adminClient = new MockAdminClient();
-        Vertx vertx = Vertx.vertx();
-        Topic topic = new Topic.Builder("changeReplicationFactor", 2, (short) 2, emptyMap()).build();
-        String[] partitions = new String[]{"changeReplicationFactor-0", "changeReplicationFactor-1"};
-        Subclass sub = new Subclass(adminClient, vertx, config, asList(
-                Subclass.generate("{\"version\":1,\"partitions\":[{\"topic\":\"test-topic\",\"partition\":0,\"replicas\":[0],\"log_dirs\":[\"any\"]},{\"topic\":\"test-topic\",\"partition\":1,\"replicas\":[0],\"log_dirs\":[\"any\"]}]}",
-                        "{\"version\":1,\"partitions\":[{\"topic\":\"test-topic\",\"partition\":0,\"replicas\":[0],\"log_dirs\":[\"any\"]},{\"topic\":\"test-topic\",\"partition\":1,\"replicas\":[0],\"log_dirs\":[\"any\"]}]}"),
-                Subclass.executeStarted(),
-                Subclass.verifyInProgress(partitions),
-                Subclass.verifySuccess(partitions)));
-        Async async = context.async();
-        sub.changeReplicationFactor(topic, ar -> {
-            context.assertTrue(ar.succeeded());
-            async.complete();
-        });
+    private static byte[] partitionState(List<Integer> isr) {
+        return ("{\"controller_epoch\":1,\"leader\":0,\"version\":1,\"leader_epoch\":0,\"isr\":" + isr + "}").getBytes();
     }
 
     /**
-     * Test the case where an error happens during --verify execution.
-     * We should retry until we succeed (or (TODO) a timeout happens).
-     * We handle this differently from case of error in --execute because we need to ensure throttles get removed.
+     * Test that the progress of each partition is reported as its new replica joins the ISR,
+     * and that its throttles are removed as soon as it's complete.
      */
     @Test
-    public void changeReplicationFactor_TransientErrorInVerify(TestContext context) {
-        MockAdminClient adminClient = new MockAdminClient();
-        Vertx vertx = Vertx.vertx();
-        Topic topic = new Topic.Builder("changeReplicationFactor", 2, (short) 2, emptyMap()).build();
-        String[] partitions = new String[]{"changeReplicationFactor-0", "changeReplicationFactor-1"};
-        Subclass sub = new Subclass(adminClient, vertx, config, asList(
-                Subclass.generate("{\"version\":1,\"partitions\":[{\"topic\":\"test-topic\",\"partition\":0,\"replicas\":[0],\"log_dirs\":[\"any\"]},{\"topic\":\"test-topic\",\"partition\":1,\"replicas\":[0],\"log_dirs\":[\"any\"]}]}",
-                        "{\"version\":1,\"partitions\":[{\"topic\":\"test-topic\",\"partition\":0,\"replicas\":[0],\"log_dirs\":[\"any\"]},{\"topic\":\"test-topic\",\"partition\":1,\"replicas\":[0],\"log_dirs\":[\"any\"]}]}"),
-                Subclass.executeStarted(),
-                Subclass.verifyInProgress(partitions),
-                Subclass.fail("Bang!"),
-                Subclass.verifySuccess(partitions)));
-        Async async = context.async();
-        sub.changeReplicationFactor(topic, ar -> {
-            // We should retry anf ultimately succeed
-            context.assertTrue(ar.succeeded());
-            async.complete();
+    public void changeReplicationFactor_PartitionProgress(TestContext context) {
+        createPartitionState(context, 0, singletonList(0));
+        createPartitionState(context, 1, singletonList(0));
+        Topic topic = new Topic.Builder(TOPIC, 2, (short) 2, emptyMap()).build();
+
+        List<ReassignmentProgress> progresses = new CopyOnWriteArrayList<>();
+        Async reassigned = context.async();
+        kafka.changeReplicationFactor(topic, progresses::add, context.asyncAssertSuccess(v -> reassigned.complete()));
+
+        Async started = context.async();
+        vertx.setPeriodic(10, timerId -> {
+            if (!progresses.isEmpty() && !started.isCompleted()) {
+                vertx.cancelTimer(timerId);
+                started.complete();
+            }
         });
+        started.await();
+        ReassignmentProgress progress = progresses.get(progresses.size() - 1);
+        context.assertEquals(2, progress.getPartitions());
+        context.assertEquals(0, progress.getCompletedPartitions());
+        context.assertEquals(4, progress.getReplicas());
+        context.assertEquals(2, progress.getReplicasInSync());
+
+        // The new replica of partition 0 catches up, so its throttles are removed
+        Async caughtUp = context.async();
+        controller.setData("/brokers/topics/" + TOPIC + "/partitions/0/state", partitionState(asList(0, 1)), -1,
+            context.asyncAssertSuccess(v -> caughtUp.complete()));
+        caughtUp.await();
+        Async throttleRemoved = context.async();
+        vertx.setPeriodic(10, timerId -> controller.getData("/config/topics/" + TOPIC, ar -> {
+            if (ar.succeeded() && !throttleRemoved.isCompleted()
+                    && "1:2".equals(PartitionReassignment.parseConfig(ar.result()).get(PartitionReassignment.FOLLOWER_THROTTLED_REPLICAS))) {
+                vertx.cancelTimer(timerId);
+                throttleRemoved.complete();
+            }
+        }));
+        throttleRemoved.await();
+        Map<String, String> topicConfig = config(context, "/config/topics/" + TOPIC);
+        context.assertEquals("1:0", topicConfig.get(PartitionReassignment.LEADER_THROTTLED_REPLICAS));
+        progress = progresses.get(progresses.size() - 1);
+        context.assertEquals(1, progress.getCompletedPartitions());
+        context.assertEquals(3, progress.getReplicasInSync());
+        context.assertFalse(reassigned.isCompleted());
+
+        controller.delete(PartitionReassignment.REASSIGN_PARTITIONS_PATH, -1, context.asyncAssertSuccess());
+        reassigned.await();
+        progress = progresses.get(progresses.size() - 1);
+        context.assertTrue(progress.isComplete());
+        context.assertEquals(4, progress.getReplicasInSync());
+        context.assertEquals(singletonMap("retention.ms", "1000"), config(context, "/config/topics/" + TOPIC));
     }
 
-    @Test
-    public void changeReplicationFactor_ErrorInVerify(TestContext context) {
-        MockAdminClient adminClient = new MockAdminClient();
-        Vertx vertx = Vertx.vertx();
-        Topic topic = new Topic.Builder("changeReplicationFactor", 2, (short) 2, emptyMap()).build();
-        String[] partitions = new String[]{"changeReplicationFactor-0", "changeReplicationFactor-1"};
-        Subclass sub = new Subclass(adminClient, vertx, config, asList(
-                Subclass.generate("{\"version\":1,\"partitions\":[{\"topic\":\"test-topic\",\"partition\":0,\"replicas\":[0],\"log_dirs\":[\"any\"]},{\"topic\":\"test-topic\",\"partition\":1,\"replicas\":[0],\"log_dirs\":[\"any\"]}]}",
-                        "{\"version\":1,\"partitions\":[{\"topic\":\"test-topic\",\"partition\":0,\"replicas\":[0],\"log_dirs\":[\"any\"]},{\"topic\":\"test-topic\",\"partition\":1,\"replicas\":[0],\"log_dirs\":[\"any\"]}]}"),
-                Subclass.executeStarted(),
-                Subclass.verifyInProgress(partitions),
-                Subclass.verifyFail("Bang!"),
-                Subclass.verifySuccess(partitions)));
+    /** Set the throttle rates of broker 1, as another reassignment would have. */
+    private void throttleBroker1(TestContext context) {
+        Map<String, String> brokerConfig = new HashMap<>();
+        brokerConfig.put(PartitionReassignment.LEADER_THROTTLED_RATE, "500");
+        brokerConfig.put(PartitionReassignment.FOLLOWER_THROTTLED_RATE, "500");
         Async async = context.async();
-        sub.changeReplicationFactor(topic, ar -> {
-            // We should retry anf ultimately succeed
-            context.assertTrue(ar.succeeded());
-            async.complete();
-        });
+        controller.create("/config/brokers/1", PartitionReassignment.configJson(brokerConfig), acl, CreateMode.PERSISTENT,
+            context.asyncAssertSuccess(v -> async.complete()));
+        async.await();
     }
 
     /**
-     * Test the case where the --gexecute execution fails because a reassignment is currently running.
+     * Test the case where another reassignment is already running.
      * We should give up and fail the handler, on the basis that we will retry later as a result of
-     * periodic reconciliation.
+     * periodic reconciliation, without changing any throttles.
      */
     @Test
     public void changeReplicationFactor_ExecuteInProgress(TestContext context) {
-        MockAdminClient adminClient = new MockAdminClient();
-        Vertx vertx = Vertx.vertx();
-        Topic topic = new Topic.Builder("changeReplicationFactor", 2, (short) 2, emptyMap()).build();
-        String[] partitions = new String[]{"changeReplicationFactor-0", "changeReplicationFactor-1"};
-        Subclass sub = new Subclass(adminClient, vertx, config, asList(
-                Subclass.generate("{\"version\":1,\"partitions\":[{\"topic\":\"test-topic\",\"partition\":0,\"replicas\":[0],\"log_dirs\":[\"any\"]},{\"topic\":\"test-topic\",\"partition\":1,\"replicas\":[0],\"log_dirs\":[\"any\"]}]}",
-                        "{\"version\":1,\"partitions\":[{\"topic\":\"test-topic\",\"partition\":0,\"replicas\":[0],\"log_dirs\":[\"any\"]},{\"topic\":\"test-topic\",\"partition\":1,\"replicas\":[0],\"log_dirs\":[\"any\"]}]}"),
-                Subclass.executeInProgress(),
-                Subclass.verifyInProgress(partitions),
-                Subclass.verifySuccess(partitions)));
+        throttleBroker1(context);
+        Async created = context.async();
+        controller.create(PartitionReassignment.REASSIGN_PARTITIONS_PATH, "{}".getBytes(), acl, CreateMode.PERSISTENT,
+            context.asyncAssertSuccess(v -> created.complete()));
+        created.await();
+
+        Topic topic = new Topic.Builder(TOPIC, 2, (short) 2, emptyMap()).build();
         Async async = context.async();
-        sub.changeReplicationFactor(topic, ar -> {
+        kafka.changeReplicationFactor(topic, progress -> context.fail("Unexpected progress"), ar -> {
             context.assertFalse(ar.succeeded());
             context.assertEquals("Reassigment failed: There is an existing assignment running.", ar.cause().getMessage());
             async.complete();
         });
+        async.await();
+        context.assertEquals(singletonMap("retention.ms", "1000"), config(context, "/config/topics/" + TOPIC));
+        context.assertEquals("500", config(context, "/config/brokers/1").get(PartitionReassignment.LEADER_THROTTLED_RATE));
+        context.assertNull(config(context, "/config/brokers/0"));
     }
 
     /**
-     * Test the case where something goes wrong with the initial --generate execution.
-     * We should give up and fail the handler, on the basis that we will retry later as a result of
-     * periodic reconciliation.
+     * Test the case where another reassignment starts after we checked that none was running.
+     * The throttles we set should be put back as they were.
+     */
+    @Test
+    public void changeReplicationFactor_ExecuteStartedConcurrently(TestContext context) throws InterruptedException {
+        throttleBroker1(context);
+        // Creates the reassignment znode as we check whether it exists
+        Zk racingZk = new ZkImpl(vertx, zkServer.getZkConnectString(), 60000, false, "test") {
+            @Override
+            public Zk exists(String path, Handler<AsyncResult<Stat>> handler) {
+                controller.create(path, "{}".getBytes(), acl, CreateMode.PERSISTENT,
+                    ar -> handler.handle(Future.succeededFuture(null)));
+                return this;
+            }
+        };
+        try {
+            kafka = new OperatorAssignedKafkaImpl(new SingleReplicaAdminClient(), vertx, config, racingZk, new ZkWatchManager(racingZk));
+            Topic topic = new Topic.Builder(TOPIC, 2, (short) 2, emptyMap()).build();
+            Async async = context.async();
+            kafka.changeReplicationFactor(topic, progress -> context.fail("Unexpected progress"), context.asyncAssertFailure(e -> {
+                context.assertEquals("Reassigment failed: There is an existing assignment running.", e.getMessage());
+                async.complete();
+            }));
+            async.await();
+        } finally {
+            racingZk.disconnect();
+        }
+        context.assertEquals(singletonMap("retention.ms", "1000"), config(context, "/config/topics/" + TOPIC));
+        // The other reassignment's throttle is put back, and ours removed
+        context.assertEquals("500", config(context, "/config/brokers/1").get(PartitionReassignment.LEADER_THROTTLED_RATE));
+        context.assertEquals("500", config(context, "/config/brokers/1").get(PartitionReassignment.FOLLOWER_THROTTLED_RATE));
+        context.assertTrue(config(context, "/config/brokers/0").isEmpty());
+    }
+
+    /**
+     * Test that a reassignment which stops making progress is reported as failed once the stall timeout has elapsed,
+     * but that it's still tracked, and its throttles removed once it completes.
      */
     @Test
-    public void changeReplicationFactor_ExecuteFail(TestContext context) {
-        MockAdminClient adminClient = new MockAdminClient();
-        Vertx vertx = Vertx.vertx();
-        Topic topic = new Topic.Builder("changeReplicationFactor", 2, (short) 2, emptyMap()).build();
-        String[] partitions = new String[]{"changeReplicationFactor-0", "changeReplicationFactor-1"};
-        Subclass sub = new Subclass(adminClient, vertx, config, asList(
-                Subclass.generate("{\"version\":1,\"partitions\":[{\"topic\":\"test-topic\",\"partition\":0,\"replicas\":[0],\"log_dirs\":[\"any\"]},{\"topic\":\"test-topic\",\"partition\":1,\"replicas\":[0],\"log_dirs\":[\"any\"]}]}",
-                        "{\"version\":1,\"partitions\":[{\"topic\":\"test-topic\",\"partition\":0,\"replicas\":[0],\"log_dirs\":[\"any\"]},{\"topic\":\"test-topic\",\"partition\":1,\"replicas\":[0],\"log_dirs\":[\"any\"]}]}"),
-                Subclass.executeFail("Bang!"),
-                Subclass.executeStarted(),
-                Subclass.verifyInProgress(partitions),
-                Subclass.verifySuccess(partitions)));
+    public void changeReplicationFactor_Stalled(TestContext context) {
+        Map<String, String> map = configMap();
+        map.put(Config.REASSIGN_VERIFY_INTERVAL_MS.key, "50");
+        map.put(Config.REASSIGN_STALL_TIMEOUT_MS.key, "200");
+        kafka = new OperatorAssignedKafkaImpl(new SingleReplicaAdminClient(), vertx, new Config(map), zk, watchManager);
+        Topic topic = new Topic.Builder(TOPIC, 2, (short) 2, emptyMap()).build();
+
         Async async = context.async();
-        sub.changeReplicationFactor(topic, ar -> {
-            context.assertFalse(ar.succeeded());
-            context.assertTrue(ar.cause().getMessage().contains("Failed to reassign partitions"));
+        kafka.changeReplicationFactor(topic, progress -> { }, context.asyncAssertFailure(e -> {
+            context.assertTrue(e instanceof TransientOperatorException);
             async.complete();
-        });
-    }
+        }));
+        async.await();
+        context.assertTrue(watchManager.watchingData(PartitionReassignment.REASSIGN_PARTITIONS_PATH));
+        context.assertEquals("1000", config(context, "/config/brokers/1").get(PartitionReassignment.LEADER_THROTTLED_RATE));
 
+        controller.delete(PartitionReassignment.REASSIGN_PARTITIONS_PATH, -1, context.asyncAssertSuccess());
+        Async unthrottled = context.async();
+        vertx.setPeriodic(10, timerId -> controller.getData("/config/brokers/1", ar -> {
+            if (ar.succeeded() && !unthrottled.isCompleted() && PartitionReassignment.parseConfig(ar.result()).isEmpty()) {
+                vertx.cancelTimer(timerId);
+                unthrottled.complete();
+            }
+        }));
+        unthrottled.await();
+        context.assertEquals(singletonMap("retention.ms", "1000"), config(context, "/config/topics/" + TOPIC));
+        context.assertFalse(watchManager.watchingData(PartitionReassignment.REASSIGN_PARTITIONS_PATH));
+        context.assertFalse(watchManager.watchingData(PartitionReassignment.partitionStatePath(new TopicName(TOPIC), 0)));
+    }
 }
@@ -8,6 +8,8 @@ import io.fabric8.kubernetes.api.model.ConfigMap;
 import io.fabric8.kubernetes.api.model.ConfigMapBuilder;
 import io.fabric8.kubernetes.client.KubernetesClientException;
 import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.DeploymentOptions;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
@@ -22,13 +24,21 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import static java.util.Arrays.asList;
 import static java.util.Collections.emptySet;
 import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
 
 @RunWith(VertxUnitRunner.class)
 public class TopicOperatorTest {
@@ -304,6 +314,51 @@ public class TopicOperatorTest {
         });
     }
 
+    /**
+     * 1. operator is sharded over two contexts
+     * 2. operator is notified of two topics created, one on each shard
+     * 3. operator retries getting the metadata of both topics concurrently
+     * 4. every attempt for a topic runs on that topic's shard
+     */
+    @Test
+    public void testOnTopicCreated_retrySharded(TestContext context) {
+        List<Context> shards = new CopyOnWriteArrayList<>();
+        Async deployed = context.async();
+        vertx.deployVerticle(() -> new Session.Shard(shards), new DeploymentOptions().setInstances(2),
+            context.asyncAssertSuccess(id -> deployed.complete()));
+        deployed.await();
+        Map<String, String> map = new HashMap<>(MANDATORY_CONFIG);
+        map.put(Config.TOPIC_METADATA_MAX_ATTEMPTS.key, "3");
+        topicOperator = new TopicOperator(vertx, mockKafka, mockK8s, mockTopicStore, cmPredicate, "default-namespace",
+                new Config(map), shards);
+        // Topics are sharded by the hash of their name
+        TopicName topic0 = new TopicName("topic-0");
+        TopicName topic1 = topic0;
+        for (int i = 1; Math.floorMod(topic1.hashCode(), 2) == Math.floorMod(topic0.hashCode(), 2); i++) {
+            topic1 = new TopicName("topic-" + i);
+        }
+
+        AtomicInteger attempts = new AtomicInteger();
+        mockKafka.setTopicMetadataResponse(t -> {
+            attempts.incrementAndGet();
+            context.assertEquals(shards.get(Math.floorMod(t.hashCode(), 2)), Vertx.currentContext(),
+                    "Metadata of " + t + " was requested on the wrong context");
+            return Future.succeededFuture(null);
+        });
+
+        Async async = context.async(2);
+        for (TopicName topic : asList(topic0, topic1)) {
+            topicOperator.onTopicCreated(topic, ar -> {
+                assertFailed(context, ar);
+                context.assertEquals(ar.cause().getClass(), MaxAttemptsExceededException.class);
+                async.countDown();
+            });
+        }
+        async.await();
+        // Each topic was tried once and then retried 3 times
+        context.assertEquals(8, attempts.get());
+    }
+
     /**
      * 0. ZK notifies of a change in topic config
      * 1. operator gets updated topic metadata
@@ -644,6 +699,66 @@ public class TopicOperatorTest {
         });
     }
 
+    /**
+     * Test reconciliation when all three topics are the same: Nothing should be written.
+     */
+    @Test
+    public void testReconcile_withCm_withKafka_withPrivate_unchanged(TestContext context) {
+        Topic topic = new Topic.Builder(topicName, mapName, 10, (short) 2, map("cleanup.policy", "bar")).build();
+
+        Async async0 = context.async(2);
+        mockKafka.setCreateTopicResponse(topicName -> Future.succeededFuture());
+        mockKafka.createTopic(topic, ar -> async0.countDown());
+        mockTopicStore.setCreateTopicResponse(topicName, null);
+        mockTopicStore.create(topic, ar -> async0.countDown());
+        ConfigMap cm = TopicSerialization.toConfigMap(topic, cmPredicate);
+        mockK8s.setGetFromNameResponse(mapName, Future.succeededFuture(cm));
+        async0.await();
+
+        // No update responses are configured, so any write would fail the reconciliation
+        Async async = context.async();
+        topicOperator.reconcile(cm, topic, topic, topic, reconcileResult -> {
+            assertSucceeded(context, reconcileResult);
+            mockK8s.assertNoPatches(context);
+            mockK8s.assertNoEvents(context);
+            async.complete();
+        });
+    }
+
+    /**
+     * Test reconciliation when only the number of partitions has changed in Kafka:
+     * Only the ConfigMap's partitions and the topic store should be written.
+     */
+    @Test
+    public void testReconcile_withCm_withKafka_withPrivate_kafkaPartitionsChanged(TestContext context) {
+        Topic kubeTopic = new Topic.Builder(topicName, mapName, 10, (short) 2, map("cleanup.policy", "bar")).build();
+        Topic kafkaTopic = new Topic.Builder(topicName, mapName, 12, (short) 2, map("cleanup.policy", "bar")).build();
+        Topic privateTopic = kubeTopic;
+
+        Async async0 = context.async(2);
+        mockKafka.setCreateTopicResponse(topicName -> Future.succeededFuture());
+        mockKafka.createTopic(kafkaTopic, ar -> async0.countDown());
+        mockTopicStore.setCreateTopicResponse(topicName, null);
+        mockTopicStore.create(privateTopic, ar -> async0.countDown());
+        mockTopicStore.setUpdateTopicResponse(topicName, null);
+        ConfigMap cm = TopicSerialization.toConfigMap(kubeTopic, cmPredicate);
+        mockK8s.setGetFromNameResponse(mapName, Future.succeededFuture(cm));
+        mockK8s.setModifyResponse(mapName, null);
+        async0.await();
+
+        Async async = context.async();
+        topicOperator.reconcile(cm, kubeTopic, kafkaTopic, privateTopic, reconcileResult -> {
+            assertSucceeded(context, reconcileResult);
+            context.assertEquals(singletonList(singletonMap(TopicSerialization.CM_KEY_PARTITIONS, "12")), mockK8s.patches());
+            mockTopicStore.assertContains(context, kafkaTopic);
+            mockK8s.getFromName(mapName, readResult -> {
+                assertSucceeded(context, readResult);
+                context.assertEquals(kafkaTopic, TopicSerialization.fromConfigMap(readResult.result()));
+                async.complete();
+            });
+        });
+    }
+
     // TODO 3way reconcilation where kafka and kube agree
     // TODO 3way reconcilation where all three agree
     // TODO 3way reconcilation with conflict
@@ -706,6 +821,7 @@ public class TopicOperatorTest {
                 .create(privateTopic, ar -> { });
         mockTopicStore.setUpdateTopicResponse(topicName, null);
 
+        mockK8s.setGetFromNameResponse(mapName, Future.succeededFuture(cm));
         mockK8s.setModifyResponse(mapName, null);
 
         Async async = context.async(3);
@@ -815,19 +931,37 @@ public class TopicOperatorTest {
     }
 
     @Test
-    public void testReconcileAllTopics_getCmFails(TestContext context) {
+    public void testReconcileAllTopics_listMapsFailsWithKafkaTopics(TestContext context) {
         RuntimeException error = new RuntimeException("some failure");
         mockKafka.setTopicsListResponse(Future.succeededFuture(singleton(topicName.toString())));
-        mockK8s.setGetFromNameResponse(mapName, Future.failedFuture(error));
+        mockK8s.setListMapsResult(() -> Future.failedFuture(error));
 
         Future<?> reconcileFuture = topicOperator.reconcileAllTopics("periodic");
 
         reconcileFuture.setHandler(context.asyncAssertFailure(e -> {
-            context.assertEquals("Error getting ConfigMap my-topic during periodic reconciliation", e.getMessage());
+            context.assertEquals("Error listing existing ConfigMaps during periodic reconciliation", e.getMessage());
             context.assertEquals(error, e.getCause());
         }));
     }
 
+    @Test
+    public void testReconcileAllTopics_getsCurrentConfigMap(TestContext context) {
+        Topic k8sTopic = new Topic.Builder(topicName.toString(), 10, (short) 2, map("cleanup.policy", "bar")).build();
+        ConfigMap cm = TopicSerialization.toConfigMap(k8sTopic, cmPredicate);
+        mockKafka.setTopicsListResponse(Future.succeededFuture(emptySet()));
+        // The ConfigMap is listed, but has been deleted by the time its reconciliation starts
+        mockK8s.setListMapsResult(() -> Future.succeededFuture(singletonList(cm)));
+        mockKafka.setTopicMetadataResponse(topicName, null, null);
+
+        Future<?> reconcileFuture = topicOperator.reconcileAllTopics("periodic");
+
+        // so the topic is not created in Kafka
+        reconcileFuture.setHandler(context.asyncAssertSuccess(v -> {
+            mockKafka.assertNotExists(context, topicName);
+            mockTopicStore.assertNotExists(context, topicName);
+        }));
+    }
+
     @Test
     public void testReconcileAllTopics_listMapsFails(TestContext context) {
         RuntimeException error = new RuntimeException("some failure");
@@ -842,6 +976,78 @@ public class TopicOperatorTest {
         }));
     }
 
+    @Test
+    public void testReconcileAllTopics_usesBatchedMetadata(TestContext context) {
+        Topic kafkaTopic = new Topic.Builder(topicName.toString(), 10, (short) 2, map("cleanup.policy", "bar")).build();
+        mockKafka.setTopicsListResponse(Future.succeededFuture(singleton(topicName.toString())));
+        mockKafka.setTopicMetadataResponse(topicName, null, new RuntimeException("per-topic metadata should not be used"));
+        mockKafka.setTopicsMetadataResponse(topicNames -> {
+            context.assertEquals(singleton(topicName), topicNames);
+            return Future.succeededFuture(Collections.singletonMap(topicName, Utils.getTopicMetadata(kafkaTopic)));
+        });
+        mockTopicStore.setCreateTopicResponse(topicName, null);
+        mockK8s.setCreateResponse(mapName, null);
+
+        Future<?> reconcileFuture = topicOperator.reconcileAllTopics("periodic");
+
+        reconcileFuture.setHandler(context.asyncAssertSuccess(v -> {
+            mockK8s.assertExists(context, mapName);
+            mockTopicStore.assertExists(context, topicName);
+        }));
+    }
+
+    @Test
+    public void testReconcileAllTopics_batchedMetadataFails(TestContext context) {
+        Topic kafkaTopic = new Topic.Builder(topicName.toString(), 10, (short) 2, map("cleanup.policy", "bar")).build();
+        mockKafka.setTopicsListResponse(Future.succeededFuture(singleton(topicName.toString())));
+        mockKafka.setTopicMetadataResponse(topicName, Utils.getTopicMetadata(kafkaTopic), null);
+        mockKafka.setTopicsMetadataResponse(topicNames -> Future.failedFuture(new RuntimeException("some failure")));
+        mockTopicStore.setCreateTopicResponse(topicName, null);
+        mockK8s.setCreateResponse(mapName, null);
+
+        Future<?> reconcileFuture = topicOperator.reconcileAllTopics("periodic");
+
+        // falls back to getting the metadata of each topic
+        reconcileFuture.setHandler(context.asyncAssertSuccess(v -> {
+            mockK8s.assertExists(context, mapName);
+            mockTopicStore.assertExists(context, topicName);
+        }));
+    }
+
+    @Test
+    public void testReconcileAllTopics_describesMetadataPerBatch(TestContext context) {
+        Map<String, String> configMap = new HashMap<>(MANDATORY_CONFIG);
+        configMap.put(Config.TC_PERIODIC_CONCURRENCY, "1");
+        topicOperator = new TopicOperator(vertx, mockKafka, mockK8s, mockTopicStore, cmPredicate, "default-namespace", new Config(configMap));
+        Topic kafkaTopic = new Topic.Builder(topicName.toString(), 10, (short) 2, map("cleanup.policy", "bar")).build();
+        TopicName topicName2 = new TopicName("my-topic-2");
+        Topic kafkaTopic2 = new Topic.Builder(topicName2.toString(), 10, (short) 2, map("cleanup.policy", "bar")).build();
+        mockKafka.setTopicsListResponse(Future.succeededFuture(new HashSet<>(asList(topicName.toString(), topicName2.toString()))));
+        List<Set<TopicName>> described = new ArrayList<>();
+        mockKafka.setTopicsMetadataResponse(topicNames -> {
+            described.add(topicNames);
+            Map<TopicName, TopicMetadata> result = new HashMap<>();
+            result.put(topicName, Utils.getTopicMetadata(kafkaTopic));
+            result.put(topicName2, Utils.getTopicMetadata(kafkaTopic2));
+            result.keySet().retainAll(topicNames);
+            return Future.succeededFuture(result);
+        });
+        mockTopicStore.setCreateTopicResponse(topicName, null);
+        mockTopicStore.setCreateTopicResponse(topicName2, null);
+        mockK8s.setCreateResponse(mapName, null);
+        mockK8s.setCreateResponse(topicName2.asMapName(), null);
+
+        Future<?> reconcileFuture = topicOperator.reconcileAllTopics("periodic");
+
+        reconcileFuture.setHandler(context.asyncAssertSuccess(v -> {
+            context.assertEquals(2, described.size());
+            context.assertEquals(1, described.get(0).size());
+            context.assertEquals(1, described.get(1).size());
+            mockK8s.assertExists(context, mapName);
+            mockK8s.assertExists(context, topicName2.asMapName());
+        }));
+    }
+
     // TODO tests for nasty races (e.g. create on both ends, update on one end and delete on the other)
     // I think in these cases we should seek to detect the concurrent modification
     // and perform a full reconciliation, possibly after a backoff time
@@ -299,5 +299,33 @@ public class TopicSerializationTest {
         }
     }
 
-}
+    @Test
+    public void testErrorInConfigNotAnObject() {
+        Map<String, String> data = new HashMap<>();
+        data.put(TopicSerialization.CM_KEY_REPLICAS, "1");
+        data.put(TopicSerialization.CM_KEY_PARTITIONS, "1");
+        data.put(TopicSerialization.CM_KEY_CONFIG, "[\"cleanup.policy\"]");
 
+        ConfigMap cm = new ConfigMapBuilder().editOrNewMetadata().withName("my-topic")
+                .endMetadata().withData(data).build();
+
+        try {
+            TopicSerialization.fromConfigMap(cm);
+            fail("Should throw");
+        } catch (InvalidConfigMapException e) {
+            assertEquals("ConfigMap's 'data' section has invalid key 'config': " +
+                    "Expected a JSON object but got START_ARRAY\n" +
+                    " at [Source: UNKNOWN; line: 1, column: 2]",
+                    e.getMessage());
+        }
+    }
+
+    @Test
+    public void testJsonRoundTripIgnoresUnknownFields() throws UnsupportedEncodingException {
+        Topic topic = new Topic.Builder("tom", 2, (short) 3, singletonMap("foo", "bar")).build();
+        String json = new String(TopicSerialization.toJson(topic), "UTF-8");
+        json = json.replace("\"config\"", "\"uid\":{\"a\":[1,2]},\"config\"");
+        assertEquals(topic, TopicSerialization.fromJson(json.getBytes("UTF-8")));
+    }
+
+}
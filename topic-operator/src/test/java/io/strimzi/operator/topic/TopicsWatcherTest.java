@@ -4,12 +4,15 @@
  */
 package io.strimzi.operator.topic;
 
+import io.strimzi.operator.topic.zk.ZkWatchManager;
 import io.vertx.core.Future;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.HashSet;
+
 import static java.util.Arrays.asList;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -40,7 +43,7 @@ public class TopicsWatcherTest {
         TopicConfigsWatcher topicConfigsWatcher = new TopicConfigsWatcher(operator);
         TopicWatcher topicWatcher = new TopicWatcher(operator);
         TopicsWatcher topicsWatcher = new TopicsWatcher(operator, topicConfigsWatcher, topicWatcher);
-        topicsWatcher.start(mockZk);
+        topicsWatcher.start(new ZkWatchManager(mockZk));
         mockZk.triggerChildren(Future.succeededFuture(asList("foo", "bar", "baz")));
         assertEquals(asList(new MockTopicOperator.MockOperatorEvent(
                 MockTopicOperator.MockOperatorEvent.Type.CREATE, new TopicName("baz"))), operator.getMockOperatorEvents());
@@ -61,6 +64,22 @@ public class TopicsWatcherTest {
                 operator.getMockOperatorEvents());
     }
 
+    @Test
+    public void testTopicsResyncedInNewSession() {
+        // First add a topic
+        addTopic();
+        operator.clearEvents();
+        operator.topicDeletedResult = Future.succeededFuture();
+        // While there was no session bar and baz were deleted and qux was created
+        mockZk.childrenResult = Future.succeededFuture(asList("foo", "qux"));
+        mockZk.triggerSessionReestablished();
+        assertEquals(new HashSet<>(asList(
+                new MockTopicOperator.MockOperatorEvent(MockTopicOperator.MockOperatorEvent.Type.DELETE, new TopicName("bar")),
+                new MockTopicOperator.MockOperatorEvent(MockTopicOperator.MockOperatorEvent.Type.DELETE, new TopicName("baz")),
+                new MockTopicOperator.MockOperatorEvent(MockTopicOperator.MockOperatorEvent.Type.CREATE, new TopicName("qux")))),
+                new HashSet<>(operator.getMockOperatorEvents()));
+    }
+
     @Test
     public void testTopicDelete() {
         operator = new MockTopicOperator();
@@ -70,7 +89,7 @@ public class TopicsWatcherTest {
         TopicConfigsWatcher topicConfigsWatcher = new TopicConfigsWatcher(operator);
         TopicWatcher topicWatcher = new TopicWatcher(operator);
         TopicsWatcher topicsWatcher = new TopicsWatcher(operator, topicConfigsWatcher, topicWatcher);
-        topicsWatcher.start(mockZk);
+        topicsWatcher.start(new ZkWatchManager(mockZk));
         mockZk.triggerChildren(Future.succeededFuture(asList("foo")));
         assertEquals(asList(new MockTopicOperator.MockOperatorEvent(
                 MockTopicOperator.MockOperatorEvent.Type.DELETE, new TopicName("bar"))), operator.getMockOperatorEvents());
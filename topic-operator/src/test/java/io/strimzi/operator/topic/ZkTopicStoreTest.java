@@ -5,20 +5,26 @@
 package io.strimzi.operator.topic;
 
 import io.strimzi.operator.topic.zk.ZkImpl;
+import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
+import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import io.vertx.ext.unit.Async;
 import io.vertx.ext.unit.TestContext;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.apache.zookeeper.KeeperException;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 
 import static org.junit.Assert.assertEquals;
 
@@ -37,7 +43,7 @@ public class ZkTopicStoreTest {
             throws IOException, InterruptedException,
             TimeoutException, ExecutionException {
         this.zkServer = new EmbeddedZooKeeper();
-        zk = new ZkImpl(vertx, zkServer.getZkConnectString(), 60000, false);
+        zk = new ZkImpl(vertx, zkServer.getZkConnectString(), 60000, false, "test");
         this.store = new ZkTopicStore(zk);
     }
 
@@ -148,4 +154,131 @@ public class ZkTopicStoreTest {
         async6.await();
     }
 
+    private Topic topic(int i) {
+        return new Topic.Builder("topic-" + i, 2, (short) 3, Collections.singletonMap("foo", "bar")).build();
+    }
+
+    @Test
+    public void testBatchedCreateWithConflict(TestContext context) {
+        ZkTopicStore batchingStore = new ZkTopicStore(zk, vertx, 10, 50);
+
+        Async existing = context.async();
+        store.create(topic(5), context.asyncAssertSuccess(v -> existing.complete()));
+        existing.await();
+
+        // topic-5 already exists, so the transaction fails, and the others have to be retried
+        Async created = context.async(10);
+        for (int i = 0; i < 10; i++) {
+            int n = i;
+            batchingStore.create(topic(i), ar -> {
+                if (n == 5) {
+                    context.assertTrue(ar.failed());
+                    context.assertTrue(ar.cause() instanceof TopicStore.EntityExistsException);
+                } else {
+                    context.assertTrue(ar.succeeded(), String.valueOf(ar.cause()));
+                }
+                created.countDown();
+            });
+        }
+        created.await();
+
+        Async read = context.async(10);
+        for (int i = 0; i < 10; i++) {
+            store.read(new TopicName("topic-" + i), context.asyncAssertSuccess(topic -> {
+                context.assertNotNull(topic);
+                read.countDown();
+            }));
+        }
+        read.await();
+
+        // Deletes within the flush window are batched too.
+        // Which of the two deletes of topic-0 is the one that fails depends on their order in the batch
+        Async deleted = context.async(11);
+        List<AsyncResult<Void>> topic0Results = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 1; i < 10; i++) {
+            batchingStore.delete(new TopicName("topic-" + i), context.asyncAssertSuccess(v -> deleted.countDown()));
+        }
+        for (int i = 0; i < 2; i++) {
+            batchingStore.delete(new TopicName("topic-0"), ar -> {
+                topic0Results.add(ar);
+                deleted.countDown();
+            });
+        }
+        deleted.await();
+        context.assertEquals(1, (int) topic0Results.stream().filter(AsyncResult::succeeded).count());
+        for (AsyncResult<Void> ar : topic0Results) {
+            context.assertTrue(ar.succeeded() || ar.cause() instanceof TopicStore.NoSuchEntityExistsException,
+                    String.valueOf(ar.cause()));
+        }
+    }
+
+    private <T> T await(TestContext context, Consumer<Handler<AsyncResult<T>>> op) {
+        Async async = context.async();
+        Future<T> future = Future.future();
+        op.accept(ar -> {
+            future.handle(ar);
+            async.complete();
+        });
+        async.await();
+        return future.result();
+    }
+
+    @Test
+    public void testReadsCachedAndKeptCurrent(TestContext context) {
+        Topic topic = topic(1);
+        TopicName topicName = topic.getTopicName();
+        this.<Void>await(context, h -> store.create(topic, h));
+        assertEquals(topic, this.<Topic>await(context, h -> store.read(topicName, h)));
+
+        // Change the znode behind the store's back, the watch should invalidate the cache
+        Topic changed = new Topic.Builder(topic).withNumPartitions(5).build();
+        this.<Void>await(context, h -> zk.setData(ZkTopicStore.TOPICS_PATH + "/" + topicName, TopicSerialization.toJson(changed), -1, h));
+        Async async = context.async();
+        vertx.setPeriodic(10, timerId -> store.read(topicName, context.asyncAssertSuccess(read -> {
+            if (changed.equals(read) && read.getNumPartitions() == 5) {
+                vertx.cancelTimer(timerId);
+                async.complete();
+            }
+        })));
+        async.await();
+
+        // And a delete should remove it
+        this.<Void>await(context, h -> zk.delete(ZkTopicStore.TOPICS_PATH + "/" + topicName, -1, h));
+        Async deleted = context.async();
+        vertx.setPeriodic(10, timerId -> store.read(topicName, context.asyncAssertSuccess(read -> {
+            if (read == null && !deleted.isCompleted()) {
+                vertx.cancelTimer(timerId);
+                deleted.complete();
+            }
+        })));
+    }
+
+    @Test
+    public void testConcurrentUpdateFails(TestContext context) {
+        Topic topic = topic(1);
+        TopicName topicName = topic.getTopicName();
+        String topicPath = ZkTopicStore.TOPICS_PATH + "/" + topicName;
+        this.<Void>await(context, h -> store.create(topic, h));
+        this.<Topic>await(context, h -> store.read(topicName, h));
+
+        // Our updates keep the cached version current
+        this.<Void>await(context, h -> store.update(new Topic.Builder(topic).withNumPartitions(3).build(), h));
+        this.<Void>await(context, h -> store.update(new Topic.Builder(topic).withNumPartitions(4).build(), h));
+
+        // Remove the watch, so the store doesn't observe a concurrent modification
+        // before it tries to update
+        zk.unwatchData(topicPath);
+        Topic concurrent = new Topic.Builder(topic).withNumPartitions(5).build();
+        this.<Void>await(context, h -> zk.setData(topicPath, TopicSerialization.toJson(concurrent), -1, h));
+
+        Async async = context.async();
+        store.update(new Topic.Builder(topic).withNumPartitions(6).build(), ar -> {
+            context.assertTrue(ar.failed());
+            context.assertTrue(ar.cause() instanceof KeeperException.BadVersionException, String.valueOf(ar.cause()));
+            async.complete();
+        });
+        async.await();
+        // The failed update invalidated the cache
+        assertEquals(5, this.<Topic>await(context, h -> store.read(topicName, h)).getNumPartitions());
+    }
 }
@@ -5,10 +5,13 @@
 package io.strimzi.operator.topic.zk;
 
 import io.strimzi.operator.topic.EmbeddedZooKeeper;
+import io.vertx.core.Future;
 import io.vertx.core.Vertx;
 import io.vertx.ext.unit.Async;
 import io.vertx.ext.unit.TestContext;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.apache.zookeeper.CreateMode;
 import org.junit.After;
 import org.junit.Before;
@@ -18,8 +21,13 @@ import org.junit.runner.RunWith;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
@@ -27,6 +35,8 @@ import static java.util.Collections.singletonList;
 @RunWith(VertxUnitRunner.class)
 public class ZkImplTest {
 
+    private static final Logger LOGGER = LogManager.getLogger(ZkImplTest.class);
+
     private EmbeddedZooKeeper zkServer;
 
     private Vertx vertx = Vertx.vertx();
@@ -38,7 +48,7 @@ public class ZkImplTest {
             TimeoutException, ExecutionException {
         this.zkServer = new EmbeddedZooKeeper();
 
-        zk = new ZkImpl(vertx, zkServer.getZkConnectString(), 60_000, false);
+        zk = new ZkImpl(vertx, zkServer.getZkConnectString(), 60_000, false, "test");
     }
 
     @After
@@ -53,7 +63,7 @@ public class ZkImplTest {
     @Ignore
     @Test
     public void testReconnectOnBounce(TestContext context) throws IOException, InterruptedException {
-        ZkImpl zkImpl = new ZkImpl(vertx, zkServer.getZkConnectString(), 60_000, false);
+        ZkImpl zkImpl = new ZkImpl(vertx, zkServer.getZkConnectString(), 60_000, false, "test");
         zkServer.restart();
         Async async = context.async();
         zkImpl.create("/foo", null, AclBuilder.PUBLIC, CreateMode.PERSISTENT, ar -> {
@@ -75,6 +85,19 @@ public class ZkImplTest {
         });
     }
 
+    @Test
+    public void testNewSessionAfterExpiry(TestContext context) {
+        Async reestablished = context.async();
+        zk.onSessionReestablished(ignored -> reestablished.complete());
+        zkServer.expireSessions();
+        reestablished.await();
+        Async created = context.async();
+        zk.create("/foo", null, AclBuilder.PUBLIC, CreateMode.PERSISTENT, ar -> {
+            context.assertTrue(ar.succeeded(), ar.toString());
+            created.complete();
+        });
+    }
+
     @Test
     public void testWatchUnwatchChildren(TestContext context) {
         // Create a node
@@ -153,4 +176,80 @@ public class ZkImplTest {
         });
     }
 
+    /**
+     * Many concurrent reconciliations, each doing a create, get, set, get, delete cycle on its own znode,
+     * issued from many threads at once. Every operation must succeed and every read must see
+     * the data last written to the znode.
+     */
+    @Test
+    public void testConcurrentOperations(TestContext context) throws InterruptedException {
+        int threads = 16;
+        int cyclesPerThread = 50;
+        Async parent = context.async();
+        zk.create("/stress", null, AclBuilder.PUBLIC, CreateMode.PERSISTENT, context.asyncAssertSuccess(v -> parent.complete()));
+        parent.await();
+
+        Async done = context.async(threads * cyclesPerThread);
+        AtomicInteger succeeded = new AtomicInteger();
+        List<String> failures = new CopyOnWriteArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            executor.submit(() -> {
+                for (int cycle = 0; cycle < cyclesPerThread; cycle++) {
+                    stressCycle("/stress/" + thread + "-" + cycle, succeeded, failures, done);
+                }
+            });
+        }
+        done.await(60_000);
+        executor.shutdown();
+        context.assertEquals(emptyList(), failures);
+        context.assertEquals(threads * cyclesPerThread, succeeded.get());
+
+        // Every cycle deleted its znode
+        Async listed = context.async();
+        zk.children("/stress", context.asyncAssertSuccess(children -> {
+            context.assertEquals(emptyList(), children);
+            listed.complete();
+        }));
+        listed.await();
+    }
+
+    private void stressCycle(String path, AtomicInteger succeeded, List<String> failures, Async done) {
+        byte[] data1 = {1};
+        byte[] data2 = {2};
+        Future<Void> created = Future.future();
+        zk.create(path, data1, AclBuilder.PUBLIC, CreateMode.PERSISTENT, created);
+        created.compose(ignored -> {
+            Future<byte[]> got = Future.future();
+            zk.getData(path, got);
+            return got;
+        }).compose(data -> {
+            if (!Arrays.equals(data1, data)) {
+                return Future.failedFuture("read " + Arrays.toString(data) + " after creating with " + Arrays.toString(data1));
+            }
+            Future<Void> set = Future.future();
+            zk.setData(path, data2, 0, set);
+            return set;
+        }).compose(ignored -> {
+            Future<byte[]> got = Future.future();
+            zk.getData(path, got);
+            return got;
+        }).compose(data -> {
+            if (!Arrays.equals(data2, data)) {
+                return Future.failedFuture("read " + Arrays.toString(data) + " after setting " + Arrays.toString(data2));
+            }
+            Future<Void> deleted = Future.future();
+            zk.delete(path, 1, deleted);
+            return deleted;
+        }).setHandler(ar -> {
+            if (ar.succeeded()) {
+                succeeded.incrementAndGet();
+            } else {
+                LOGGER.error("Cycle on {} failed", path, ar.cause());
+                failures.add(path + ": " + ar.cause());
+            }
+            done.countDown();
+        });
+    }
 }
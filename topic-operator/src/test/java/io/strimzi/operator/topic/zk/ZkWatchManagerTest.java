@@ -0,0 +1,176 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.operator.topic.zk;
+
+import io.strimzi.operator.topic.EmbeddedZooKeeper;
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.apache.zookeeper.CreateMode;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
+
+@RunWith(VertxUnitRunner.class)
+public class ZkWatchManagerTest {
+
+    private EmbeddedZooKeeper zkServer;
+
+    private Vertx vertx = Vertx.vertx();
+    private ZkImpl zk;
+    private ZkWatchManager watchManager;
+
+    @Before
+    public void setup() throws IOException, InterruptedException {
+        this.zkServer = new EmbeddedZooKeeper();
+        zk = new ZkImpl(vertx, zkServer.getZkConnectString(), 60_000, false, "test");
+        watchManager = new ZkWatchManager(zk, 2);
+    }
+
+    @After
+    public void teardown() throws InterruptedException {
+        zk.disconnect();
+        if (this.zkServer != null) {
+            this.zkServer.close();
+        }
+        vertx.close();
+    }
+
+    private void create(TestContext context, String path, byte[] data) {
+        Async async = context.async();
+        zk.create(path, data, AclBuilder.PUBLIC, CreateMode.PERSISTENT, ar -> {
+            context.assertTrue(ar.succeeded(), ar.toString());
+            async.complete();
+        });
+        async.await();
+    }
+
+    private void setData(TestContext context, String path, byte[] data) {
+        Async async = context.async();
+        zk.setData(path, data, -1, ar -> {
+            context.assertTrue(ar.succeeded(), ar.toString());
+            async.complete();
+        });
+        async.await();
+    }
+
+    @Test
+    public void testDataWatchIsShared(TestContext context) {
+        create(context, "/foo", new byte[]{1});
+        byte[] data2 = {2};
+        Async changed = context.async(2);
+        ZkWatchManager.DataListener listener1 = (path, result) -> {
+            context.assertEquals("/foo", path);
+            context.assertTrue(Arrays.equals(data2, result.result()));
+            changed.countDown();
+        };
+        ZkWatchManager.DataListener listener2 = (path, result) -> {
+            changed.countDown();
+        };
+        watchManager.watchData("/foo", listener1);
+        watchManager.watchData("/foo", listener2);
+        context.assertTrue(watchManager.watchingData("/foo"));
+        setData(context, "/foo", data2);
+        changed.await();
+
+        watchManager.unwatchData("/foo", listener1);
+        context.assertTrue(watchManager.watchingData("/foo"));
+        watchManager.unwatchData("/foo", listener2);
+        context.assertFalse(watchManager.watchingData("/foo"));
+    }
+
+    @Test
+    public void testChildrenAreDiffed(TestContext context) {
+        create(context, "/parent", null);
+        create(context, "/parent/a", null);
+        List<Set<String>> added = new CopyOnWriteArrayList<>();
+        List<Set<String>> removed = new CopyOnWriteArrayList<>();
+        Async initial = context.async();
+        Async changed = context.async();
+        ZkWatchManager.ChildrenListener listener = (path, a, r) -> {
+            added.add(a);
+            removed.add(r);
+            changed.complete();
+        };
+        watchManager.watchChildren("/parent", listener, ar -> {
+            context.assertEquals(singleton("a"), ar.result());
+            initial.complete();
+        });
+        initial.await();
+        create(context, "/parent/b", null);
+        changed.await();
+        context.assertEquals(singleton("b"), added.get(0));
+        context.assertEquals(emptySet(), removed.get(0));
+    }
+
+    @Test
+    public void testRearmWithoutChanges(TestContext context) {
+        create(context, "/foo", new byte[]{1});
+        create(context, "/bar", new byte[]{1});
+        create(context, "/baz", new byte[]{1});
+        boolean[] failOnChange = {false};
+        ZkWatchManager.DataListener listener = (path, result) -> {
+            if (failOnChange[0]) {
+                context.fail("Unexpected change to " + path);
+            }
+        };
+        watchManager.watchData("/foo", listener);
+        watchManager.watchData("/bar", listener);
+        watchManager.watchData("/baz", listener);
+        // The first rearm makes sure the data is known, so there's something to compare with
+        Async rearmed = context.async();
+        watchManager.rearm(ar -> {
+            context.assertTrue(ar.succeeded(), ar.toString());
+            rearmed.complete();
+        });
+        rearmed.await();
+        failOnChange[0] = true;
+        Async rearmed2 = context.async();
+        watchManager.rearm(ar -> {
+            context.assertTrue(ar.succeeded(), ar.toString());
+            rearmed2.complete();
+        });
+    }
+
+    @Test
+    public void testWatchesAreSetInNewSession(TestContext context) {
+        create(context, "/foo", new byte[]{1});
+        create(context, "/parent", null);
+        byte[] data2 = {2};
+        Async dataChanged = context.async();
+        Async childAdded = context.async();
+        Async initial = context.async();
+        watchManager.watchData("/foo", (path, result) -> {
+            if (result.succeeded() && Arrays.equals(data2, result.result())) {
+                dataChanged.complete();
+            }
+        });
+        watchManager.watchChildren("/parent", (path, added, removed) -> {
+            if (added.contains("a")) {
+                childAdded.complete();
+            }
+        }, ar -> initial.complete());
+        initial.await();
+
+        Async reestablished = context.async();
+        zk.onSessionReestablished(ignored -> reestablished.complete());
+        zkServer.expireSessions();
+        reestablished.await();
+
+        setData(context, "/foo", data2);
+        create(context, "/parent/a", null);
+    }
+}